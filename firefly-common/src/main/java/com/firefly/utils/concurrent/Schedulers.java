@@ -7,6 +7,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.time.HierarchicalTimeWheel;
 
 abstract public class Schedulers {
 
@@ -83,4 +84,16 @@ abstract public class Schedulers {
 	public static Scheduler computation() {
 		return createScheduler(coreSize);
 	}
+
+	/**
+	 * Create a hierarchical timing wheel scheduler. The scheduling and
+	 * cancelling are O(1), it is suitable for the large number of the
+	 * timeouts that are usually cancelled before they expire. The accuracy of
+	 * the timers is 10 milliseconds and the tasks run in the wheel thread.
+	 * 
+	 * @return The timing wheel scheduler
+	 */
+	public static Scheduler createTimeWheel() {
+		return new HierarchicalTimeWheel();
+	}
 }
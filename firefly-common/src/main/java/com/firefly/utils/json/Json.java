@@ -3,11 +3,17 @@ package com.firefly.utils.json;
 import com.firefly.utils.exception.CommonRuntimeException;
 import com.firefly.utils.json.io.JsonStringReader;
 import com.firefly.utils.json.io.JsonStringWriter;
+import com.firefly.utils.json.io.JsonUtf8Reader;
+import com.firefly.utils.json.io.JsonUtf8Writer;
 import com.firefly.utils.json.parser.GeneralJSONObjectStateMacine;
 import com.firefly.utils.json.parser.ParserStateMachine;
 import com.firefly.utils.json.serializer.SerialStateMachine;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 public abstract class Json {
 
@@ -20,6 +26,35 @@ public abstract class Json {
         }
     }
 
+    /**
+     * Write the UTF-8 JSON bytes of the object to the output stream, the stream is flushed but not closed.
+     *
+     * @param obj The object
+     * @param out The output stream
+     */
+    public static void toJson(Object obj, OutputStream out) {
+        try (JsonWriter writer = new JsonUtf8Writer(out)) {
+            SerialStateMachine.toJson(obj, writer);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the UTF-8 JSON bytes of the object.
+     *
+     * @param obj The object
+     * @return The byte buffers of the JSON content
+     */
+    public static List<ByteBuffer> toJsonBuffers(Object obj) {
+        try (JsonUtf8Writer writer = new JsonUtf8Writer()) {
+            SerialStateMachine.toJson(obj, writer);
+            return writer.getBuffers();
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> T toObject(String json, Class<T> clazz) {
         try (JsonReader reader = new JsonStringReader(json)) {
@@ -29,6 +64,24 @@ public abstract class Json {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    public static <T> T toObject(List<ByteBuffer> json, Class<T> clazz) {
+        try (JsonReader reader = new JsonUtf8Reader(json)) {
+            return (T) ParserStateMachine.toObject(reader, clazz);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T toObject(InputStream json, Class<T> clazz) {
+        try (JsonReader reader = new JsonUtf8Reader(json)) {
+            return (T) ParserStateMachine.toObject(reader, clazz);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
     public static JsonObject toJsonObject(String json) {
         try (JsonReader reader = new JsonStringReader(json)) {
             return GeneralJSONObjectStateMacine.toJsonObject(reader);
@@ -37,6 +90,14 @@ public abstract class Json {
         }
     }
 
+    public static JsonObject toJsonObject(List<ByteBuffer> json) {
+        try (JsonReader reader = new JsonUtf8Reader(json)) {
+            return GeneralJSONObjectStateMacine.toJsonObject(reader);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
     public static JsonArray toJsonArray(String json) {
         try (JsonReader reader = new JsonStringReader(json)) {
             return GeneralJSONObjectStateMacine.toJsonArray(reader);
@@ -45,4 +106,12 @@ public abstract class Json {
         }
     }
 
+    public static JsonArray toJsonArray(List<ByteBuffer> json) {
+        try (JsonReader reader = new JsonUtf8Reader(json)) {
+            return GeneralJSONObjectStateMacine.toJsonArray(reader);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
 }
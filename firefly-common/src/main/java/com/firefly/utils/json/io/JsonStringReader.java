@@ -18,6 +18,16 @@ public class JsonStringReader extends JsonReader {
 		chars = str.toCharArray();
 		limit = chars.length;
 	}
+
+	/**
+	 * Create a reader of the decoded chars, the chars are not copied.
+	 *
+	 * @param chars The JSON chars, the array length is the length of the JSON content
+	 */
+	public JsonStringReader(char[] chars) {
+		this.chars = chars;
+		limit = chars.length;
+	}
 	
 	@Override
 	public void increasePosition() {
@@ -0,0 +1,162 @@
+package com.firefly.utils.json.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The JSON reader of the UTF-8 bytes. The bytes are decoded to the chars of
+ * the reader directly, the JSON string is never built. The positions of the
+ * byte buffers are not changed.
+ *
+ * @author Pengtao Qiu
+ */
+public class JsonUtf8Reader extends JsonStringReader {
+
+	private static final int READ_SIZE = 8 * 1024;
+
+	public JsonUtf8Reader(ByteBuffer buffer) {
+		this(Collections.singletonList(buffer));
+	}
+
+	public JsonUtf8Reader(List<ByteBuffer> buffers) {
+		this(decode(buffers));
+	}
+
+	public JsonUtf8Reader(InputStream in) throws IOException {
+		this(decode(in));
+	}
+
+	private JsonUtf8Reader(Utf8Decoder decoder) {
+		super(decoder.toChars());
+	}
+
+	private static Utf8Decoder decode(List<ByteBuffer> buffers) {
+		int size = 0;
+		for (ByteBuffer buffer : buffers) {
+			size += buffer.remaining();
+		}
+
+		// a UTF-8 byte sequence is never decoded to more chars than its length
+		Utf8Decoder decoder = new Utf8Decoder(size);
+		for (ByteBuffer buffer : buffers) {
+			if (buffer.hasArray()) {
+				decoder.decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			} else {
+				for (int i = buffer.position(); i < buffer.limit(); i++) {
+					decoder.decode(buffer.get(i));
+				}
+			}
+		}
+		decoder.finish();
+		return decoder;
+	}
+
+	private static Utf8Decoder decode(InputStream in) throws IOException {
+		Utf8Decoder decoder = new Utf8Decoder(READ_SIZE);
+		byte[] bytes = new byte[READ_SIZE];
+		for (int len; (len = in.read(bytes)) != -1;) {
+			decoder.ensureCapacity(len);
+			decoder.decode(bytes, 0, len);
+		}
+		decoder.finish();
+		return decoder;
+	}
+
+	/**
+	 * The incremental UTF-8 decoder, the malformed sequences are replaced by
+	 * U+FFFD.
+	 */
+	private static class Utf8Decoder {
+		private static final char REPLACEMENT = '\ufffd';
+
+		private char[] chars;
+		private int length;
+		private int codePoint;
+		private int minCodePoint;
+		private int needed;
+
+		private Utf8Decoder(int capacity) {
+			chars = new char[capacity];
+		}
+
+		private void ensureCapacity(int size) {
+			int minCapacity = length + size + 1;
+			if (minCapacity > chars.length) {
+				char[] newChars = new char[Math.max(minCapacity, chars.length * 3 / 2 + 1)];
+				System.arraycopy(chars, 0, newChars, 0, length);
+				chars = newChars;
+			}
+		}
+
+		private void decode(byte[] bytes, int offset, int len) {
+			int end = offset + len;
+			for (int i = offset; i < end; i++) {
+				byte b = bytes[i];
+				if (b >= 0 && needed == 0) {
+					chars[length++] = (char) b;
+				} else {
+					decode(b);
+				}
+			}
+		}
+
+		private void decode(byte b) {
+			int v = b & 0xff;
+			if (needed == 0) {
+				if (v < 0x80) {
+					chars[length++] = (char) v;
+				} else if (v >= 0xc2 && v < 0xe0) {
+					start(v & 0x1f, 1, 0x80);
+				} else if (v >= 0xe0 && v < 0xf0) {
+					start(v & 0x0f, 2, 0x800);
+				} else if (v >= 0xf0 && v < 0xf5) {
+					start(v & 0x07, 3, 0x10000);
+				} else {
+					chars[length++] = REPLACEMENT;
+				}
+			} else if ((v & 0xc0) == 0x80) {
+				codePoint = (codePoint << 6) | (v & 0x3f);
+				if (--needed == 0) {
+					if (codePoint < minCodePoint || codePoint > Character.MAX_CODE_POINT
+							|| (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+						chars[length++] = REPLACEMENT;
+					} else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+						chars[length++] = Character.highSurrogate(codePoint);
+						chars[length++] = Character.lowSurrogate(codePoint);
+					} else {
+						chars[length++] = (char) codePoint;
+					}
+				}
+			} else {
+				// the sequence is truncated, the byte starts a new character
+				needed = 0;
+				chars[length++] = REPLACEMENT;
+				decode(b);
+			}
+		}
+
+		private void start(int bits, int needed, int minCodePoint) {
+			this.codePoint = bits;
+			this.needed = needed;
+			this.minCodePoint = minCodePoint;
+		}
+
+		private char[] toChars() {
+			// the reader reads the whole array, the unused capacity is trimmed
+			return length == chars.length ? chars : Arrays.copyOf(chars, length);
+		}
+
+		private void finish() {
+			if (needed != 0) {
+				needed = 0;
+				ensureCapacity(1);
+				chars[length++] = REPLACEMENT;
+			}
+		}
+	}
+
+}
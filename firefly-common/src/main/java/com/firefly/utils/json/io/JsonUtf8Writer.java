@@ -0,0 +1,266 @@
+package com.firefly.utils.json.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.firefly.utils.exception.CommonRuntimeException;
+
+/**
+ * The JSON writer that encodes the content to UTF-8 bytes. When the content
+ * exceeds the flush size, it is encoded and written to the output stream or
+ * appended to the byte buffers, so the whole JSON string is never built.
+ *
+ * @author Pengtao Qiu
+ */
+public class JsonUtf8Writer extends JsonStringWriter {
+
+	public static final int DEFAULT_FLUSH_SIZE = 8 * 1024;
+	protected final static ThreadLocal<SoftReference<byte[]>> bytesLocal = new ThreadLocal<SoftReference<byte[]>>();
+
+	private final OutputStream out;
+	private final List<ByteBuffer> buffers;
+	private final int flushSize;
+	private byte[] bytes;
+	private int byteCount;
+
+	/**
+	 * Create a writer that writes the UTF-8 bytes to the output stream. The
+	 * stream is flushed but not closed when the writer is closed.
+	 *
+	 * @param out The output stream
+	 */
+	public JsonUtf8Writer(OutputStream out) {
+		this.out = out;
+		this.buffers = null;
+		this.flushSize = DEFAULT_FLUSH_SIZE;
+		SoftReference<byte[]> ref = bytesLocal.get();
+		if (ref != null) {
+			bytes = ref.get();
+			bytesLocal.set(null);
+		}
+		if (bytes == null)
+			bytes = new byte[flushSize];
+	}
+
+	/**
+	 * Create a writer that collects the UTF-8 bytes in the byte buffers.
+	 *
+	 * @see #getBuffers()
+	 */
+	public JsonUtf8Writer() {
+		this.out = null;
+		this.buffers = new ArrayList<ByteBuffer>();
+		this.flushSize = DEFAULT_FLUSH_SIZE;
+		bytes = new byte[flushSize];
+	}
+
+	/**
+	 * Encode the remaining content and get the byte buffers, the writer must
+	 * be created without the output stream.
+	 *
+	 * @return The UTF-8 bytes of the JSON content
+	 */
+	public List<ByteBuffer> getBuffers() {
+		if (buffers == null)
+			throw new IllegalStateException("the writer writes to the output stream");
+		encode(true);
+		emit();
+		return buffers;
+	}
+
+	@Override
+	public void write(int c) {
+		flushIfFull();
+		super.write(c);
+	}
+
+	@Override
+	public void write(char[] c, int off, int len) {
+		flushIfFull();
+		super.write(c, off, len);
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		flushIfFull();
+		super.write(str, off, len);
+	}
+
+	@Override
+	public void writeInt(int i) {
+		flushIfFull();
+		super.writeInt(i);
+	}
+
+	@Override
+	public void writeLong(long i) {
+		flushIfFull();
+		super.writeLong(i);
+	}
+
+	@Override
+	public void writeStringWithQuote(String value) {
+		flushIfFull();
+		super.writeStringWithQuote(value);
+	}
+
+	@Override
+	public void writeStringArray(String[] array) {
+		flushIfFull();
+		super.writeStringArray(array);
+	}
+
+	@Override
+	public void writeIntArray(int[] array) {
+		flushIfFull();
+		super.writeIntArray(array);
+	}
+
+	@Override
+	public void writeIntArray(Integer[] array) {
+		flushIfFull();
+		super.writeIntArray(array);
+	}
+
+	@Override
+	public void writeShortArray(short[] array) {
+		flushIfFull();
+		super.writeShortArray(array);
+	}
+
+	@Override
+	public void writeShortArray(Short[] array) {
+		flushIfFull();
+		super.writeShortArray(array);
+	}
+
+	@Override
+	public void writeLongArray(long[] array) {
+		flushIfFull();
+		super.writeLongArray(array);
+	}
+
+	@Override
+	public void writeLongArray(Long[] array) {
+		flushIfFull();
+		super.writeLongArray(array);
+	}
+
+	@Override
+	public void writeBooleanArray(boolean[] array) {
+		flushIfFull();
+		super.writeBooleanArray(array);
+	}
+
+	@Override
+	public void writeBooleanArray(Boolean[] array) {
+		flushIfFull();
+		super.writeBooleanArray(array);
+	}
+
+	@Override
+	public void flush() {
+		encode(false);
+		emit();
+		if (out != null) {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				throw new CommonRuntimeException(e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (buffers != null) {
+			getBuffers();
+		} else {
+			encode(true);
+			flush();
+			bytesLocal.set(new SoftReference<byte[]>(bytes));
+		}
+		super.close();
+	}
+
+	private void flushIfFull() {
+		if (count >= flushSize) {
+			encode(false);
+		}
+	}
+
+	/**
+	 * Encode the chars to the UTF-8 bytes, the lone surrogates are replaced by '?'.
+	 *
+	 * @param endOfInput If it is false, the trailing high surrogate is kept until its low surrogate is written
+	 */
+	private void encode(boolean endOfInput) {
+		int i = 0;
+		for (; i < count; i++) {
+			if (byteCount + 4 > bytes.length) {
+				emit();
+			}
+
+			char c = buf[i];
+			if (c < 0x80) {
+				bytes[byteCount++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[byteCount++] = (byte) (0xc0 | (c >> 6));
+				bytes[byteCount++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c)) {
+				if (i + 1 < count) {
+					char low = buf[i + 1];
+					if (Character.isLowSurrogate(low)) {
+						int codePoint = Character.toCodePoint(c, low);
+						bytes[byteCount++] = (byte) (0xf0 | (codePoint >> 18));
+						bytes[byteCount++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+						bytes[byteCount++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+						bytes[byteCount++] = (byte) (0x80 | (codePoint & 0x3f));
+						i++;
+					} else {
+						bytes[byteCount++] = '?';
+					}
+				} else if (endOfInput) {
+					bytes[byteCount++] = '?';
+				} else {
+					break;
+				}
+			} else if (Character.isLowSurrogate(c)) {
+				bytes[byteCount++] = '?';
+			} else {
+				bytes[byteCount++] = (byte) (0xe0 | (c >> 12));
+				bytes[byteCount++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				bytes[byteCount++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+
+		if (i < count) {
+			buf[0] = buf[i];
+			count = 1;
+		} else {
+			count = 0;
+		}
+	}
+
+	private void emit() {
+		if (byteCount == 0)
+			return;
+
+		if (out != null) {
+			try {
+				out.write(bytes, 0, byteCount);
+			} catch (IOException e) {
+				throw new CommonRuntimeException(e);
+			}
+		} else {
+			buffers.add(ByteBuffer.wrap(bytes, 0, byteCount));
+			bytes = new byte[flushSize];
+		}
+		byteCount = 0;
+	}
+
+}
@@ -5,9 +5,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.firefly.utils.collection.IdentityHashMap;
 import com.firefly.utils.json.JsonReader;
@@ -18,7 +17,8 @@ import com.firefly.utils.json.exception.JsonException;
 public class ParserStateMachine {
 	
 	private static final IdentityHashMap<Class<?>, Parser> PARSER_MAP = new IdentityHashMap<Class<?>, Parser>();
-	private static final Lock lock = new ReentrantLock();
+	private static final Map<Class<?>, Parser> INITIALIZING_MAP = new HashMap<Class<?>, Parser>();
+	private static int registerDepth;
 	
 	private static final TimestampParser TIMESTAMP = new TimestampParser();
 	
@@ -64,42 +64,71 @@ public class ParserStateMachine {
 		PARSER_MAP.put(String[].class, new ArrayParser(String.class));
 	}
 	
+	/**
+	 * Get the parser of a class. The registered parsers are read without
+	 * locking, only the first lookup of a class registers its parser under
+	 * the class lock.
+	 */
 	public static Parser getParser(Class<?> clazz, DateFormat dateFormat) {
-		lock.lock();
-		try {
-			Parser ret = PARSER_MAP.get(clazz);
-			if (dateFormat != null && clazz == Date.class) {
-				switch (dateFormat.type()) {
-				case DATE_PATTERN_STRING:
-					ret = new DateParser(dateFormat.value());
-					break;
-				case TIMESTAMP:
-					ret = TIMESTAMP;
-					break;
-				default:
-					break;
-				}
-			} else if(ret == null) {
-				if (clazz.isEnum()) {
-					ret = new EnumParser(clazz);
-					PARSER_MAP.put(clazz, ret);
-				} else if (Collection.class.isAssignableFrom(clazz) 
-						|| Map.class.isAssignableFrom(clazz)) {
-					throw new JsonException("not support type " + clazz);
-				} else if (clazz.isArray()) {
-					Class<?> elementClass = clazz.getComponentType();
-					ret = new ArrayParser(elementClass);
-					PARSER_MAP.put(clazz, ret);
-				} else {
-					ret = new ObjectParser();
-					PARSER_MAP.put(clazz, ret);
-					((ObjectParser)ret).init(clazz);
-				}
+		Parser ret = PARSER_MAP.get(clazz);
+		if (dateFormat != null && clazz == Date.class) {
+			switch (dateFormat.type()) {
+			case DATE_PATTERN_STRING:
+				ret = new DateParser(dateFormat.value());
+				break;
+			case TIMESTAMP:
+				ret = TIMESTAMP;
+				break;
+			default:
+				break;
 			}
 			return ret;
+		}
+		return ret != null ? ret : register(clazz);
+	}
+	
+	private static synchronized Parser register(Class<?> clazz) {
+		Parser ret = PARSER_MAP.get(clazz);
+		if (ret == null) {
+			// the recursive lookup of a class that is initializing in this thread
+			ret = INITIALIZING_MAP.get(clazz);
+		}
+		if (ret != null) {
+			return ret;
+		}
+		
+		if (clazz.isEnum()) {
+			ret = new EnumParser(clazz);
+		} else if (Collection.class.isAssignableFrom(clazz) 
+				|| Map.class.isAssignableFrom(clazz)) {
+			throw new JsonException("not support type " + clazz);
+		} else if (clazz.isArray()) {
+			Class<?> elementClass = clazz.getComponentType();
+			ret = new ArrayParser(elementClass);
+		} else {
+			ret = new ObjectParser();
+		}
+		
+		INITIALIZING_MAP.put(clazz, ret);
+		registerDepth++;
+		boolean initialized = false;
+		try {
+			if (ret instanceof ObjectParser) {
+				((ObjectParser)ret).init(clazz);
+			}
+			initialized = true;
 		} finally {
-			lock.unlock();
+			// the parsers of a class graph are published together after all of them are initialized
+			if (--registerDepth == 0) {
+				if (initialized) {
+					for (Map.Entry<Class<?>, Parser> e : INITIALIZING_MAP.entrySet()) {
+						PARSER_MAP.put(e.getKey(), e.getValue());
+					}
+				}
+				INITIALIZING_MAP.clear();
+			}
 		}
+		return ret;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -5,12 +5,11 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.firefly.utils.collection.IdentityHashMap;
 import com.firefly.utils.json.JsonWriter;
@@ -20,7 +19,8 @@ import com.firefly.utils.json.annotation.DateFormat;
 
 abstract public class SerialStateMachine {
 	private static final IdentityHashMap<Class<?>, Serializer> SERIAL_MAP = new IdentityHashMap<Class<?>, Serializer>();
-	private static final Lock lock = new ReentrantLock();
+	private static final Map<Class<?>, Serializer> INITIALIZING_MAP = new HashMap<Class<?>, Serializer>();
+	private static int registerDepth;
 	
 	private static final Serializer MAP = new MapSerializer();
 	private static final Serializer COLLECTION = new CollectionSerializer();
@@ -75,47 +75,74 @@ abstract public class SerialStateMachine {
 		SERIAL_MAP.put(AtomicBoolean.class, STRING_VALUE);
 	}
 
+	/**
+	 * Get the serializer of a class. The registered serializers are read
+	 * without locking, only the first lookup of a class registers its
+	 * serializer under the class lock.
+	 */
 	public static Serializer getSerializer(Class<?> clazz, DateFormat dateFormat) {
-		lock.lock();
-		try {
-			Serializer ret = SERIAL_MAP.get(clazz);
-			if (dateFormat != null && (clazz == Date.class || Date.class.isAssignableFrom(clazz))) {
-				switch (dateFormat.type()) {
-				case DATE_PATTERN_STRING:
-					ret = new DateSerializer(dateFormat.value());
-					break;
-				case TIMESTAMP:
-					ret = TIMESTAMP;
-					break;
-				default:
-					break;
-				}
-			} else if (ret == null) {
-				if (clazz.isEnum())
-					ret = new EnumSerializer(clazz);
-				else if (Map.class.isAssignableFrom(clazz))
-					ret = MAP;
-				else if (Collection.class.isAssignableFrom(clazz))
-					ret = COLLECTION;
-				else if (clazz.isArray())
-					ret = ARRAY;
-				else if (clazz.equals(Object.class))
-					ret = DYNAMIC;
-				else
-					ret = clazz.isAnnotationPresent(CircularReferenceCheck.class) ? new ObjectSerializer() : new ObjectNoCheckSerializer();
-					
-				SERIAL_MAP.put(clazz, ret);
-				
-				if(ret instanceof ObjectNoCheckSerializer) {
-					((ObjectNoCheckSerializer)ret).init(clazz);
-				} else if(ret instanceof ObjectSerializer) {
-					((ObjectSerializer)ret).init(clazz);
-				}
+		Serializer ret = SERIAL_MAP.get(clazz);
+		if (dateFormat != null && (clazz == Date.class || Date.class.isAssignableFrom(clazz))) {
+			switch (dateFormat.type()) {
+			case DATE_PATTERN_STRING:
+				ret = new DateSerializer(dateFormat.value());
+				break;
+			case TIMESTAMP:
+				ret = TIMESTAMP;
+				break;
+			default:
+				break;
 			}
 			return ret;
+		}
+		return ret != null ? ret : register(clazz);
+	}
+
+	private static synchronized Serializer register(Class<?> clazz) {
+		Serializer ret = SERIAL_MAP.get(clazz);
+		if (ret == null) {
+			// the recursive lookup of a class that is initializing in this thread
+			ret = INITIALIZING_MAP.get(clazz);
+		}
+		if (ret != null) {
+			return ret;
+		}
+
+		if (clazz.isEnum())
+			ret = new EnumSerializer(clazz);
+		else if (Map.class.isAssignableFrom(clazz))
+			ret = MAP;
+		else if (Collection.class.isAssignableFrom(clazz))
+			ret = COLLECTION;
+		else if (clazz.isArray())
+			ret = ARRAY;
+		else if (clazz.equals(Object.class))
+			ret = DYNAMIC;
+		else
+			ret = clazz.isAnnotationPresent(CircularReferenceCheck.class) ? new ObjectSerializer() : new ObjectNoCheckSerializer();
+
+		INITIALIZING_MAP.put(clazz, ret);
+		registerDepth++;
+		boolean initialized = false;
+		try {
+			if(ret instanceof ObjectNoCheckSerializer) {
+				((ObjectNoCheckSerializer)ret).init(clazz);
+			} else if(ret instanceof ObjectSerializer) {
+				((ObjectSerializer)ret).init(clazz);
+			}
+			initialized = true;
 		} finally {
-			lock.unlock();
+			// the serializers of a class graph are published together after all of them are initialized
+			if (--registerDepth == 0) {
+				if (initialized) {
+					for (Map.Entry<Class<?>, Serializer> e : INITIALIZING_MAP.entrySet()) {
+						SERIAL_MAP.put(e.getKey(), e.getValue());
+					}
+				}
+				INITIALIZING_MAP.clear();
+			}
 		}
+		return ret;
 	}
 
 	public static void toJson(Object obj, JsonWriter writer) throws IOException {
@@ -0,0 +1,400 @@
+package com.firefly.utils.time;
+
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.log.Log;
+import com.firefly.utils.log.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The hierarchical timing wheel scheduler. It is designed for the large number of the timeouts that are
+ * usually cancelled or rescheduled before they expire, such as the idle timeouts of the streams and sessions.
+ * <p>
+ * Every level has wheelSize buckets, a bucket of the level n covers wheelSize<sup>n</sup> ticks. A timer is
+ * put in the lowest level that covers its deadline, and it is moved to the lower levels when the wheel turns
+ * to its bucket, so the scheduling and cancelling are O(1) regardless of the number of the timers.
+ * </p>
+ * <p>
+ * The worker thread owns the wheels. The other threads offer the new and cancelled timers to the lock free
+ * queues, the worker moves them to the wheels once per tick. The ticks are aligned to the start time of the
+ * worker instead of sleeping a fixed interval, so the wheel does not drift, and the worker catches up the
+ * missed ticks after a pause. The timers that expire in the ticks are run as a batch in the worker thread,
+ * the tasks must be short.
+ * </p>
+ * <p>
+ * The worker is started when the first timer is scheduled. A stopped wheel can not be restarted, the timers
+ * that are scheduled after it is stopped are rejected.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+public class HierarchicalTimeWheel extends AbstractLifeCycle implements Scheduler {
+
+    private static Log log = LogFactory.getInstance().getLog("firefly-system");
+
+    public static final long DEFAULT_TICK_DURATION = 10L;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    public static final int DEFAULT_LEVELS = 4;
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final String name;
+    private final long tickNanos;
+    private final int bits;
+    private final long mask;
+    private final long maxTicks;
+    private final Bucket[][] wheels;
+
+    private final Queue<Timer> newTimers = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> cancelledTimers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimers = new AtomicInteger();
+
+    private volatile long startTime;
+    private volatile boolean running;
+    private volatile boolean terminated;
+    private volatile Thread worker;
+    // the last processed tick, it is accessed by the worker thread only
+    private long tick;
+
+    public HierarchicalTimeWheel() {
+        this("firefly time wheel", DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, DEFAULT_LEVELS);
+    }
+
+    /**
+     * @param name         The worker thread name
+     * @param tickDuration The duration of a tick, it is the accuracy of the timers
+     * @param unit         The time unit of the tick duration
+     * @param wheelSize    The number of the buckets of a level, it is rounded up to the power of 2
+     * @param levels       The number of the levels, the wheel holds the timers that expire in
+     *                     wheelSize<sup>levels</sup> ticks, the later timers are checked again when the wheel
+     *                     turns to the last tick
+     */
+    public HierarchicalTimeWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, int levels) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration);
+        }
+        if (wheelSize < 2 || levels <= 0) {
+            throw new IllegalArgumentException("wheelSize: " + wheelSize + ", levels: " + levels);
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.bits = Integer.numberOfTrailingZeros(size);
+        if (bits * levels > 48) {
+            throw new IllegalArgumentException("the wheel is too large, wheelSize: " + size + ", levels: " + levels);
+        }
+        this.name = name;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.maxTicks = (1L << (bits * levels)) - 1;
+        this.wheels = new Bucket[levels][size];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+    }
+
+    @Override
+    public Future schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timer(task, deadline(delay, unit), 0, false));
+    }
+
+    @Override
+    public Future scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return add(new Timer(task, deadline(initialDelay, unit), Math.max(1, unit.toNanos(delay)), false));
+    }
+
+    @Override
+    public Future scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return add(new Timer(task, deadline(initialDelay, unit), Math.max(1, unit.toNanos(period)), true));
+    }
+
+    /**
+     * Get the number of the timers that are not expired or cancelled.
+     *
+     * @return The number of the pending timers
+     */
+    public int size() {
+        return pendingTimers.get();
+    }
+
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer add(Timer timer) {
+        pendingTimers.incrementAndGet();
+        newTimers.offer(timer);
+        return timer;
+    }
+
+    private long deadline(long delay, TimeUnit unit) {
+        start();
+        long nanos = Math.min(Math.max(0, unit.toNanos(delay)), Long.MAX_VALUE >> 2);
+        return System.nanoTime() - startTime + nanos;
+    }
+
+    private long toTick(long deadline) {
+        return (deadline + tickNanos - 1) / tickNanos;
+    }
+
+    private void run() {
+        List<Timer> expired = new ArrayList<>();
+        while (running) {
+            long now = waitForNextTick();
+            if (!running) {
+                break;
+            }
+
+            removeCancelledTimers();
+            transferNewTimers();
+            long currentTick = now / tickNanos;
+            while (tick < currentTick) {
+                tick++;
+                cascade();
+                expire(expired);
+            }
+            runExpiredTimers(expired);
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = (tick + 1) * tickNanos;
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            long sleepTime = deadline - now;
+            if (sleepTime <= 0 || !running) {
+                return now;
+            }
+            LockSupport.parkNanos(this, sleepTime);
+        }
+    }
+
+    private void removeCancelledTimers() {
+        Timer timer;
+        while ((timer = cancelledTimers.poll()) != null) {
+            if (timer.bucket != null) {
+                timer.bucket.remove(timer);
+            }
+        }
+    }
+
+    private void transferNewTimers() {
+        Timer timer;
+        while ((timer = newTimers.poll()) != null) {
+            if (timer.state == INIT) {
+                place(timer, tick + 1);
+            }
+        }
+    }
+
+    /**
+     * Put the timer in the bucket of the lowest level that covers its deadline.
+     *
+     * @param timer   The timer
+     * @param minTick The earliest tick that the timer can expire
+     */
+    private void place(Timer timer, long minTick) {
+        long deadlineTick = Math.max(timer.deadlineTick, minTick);
+        long delta = Math.min(deadlineTick - tick, maxTicks);
+        deadlineTick = tick + delta;
+
+        int level = 0;
+        while (delta > (1L << (bits * (level + 1))) - 1) {
+            level++;
+        }
+        int index = (int) ((deadlineTick >>> (bits * level)) & mask);
+        wheels[level][index].add(timer);
+    }
+
+    /**
+     * Move the timers of the higher level buckets that the wheel turns to into the lower levels.
+     */
+    private void cascade() {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            if ((tick & ((1L << (bits * level)) - 1)) == 0) {
+                Bucket bucket = wheels[level][(int) ((tick >>> (bits * level)) & mask)];
+                Timer timer = bucket.clear();
+                while (timer != null) {
+                    Timer next = timer.next;
+                    timer.next = null;
+                    place(timer, tick);
+                    timer = next;
+                }
+            }
+        }
+    }
+
+    private void expire(List<Timer> expired) {
+        Timer timer = wheels[0][(int) (tick & mask)].clear();
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.next = null;
+            if (timer.deadlineTick > tick) {
+                // the deadline is beyond the range of the wheels
+                place(timer, tick + 1);
+            } else {
+                expired.add(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void runExpiredTimers(List<Timer> expired) {
+        for (int i = 0; i < expired.size(); i++) {
+            Timer timer = expired.get(i);
+            if (timer.period > 0) {
+                if (timer.state == INIT) {
+                    runTask(timer);
+                    if (timer.state == INIT) {
+                        long deadline = timer.fixedRate ? timer.deadline + timer.period
+                                : System.nanoTime() - startTime + timer.period;
+                        timer.setDeadline(deadline);
+                        place(timer, tick + 1);
+                    }
+                }
+            } else if (STATE_UPDATER.compareAndSet(timer, INIT, EXPIRED)) {
+                pendingTimers.decrementAndGet();
+                runTask(timer);
+            }
+        }
+        expired.clear();
+    }
+
+    private void runTask(Timer timer) {
+        try {
+            timer.task.run();
+        } catch (Throwable t) {
+            log.error("the time wheel runs task exception", t);
+        }
+    }
+
+    @Override
+    protected void init() {
+        if (terminated) {
+            throw new RejectedExecutionException("the time wheel " + name + " is stopped");
+        }
+        startTime = System.nanoTime();
+        running = true;
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @Override
+    protected void destroy() {
+        terminated = true;
+        running = false;
+        Thread thread = worker;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timer> STATE_UPDATER = AtomicIntegerFieldUpdater
+            .newUpdater(Timer.class, "state");
+
+    private class Timer implements Future {
+        private final Runnable task;
+        private final long period;
+        private final boolean fixedRate;
+        private long deadline;
+        private long deadlineTick;
+        volatile int state = INIT;
+
+        // the links of the bucket, they are accessed by the worker thread only
+        private Bucket bucket;
+        private Timer prev;
+        private Timer next;
+
+        private Timer(Runnable task, long deadline, long period, boolean fixedRate) {
+            this.task = task;
+            this.period = period;
+            this.fixedRate = fixedRate;
+            setDeadline(deadline);
+        }
+
+        private void setDeadline(long deadline) {
+            this.deadline = deadline;
+            this.deadlineTick = toTick(deadline);
+        }
+
+        @Override
+        public boolean cancel() {
+            if (STATE_UPDATER.compareAndSet(this, INIT, CANCELLED)) {
+                pendingTimers.decrementAndGet();
+                cancelledTimers.offer(this);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Bucket {
+        private Timer head;
+        private Timer tail;
+
+        private void add(Timer timer) {
+            timer.bucket = this;
+            timer.prev = tail;
+            timer.next = null;
+            if (tail == null) {
+                head = timer;
+            } else {
+                tail.next = timer;
+            }
+            tail = timer;
+        }
+
+        private void remove(Timer timer) {
+            if (timer.prev == null) {
+                head = timer.next;
+            } else {
+                timer.prev.next = timer.next;
+            }
+            if (timer.next == null) {
+                tail = timer.prev;
+            } else {
+                timer.next.prev = timer.prev;
+            }
+            timer.bucket = null;
+            timer.prev = null;
+            timer.next = null;
+        }
+
+        /**
+         * Remove all timers of the bucket.
+         *
+         * @return The first timer, the timers are linked by the next field
+         */
+        private Timer clear() {
+            Timer first = head;
+            for (Timer timer = first; timer != null; timer = timer.next) {
+                timer.bucket = null;
+                timer.prev = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package test.utils.json.github;
+
+import com.firefly.utils.json.Json;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the JSON serialization and parsing throughput when many threads look up the cached serializers and
+ * parsers at the same time.
+ *
+ * @author Pengtao Qiu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonConcurrentBenchmark {
+
+    private MediaContent record;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        record = MediaContent.createRecord();
+        json = Json.toJson(record);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String toJson1() {
+        return Json.toJson(record);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String toJson8() {
+        return Json.toJson(record);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String toJson32() {
+        return Json.toJson(record);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MediaContent toObject1() {
+        return Json.toObject(json, MediaContent.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MediaContent toObject8() {
+        return Json.toObject(json, MediaContent.class);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public MediaContent toObject32() {
+        return Json.toObject(json, MediaContent.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(JsonConcurrentBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
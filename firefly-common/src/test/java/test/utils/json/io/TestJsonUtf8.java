@@ -0,0 +1,126 @@
+package test.utils.json.io;
+
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.utils.json.Json;
+import com.firefly.utils.json.JsonReader;
+import com.firefly.utils.json.io.JsonUtf8Reader;
+
+import test.utils.json.github.MediaContent;
+
+public class TestJsonUtf8 {
+
+	@Test
+	public void testWrite() {
+		MediaContent record = createRecord();
+		String json = Json.toJson(record);
+		byte[] expected = json.getBytes(StandardCharsets.UTF_8);
+
+		// the content exceeds the flush size, the surrogate pairs may be split by the flushes
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Json.toJson(record, out);
+		Assert.assertThat(Arrays.equals(out.toByteArray(), expected), is(true));
+
+		List<ByteBuffer> buffers = Json.toJsonBuffers(record);
+		Assert.assertThat(buffers.size(), greaterThan(1));
+		Assert.assertThat(Arrays.equals(toBytes(buffers), expected), is(true));
+	}
+
+	@Test
+	public void testRead() {
+		MediaContent record = createRecord();
+		String json = Json.toJson(record);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+		// the multi-byte characters are split by the buffers
+		List<ByteBuffer> buffers = new ArrayList<>();
+		for (int i = 0; i < bytes.length; i += 7) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.min(7, bytes.length - i));
+			buffer.put(bytes, i, buffer.capacity()).flip();
+			buffers.add(buffer);
+		}
+		MediaContent r = Json.toObject(buffers, MediaContent.class);
+		Assert.assertThat(Json.toJson(r), is(json));
+		for (ByteBuffer buffer : buffers) {
+			Assert.assertThat(buffer.position(), is(0));
+		}
+
+		r = Json.toObject(new ByteArrayInputStream(bytes), MediaContent.class);
+		Assert.assertThat(Json.toJson(r), is(json));
+		Assert.assertThat(Json.toJsonObject(Arrays.asList(ByteBuffer.wrap(bytes))).getJsonObject("media").getString("title"),
+				is(r.getMedia().getTitle()));
+	}
+
+	@Test
+	public void testMalformedBytes() throws IOException {
+		byte[] bytes = new byte[]{'"', 'a', (byte) 0xff, 'b', (byte) 0xe4, (byte) 0xb8, 'c', (byte) 0xf0, (byte) 0x9f, '"'};
+		String expected = new String(bytes, 1, bytes.length - 2, StandardCharsets.UTF_8);
+		try (JsonReader reader = new JsonUtf8Reader(ByteBuffer.wrap(bytes))) {
+			Assert.assertThat(reader.readString(), is(expected));
+		}
+	}
+
+	@Test
+	public void testTruncatedBytes() throws IOException {
+		byte[] bytes = "{\"title\":\"中文 😀\",\"tags\":[\"é\",\"b\"],\"id\":1}".getBytes(StandardCharsets.UTF_8);
+		for (int len = 1; len < bytes.length; len++) {
+			// the truncated content fails to parse as the decoded string does
+			String json = new String(bytes, 0, len, StandardCharsets.UTF_8);
+			if (parses(() -> Json.toJsonObject(json))) {
+				continue;
+			}
+			List<ByteBuffer> buffers = Arrays.asList(ByteBuffer.wrap(bytes, 0, len));
+			Assert.assertThat(json, parses(() -> Json.toJsonObject(buffers)), is(false));
+		}
+		Assert.assertThat(parses(() -> Json.toJsonObject(Arrays.asList(ByteBuffer.wrap(bytes, 0, 10)))), is(false));
+		Assert.assertThat(parses(() -> Json.toJsonObject(Arrays.asList(ByteBuffer.wrap(bytes)))), is(true));
+
+		// the reader can not read past the decoded chars
+		try (JsonReader reader = new JsonUtf8Reader(ByteBuffer.wrap(bytes, 0, 14))) {
+			while (!reader.isEnd()) {
+				reader.read();
+			}
+			Assert.assertThat(parses(reader::read), is(false));
+		}
+	}
+
+	private static boolean parses(Callable<?> parse) {
+		try {
+			parse.call();
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static MediaContent createRecord() {
+		MediaContent record = MediaContent.createRecord();
+		StringBuilder title = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			title.append("中文 é 😀 ").append(i);
+		}
+		record.getMedia().setTitle(title.toString());
+		return record;
+	}
+
+	private static byte[] toBytes(List<ByteBuffer> buffers) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (ByteBuffer buffer : buffers) {
+			out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		return out.toByteArray();
+	}
+}
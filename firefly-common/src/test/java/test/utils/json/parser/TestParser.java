@@ -12,6 +12,11 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -570,6 +575,72 @@ public class TestParser {
 		Assert.assertThat(d.getDate2(), is(new Date(c)));
 	}
 
+	@Test
+	public void testConcurrentRegistration() throws Exception {
+		final String json = "{\"id\":1,\"next\":{\"id\":2,\"owner\":{\"id\":3,\"next\":null}}}";
+		final int threads = 16;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// the threads look up the serializers and parsers of the recursive classes at the first time
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return Json.toJson(Json.toObject(json, TestNode.class));
+				}));
+			}
+			start.countDown();
+			for (Future<String> result : results) {
+				Assert.assertThat(result.get(5, TimeUnit.SECONDS), is(json));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public static class TestNode {
+		private int id;
+		private TestNext next;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public TestNext getNext() {
+			return next;
+		}
+
+		public void setNext(TestNext next) {
+			this.next = next;
+		}
+	}
+
+	public static class TestNext {
+		private int id;
+		private TestNode owner;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public TestNode getOwner() {
+			return owner;
+		}
+
+		public void setOwner(TestNode owner) {
+			this.owner = owner;
+		}
+	}
+
 	public static class TestDate {
 		private Date date1;
 		private Date date2;
@@ -0,0 +1,118 @@
+package test.utils.time;
+
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.time.HierarchicalTimeWheel;
+
+public class TestHierarchicalTimeWheel {
+
+	private HierarchicalTimeWheel timeWheel;
+
+	@Before
+	public void before() {
+		// the wheels hold 16 ticks, the longer delays are cascaded or exceed the range
+		timeWheel = new HierarchicalTimeWheel("test time wheel", 2, TimeUnit.MILLISECONDS, 4, 2);
+	}
+
+	@After
+	public void after() {
+		timeWheel.stop();
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		long[] delays = { 0, 5, 25, 90 };
+		CountDownLatch latch = new CountDownLatch(delays.length);
+		long start = System.nanoTime();
+		List<Long> elapsed = new ArrayList<>();
+		for (long delay : delays) {
+			timeWheel.schedule(() -> {
+				synchronized (elapsed) {
+					elapsed.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				}
+				latch.countDown();
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+		Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+		Assert.assertThat(timeWheel.size(), is(0));
+
+		// the timers never expire early and they expire in the order of the deadlines
+		for (int i = 0; i < delays.length; i++) {
+			Assert.assertThat(elapsed.get(i), greaterThanOrEqualTo(delays[i]));
+		}
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		List<Scheduler.Future> futures = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(timeWheel.schedule(count::incrementAndGet, 200 + i % 40, TimeUnit.MILLISECONDS));
+		}
+		Assert.assertThat(timeWheel.size(), is(1000));
+		for (int i = 0; i < futures.size(); i += 2) {
+			Assert.assertTrue(futures.get(i).cancel());
+			Assert.assertFalse(futures.get(i).cancel());
+		}
+		Assert.assertThat(timeWheel.size(), is(500));
+
+		CountDownLatch latch = new CountDownLatch(1);
+		timeWheel.schedule(latch::countDown, 300, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+		Assert.assertThat(count.get(), is(500));
+		Assert.assertThat(timeWheel.size(), is(0));
+		Assert.assertFalse(futures.get(1).cancel());
+	}
+
+	@Test
+	public void testFixedRate() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(5);
+		AtomicInteger count = new AtomicInteger();
+		Scheduler.Future future = timeWheel.scheduleAtFixedRate(() -> {
+			count.incrementAndGet();
+			latch.countDown();
+		}, 0, 10, TimeUnit.MILLISECONDS);
+		Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+		Assert.assertTrue(future.cancel());
+
+		int ran = count.get();
+		Thread.sleep(50);
+		Assert.assertThat(count.get(), lessThanOrEqualTo(ran + 1));
+		Assert.assertThat(timeWheel.size(), is(0));
+	}
+
+	@Test
+	public void testStop() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		timeWheel.schedule(count::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+		timeWheel.stop();
+
+		// the worker is terminated when the wheel is stopped
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			Assert.assertThat(thread.getName(), not("test time wheel"));
+		}
+
+		// the stopped wheel is not restarted by the new timers
+		try {
+			timeWheel.schedule(count::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		} catch (RejectedExecutionException e) {
+			Assert.assertFalse(timeWheel.isStarted());
+		}
+		Thread.sleep(50);
+		Assert.assertThat(count.get(), is(0));
+	}
+}
@@ -0,0 +1,56 @@
+package test.utils.time;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+
+/**
+ * Compare the timing wheel with the scheduled thread pool scheduler at 1M
+ * outstanding timers. Every round schedules the timers like the idle timeouts
+ * of the sessions, reschedules them like the activity of the sessions, and
+ * cancels them like the closed sessions.
+ */
+public class TimeWheelBenchmark {
+
+	private static final int TIMERS = 1_000_000;
+
+	public static void main(String[] args) {
+		for (int i = 0; i < 3; i++) {
+			System.out.println("round " + i);
+			test("timing wheel", Schedulers.createTimeWheel());
+			test("scheduled thread pool", Schedulers.createScheduler());
+		}
+	}
+
+	public static void test(String name, Scheduler scheduler) {
+		Scheduler.Future[] futures = new Scheduler.Future[TIMERS];
+		Runnable task = () -> {
+		};
+
+		long start = System.nanoTime();
+		for (int i = 0; i < TIMERS; i++) {
+			futures[i] = scheduler.schedule(task, delay(), TimeUnit.MILLISECONDS);
+		}
+		long scheduled = System.nanoTime();
+		for (int i = 0; i < TIMERS; i++) {
+			futures[i].cancel();
+			futures[i] = scheduler.schedule(task, delay(), TimeUnit.MILLISECONDS);
+		}
+		long rescheduled = System.nanoTime();
+		for (int i = 0; i < TIMERS; i++) {
+			futures[i].cancel();
+		}
+		long cancelled = System.nanoTime();
+		scheduler.stop();
+
+		System.out.println(name + ", schedule: " + (scheduled - start) / TIMERS + " ns/op, reschedule: "
+				+ (rescheduled - scheduled) / TIMERS + " ns/op, cancel: " + (cancelled - rescheduled) / TIMERS
+				+ " ns/op");
+	}
+
+	private static long delay() {
+		return ThreadLocalRandom.current().nextLong(30_000, 60_000);
+	}
+}
@@ -1,5 +1,7 @@
 package com.firefly.net;
 
+import com.firefly.net.tcp.TcpPerformanceParameter;
+
 public class Config {
 
 	private int timeout = 10 * 1000;
@@ -9,6 +11,20 @@ public class Config {
 	private int asynchronousMaximumPoolSize = 64;
 	private int asynchronousPoolKeepAliveTime = 15 * 1000;
 
+	// selector event loop settings
+	private NetEngine netEngine = NetEngine.AIO;
+	private int eventLoopSize = Runtime.getRuntime().availableProcessors();
+
+	// socket options, the non-positive buffer sizes and the negative linger mean the system default
+	private int sendBufferSize = -1;
+	private int receiveBufferSize = -1;
+	private boolean tcpNoDelay = false;
+	private boolean keepAlive = true;
+	private boolean reuseAddress = true;
+	private int soLinger = -1;
+	private int backlog = TcpPerformanceParameter.BACKLOG;
+	private int acceptorSize = 1;
+
 	private String serverName = "firefly-server";
 	private String clientName = "firefly-client";
 
@@ -16,6 +32,16 @@ public class Config {
 	private Encoder encoder;
 	private Handler handler;
 
+	// the pool of socket read buffers, null means that a new heap buffer is allocated for every read
+	private BufferPool readBufferPool;
+
+	// gathering write settings
+	private int maxGatheringWriteBufferCount = 64;
+	private long maxGatheringWriteBytes = 256 * 1024;
+
+	// the max bytes of the file region that are mapped and written at a time
+	private int fileRegionWindowSize = 4 * 1024 * 1024;
+
 	/**
 	 * The max I/O idle time, the default value is 10 seconds.
 	 * 
@@ -76,6 +102,246 @@ public class Config {
 		this.handler = handler;
 	}
 
+	/**
+	 * Get the pool of the socket read buffers. The default value is null, that
+	 * means a new heap buffer is allocated for every read.
+	 * 
+	 * @return The pool of the socket read buffers.
+	 */
+	public BufferPool getReadBufferPool() {
+		return readBufferPool;
+	}
+
+	/**
+	 * Set the pool of the socket read buffers, e.g.
+	 * {@link com.firefly.net.buffer.SizeClassBufferPool}. The read buffer is
+	 * returned to the pool after {@link Decoder#decode} returns, so the
+	 * decoder must copy the data or call {@link Session#retainReadBuffer()}
+	 * if it keeps the buffer or slices of it after the decode method returns.
+	 * 
+	 * @param readBufferPool
+	 *            The pool of the socket read buffers.
+	 */
+	public void setReadBufferPool(BufferPool readBufferPool) {
+		this.readBufferPool = readBufferPool;
+	}
+
+	/**
+	 * The max number of buffers that are merged into one gathering write, the
+	 * default value is 64.
+	 * 
+	 * @return The max number of buffers of one gathering write.
+	 */
+	public int getMaxGatheringWriteBufferCount() {
+		return maxGatheringWriteBufferCount;
+	}
+
+	/**
+	 * Set the max number of buffers that are merged into one gathering write.
+	 * The pending output entries are merged until the buffer count or the
+	 * bytes reach the limits, and one entry is always written even if it
+	 * exceeds the limits.
+	 * 
+	 * @param maxGatheringWriteBufferCount
+	 *            The max number of buffers of one gathering write.
+	 */
+	public void setMaxGatheringWriteBufferCount(int maxGatheringWriteBufferCount) {
+		this.maxGatheringWriteBufferCount = maxGatheringWriteBufferCount;
+	}
+
+	/**
+	 * The max bytes that are merged into one gathering write, the default
+	 * value is 256KB.
+	 * 
+	 * @return The max bytes of one gathering write.
+	 */
+	public long getMaxGatheringWriteBytes() {
+		return maxGatheringWriteBytes;
+	}
+
+	/**
+	 * Set the max bytes that are merged into one gathering write.
+	 * 
+	 * @param maxGatheringWriteBytes
+	 *            The max bytes of one gathering write.
+	 */
+	public void setMaxGatheringWriteBytes(long maxGatheringWriteBytes) {
+		this.maxGatheringWriteBytes = maxGatheringWriteBytes;
+	}
+
+	/**
+	 * The max bytes of the file region that are written at a time, the
+	 * default value is 4MB.
+	 * 
+	 * @return The window size of writing file region.
+	 */
+	public int getFileRegionWindowSize() {
+		return fileRegionWindowSize;
+	}
+
+	/**
+	 * Set the max bytes of the file region that are written at a time. The
+	 * file region is mapped and written window by window, the next window is
+	 * not mapped until the previous one has been written.
+	 * 
+	 * @param fileRegionWindowSize
+	 *            The window size of writing file region.
+	 */
+	public void setFileRegionWindowSize(int fileRegionWindowSize) {
+		this.fileRegionWindowSize = fileRegionWindowSize;
+	}
+
+	/**
+	 * The implementation of TCP server and client, the default value is
+	 * {@link NetEngine#AIO}.
+	 * 
+	 * @return The net engine.
+	 */
+	public NetEngine getNetEngine() {
+		return netEngine;
+	}
+
+	public void setNetEngine(NetEngine netEngine) {
+		this.netEngine = netEngine;
+	}
+
+	/**
+	 * The number of the selector event loops of the {@link NetEngine#NIO}
+	 * engine, the default value is the number of available processors.
+	 * 
+	 * @return The number of the event loops.
+	 */
+	public int getEventLoopSize() {
+		return eventLoopSize;
+	}
+
+	public void setEventLoopSize(int eventLoopSize) {
+		this.eventLoopSize = eventLoopSize;
+	}
+
+	/**
+	 * The size of the socket send buffer (SO_SNDBUF), the default value is
+	 * -1, that means the system default.
+	 * 
+	 * @return The size of the socket send buffer.
+	 */
+	public int getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(int sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	/**
+	 * The size of the socket receive buffer (SO_RCVBUF), the default value is
+	 * -1, that means the system default. It is also set on the server socket,
+	 * so the accepted sockets can use a window larger than 64KB.
+	 * 
+	 * @return The size of the socket receive buffer.
+	 */
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(int receiveBufferSize) {
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	/**
+	 * Whether the Nagle's algorithm is disabled (TCP_NODELAY), the default
+	 * value is false. Enable it to avoid the delayed small responses.
+	 * 
+	 * @return If true, the Nagle's algorithm is disabled.
+	 */
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	public void setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
+
+	/**
+	 * Whether the TCP keep-alive (SO_KEEPALIVE) is enabled, the default value
+	 * is true.
+	 * 
+	 * @return If true, the TCP keep-alive is enabled.
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	public void setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * Whether the address can be reused (SO_REUSEADDR), the default value is
+	 * true.
+	 * 
+	 * @return If true, the address can be reused.
+	 */
+	public boolean isReuseAddress() {
+		return reuseAddress;
+	}
+
+	public void setReuseAddress(boolean reuseAddress) {
+		this.reuseAddress = reuseAddress;
+	}
+
+	/**
+	 * The linger time when the socket closes (SO_LINGER), the default value
+	 * is -1, that means the linger is disabled.
+	 * 
+	 * @return The linger time, the unit is second.
+	 */
+	public int getSoLinger() {
+		return soLinger;
+	}
+
+	public void setSoLinger(int soLinger) {
+		this.soLinger = soLinger;
+	}
+
+	/**
+	 * The max length of the pending connection queue of the server socket,
+	 * the default value is {@link TcpPerformanceParameter#BACKLOG}.
+	 * 
+	 * @return The backlog of the server socket.
+	 */
+	public int getBacklog() {
+		return backlog;
+	}
+
+	public void setBacklog(int backlog) {
+		this.backlog = backlog;
+	}
+
+	/**
+	 * The number of the server sockets that accept the connections, the
+	 * default value is 1.
+	 * 
+	 * @return The number of the acceptors.
+	 */
+	public int getAcceptorSize() {
+		return acceptorSize;
+	}
+
+	/**
+	 * Set the number of the server sockets that accept the connections. If it
+	 * is greater than 1, the server sockets are bound to the same address with
+	 * SO_REUSEPORT and the kernel balances the incoming connections between
+	 * them. If the platform does not support SO_REUSEPORT, only one server
+	 * socket is bound.
+	 * 
+	 * @param acceptorSize
+	 *            The number of the acceptors.
+	 */
+	public void setAcceptorSize(int acceptorSize) {
+		this.acceptorSize = acceptorSize;
+	}
+
 	public int getAsynchronousMaximumPoolSize() {
 		return asynchronousMaximumPoolSize;
 	}
@@ -102,8 +368,15 @@ public class Config {
 
 	@Override
 	public String toString() {
-		return "Asynchronous TCP configuration [timeout=" + timeout + ", asynchronousCorePoolSize="
-				+ asynchronousCorePoolSize + ", asynchronousMaximumPoolSize=" + asynchronousMaximumPoolSize
-				+ ", asynchronousPoolKeepAliveTime=" + asynchronousPoolKeepAliveTime + "]";
+		return "TCP configuration [timeout=" + timeout + ", netEngine=" + netEngine + ", eventLoopSize="
+				+ eventLoopSize + ", asynchronousCorePoolSize=" + asynchronousCorePoolSize
+				+ ", asynchronousMaximumPoolSize=" + asynchronousMaximumPoolSize + ", asynchronousPoolKeepAliveTime="
+				+ asynchronousPoolKeepAliveTime + ", readBufferPool="
+				+ readBufferPool + ", maxGatheringWriteBufferCount=" + maxGatheringWriteBufferCount
+				+ ", maxGatheringWriteBytes=" + maxGatheringWriteBytes + ", fileRegionWindowSize="
+				+ fileRegionWindowSize + ", sendBufferSize=" + sendBufferSize + ", receiveBufferSize="
+				+ receiveBufferSize + ", tcpNoDelay=" + tcpNoDelay + ", keepAlive=" + keepAlive + ", reuseAddress="
+				+ reuseAddress + ", soLinger=" + soLinger + ", backlog=" + backlog + ", acceptorSize=" + acceptorSize
+				+ "]";
 	}
 }
@@ -0,0 +1,17 @@
+package com.firefly.net;
+
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.utils.concurrent.Callback;
+
+public class FileRegionOutputEntry extends AbstractOutputEntry<FileRegion> {
+
+	public FileRegionOutputEntry(Callback callback, FileRegion data) {
+		super(callback, data);
+	}
+
+	@Override
+	public OutputEntryType getOutputEntryType() {
+		return OutputEntryType.FILE_REGION;
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.firefly.net;
+
+import com.firefly.net.tcp.aio.AsynchronousTcpClient;
+import com.firefly.net.tcp.aio.AsynchronousTcpServer;
+import com.firefly.net.tcp.nio.NioTcpClient;
+import com.firefly.net.tcp.nio.NioTcpServer;
+
+/**
+ * The implementations of TCP server and client.
+ */
+public enum NetEngine {
+
+	/**
+	 * The asynchronous channel group engine, the I/O events of a connection
+	 * may be handled by any thread of the group.
+	 */
+	AIO {
+		@Override
+		public Server createServer(Config config) {
+			return new AsynchronousTcpServer(config);
+		}
+
+		@Override
+		public Client createClient(Config config) {
+			return new AsynchronousTcpClient(config);
+		}
+	},
+
+	/**
+	 * The selector engine, every connection is bound to one event loop
+	 * thread, so the reading, decoding and writing of a connection always
+	 * stay on the same thread.
+	 */
+	NIO {
+		@Override
+		public Server createServer(Config config) {
+			return new NioTcpServer(config);
+		}
+
+		@Override
+		public Client createClient(Config config) {
+			return new NioTcpClient(config);
+		}
+	};
+
+	abstract public Server createServer(Config config);
+
+	abstract public Client createClient(Config config);
+}
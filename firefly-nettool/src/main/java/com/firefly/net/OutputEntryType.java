@@ -1,5 +1,5 @@
 package com.firefly.net;
 
 public enum OutputEntryType {
-	BYTE_BUFFER, BYTE_BUFFER_ARRAY, DISCONNECTION
+	BYTE_BUFFER, BYTE_BUFFER_ARRAY, FILE_REGION, DISCONNECTION
 }
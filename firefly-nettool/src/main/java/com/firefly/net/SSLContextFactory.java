@@ -1,9 +1,42 @@
 package com.firefly.net;
 
+import com.firefly.net.tcp.ssl.SSLHandshakeExecutor;
+
 import javax.net.ssl.SSLEngine;
 
 public interface SSLContextFactory {
 
     SSLEngine createSSLEngine(boolean clientMode);
 
+    /**
+     * Create the SSL engine of a peer. The client engine that knows the peer
+     * can resume the cached session of the peer instead of a full handshake.
+     *
+     * @param clientMode Whether the engine is the client side
+     * @param peerHost   The host of the peer
+     * @param peerPort   The port of the peer
+     * @return The SSL engine
+     */
+    default SSLEngine createSSLEngine(boolean clientMode, String peerHost, int peerPort) {
+        return createSSLEngine(clientMode);
+    }
+
+    /**
+     * It is called when the initial handshake of an engine that is created by this factory is finished.
+     *
+     * @param sslEngine The SSL engine
+     * @param resumed   Whether the handshake resumed a cached session
+     */
+    default void handshakeFinished(SSLEngine sslEngine, boolean resumed) {
+    }
+
+    /**
+     * Get the executor that runs the delegated tasks of the SSL engines and limits the concurrent handshakes.
+     *
+     * @return The handshake executor, or null to run the delegated tasks in the I/O threads
+     */
+    default SSLHandshakeExecutor getHandshakeExecutor() {
+        return null;
+    }
+
 }
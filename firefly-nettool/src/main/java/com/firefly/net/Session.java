@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 
 import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.PooledBuffer;
 import com.firefly.utils.concurrent.Callback;
 
 public interface Session {
@@ -22,6 +23,20 @@ public interface Session {
 
 	void encode(Object message);
 
+	/**
+	 * Decode the buffer with the decoder of the session, e.g. the SSL session
+	 * passes the data that is decrypted out of the I/O thread to the decoder
+	 * chain.
+	 *
+	 * @param buf
+	 *            The received data
+	 * @throws UnsupportedOperationException
+	 *             If the session does not have the decoder chain
+	 */
+	default void decode(ByteBuffer buf) {
+		throw new UnsupportedOperationException("the session " + getSessionId() + " can not decode the data");
+	}
+
 	void write(OutputEntry<?> entry);
 
 	void write(ByteBuffer byteBuffer, Callback callback);
@@ -67,4 +82,17 @@ public interface Session {
 	InetSocketAddress getRemoteAddress();
 	
 	long getIdleTimeout();
+
+	/**
+	 * Retain the read buffer which is being decoded. The decoder calls it if
+	 * it keeps the buffer or slices of it after the decode method returns, and
+	 * it must call {@link PooledBuffer#release()} when it does not use the
+	 * buffer any more.
+	 * 
+	 * @return The retained read buffer, or {@link PooledBuffer#UNPOOLED} if
+	 *         the read buffer is not pooled.
+	 */
+	default PooledBuffer retainReadBuffer() {
+		return PooledBuffer.UNPOOLED;
+	}
 }
@@ -0,0 +1,161 @@
+package com.firefly.net.buffer;
+
+import com.firefly.net.OutputEntry;
+import com.firefly.net.OutputEntryType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The output entries that are written by one gathering write. The write of an entry is completed when all its
+ * buffers have been written, so the entries are completed by the written bytes in order.
+ * It is not thread safe, only the thread that owns the writing state of the session accesses it.
+ *
+ * @author Pengtao Qiu
+ */
+public class GatheringWrite {
+
+    private final int maxBufferCount;
+    private final long maxBytes;
+    private final List<OutputEntry<?>> entries = new ArrayList<>();
+    private int[] entryEnds = new int[8];
+    private ByteBuffer[] buffers = new ByteBuffer[8];
+    private int bufferCount;
+    private int offset;
+    private int completedEntries;
+    private long bytes;
+
+    /**
+     * Creates a gathering write with the specified limits.
+     *
+     * @param maxBufferCount The max number of the merged buffers
+     * @param maxBytes       The max bytes of the merged buffers
+     */
+    public GatheringWrite(int maxBufferCount, long maxBytes) {
+        this.maxBufferCount = maxBufferCount;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Merge the entry into this write. The first entry is always accepted.
+     *
+     * @param entry The output entry
+     * @return If true, the entry is merged. If false, the entry is not a buffer entry or exceeds the limits.
+     */
+    public boolean add(OutputEntry<?> entry) {
+        final int count;
+        long size = 0;
+        switch (entry.getOutputEntryType()) {
+            case BYTE_BUFFER:
+                count = 1;
+                size = ((ByteBuffer) entry.getData()).remaining();
+                break;
+            case BYTE_BUFFER_ARRAY:
+                ByteBuffer[] array = (ByteBuffer[]) entry.getData();
+                count = array.length;
+                for (ByteBuffer buffer : array) {
+                    size += buffer.remaining();
+                }
+                break;
+            default:
+                return false;
+        }
+
+        if (!entries.isEmpty() && (bufferCount + count > maxBufferCount || bytes + size > maxBytes)) {
+            return false;
+        }
+
+        if (bufferCount + count > buffers.length) {
+            buffers = Arrays.copyOf(buffers, Math.max(buffers.length << 1, bufferCount + count));
+        }
+        if (entries.size() == entryEnds.length) {
+            entryEnds = Arrays.copyOf(entryEnds, entryEnds.length << 1);
+        }
+
+        if (entry.getOutputEntryType() == OutputEntryType.BYTE_BUFFER) {
+            buffers[bufferCount] = (ByteBuffer) entry.getData();
+        } else {
+            System.arraycopy(entry.getData(), 0, buffers, bufferCount, count);
+        }
+        bufferCount += count;
+        bytes += size;
+        entryEnds[entries.size()] = bufferCount;
+        entries.add(entry);
+        return true;
+    }
+
+    /**
+     * Complete the entries whose buffers have been written.
+     *
+     * @return If true, all buffers have been written.
+     */
+    public boolean complete() {
+        while (offset < bufferCount && !buffers[offset].hasRemaining()) {
+            offset++;
+        }
+        while (completedEntries < entries.size() && entryEnds[completedEntries] <= offset) {
+            entries.get(completedEntries++).getCallback().succeeded();
+        }
+        return offset == bufferCount;
+    }
+
+    /**
+     * Fail the entries that have not been completed and clear this write.
+     *
+     * @param t The cause of failure
+     */
+    public void fail(Throwable t) {
+        try {
+            while (completedEntries < entries.size()) {
+                entries.get(completedEntries++).getCallback().failed(t);
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Get the buffers of this write, the buffers from {@link #getOffset()} to {@link #getOffset()} +
+     * {@link #getLength()} have not been written.
+     *
+     * @return The buffers of this write
+     */
+    public ByteBuffer[] getBuffers() {
+        return buffers;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return bufferCount - offset;
+    }
+
+    public long remaining() {
+        long remaining = 0;
+        for (int i = offset; i < bufferCount; i++) {
+            remaining += buffers[i].remaining();
+        }
+        return remaining;
+    }
+
+    public void clear() {
+        entries.clear();
+        Arrays.fill(buffers, 0, bufferCount, null);
+        bufferCount = 0;
+        offset = 0;
+        completedEntries = 0;
+        bytes = 0;
+    }
+}
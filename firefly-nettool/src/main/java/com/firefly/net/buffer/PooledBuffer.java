@@ -0,0 +1,104 @@
+package com.firefly.net.buffer;
+
+import com.firefly.net.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted buffer that is borrowed from a {@link BufferPool}. The owner holds one reference after
+ * {@link #acquire(int)}, every {@link #retain()} must be paired with a {@link #release()}, and the buffer goes back to
+ * the pool when the last reference is released. The buffer and all slices of it must not be used after that.
+ *
+ * @author Pengtao Qiu
+ */
+public class PooledBuffer {
+
+    /**
+     * The placeholder of the buffers that are not pooled, retaining or releasing it does nothing.
+     */
+    public static final PooledBuffer UNPOOLED = new PooledBuffer(null);
+
+    private final BufferPool bufferPool;
+    private final AtomicInteger referenceCount = new AtomicInteger();
+    private volatile ByteBuffer buffer;
+
+    public PooledBuffer(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Borrow a buffer from the pool, the reference count is set to 1.
+     *
+     * @param size The expected buffer size
+     * @return This pooled buffer
+     */
+    public PooledBuffer acquire(int size) {
+        if (bufferPool == null) {
+            throw new IllegalStateException("the buffer is not pooled");
+        }
+        if (!referenceCount.compareAndSet(0, 1)) {
+            throw new IllegalStateException("the buffer is in use, reference count: " + referenceCount.get());
+        }
+        buffer = bufferPool.acquire(size);
+        return this;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int referenceCount() {
+        return referenceCount.get();
+    }
+
+    /**
+     * Increase the reference count, it prevents the buffer from returning to the pool.
+     *
+     * @return This pooled buffer
+     */
+    public PooledBuffer retain() {
+        if (bufferPool == null) {
+            return this;
+        }
+
+        while (true) {
+            int count = referenceCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("the buffer has been released");
+            }
+            if (referenceCount.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Decrease the reference count, the buffer is returned to the pool when the reference count reaches 0.
+     *
+     * @return True means the buffer has been returned to the pool
+     */
+    public boolean release() {
+        if (bufferPool == null) {
+            return false;
+        }
+
+        int count = referenceCount.decrementAndGet();
+        if (count == 0) {
+            ByteBuffer buf = buffer;
+            buffer = null;
+            bufferPool.release(buf);
+            return true;
+        } else if (count < 0) {
+            referenceCount.incrementAndGet();
+            throw new IllegalStateException("the buffer has been released");
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledBuffer [referenceCount=" + referenceCount.get() + ", buffer=" + buffer + "]";
+    }
+}
@@ -0,0 +1,119 @@
+package com.firefly.net.buffer;
+
+import com.firefly.net.BufferPool;
+import com.firefly.utils.io.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A thread local buffer pool that groups the buffers into the size classes of 1KB steps which are produced by
+ * {@link BufferUtils#normalizeBufferSize(int)} from the {@link AdaptiveBufferSizePredictor} results.
+ * The pool does not allocate any object once the caches of the current thread are warmed up.
+ *
+ * @author Pengtao Qiu
+ */
+public class SizeClassBufferPool implements BufferPool {
+
+    public static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = AdaptiveBufferSizePredictor.DEFAULT_MAXIMUM;
+    public static final int DEFAULT_MAX_BUFFERS_PER_CLASS = 16;
+
+    private static final int SIZE_CLASS_SHIFT = 10;
+
+    private final boolean direct;
+    private final int maxPooledBufferSize;
+    private final int maxBuffersPerClass;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> cache;
+
+    /**
+     * Creates a direct buffer pool with the default parameters. It caches the buffers that are not larger than
+     * {@code 65536}, and keeps at most {@code 16} buffers of each size class per thread.
+     */
+    public SizeClassBufferPool() {
+        this(true, DEFAULT_MAX_POOLED_BUFFER_SIZE, DEFAULT_MAX_BUFFERS_PER_CLASS);
+    }
+
+    /**
+     * Creates a buffer pool with the specified parameters.
+     *
+     * @param direct              allocate the direct buffer or the heap buffer
+     * @param maxPooledBufferSize the inclusive upper bound of the cached buffer capacity, the larger buffers are
+     *                            allocated and dropped without pooling
+     * @param maxBuffersPerClass  the max number of cached buffers of each size class per thread
+     */
+    @SuppressWarnings("unchecked")
+    public SizeClassBufferPool(boolean direct, int maxPooledBufferSize, int maxBuffersPerClass) {
+        if (maxPooledBufferSize <= 0) {
+            throw new IllegalArgumentException("maxPooledBufferSize: " + maxPooledBufferSize);
+        }
+        if (maxBuffersPerClass <= 0) {
+            throw new IllegalArgumentException("maxBuffersPerClass: " + maxBuffersPerClass);
+        }
+
+        this.direct = direct;
+        this.maxPooledBufferSize = BufferUtils.normalizeBufferSize(maxPooledBufferSize);
+        this.maxBuffersPerClass = maxBuffersPerClass;
+        final int sizeClasses = this.maxPooledBufferSize >>> SIZE_CLASS_SHIFT;
+        cache = ThreadLocal.withInitial(() -> {
+            ArrayDeque<ByteBuffer>[] queues = new ArrayDeque[sizeClasses];
+            for (int i = 0; i < sizeClasses; i++) {
+                queues[i] = new ArrayDeque<>(maxBuffersPerClass);
+            }
+            return queues;
+        });
+    }
+
+    @Override
+    public ByteBuffer acquire(int size) {
+        final int capacity = BufferUtils.normalizeBufferSize(Math.max(size, 1));
+        if (capacity > maxPooledBufferSize) {
+            return allocate(capacity);
+        }
+
+        ByteBuffer buf = cache.get()[sizeClassIndex(capacity)].pollFirst();
+        if (buf == null) {
+            return allocate(capacity);
+        }
+
+        buf.clear();
+        return buf;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != direct || buffer.isReadOnly()) {
+            return;
+        }
+
+        final int capacity = buffer.capacity();
+        if (capacity == 0 || capacity > maxPooledBufferSize || (capacity & ((1 << SIZE_CLASS_SHIFT) - 1)) != 0) {
+            return;
+        }
+
+        ArrayDeque<ByteBuffer> queue = cache.get()[sizeClassIndex(capacity)];
+        if (queue.size() < maxBuffersPerClass) {
+            queue.offerFirst(buffer);
+        }
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public int getMaxPooledBufferSize() {
+        return maxPooledBufferSize;
+    }
+
+    public int getMaxBuffersPerClass() {
+        return maxBuffersPerClass;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static int sizeClassIndex(int capacity) {
+        return (capacity >>> SIZE_CLASS_SHIFT) - 1;
+    }
+
+}
@@ -1,9 +1,11 @@
 package com.firefly.net.tcp;
 
+import com.firefly.net.Client;
 import com.firefly.net.Session;
-import com.firefly.net.tcp.aio.AsynchronousTcpClient;
 import com.firefly.net.tcp.ssl.SSLSession;
 import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.lang.AbstractLifeCycle;
 
@@ -12,17 +14,19 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleTcpClient extends AbstractLifeCycle {
 
-    private AsynchronousTcpClient client;
+    private Client client;
     private TcpConfiguration config;
 
     private Map<Integer, Promise<TcpConnection>> context = new ConcurrentHashMap<>();
+    private Map<String, TcpConnectionPool> poolMap = new ConcurrentHashMap<>();
+    private Scheduler scheduler = Schedulers.createTimeWheel();
 
     public SimpleTcpClient() {
         this(new TcpConfiguration());
     }
 
     public SimpleTcpClient(TcpConfiguration config) {
-        client = new AsynchronousTcpClient(config);
+        client = config.getNetEngine().createClient(config);
         this.config = config;
     }
 
@@ -66,6 +70,39 @@ public class SimpleTcpClient extends AbstractLifeCycle {
         context.put(sessionId, promise);
     }
 
+    /**
+     * Take a connection of the destination from the connection pool. The lease
+     * must be released when the connection is no longer used.
+     *
+     * @param host The server host
+     * @param port The server port
+     * @return The future of the connection lease
+     */
+    public Promise.Completable<TcpConnectionPool.Lease> take(String host, int port) {
+        return getConnectionPool(host, port).take();
+    }
+
+    /**
+     * Get the connection pool of the destination, the pool is created with the
+     * connection pool settings of the configuration.
+     *
+     * @param host The server host
+     * @param port The server port
+     * @return The connection pool
+     */
+    public TcpConnectionPool getConnectionPool(String host, int port) {
+        start();
+        return poolMap.computeIfAbsent(host + ":" + port, k -> new TcpConnectionPool(() -> connect(host, port),
+                config.getConnectionPoolConfiguration(), scheduler));
+    }
+
+    public void removeConnectionPool(String host, int port) {
+        TcpConnectionPool pool = poolMap.remove(host + ":" + port);
+        if (pool != null) {
+            pool.stop();
+        }
+    }
+
     public abstract class AbstractHandler extends AbstractSimpleHandler {
 
         @Override
@@ -153,6 +190,9 @@ public class SimpleTcpClient extends AbstractLifeCycle {
 
     @Override
     protected void destroy() {
+        poolMap.values().forEach(TcpConnectionPool::stop);
+        poolMap.clear();
+        scheduler.stop();
         client.stop();
     }
 
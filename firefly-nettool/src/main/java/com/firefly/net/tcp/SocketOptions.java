@@ -0,0 +1,97 @@
+package com.firefly.net.tcp;
+
+import com.firefly.net.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+
+/**
+ * Apply the socket options of the {@link Config} to the channels of the AIO and NIO engines.
+ *
+ * @author Pengtao Qiu
+ */
+abstract public class SocketOptions {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final String SO_REUSEPORT = "SO_REUSEPORT";
+
+    /**
+     * Set the options of the accepted or connecting socket.
+     *
+     * @param channel The socket channel
+     * @param config  The TCP configuration
+     * @throws IOException The socket option error
+     */
+    public static void configureSocket(NetworkChannel channel, Config config) throws IOException {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, config.isReuseAddress());
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, config.isKeepAlive());
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+        if (config.getSendBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (config.getSoLinger() >= 0) {
+            channel.setOption(StandardSocketOptions.SO_LINGER, config.getSoLinger());
+        }
+    }
+
+    /**
+     * Set the options of the server socket before it is bound.
+     *
+     * @param channel The server socket channel
+     * @param config  The TCP configuration
+     * @throws IOException The socket option error
+     */
+    public static void configureServerSocket(NetworkChannel channel, Config config) throws IOException {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, config.isReuseAddress());
+        if (config.getReceiveBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+    }
+
+    /**
+     * Enable the SO_REUSEPORT option. The option is looked up by name, because it is only available since Java 9
+     * and on some platforms.
+     *
+     * @param channel The server socket channel
+     * @return If false, the platform does not support SO_REUSEPORT.
+     * @throws IOException The socket option error
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean enableReusePort(NetworkChannel channel) throws IOException {
+        for (SocketOption<?> option : channel.supportedOptions()) {
+            if (SO_REUSEPORT.equals(option.name()) && option.type() == Boolean.class) {
+                channel.setOption((SocketOption<Boolean>) option, true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of the server sockets that can be bound to the same address.
+     *
+     * @param channel The first server socket channel, it has not been bound
+     * @param config  The TCP configuration
+     * @return The number of the acceptors
+     * @throws IOException The socket option error
+     */
+    public static int acceptorSize(NetworkChannel channel, Config config) throws IOException {
+        if (config.getAcceptorSize() <= 1) {
+            return 1;
+        }
+        if (enableReusePort(channel)) {
+            return config.getAcceptorSize();
+        } else {
+            log.warn("the platform does not support SO_REUSEPORT, the server binds one acceptor");
+            return 1;
+        }
+    }
+}
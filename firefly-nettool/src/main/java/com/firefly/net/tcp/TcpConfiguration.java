@@ -10,6 +10,9 @@ public class TcpConfiguration extends Config {
     private boolean isSecureConnectionEnabled;
     private SSLContextFactory sslContextFactory = new SelfSignedCertificateOpenSSLContextFactory();
 
+    // the connection pool settings of the client
+    private TcpConnectionPoolConfiguration connectionPoolConfiguration = new TcpConnectionPoolConfiguration();
+
     public boolean isSecureConnectionEnabled() {
         return isSecureConnectionEnabled;
     }
@@ -26,4 +29,12 @@ public class TcpConfiguration extends Config {
         this.sslContextFactory = sslContextFactory;
     }
 
+    public TcpConnectionPoolConfiguration getConnectionPoolConfiguration() {
+        return connectionPoolConfiguration;
+    }
+
+    public void setConnectionPoolConfiguration(TcpConnectionPoolConfiguration connectionPoolConfiguration) {
+        this.connectionPoolConfiguration = connectionPoolConfiguration;
+    }
+
 }
@@ -0,0 +1,476 @@
+package com.firefly.net.tcp;
+
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.lang.pool.CompletableObjectFactory;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The connection pool of a destination (host and port).
+ * <p>
+ * The idle connections are leased in the LIFO order, so the recently used connections are kept alive and the
+ * others become idle and are evicted. An idle connection is validated before it is leased. When no connection is
+ * idle, the pool opens a new connection if it has less than the max connections, otherwise the acquisition waits
+ * in the pending queue until a connection is released or the lease timeout expires.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+public class TcpConnectionPool extends AbstractLifeCycle {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final CompletableObjectFactory<TcpConnection> connectionFactory;
+    private final TcpConnectionPoolConfiguration config;
+    private final Scheduler scheduler;
+
+    private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final ArrayDeque<PendingAcquire> pendingAcquires = new ArrayDeque<>();
+    private int leasedConnections;
+    private int connecting;
+    private Scheduler.Future idleCheck;
+
+    // the lease wait time metrics
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong totalLeaseWaitTime = new AtomicLong();
+    private final AtomicLong maxLeaseWaitTime = new AtomicLong();
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param connectionFactory The factory opens the connections of the destination
+     * @param config            The pool settings
+     * @param scheduler         The scheduler of the lease timeouts and the idle connection eviction
+     */
+    public TcpConnectionPool(CompletableObjectFactory<TcpConnection> connectionFactory,
+                             TcpConnectionPoolConfiguration config, Scheduler scheduler) {
+        if (config.getMaxConnections() <= 0 || config.getMinConnections() > config.getMaxConnections()) {
+            throw new IllegalArgumentException("minConnections: " + config.getMinConnections()
+                    + ", maxConnections: " + config.getMaxConnections());
+        }
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+        this.scheduler = scheduler;
+        start();
+    }
+
+    /**
+     * Take a connection lease. The lease must be released when the connection is no longer used, the closed
+     * connection is discarded when it is released.
+     *
+     * @return The future of the lease. It fails with the {@link RejectedExecutionException} when the pending
+     * queue is full or the pool is stopped, and it fails with the {@link TimeoutException} when no connection
+     * is available in the lease timeout.
+     */
+    public Promise.Completable<Lease> take() {
+        long start = System.nanoTime();
+        Promise.Completable<Lease> promise = new Promise.Completable<>();
+        while (true) {
+            PooledConnection pooled;
+            PendingAcquire pending = null;
+            boolean connect = false;
+            synchronized (this) {
+                if (!isStarted()) {
+                    pooled = null;
+                } else if (!idleConnections.isEmpty()) {
+                    pooled = idleConnections.pollFirst();
+                    leasedConnections++;
+                } else {
+                    pooled = null;
+                    if (pendingAcquires.size() < config.getMaxPendingAcquires()) {
+                        pending = new PendingAcquire(promise, start);
+                        pendingAcquires.offer(pending);
+                        connect = needConnect();
+                        if (connect) {
+                            connecting++;
+                        }
+                    }
+                }
+            }
+
+            if (pooled != null) {
+                if (validate(pooled.connection)) {
+                    succeeded(promise, new Lease(pooled), start);
+                    return promise;
+                } else {
+                    // the invalid connection is closed and the next idle connection is checked
+                    discard(pooled);
+                    continue;
+                }
+            }
+
+            if (pending == null) {
+                rejectedCount.incrementAndGet();
+                promise.failed(new RejectedExecutionException(isStarted()
+                        ? "the pending acquisitions exceed the limit " + config.getMaxPendingAcquires()
+                        : "the connection pool is stopped"));
+            } else {
+                scheduleLeaseTimeout(pending);
+                if (connect) {
+                    connect();
+                }
+            }
+            return promise;
+        }
+    }
+
+    /**
+     * Get the number of the leased, idle and opening connections.
+     *
+     * @return The number of the connections
+     */
+    public synchronized int size() {
+        return leasedConnections + idleConnections.size() + connecting;
+    }
+
+    public synchronized int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public synchronized int getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    public synchronized int getPendingAcquires() {
+        return pendingAcquires.size();
+    }
+
+    /**
+     * Get the number of the leases that the pool has assigned.
+     *
+     * @return The number of the leases
+     */
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * Get the average time that the acquisitions wait for the connections.
+     *
+     * @param unit The time unit
+     * @return The average lease wait time
+     */
+    public long getAverageLeaseWaitTime(TimeUnit unit) {
+        long count = leaseCount.get();
+        return count > 0 ? unit.convert(totalLeaseWaitTime.get() / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Get the max time that an acquisition waits for a connection.
+     *
+     * @param unit The time unit
+     * @return The max lease wait time
+     */
+    public long getMaxLeaseWaitTime(TimeUnit unit) {
+        return unit.convert(maxLeaseWaitTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the number of the acquisitions that fail with the lease timeout.
+     *
+     * @return The number of the lease timeouts
+     */
+    public long getLeaseTimeoutCount() {
+        return leaseTimeoutCount.get();
+    }
+
+    /**
+     * Get the number of the acquisitions that are rejected because the pending queue is full.
+     *
+     * @return The number of the rejected acquisitions
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public TcpConnectionPoolConfiguration getConfig() {
+        return config;
+    }
+
+    private boolean validate(TcpConnection connection) {
+        try {
+            return connection.isOpen() && config.getValidator().isValid(connection);
+        } catch (Throwable t) {
+            log.error("validate connection exception", t);
+            return false;
+        }
+    }
+
+    private void succeeded(Promise.Completable<Lease> promise, Lease lease, long start) {
+        long waitTime = System.nanoTime() - start;
+        leaseCount.incrementAndGet();
+        totalLeaseWaitTime.addAndGet(waitTime);
+        long max;
+        while (waitTime > (max = maxLeaseWaitTime.get())) {
+            if (maxLeaseWaitTime.compareAndSet(max, waitTime)) {
+                break;
+            }
+        }
+        promise.succeeded(lease);
+    }
+
+    private void scheduleLeaseTimeout(PendingAcquire pending) {
+        long leaseTimeout = config.getLeaseTimeout();
+        if (leaseTimeout > 0 && scheduler != null) {
+            pending.timeout = scheduler.schedule(() -> {
+                boolean removed;
+                synchronized (this) {
+                    removed = pendingAcquires.remove(pending);
+                }
+                if (removed) {
+                    leaseTimeoutCount.incrementAndGet();
+                    pending.promise.failed(new TimeoutException("take the connection timeout, lease timeout: "
+                            + leaseTimeout + " ms"));
+                }
+            }, leaseTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Open a connection if the pending acquisitions are more than the opening connections. It is called
+     * under the lock.
+     */
+    private boolean needConnect() {
+        return pendingAcquires.size() > connecting
+                && leasedConnections + idleConnections.size() + connecting < config.getMaxConnections();
+    }
+
+    private void connect() {
+        connectionFactory.createNew().thenAccept(this::onConnected).exceptionally(e -> {
+            onConnectFailed(e);
+            return null;
+        });
+    }
+
+    private void onConnected(TcpConnection connection) {
+        log.debug("the pool opens the connection {}", connection.getSessionId());
+        synchronized (this) {
+            connecting--;
+        }
+        offer(new PooledConnection(connection), false);
+    }
+
+    private void onConnectFailed(Throwable e) {
+        List<PendingAcquire> failed = new ArrayList<>();
+        synchronized (this) {
+            connecting--;
+            if (leasedConnections + idleConnections.size() + connecting == 0) {
+                // no connection will serve the pending acquisitions
+                failed.addAll(pendingAcquires);
+                pendingAcquires.clear();
+            }
+        }
+        log.error("the pool opens connection exception", e);
+        for (PendingAcquire pending : failed) {
+            pending.cancelTimeout();
+            pending.promise.failed(e);
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        offer(pooled, true);
+    }
+
+    /**
+     * Assign the connection to the first pending acquisition or put it in the idle queue.
+     */
+    private void offer(PooledConnection pooled, boolean leased) {
+        PendingAcquire pending = null;
+        boolean close = false;
+        boolean connect = false;
+        synchronized (this) {
+            if (leased) {
+                leasedConnections--;
+            }
+            if (!isStarted() || !pooled.connection.isOpen()) {
+                close = true;
+                connect = needConnect();
+                if (connect) {
+                    connecting++;
+                }
+            } else if (!pendingAcquires.isEmpty()) {
+                pending = pendingAcquires.poll();
+                leasedConnections++;
+            } else {
+                pooled.idleTime = Millisecond100Clock.currentTimeMillis();
+                idleConnections.offerFirst(pooled);
+            }
+        }
+
+        if (close) {
+            pooled.connection.close();
+        }
+        if (connect) {
+            connect();
+        }
+        if (pending != null) {
+            pending.cancelTimeout();
+            succeeded(pending.promise, new Lease(pooled), pending.start);
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        boolean connect;
+        synchronized (this) {
+            leasedConnections--;
+            connect = needConnect();
+            if (connect) {
+                connecting++;
+            }
+        }
+        pooled.connection.close();
+        if (connect) {
+            connect();
+        }
+    }
+
+    /**
+     * Close the connections that are idle longer than the max idle time and open the min connections.
+     */
+    private void checkIdleConnections() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        int count = 0;
+        synchronized (this) {
+            if (!isStarted()) {
+                return;
+            }
+
+            long now = Millisecond100Clock.currentTimeMillis();
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (!pooled.connection.isOpen()) {
+                    iterator.remove();
+                } else if (now - pooled.idleTime > config.getMaxIdleTime()
+                        && leasedConnections + idleConnections.size() + connecting > config.getMinConnections()) {
+                    iterator.remove();
+                    evicted.add(pooled);
+                } else {
+                    // the older connections are at the tail
+                    break;
+                }
+            }
+
+            while (leasedConnections + idleConnections.size() + connecting < config.getMinConnections()) {
+                connecting++;
+                count++;
+            }
+        }
+
+        if (!evicted.isEmpty()) {
+            log.debug("the pool closes {} idle connections", evicted.size());
+        }
+        evicted.forEach(pooled -> pooled.connection.close());
+        for (int i = 0; i < count; i++) {
+            connect();
+        }
+    }
+
+    @Override
+    protected void init() {
+        if (scheduler != null && config.getIdleCheckInterval() > 0) {
+            idleCheck = scheduler.scheduleWithFixedDelay(this::checkIdleConnections,
+                    0, config.getIdleCheckInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Close the idle connections and reject the pending acquisitions. The leased connections are closed when
+     * they are released.
+     */
+    @Override
+    protected void destroy() {
+        if (idleCheck != null) {
+            idleCheck.cancel();
+        }
+        List<PooledConnection> idle;
+        List<PendingAcquire> pending;
+        synchronized (this) {
+            idle = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+            pending = new ArrayList<>(pendingAcquires);
+            pendingAcquires.clear();
+        }
+        idle.forEach(pooled -> pooled.connection.close());
+        for (PendingAcquire p : pending) {
+            p.cancelTimeout();
+            p.promise.failed(new RejectedExecutionException("the connection pool is stopped"));
+        }
+    }
+
+    private static class PooledConnection {
+        private final TcpConnection connection;
+        private long idleTime;
+
+        private PooledConnection(TcpConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private static class PendingAcquire {
+        private final Promise.Completable<Lease> promise;
+        private final long start;
+        private volatile Scheduler.Future timeout;
+
+        private PendingAcquire(Promise.Completable<Lease> promise, long start) {
+            this.promise = promise;
+            this.start = start;
+        }
+
+        private void cancelTimeout() {
+            Scheduler.Future future = timeout;
+            if (future != null) {
+                future.cancel();
+            }
+        }
+    }
+
+    /**
+     * The exclusive lease of a pooled connection, no other acquisition gets the connection until the lease is
+     * released.
+     */
+    public class Lease {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        public TcpConnection getConnection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Hand the connection to the first pending acquisition, or put it at the head of the idle queue. A
+         * closed connection is discarded and a new one is opened for the pending acquisitions. Only the first
+         * call releases the connection.
+         *
+         * @return True if the lease is released by this call
+         */
+        public boolean release() {
+            if (released.compareAndSet(false, true)) {
+                TcpConnectionPool.this.release(pooled);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isReleased() {
+            return released.get();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.firefly.net.tcp;
+
+import com.firefly.utils.lang.pool.Pool;
+
+/**
+ * The settings of the {@link TcpConnectionPool}, the pool of a destination (host and port).
+ *
+ * @author Pengtao Qiu
+ */
+public class TcpConnectionPoolConfiguration {
+
+    private int minConnections = 0;
+    private int maxConnections = 16;
+    private int maxPendingAcquires = 1024;
+    private long leaseTimeout = 10 * 1000L;
+    private long maxIdleTime = 60 * 1000L;
+    private long idleCheckInterval = 5 * 1000L;
+    private Pool.Validator<TcpConnection> validator = TcpConnection::isOpen;
+
+    /**
+     * Get the number of the connections that the pool keeps open when they are idle.
+     *
+     * @return The min number of the connections, the default value is 0.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public void setMinConnections(int minConnections) {
+        this.minConnections = minConnections;
+    }
+
+    /**
+     * Get the max number of the leased, idle and opening connections.
+     *
+     * @return The max number of the connections, the default value is 16.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Get the max number of the acquisitions that wait for a connection, the
+     * acquisitions beyond the limit are rejected.
+     *
+     * @return The max number of the pending acquisitions, the default value is 1024.
+     */
+    public int getMaxPendingAcquires() {
+        return maxPendingAcquires;
+    }
+
+    public void setMaxPendingAcquires(int maxPendingAcquires) {
+        this.maxPendingAcquires = maxPendingAcquires;
+    }
+
+    /**
+     * Get the max time that an acquisition waits for a connection.
+     *
+     * @return The lease timeout (millisecond), the default value is 10 seconds. The
+     * acquisitions wait until a connection is available if it is 0.
+     */
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Get the max time that a connection stays idle in the pool, the pool closes
+     * the connections that are idle for a longer time, except the min connections.
+     *
+     * @return The max idle time (millisecond), the default value is 60 seconds.
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Get the interval of the idle connection eviction.
+     *
+     * @return The idle check interval (millisecond), the default value is 5 seconds.
+     */
+    public long getIdleCheckInterval() {
+        return idleCheckInterval;
+    }
+
+    public void setIdleCheckInterval(long idleCheckInterval) {
+        this.idleCheckInterval = idleCheckInterval;
+    }
+
+    /**
+     * Get the validator that checks the idle connection before it is leased, the
+     * invalid connections are closed.
+     *
+     * @return The validator, the default validator checks whether the connection is open.
+     */
+    public Pool.Validator<TcpConnection> getValidator() {
+        return validator;
+    }
+
+    public void setValidator(Pool.Validator<TcpConnection> validator) {
+        this.validator = validator;
+    }
+}
@@ -2,6 +2,7 @@ package com.firefly.net.tcp.aio;
 
 import com.firefly.net.*;
 import com.firefly.net.event.DefaultEventManager;
+import com.firefly.net.tcp.SocketOptions;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.log.LogFactory;
 import com.firefly.utils.time.Millisecond100Clock;
@@ -10,7 +11,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
@@ -69,9 +69,7 @@ public class AsynchronousTcpClient extends AbstractLifeCycle implements Client {
         try {
             final long start = Millisecond100Clock.currentTimeMillis();
             final AsynchronousSocketChannel socketChannel = AsynchronousSocketChannel.open(group);
-            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
+            SocketOptions.configureSocket(socketChannel, config);
             socketChannel.connect(new InetSocketAddress(host, port), id, new CompletionHandler<Void, Integer>() {
 
                 @Override
@@ -3,6 +3,7 @@ package com.firefly.net.tcp.aio;
 import com.firefly.net.*;
 import com.firefly.net.event.DefaultEventManager;
 import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.SocketOptions;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.log.LogFactory;
 import com.firefly.utils.time.Millisecond100Clock;
@@ -11,18 +12,17 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.firefly.net.tcp.TcpPerformanceParameter.BACKLOG;
-
 public class AsynchronousTcpServer extends AbstractLifeCycle implements Server {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
@@ -61,20 +61,42 @@ public class AsynchronousTcpServer extends AbstractLifeCycle implements Server {
     @Override
     public void listen(String host, int port) {
         start();
-        listen(bind(host, port));
+        for (AsynchronousServerSocketChannel serverSocketChannel : bind(host, port)) {
+            listen(serverSocketChannel);
+        }
         log.info("start server. host: {}, port: {}", host, port);
     }
 
-    private AsynchronousServerSocketChannel bind(String host, int port) {
-        AsynchronousServerSocketChannel serverSocketChannel = null;
+    private List<AsynchronousServerSocketChannel> bind(String host, int port) {
+        List<AsynchronousServerSocketChannel> serverSocketChannels = new ArrayList<>();
         try {
-            serverSocketChannel = AsynchronousServerSocketChannel.open(group);
-            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            serverSocketChannel.bind(new InetSocketAddress(host, port), BACKLOG);
+            int acceptorSize = 1;
+            for (int i = 0; i < acceptorSize; i++) {
+                AsynchronousServerSocketChannel serverSocketChannel = AsynchronousServerSocketChannel.open(group);
+                serverSocketChannels.add(serverSocketChannel);
+                SocketOptions.configureServerSocket(serverSocketChannel, config);
+                if (i == 0) {
+                    acceptorSize = SocketOptions.acceptorSize(serverSocketChannel, config);
+                } else {
+                    SocketOptions.enableReusePort(serverSocketChannel);
+                }
+                serverSocketChannel.bind(new InetSocketAddress(host, port), config.getBacklog());
+            }
         } catch (Exception e) {
-            log.error("ServerSocket bind error", e);
+            close(serverSocketChannels);
+            throw new NetException("bind the server socket error. host: " + host + ", port: " + port, e);
+        }
+        return serverSocketChannels;
+    }
+
+    private void close(List<AsynchronousServerSocketChannel> serverSocketChannels) {
+        for (AsynchronousServerSocketChannel serverSocketChannel : serverSocketChannels) {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                log.error("close server socket channel error", e);
+            }
         }
-        return serverSocketChannel;
     }
 
     private void listen(final AsynchronousServerSocketChannel serverSocketChannel) {
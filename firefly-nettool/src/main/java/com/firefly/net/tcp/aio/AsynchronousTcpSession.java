@@ -3,9 +3,9 @@ package com.firefly.net.tcp.aio;
 import com.firefly.net.*;
 import com.firefly.net.buffer.AdaptiveBufferSizePredictor;
 import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.GatheringWrite;
+import com.firefly.net.buffer.PooledBuffer;
 import com.firefly.utils.concurrent.Callback;
-import com.firefly.utils.concurrent.CountingCallback;
-import com.firefly.utils.io.BufferReaderHandler;
 import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.time.Millisecond100Clock;
 import com.firefly.utils.time.SafeSimpleDateFormat;
@@ -16,13 +16,10 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.Collection;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AsynchronousTcpSession implements Session {
 
@@ -44,11 +41,19 @@ public class AsynchronousTcpSession implements Session {
     private final EventManager eventManager;
     private volatile Object attachment;
 
-    private final Lock outputLock = new ReentrantLock();
-    private boolean isWriting = false;
-    private final Queue<OutputEntry<?>> outputBuffer = new LinkedList<>();
+    // the business threads offer the output entries and only the thread that sets the writing state polls them
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final Queue<OutputEntry<?>> outputBuffer = new ConcurrentLinkedQueue<>();
+    private final GatheringWrite gatheringWrite;
+    private FileRegionWriter fileRegionWriter;
     private final BufferSizePredictor bufferSizePredictor = new AdaptiveBufferSizePredictor();
 
+    // the read buffers are only accessed by the thread that completes the current read
+    private final BufferPool readBufferPool;
+    private ByteBuffer readingBuffer;
+    private PooledBuffer readBuffer;
+    private PooledBuffer recycledReadBuffer;
+
     AsynchronousTcpSession(int sessionId, Config config, EventManager eventManager,
                            AsynchronousSocketChannel socketChannel) {
         this.sessionId = sessionId;
@@ -56,6 +61,9 @@ public class AsynchronousTcpSession implements Session {
         this.config = config;
         this.eventManager = eventManager;
         this.socketChannel = socketChannel;
+        this.readBufferPool = config.getReadBufferPool();
+        this.gatheringWrite = new GatheringWrite(config.getMaxGatheringWriteBufferCount(),
+                config.getMaxGatheringWriteBytes());
         state = OPEN;
     }
 
@@ -64,59 +72,88 @@ public class AsynchronousTcpSession implements Session {
             return;
 
         final int bufferSize = BufferUtils.normalizeBufferSize(bufferSizePredictor.nextBufferSize());
-        final ByteBuffer buf = ByteBuffer.allocate(bufferSize);
+        if (readBufferPool != null) {
+            PooledBuffer pooledBuffer = recycledReadBuffer != null ? recycledReadBuffer : new PooledBuffer(readBufferPool);
+            recycledReadBuffer = null;
+            readBuffer = pooledBuffer.acquire(bufferSize);
+            readingBuffer = readBuffer.getBuffer();
+        } else {
+            readingBuffer = ByteBuffer.allocate(bufferSize);
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("the session {} buffer size is {}", getSessionId(), bufferSize);
         }
-        socketChannel.read(buf, config.getTimeout(), TimeUnit.MILLISECONDS, this,
-                new CompletionHandler<Integer, AsynchronousTcpSession>() {
-
-                    @Override
-                    public void completed(Integer currentReadBytes, AsynchronousTcpSession session) {
-                        session.lastReadTime = Millisecond100Clock.currentTimeMillis();
-                        if (currentReadBytes < 0) {
-                            if (log.isDebugEnabled()) {
-                                log.debug("the session {} input is closed, {}", session.getSessionId(),
-                                        currentReadBytes);
-                            }
-                            session.closeNow();
-                            return;
-                        }
-
-                        if (log.isDebugEnabled()) {
-                            log.debug("the session {} read {} bytes", session.getSessionId(), currentReadBytes);
-                        }
-                        // Update the predictor.
-                        session.bufferSizePredictor.previousReceivedBufferSize(currentReadBytes);
-                        session.readBytes += currentReadBytes;
-
-                        buf.flip();
-                        try {
-                            config.getDecoder().decode(buf, session);
-                        } catch (Throwable t) {
-                            eventManager.executeExceptionTask(session, t);
-                        } finally {
-                            _read();
-                        }
-                    }
-
-                    @Override
-                    public void failed(Throwable t, AsynchronousTcpSession session) {
-                        if (t instanceof InterruptedByTimeoutException) {
-                            if (log.isDebugEnabled()) {
-                                log.debug("the session {} reading data is timeout.", getSessionId());
-                            }
-                        } else {
-                            log.warn("the session {} read data is failed", t, session.getSessionId());
-                        }
-
-                        session.closeNow();
-                    }
-                });
-    }
-
-    private void writingFailedCallback(Callback callback, Throwable t) {
+        socketChannel.read(readingBuffer, config.getTimeout(), TimeUnit.MILLISECONDS, this, readCompletionHandler);
+    }
+
+    private final CompletionHandler<Integer, AsynchronousTcpSession> readCompletionHandler = new CompletionHandler<Integer, AsynchronousTcpSession>() {
+
+        @Override
+        public void completed(Integer currentReadBytes, AsynchronousTcpSession session) {
+            session.lastReadTime = Millisecond100Clock.currentTimeMillis();
+            if (currentReadBytes < 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("the session {} input is closed, {}", session.getSessionId(),
+                            currentReadBytes);
+                }
+                session.releaseReadBuffer();
+                session.closeNow();
+                return;
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} read {} bytes", session.getSessionId(), currentReadBytes);
+            }
+            // Update the predictor.
+            session.bufferSizePredictor.previousReceivedBufferSize(currentReadBytes);
+            session.readBytes += currentReadBytes;
+
+            ByteBuffer buf = session.readingBuffer;
+            buf.flip();
+            try {
+                config.getDecoder().decode(buf, session);
+            } catch (Throwable t) {
+                eventManager.executeExceptionTask(session, t);
+            } finally {
+                session.releaseReadBuffer();
+                session._read();
+            }
+        }
+
+        @Override
+        public void failed(Throwable t, AsynchronousTcpSession session) {
+            if (t instanceof InterruptedByTimeoutException) {
+                if (log.isDebugEnabled()) {
+                    log.debug("the session {} reading data is timeout.", getSessionId());
+                }
+            } else {
+                log.warn("the session {} read data is failed", t, session.getSessionId());
+            }
+
+            session.releaseReadBuffer();
+            session.closeNow();
+        }
+    };
+
+    private void releaseReadBuffer() {
+        readingBuffer = null;
+        if (readBuffer != null) {
+            // the decoder does not retain the buffer, so the pooled buffer holder can be reused by the next read
+            if (readBuffer.release()) {
+                recycledReadBuffer = readBuffer;
+            }
+            readBuffer = null;
+        }
+    }
+
+    @Override
+    public PooledBuffer retainReadBuffer() {
+        PooledBuffer buffer = readBuffer;
+        return buffer != null ? buffer.retain() : PooledBuffer.UNPOOLED;
+    }
+
+    private void writingFailedCallback(Throwable t) {
         if (t instanceof InterruptedByTimeoutException) {
             if (log.isDebugEnabled()) {
                 log.debug("the session {} writing data is timeout.", getSessionId());
@@ -125,20 +162,23 @@ public class AsynchronousTcpSession implements Session {
             log.warn("the session {} writes data is failed", t, getSessionId());
         }
 
-        outputLock.lock();
+        int bufferSize = outputBuffer.size();
+        log.warn("the session {} has {} buffer data can not ouput", getSessionId(), bufferSize);
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.poll()) != null) {
+            if (entry.getOutputEntryType() == OutputEntryType.FILE_REGION) {
+                closeFileRegion((FileRegion) entry.getData());
+            }
+        }
+        shutdownSocketChannel();
         try {
-            int bufferSize = outputBuffer.size();
-            log.warn("the session {} has {} buffer data can not ouput", getSessionId(), bufferSize);
-            outputBuffer.clear();
-            isWriting = false;
-            shutdownSocketChannel();
+            gatheringWrite.fail(t);
         } finally {
-            outputLock.unlock();
+            writing.set(false);
         }
-        callback.failed(t);
     }
 
-    private void writingCompletedCallback(Callback callback, long currentWritenBytes) {
+    private void writingCompletedCallback(long currentWritenBytes) {
         lastWrittenTime = Millisecond100Clock.currentTimeMillis();
         if (currentWritenBytes < 0) {
             if (log.isDebugEnabled()) {
@@ -153,71 +193,77 @@ public class AsynchronousTcpSession implements Session {
         }
 
         writtenBytes += currentWritenBytes;
-        callback.succeeded();
+        if (gatheringWrite.complete()) {
+            gatheringWrite.clear();
+            flushOutputBuffer();
+        } else {
+            // the socket channel writes a part of the buffers, continue to write the remaining data.
+            _write();
+        }
+    }
 
-        outputLock.lock();
-        try {
-            OutputEntry<?> obj = outputBuffer.poll();
-            if (obj != null) {
-                _write(obj);
-            } else {
-                isWriting = false;
+    /**
+     * Poll the pending output entries and merge the adjacent buffer entries into one gathering write.
+     * Only the thread that sets the writing state calls this method, so the queue has a single consumer.
+     */
+    private void flushOutputBuffer() {
+        if (fileRegionWriter != null) {
+            fileRegionWriter.writeNextWindow();
+            return;
+        }
+
+        OutputEntry<?> entry = outputBuffer.poll();
+        while (entry == null) {
+            writing.set(false);
+            // another thread may offer an entry after polling and before resetting the writing state
+            if (outputBuffer.isEmpty() || !writing.compareAndSet(false, true)) {
+                return;
             }
-        } finally {
-            outputLock.unlock();
+            entry = outputBuffer.poll();
+        }
+
+        if (entry.getOutputEntryType() == OutputEntryType.DISCONNECTION) {
+            log.debug("the session {} will close", getSessionId());
+            shutdownSocketChannel();
+        } else if (entry.getOutputEntryType() == OutputEntryType.FILE_REGION) {
+            fileRegionWriter = new FileRegionWriter((FileRegionOutputEntry) entry);
+            fileRegionWriter.writeNextWindow();
+        } else {
+            gatheringWrite.add(entry);
+            OutputEntry<?> next;
+            while ((next = outputBuffer.peek()) != null && gatheringWrite.add(next)) {
+                outputBuffer.poll();
+            }
+            _write();
         }
     }
 
-    private void _write(final OutputEntry<?> entry) {
+    private void _write() {
         if (!isOpen())
             return;
 
-        switch (entry.getOutputEntryType()) {
-            case BYTE_BUFFER:
-                ByteBufferOutputEntry byteBufferOutputEntry = (ByteBufferOutputEntry) entry;
-                if (log.isDebugEnabled()) {
-                    log.debug("the session {} will write buffer {}", getSessionId(),
-                            byteBufferOutputEntry.getData().remaining());
-                }
-                socketChannel.write(byteBufferOutputEntry.getData(), config.getTimeout(), TimeUnit.MILLISECONDS, this,
-                        new CompletionHandler<Integer, AsynchronousTcpSession>() {
-
-                            @Override
-                            public void completed(Integer currentWritenBytes, AsynchronousTcpSession session) {
-                                writingCompletedCallback(entry.getCallback(), currentWritenBytes);
-                            }
-
-                            @Override
-                            public void failed(Throwable t, AsynchronousTcpSession session) {
-                                writingFailedCallback(entry.getCallback(), t);
-                            }
-                        });
-                break;
-
-            case BYTE_BUFFER_ARRAY:
-                ByteBufferArrayOutputEntry byteBuffersEntry = (ByteBufferArrayOutputEntry) entry;
-                socketChannel.write(byteBuffersEntry.getData(), 0, byteBuffersEntry.getData().length, config.getTimeout(),
-                        TimeUnit.MILLISECONDS, this, new CompletionHandler<Long, AsynchronousTcpSession>() {
-
-                            @Override
-                            public void completed(Long currentWritenBytes, AsynchronousTcpSession session) {
-                                writingCompletedCallback(entry.getCallback(), currentWritenBytes);
-                            }
-
-                            @Override
-                            public void failed(Throwable t, AsynchronousTcpSession session) {
-                                writingFailedCallback(entry.getCallback(), t);
-                            }
-                        });
-                break;
-            case DISCONNECTION:
-                log.debug("the session {} will close", getSessionId());
-                shutdownSocketChannel();
-            default:
-                break;
+        if (log.isDebugEnabled()) {
+            log.debug("the session {} will write {} entries, {} buffers, {} bytes", getSessionId(),
+                    gatheringWrite.getEntryCount(), gatheringWrite.getLength(), gatheringWrite.remaining());
         }
+        socketChannel.write(gatheringWrite.getBuffers(), gatheringWrite.getOffset(), gatheringWrite.getLength(),
+                config.getTimeout(), TimeUnit.MILLISECONDS, this,
+                writeCompletionHandler);
     }
 
+    private final CompletionHandler<Long, AsynchronousTcpSession> writeCompletionHandler = new CompletionHandler<Long, AsynchronousTcpSession>() {
+
+        @Override
+        public void completed(Long currentWritenBytes, AsynchronousTcpSession session) {
+            session.writingCompletedCallback(currentWritenBytes);
+        }
+
+        @Override
+        public void failed(Throwable t, AsynchronousTcpSession session) {
+            session.writingFailedCallback(t);
+        }
+    };
+
     @Override
     public void attachObject(Object attachment) {
         this.attachment = attachment;
@@ -233,6 +279,15 @@ public class AsynchronousTcpSession implements Session {
         eventManager.executeReceiveTask(this, message);
     }
 
+    @Override
+    public void decode(ByteBuffer buf) {
+        try {
+            config.getDecoder().decode(buf, this);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        }
+    }
+
     @Override
     public void encode(Object message) {
         try {
@@ -250,16 +305,9 @@ public class AsynchronousTcpSession implements Session {
         if (entry == null)
             return;
 
-        outputLock.lock();
-        try {
-            if (!isWriting) {
-                isWriting = true;
-                _write(entry);
-            } else {
-                outputBuffer.offer(entry);
-            }
-        } finally {
-            outputLock.unlock();
+        outputBuffer.offer(entry);
+        if (writing.compareAndSet(false, true)) {
+            flushOutputBuffer();
         }
     }
 
@@ -278,28 +326,88 @@ public class AsynchronousTcpSession implements Session {
         write(new ByteBufferArrayOutputEntry(callback, buffers.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY)));
     }
 
-    private class FileBufferReaderHandler implements BufferReaderHandler {
+    /**
+     * Write the file region to the socket channel. The region is mapped window by window, so the data does not
+     * copy to the heap and the next window is not mapped until the previous one has been written.
+     */
+    @Override
+    public void write(FileRegion file, Callback callback) {
+        if (!isOpen()) {
+            closeFileRegion(file);
+            callback.failed(new ClosedChannelException());
+            return;
+        }
+        write(new FileRegionOutputEntry(callback, file));
+    }
+
+    private void closeFileRegion(FileRegion file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.error("the session {} closes file error", e, sessionId);
+        }
+    }
+
+    private class FileRegionWriter implements Callback {
 
-        private final long len;
+        private final FileRegion fileRegion;
+        private final Callback callback;
+        private long position;
+        private long end;
 
-        private FileBufferReaderHandler(long len) {
-            this.len = len;
+        private FileRegionWriter(FileRegionOutputEntry entry) {
+            this.fileRegion = entry.getData();
+            this.callback = entry.getCallback();
+            this.position = fileRegion.getPosition();
+            this.end = position + fileRegion.getLength();
         }
 
-        @Override
-        public void readBuffer(ByteBuffer buf, CountingCallback countingCallback, long count) {
-            log.debug("write file,  count: {} , lenth: {}", count, len);
-            write(buf, countingCallback);
+        private void writeNextWindow() {
+            ByteBuffer window;
+            try {
+                end = Math.min(end, fileRegion.getFileChannel().size());
+                if (position < end) {
+                    long size = Math.min(config.getFileRegionWindowSize(), end - position);
+                    window = fileRegion.getFileChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+                    position += size;
+                } else {
+                    window = null;
+                }
+            } catch (Throwable t) {
+                log.error("the session {} maps file error", t, getSessionId());
+                failed(t);
+                flushOutputBuffer();
+                return;
+            }
+
+            if (window == null) {
+                // the file region is empty or the file is truncated
+                succeeded();
+                flushOutputBuffer();
+            } else {
+                if (log.isDebugEnabled()) {
+                    log.debug("the session {} writes file window {} bytes, remaining: {}", getSessionId(),
+                            window.remaining(), end - position);
+                }
+                gatheringWrite.add(new ByteBufferOutputEntry(this, window));
+                _write();
+            }
         }
 
-    }
+        @Override
+        public void succeeded() {
+            if (position >= end) {
+                fileRegionWriter = null;
+                closeFileRegion(fileRegion);
+                callback.succeeded();
+            }
+        }
 
-    @Override
-    public void write(FileRegion file, Callback callback) {
-        try (FileRegion fileRegion = file) {
-            fileRegion.transferTo(callback, new FileBufferReaderHandler(fileRegion.getLength()));
-        } catch (Throwable t) {
-            log.error("transfer file error", t);
+        @Override
+        public void failed(Throwable x) {
+            fileRegionWriter = null;
+            closeFileRegion(fileRegion);
+            callback.failed(x);
         }
     }
 
@@ -3,11 +3,11 @@ package com.firefly.net.tcp.aio;
 import com.firefly.net.Config;
 import com.firefly.net.EventManager;
 import com.firefly.net.Worker;
+import com.firefly.net.tcp.SocketOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.Channel;
 
@@ -26,9 +26,7 @@ public class AsynchronousTcpWorker implements Worker {
 	public void registerChannel(Channel channel, int sessionId) {
 		try {
 			AsynchronousSocketChannel socketChannel = (AsynchronousSocketChannel) channel;
-			socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-			socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-			socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
+			SocketOptions.configureSocket(socketChannel, config);
 
 			AsynchronousTcpSession session = new AsynchronousTcpSession(sessionId, config, eventManager, socketChannel);
 			eventManager.executeOpenTask(session);
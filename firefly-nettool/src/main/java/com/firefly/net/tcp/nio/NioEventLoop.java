@@ -0,0 +1,152 @@
+package com.firefly.net.tcp.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A selector and the thread that handles the I/O events and tasks of the registered channels.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioEventLoop implements Runnable {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final long SELECT_TIMEOUT = 1000L;
+
+    /**
+     * The handler of the selected keys, it is the attachment of the selection key.
+     */
+    interface SelectionHandler {
+        void select(SelectionKey key);
+    }
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    NioEventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Run the task in the event loop thread.
+     *
+     * @param task The task
+     */
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    wakenUp.set(false);
+                    if (tasks.isEmpty()) {
+                        selector.select(SELECT_TIMEOUT);
+                    } else {
+                        selector.selectNow();
+                    }
+                    processSelectedKeys();
+                    runTasks();
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (Throwable t) {
+                    log.error("the event loop {} handles I/O events error", t, thread.getName());
+                }
+            }
+        } finally {
+            closeSelector();
+            terminated.countDown();
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+
+            Object attachment = key.attachment();
+            if (attachment instanceof SelectionHandler) {
+                ((SelectionHandler) attachment).select(key);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("the event loop {} runs task error", t, thread.getName());
+            }
+        }
+    }
+
+    private void closeSelector() {
+        try {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                Object attachment = key.attachment();
+                if (attachment instanceof NioTcpSession) {
+                    ((NioTcpSession) attachment).closeNow();
+                } else {
+                    key.channel().close();
+                }
+            }
+            selector.close();
+        } catch (Throwable t) {
+            log.error("the event loop {} closes selector error", t, thread.getName());
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        if (!inEventLoop()) {
+            try {
+                terminated.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
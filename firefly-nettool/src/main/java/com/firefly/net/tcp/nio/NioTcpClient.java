@@ -0,0 +1,109 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.*;
+import com.firefly.net.event.DefaultEventManager;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.log.LogFactory;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TCP client of the selector engine.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpClient extends AbstractLifeCycle implements Client {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+    private static Logger monitor = LoggerFactory.getLogger("firefly-monitor");
+
+    private Config config;
+    private AtomicInteger sessionId = new AtomicInteger(0);
+    private NioTcpWorker worker;
+
+    public NioTcpClient() {
+    }
+
+    public NioTcpClient(Config config) {
+        this.config = config;
+    }
+
+    public NioTcpClient(Decoder decoder, Encoder encoder, Handler handler) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+    }
+
+    public NioTcpClient(Decoder decoder, Encoder encoder, Handler handler, int timeout) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+        config.setTimeout(timeout);
+    }
+
+    @Override
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public int connect(String host, int port) {
+        int id = sessionId.getAndIncrement();
+        connect(host, port, id);
+        return id;
+    }
+
+    @Override
+    public void connect(String host, int port, int id) {
+        start();
+        SocketChannel socketChannel = null;
+        try {
+            final long start = Millisecond100Clock.currentTimeMillis();
+            socketChannel = SocketChannel.open();
+            worker.configure(socketChannel);
+            socketChannel.connect(new InetSocketAddress(host, port));
+            worker.registerConnectingChannel(socketChannel, id, () -> {
+                long end = Millisecond100Clock.currentTimeMillis();
+                monitor.info("NioTcpClient connection establishment time -> {}", (end - start));
+            });
+        } catch (IOException e) {
+            log.error("client connect error", e);
+            if (socketChannel != null) {
+                try {
+                    socketChannel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                config.getHandler().failedOpeningSession(id, e);
+            } catch (Throwable t) {
+                log.error("session {} open exception", t, id);
+            }
+        }
+    }
+
+    @Override
+    protected void init() {
+        log.info(config.toString());
+        EventManager eventManager = new DefaultEventManager(config);
+        worker = new NioTcpWorker(config, eventManager, "firefly nio client event loop");
+    }
+
+    @Override
+    protected void destroy() {
+        if (worker != null) {
+            worker.shutdown();
+        }
+        LogFactory.getInstance().stop();
+        Millisecond100Clock.stop();
+    }
+
+}
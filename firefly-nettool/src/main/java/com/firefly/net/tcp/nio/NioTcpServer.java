@@ -0,0 +1,148 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.*;
+import com.firefly.net.event.DefaultEventManager;
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.SocketOptions;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.log.LogFactory;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TCP server of the selector engine. Every server socket has an acceptor thread that accepts the connections,
+ * and the worker binds them to the event loops.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpServer extends AbstractLifeCycle implements Server {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+    private Config config;
+    private AtomicInteger id = new AtomicInteger();
+    private NioTcpWorker worker;
+    private volatile List<ServerSocketChannel> serverSocketChannels = Collections.emptyList();
+
+    public NioTcpServer() {
+    }
+
+    public NioTcpServer(Config config) {
+        this.config = config;
+    }
+
+    public NioTcpServer(Decoder decoder, Encoder encoder, Handler handler) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+    }
+
+    public NioTcpServer(Decoder decoder, Encoder encoder, Handler handler, int timeout) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+        config.setTimeout(timeout);
+    }
+
+    @Override
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public void listen(String host, int port) {
+        start();
+        serverSocketChannels = bind(host, port);
+        int i = 0;
+        for (ServerSocketChannel serverSocketChannel : serverSocketChannels) {
+            Thread acceptor = new Thread(() -> accept(serverSocketChannel), "firefly nio server acceptor-" + i++);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+        log.info("start server. host: {}, port: {}", host, port);
+    }
+
+    private List<ServerSocketChannel> bind(String host, int port) {
+        List<ServerSocketChannel> serverSocketChannels = new ArrayList<>();
+        try {
+            int acceptorSize = 1;
+            for (int i = 0; i < acceptorSize; i++) {
+                ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+                serverSocketChannels.add(serverSocketChannel);
+                SocketOptions.configureServerSocket(serverSocketChannel, config);
+                if (i == 0) {
+                    acceptorSize = SocketOptions.acceptorSize(serverSocketChannel, config);
+                } else {
+                    SocketOptions.enableReusePort(serverSocketChannel);
+                }
+                serverSocketChannel.bind(new InetSocketAddress(host, port), config.getBacklog());
+            }
+        } catch (Exception e) {
+            close(serverSocketChannels);
+            throw new NetException("bind the server socket error. host: " + host + ", port: " + port, e);
+        }
+        return serverSocketChannels;
+    }
+
+    private void close(List<ServerSocketChannel> serverSocketChannels) {
+        for (ServerSocketChannel serverSocketChannel : serverSocketChannels) {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                log.error("close server socket channel error", e);
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel serverSocketChannel) {
+        while (serverSocketChannel.isOpen()) {
+            int sessionId = id.getAndIncrement();
+            try {
+                SocketChannel socketChannel = serverSocketChannel.accept();
+                worker.registerChannel(socketChannel, sessionId);
+            } catch (Throwable t) {
+                if (!serverSocketChannel.isOpen()) {
+                    break;
+                }
+                try {
+                    config.getHandler().failedAcceptingSession(sessionId, t);
+                } catch (Throwable e) {
+                    log.error("session {} accepting exception", e, sessionId);
+                }
+                log.error("server accepts channel {} error occurs", t, sessionId);
+            }
+        }
+    }
+
+    @Override
+    protected void init() {
+        if (config == null)
+            throw new NetException("server configuration is null");
+
+        log.info(config.toString());
+        EventManager eventManager = new DefaultEventManager(config);
+        worker = new NioTcpWorker(config, eventManager, "firefly nio server event loop");
+    }
+
+    @Override
+    protected void destroy() {
+        close(serverSocketChannels);
+        if (worker != null) {
+            worker.shutdown();
+        }
+        LogFactory.getInstance().stop();
+        Millisecond100Clock.stop();
+    }
+
+}
@@ -0,0 +1,622 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.*;
+import com.firefly.net.buffer.AdaptiveBufferSizePredictor;
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.GatheringWrite;
+import com.firefly.net.buffer.PooledBuffer;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.time.Millisecond100Clock;
+import com.firefly.utils.time.SafeSimpleDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.firefly.net.tcp.TcpPerformanceParameter.WRITE_SPIN_COUNT;
+
+/**
+ * The session of the selector engine. The reading, decoding and writing of the session always run in the event loop
+ * thread that the session is registered to, the other threads only offer the output entries to the event loop.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpSession implements Session, NioEventLoop.SelectionHandler {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final int sessionId;
+    private final long openTime;
+    private volatile long closeTime;
+    private volatile long lastReadTime;
+    private volatile long lastWrittenTime;
+    private volatile long readBytes = 0;
+    private volatile long writtenBytes = 0;
+    private volatile int state;
+    private final SocketChannel socketChannel;
+    private final SelectionKey selectionKey;
+    private final NioEventLoop eventLoop;
+    private volatile InetSocketAddress localAddress;
+    private volatile InetSocketAddress remoteAddress;
+
+    private final Config config;
+    private final EventManager eventManager;
+    private volatile Object attachment;
+
+    // the business threads offer the output entries and the event loop writes them
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final Queue<OutputEntry<?>> outputBuffer = new ConcurrentLinkedQueue<>();
+    private final Runnable flushTask = this::flush;
+    private final GatheringWrite gatheringWrite;
+    private FileRegionWriter fileRegionWriter;
+
+    private Scheduler idleScheduler;
+    private volatile Scheduler.Future idleCheck;
+    private final Runnable idleCheckTask = this::checkIdle;
+
+    private final BufferSizePredictor bufferSizePredictor = new AdaptiveBufferSizePredictor();
+    private final BufferPool readBufferPool;
+    private PooledBuffer readBuffer;
+    private PooledBuffer recycledReadBuffer;
+
+    NioTcpSession(int sessionId, Config config, EventManager eventManager, SocketChannel socketChannel,
+                  SelectionKey selectionKey, NioEventLoop eventLoop) {
+        this.sessionId = sessionId;
+        this.openTime = Millisecond100Clock.currentTimeMillis();
+        this.config = config;
+        this.eventManager = eventManager;
+        this.socketChannel = socketChannel;
+        this.selectionKey = selectionKey;
+        this.eventLoop = eventLoop;
+        this.readBufferPool = config.getReadBufferPool();
+        this.gatheringWrite = new GatheringWrite(config.getMaxGatheringWriteBufferCount(),
+                config.getMaxGatheringWriteBytes());
+        state = OPEN;
+    }
+
+    /**
+     * Start the idle timeout timer. The timer is not cancelled by the I/O events, it checks the last active time
+     * when it expires, then it closes the idle session or it is rescheduled to the earliest time that the session
+     * may be idle.
+     *
+     * @param scheduler The scheduler of the idle timeouts
+     */
+    void startIdleCheck(Scheduler scheduler) {
+        if (getIdleTimeout() > 0) {
+            idleScheduler = scheduler;
+            idleCheck = scheduler.schedule(idleCheckTask, getIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkIdle() {
+        if (!isOpen())
+            return;
+
+        long idleTime = Millisecond100Clock.currentTimeMillis() - Math.max(openTime, getLastActiveTime());
+        long idleLeft = getIdleTimeout() - idleTime;
+        if (idleLeft < 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} is idle, idle time: {}", sessionId, idleTime);
+            }
+            eventLoop.execute(this::closeNow);
+        } else {
+            idleCheck = idleScheduler.schedule(idleCheckTask, Math.max(idleLeft, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void select(SelectionKey key) {
+        if (key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+    }
+
+    private void read() {
+        if (!isOpen())
+            return;
+
+        final int bufferSize = BufferUtils.normalizeBufferSize(bufferSizePredictor.nextBufferSize());
+        final ByteBuffer buf;
+        if (readBufferPool != null) {
+            PooledBuffer pooledBuffer = recycledReadBuffer != null ? recycledReadBuffer : new PooledBuffer(readBufferPool);
+            recycledReadBuffer = null;
+            readBuffer = pooledBuffer.acquire(bufferSize);
+            buf = readBuffer.getBuffer();
+        } else {
+            buf = ByteBuffer.allocate(bufferSize);
+        }
+
+        try {
+            int currentReadBytes;
+            try {
+                currentReadBytes = socketChannel.read(buf);
+            } catch (IOException e) {
+                log.warn("the session {} read data is failed", e, sessionId);
+                closeNow();
+                return;
+            }
+
+            lastReadTime = Millisecond100Clock.currentTimeMillis();
+            if (currentReadBytes < 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("the session {} input is closed, {}", sessionId, currentReadBytes);
+                }
+                closeNow();
+                return;
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} read {} bytes", sessionId, currentReadBytes);
+            }
+            bufferSizePredictor.previousReceivedBufferSize(currentReadBytes);
+            readBytes += currentReadBytes;
+            if (currentReadBytes == 0) {
+                return;
+            }
+
+            buf.flip();
+            try {
+                config.getDecoder().decode(buf, this);
+            } catch (Throwable t) {
+                eventManager.executeExceptionTask(this, t);
+            }
+        } finally {
+            releaseReadBuffer();
+        }
+    }
+
+    private void releaseReadBuffer() {
+        if (readBuffer != null) {
+            if (readBuffer.release()) {
+                recycledReadBuffer = readBuffer;
+            }
+            readBuffer = null;
+        }
+    }
+
+    @Override
+    public PooledBuffer retainReadBuffer() {
+        PooledBuffer buffer = readBuffer;
+        return buffer != null ? buffer.retain() : PooledBuffer.UNPOOLED;
+    }
+
+    /**
+     * Write the pending output entries in the event loop. If the socket send buffer is full, the session waits
+     * for the writable event. The event loop yields to the other sessions after {@code WRITE_SPIN_COUNT} writes.
+     */
+    private void flush() {
+        try {
+            for (int i = 0; i < WRITE_SPIN_COUNT; i++) {
+                if (!isOpen()) {
+                    return;
+                }
+
+                if (fileRegionWriter != null) {
+                    if (!fileRegionWriter.transfer()) {
+                        waitForWritable();
+                        return;
+                    }
+                    continue;
+                }
+
+                if (gatheringWrite.isEmpty() && !pollOutputEntries()) {
+                    return;
+                }
+                if (gatheringWrite.isEmpty()) {
+                    // a file region or disconnection entry is taken
+                    continue;
+                }
+
+                long currentWrittenBytes = socketChannel.write(gatheringWrite.getBuffers(), gatheringWrite.getOffset(),
+                        gatheringWrite.getLength());
+                writingCompleted(currentWrittenBytes);
+                if (gatheringWrite.complete()) {
+                    gatheringWrite.clear();
+                } else {
+                    waitForWritable();
+                    return;
+                }
+            }
+            eventLoop.execute(flushTask);
+        } catch (Throwable t) {
+            writingFailed(t);
+        }
+    }
+
+    /**
+     * Poll the pending output entries and merge the adjacent buffer entries into one gathering write.
+     *
+     * @return If false, the output buffer is empty and the writing state is reset.
+     */
+    private boolean pollOutputEntries() {
+        OutputEntry<?> entry = outputBuffer.poll();
+        while (entry == null) {
+            writing.set(false);
+            clearInterestOps(SelectionKey.OP_WRITE);
+            // another thread may offer an entry after polling and before resetting the writing state
+            if (outputBuffer.isEmpty() || !writing.compareAndSet(false, true)) {
+                return false;
+            }
+            entry = outputBuffer.poll();
+        }
+
+        switch (entry.getOutputEntryType()) {
+            case DISCONNECTION:
+                log.debug("the session {} will close", sessionId);
+                shutdownSocketChannel();
+                break;
+            case FILE_REGION:
+                fileRegionWriter = new FileRegionWriter((FileRegionOutputEntry) entry);
+                break;
+            default:
+                gatheringWrite.add(entry);
+                OutputEntry<?> next;
+                while ((next = outputBuffer.peek()) != null && gatheringWrite.add(next)) {
+                    outputBuffer.poll();
+                }
+                break;
+        }
+        return true;
+    }
+
+    private void writingCompleted(long currentWrittenBytes) {
+        lastWrittenTime = Millisecond100Clock.currentTimeMillis();
+        writtenBytes += currentWrittenBytes;
+        if (log.isDebugEnabled()) {
+            log.debug("the session {} writes {} bytes", sessionId, currentWrittenBytes);
+        }
+    }
+
+    private void writingFailed(Throwable t) {
+        log.warn("the session {} writes data is failed", t, sessionId);
+        int bufferSize = outputBuffer.size();
+        log.warn("the session {} has {} buffer data can not ouput", sessionId, bufferSize);
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.poll()) != null) {
+            if (entry.getOutputEntryType() == OutputEntryType.FILE_REGION) {
+                closeFileRegion((FileRegion) entry.getData());
+            }
+        }
+        try {
+            gatheringWrite.fail(t);
+            if (fileRegionWriter != null) {
+                fileRegionWriter.failed(t);
+            }
+        } finally {
+            closeNow();
+        }
+    }
+
+    private void waitForWritable() {
+        if (selectionKey.isValid() && (selectionKey.interestOps() & SelectionKey.OP_WRITE) == 0) {
+            selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void clearInterestOps(int ops) {
+        if (selectionKey.isValid() && (selectionKey.interestOps() & ops) != 0) {
+            selectionKey.interestOps(selectionKey.interestOps() & ~ops);
+        }
+    }
+
+    /**
+     * Transfer the file region to the socket channel by {@link java.nio.channels.FileChannel#transferTo}, the kernel
+     * copies the file data to the socket without the user space buffers. It transfers at most one window at a time,
+     * and waits for the writable event when the socket send buffer is full.
+     */
+    private class FileRegionWriter {
+
+        private final FileRegion fileRegion;
+        private final Callback callback;
+        private long position;
+        private long end;
+
+        private FileRegionWriter(FileRegionOutputEntry entry) {
+            this.fileRegion = entry.getData();
+            this.callback = entry.getCallback();
+            this.position = fileRegion.getPosition();
+            this.end = position + fileRegion.getLength();
+        }
+
+        /**
+         * Transfer the next window of the file region.
+         *
+         * @return If false, the socket send buffer is full.
+         * @throws IOException The socket channel writing error
+         */
+        private boolean transfer() throws IOException {
+            long count;
+            try {
+                end = Math.min(end, fileRegion.getFileChannel().size());
+                if (position >= end) {
+                    succeeded();
+                    return true;
+                }
+                count = Math.min(config.getFileRegionWindowSize(), end - position);
+            } catch (IOException e) {
+                log.error("the session {} reads file error", e, sessionId);
+                failed(e);
+                return true;
+            }
+
+            long currentWrittenBytes = fileRegion.getFileChannel().transferTo(position, count, socketChannel);
+            position += currentWrittenBytes;
+            writingCompleted(currentWrittenBytes);
+            if (position >= end) {
+                succeeded();
+                return true;
+            }
+            return currentWrittenBytes > 0;
+        }
+
+        private void succeeded() {
+            fileRegionWriter = null;
+            closeFileRegion(fileRegion);
+            callback.succeeded();
+        }
+
+        private void failed(Throwable x) {
+            fileRegionWriter = null;
+            closeFileRegion(fileRegion);
+            callback.failed(x);
+        }
+    }
+
+    private void closeFileRegion(FileRegion file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.error("the session {} closes file error", e, sessionId);
+        }
+    }
+
+    @Override
+    public void attachObject(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    @Override
+    public void fireReceiveMessage(Object message) {
+        eventManager.executeReceiveTask(this, message);
+    }
+
+    @Override
+    public void decode(ByteBuffer buf) {
+        try {
+            config.getDecoder().decode(buf, this);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        }
+    }
+
+    @Override
+    public void encode(Object message) {
+        try {
+            config.getEncoder().encode(message, this);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        }
+    }
+
+    @Override
+    public void write(OutputEntry<?> entry) {
+        if (!isOpen())
+            return;
+
+        if (entry == null)
+            return;
+
+        outputBuffer.offer(entry);
+        if (writing.compareAndSet(false, true)) {
+            if (eventLoop.inEventLoop()) {
+                flush();
+            } else {
+                eventLoop.execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer byteBuffer, Callback callback) {
+        write(new ByteBufferOutputEntry(callback, byteBuffer));
+    }
+
+    @Override
+    public void write(ByteBuffer[] buffers, Callback callback) {
+        write(new ByteBufferArrayOutputEntry(callback, buffers));
+    }
+
+    @Override
+    public void write(Collection<ByteBuffer> buffers, Callback callback) {
+        write(new ByteBufferArrayOutputEntry(callback, buffers.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY)));
+    }
+
+    @Override
+    public void write(FileRegion file, Callback callback) {
+        if (!isOpen()) {
+            closeFileRegion(file);
+            callback.failed(new ClosedChannelException());
+            return;
+        }
+        write(new FileRegionOutputEntry(callback, file));
+    }
+
+    @Override
+    public void close() {
+        write(DISCONNECTION_FLAG);
+    }
+
+    @Override
+    public void closeNow() {
+        synchronized (this) {
+            if (!isOpen())
+                return;
+
+            closeTime = Millisecond100Clock.currentTimeMillis();
+            state = CLOSE;
+        }
+
+        Scheduler.Future future = idleCheck;
+        if (future != null) {
+            future.cancel();
+        }
+
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            log.error("the session {} close error", e, sessionId);
+        }
+        eventManager.executeCloseTask(this);
+    }
+
+    @Override
+    public void shutdownOutput() {
+        try {
+            socketChannel.shutdownOutput();
+        } catch (ClosedChannelException e) {
+            log.debug("the session {} is closed", e, sessionId);
+        } catch (IOException e) {
+            log.error("the session {} shutdown output error", e, sessionId);
+        }
+    }
+
+    @Override
+    public void shutdownInput() {
+        try {
+            socketChannel.shutdownInput();
+        } catch (ClosedChannelException e) {
+            log.debug("the session {} is closed", e, sessionId);
+        } catch (IOException e) {
+            log.error("the session {} shutdown input error", e, sessionId);
+        }
+    }
+
+    private void shutdownSocketChannel() {
+        shutdownOutput();
+        shutdownInput();
+    }
+
+    @Override
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Override
+    public long getCloseTime() {
+        return closeTime;
+    }
+
+    @Override
+    public long getDuration() {
+        if (closeTime > 0) {
+            return closeTime - openTime;
+        } else {
+            return Millisecond100Clock.currentTimeMillis() - openTime;
+        }
+    }
+
+    @Override
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    @Override
+    public long getLastWrittenTime() {
+        return lastWrittenTime;
+    }
+
+    @Override
+    public long getLastActiveTime() {
+        return Math.max(lastReadTime, lastWrittenTime);
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public int getState() {
+        return state;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return state > 0;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        if (localAddress != null) {
+            return localAddress;
+        } else {
+            try {
+                localAddress = (InetSocketAddress) socketChannel.getLocalAddress();
+                return localAddress;
+            } catch (IOException e) {
+                log.error("the session {} gets local address error", e, sessionId);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        if (remoteAddress != null) {
+            return remoteAddress;
+        } else {
+            try {
+                remoteAddress = (InetSocketAddress) socketChannel.getRemoteAddress();
+                return remoteAddress;
+            } catch (Throwable t) {
+                log.error("the session {} gets remote address error", t, sessionId);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[sessionId=" + sessionId + ", openTime="
+                + SafeSimpleDateFormat.defaultDateFormat.format(new Date(openTime)) + ", closeTime="
+                + SafeSimpleDateFormat.defaultDateFormat.format(new Date(closeTime)) + ", duration=" + getDuration()
+                + ", readBytes=" + readBytes + ", writtenBytes=" + writtenBytes + "]";
+    }
+
+    @Override
+    public long getIdleTimeout() {
+        return config.getTimeout();
+    }
+
+}
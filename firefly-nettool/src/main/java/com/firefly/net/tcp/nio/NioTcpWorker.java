@@ -0,0 +1,161 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.Config;
+import com.firefly.net.EventManager;
+import com.firefly.net.Worker;
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.SocketOptions;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.time.HierarchicalTimeWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The worker binds every channel to one of the event loops by the session id, the I/O events of a channel are
+ * always handled by the same thread.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpWorker implements Worker {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final Config config;
+    private final EventManager eventManager;
+    private final NioEventLoop[] eventLoops;
+    // the idle timeouts of the sessions, the tick is the accuracy of the session active time
+    private final Scheduler idleScheduler;
+
+    NioTcpWorker(Config config, EventManager eventManager, String name) {
+        this.config = config;
+        this.eventManager = eventManager;
+        this.idleScheduler = new HierarchicalTimeWheel(name + "-idle", 100, TimeUnit.MILLISECONDS,
+                HierarchicalTimeWheel.DEFAULT_WHEEL_SIZE, HierarchicalTimeWheel.DEFAULT_LEVELS);
+        eventLoops = new NioEventLoop[Math.max(1, config.getEventLoopSize())];
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop(name + "-" + i);
+            }
+        } catch (IOException e) {
+            for (NioEventLoop eventLoop : eventLoops) {
+                if (eventLoop != null) {
+                    eventLoop.shutdown();
+                }
+            }
+            throw new NetException("open selector error");
+        }
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+    }
+
+    private NioEventLoop eventLoop(int sessionId) {
+        return eventLoops[(sessionId & Integer.MAX_VALUE) % eventLoops.length];
+    }
+
+    @Override
+    public void registerChannel(Channel channel, int sessionId) {
+        SocketChannel socketChannel = (SocketChannel) channel;
+        try {
+            configure(socketChannel);
+        } catch (IOException e) {
+            log.error("socketChannel register error", e);
+            close(socketChannel);
+            return;
+        }
+
+        NioEventLoop eventLoop = eventLoop(sessionId);
+        eventLoop.execute(() -> {
+            try {
+                SelectionKey key = socketChannel.register(eventLoop.getSelector(), SelectionKey.OP_READ);
+                open(key, socketChannel, sessionId, eventLoop);
+            } catch (IOException e) {
+                log.error("socketChannel register error", e);
+                close(socketChannel);
+            }
+        });
+    }
+
+    /**
+     * Register the connecting channel, the session is opened after the connection is established.
+     *
+     * @param socketChannel The non-blocking socket channel that has started connecting
+     * @param sessionId     The session id
+     * @param connected     It is invoked after the session is opened
+     */
+    void registerConnectingChannel(SocketChannel socketChannel, int sessionId, Runnable connected) {
+        NioEventLoop eventLoop = eventLoop(sessionId);
+        eventLoop.execute(() -> {
+            try {
+                if (socketChannel.isConnected()) {
+                    SelectionKey key = socketChannel.register(eventLoop.getSelector(), SelectionKey.OP_READ);
+                    open(key, socketChannel, sessionId, eventLoop);
+                    connected.run();
+                    return;
+                }
+
+                SelectionKey key = socketChannel.register(eventLoop.getSelector(), SelectionKey.OP_CONNECT);
+                key.attach((NioEventLoop.SelectionHandler) k -> {
+                    try {
+                        if (socketChannel.finishConnect()) {
+                            k.interestOps(SelectionKey.OP_READ);
+                            open(k, socketChannel, sessionId, eventLoop);
+                            connected.run();
+                        }
+                    } catch (Throwable t) {
+                        k.cancel();
+                        close(socketChannel);
+                        failedOpeningSession(sessionId, t);
+                    }
+                });
+            } catch (Throwable t) {
+                close(socketChannel);
+                failedOpeningSession(sessionId, t);
+            }
+        });
+    }
+
+    private void open(SelectionKey key, SocketChannel socketChannel, int sessionId, NioEventLoop eventLoop) {
+        NioTcpSession session = new NioTcpSession(sessionId, config, eventManager, socketChannel, key, eventLoop);
+        key.attach(session);
+        session.startIdleCheck(idleScheduler);
+        eventManager.executeOpenTask(session);
+    }
+
+    void configure(SocketChannel socketChannel) throws IOException {
+        socketChannel.configureBlocking(false);
+        SocketOptions.configureSocket(socketChannel, config);
+    }
+
+    private void failedOpeningSession(int sessionId, Throwable t) {
+        try {
+            config.getHandler().failedOpeningSession(sessionId, t);
+        } catch (Throwable e) {
+            log.error("session {} open exception", e, sessionId);
+        }
+        log.error("session {} connect error", t, sessionId);
+    }
+
+    private void close(SocketChannel socketChannel) {
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            log.error("close socketChannel error", e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+        idleScheduler.stop();
+    }
+
+}
@@ -3,13 +3,27 @@ package com.firefly.net.tcp.ssl;
 import com.firefly.net.SSLContextFactory;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.ssl.OpenSslServerSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
 import io.netty.handler.ssl.SslContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * The SSL context factory of the netty SSL engines. The sessions are cached
+ * by the context, the server resumes a session from the cache or from a
+ * session ticket, the client resumes the cached session of the same peer
+ * host and port.
+ * <p>
+ * The OpenSSL client engine of this netty version does not reuse the cached
+ * sessions, the client context that needs the resumption should use the JDK
+ * provider.
+ *
  * @author Pengtao Qiu
  */
 public abstract class AbstractOpenSSLContextFactory implements SSLContextFactory {
@@ -19,6 +33,17 @@ public abstract class AbstractOpenSSLContextFactory implements SSLContextFactory
     protected volatile SslContext sslContext;
     protected ByteBufAllocator byteBufAllocator;
 
+    // session resumption settings
+    private int sessionCacheSize;
+    private int sessionTimeout;
+    private byte[] sessionTicketKeys;
+
+    private SSLHandshakeExecutor handshakeExecutor = SSLHandshakeExecutor.getDefault();
+
+    // handshake metrics
+    private final AtomicLong fullHandshakeCount = new AtomicLong();
+    private final AtomicLong resumedHandshakeCount = new AtomicLong();
+
     public AbstractOpenSSLContextFactory() {
         byteBufAllocator = PooledByteBufAllocator.DEFAULT;
     }
@@ -31,11 +56,104 @@ public abstract class AbstractOpenSSLContextFactory implements SSLContextFactory
         this.byteBufAllocator = byteBufAllocator;
     }
 
+    /**
+     * Get the max number of the cached sessions.
+     *
+     * @return The session cache size, the default value is 0, it means the default size of the provider.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * Get the time that a cached session can be resumed.
+     *
+     * @return The session timeout (second), the default value is 0, it means the default timeout of the provider.
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * Get the keys that encrypt the session tickets of the OpenSSL server.
+     *
+     * @return The 48 bytes ticket keys, the default value is null, it means the random keys of the context. The
+     * servers that share the keys can resume the sessions of each other. Every key is the 16 bytes name, the 16
+     * bytes HMAC key and the 16 bytes AES key, the first key encrypts the new tickets.
+     */
+    public byte[] getSessionTicketKeys() {
+        return sessionTicketKeys;
+    }
+
+    public void setSessionTicketKeys(byte[] sessionTicketKeys) {
+        if (sessionTicketKeys != null && (sessionTicketKeys.length == 0
+                || sessionTicketKeys.length % OpenSslSessionTicketKey.TICKET_KEY_SIZE != 0)) {
+            throw new IllegalArgumentException("the length of the ticket keys must be a multiple of "
+                    + OpenSslSessionTicketKey.TICKET_KEY_SIZE + ", length: " + sessionTicketKeys.length);
+        }
+        this.sessionTicketKeys = sessionTicketKeys;
+    }
+
+    /**
+     * Get the executor of the delegated handshake tasks.
+     *
+     * @return The handshake executor, the default value is {@link SSLHandshakeExecutor#getDefault()}. If it is
+     * null, the delegated tasks run in the I/O threads and the concurrent handshakes are not limited.
+     */
+    @Override
+    public SSLHandshakeExecutor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    public void setHandshakeExecutor(SSLHandshakeExecutor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
+    /**
+     * Get the number of the handshakes that create the new sessions.
+     *
+     * @return The number of the full handshakes
+     */
+    public long getFullHandshakeCount() {
+        return fullHandshakeCount.get();
+    }
+
+    /**
+     * Get the number of the handshakes that resume the cached sessions.
+     *
+     * @return The number of the resumed handshakes
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
     @Override
     public SSLEngine createSSLEngine(boolean clientMode) {
         return getSslContext(clientMode).newEngine(byteBufAllocator);
     }
 
+    @Override
+    public SSLEngine createSSLEngine(boolean clientMode, String peerHost, int peerPort) {
+        return getSslContext(clientMode).newEngine(byteBufAllocator, peerHost, peerPort);
+    }
+
+    @Override
+    public void handshakeFinished(SSLEngine sslEngine, boolean resumed) {
+        if (resumed) {
+            resumedHandshakeCount.incrementAndGet();
+        } else {
+            fullHandshakeCount.incrementAndGet();
+        }
+    }
+
     public SslContext getSslContext(boolean clientMode) {
         init(clientMode);
         return sslContext;
@@ -45,11 +163,38 @@ public abstract class AbstractOpenSSLContextFactory implements SSLContextFactory
         if (sslContext == null) {
             synchronized (this) {
                 if (sslContext == null) {
-                    sslContext = createSSLContext(clientMode);
+                    SslContext context = createSSLContext(clientMode);
+                    configureSessionContext(context.sessionContext());
+                    sslContext = context;
                 }
             }
         }
     }
 
+    private void configureSessionContext(SSLSessionContext sessionContext) {
+        if (sessionCacheSize > 0) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout > 0) {
+            sessionContext.setSessionTimeout(sessionTimeout);
+        }
+        if (sessionTicketKeys != null && sessionContext instanceof OpenSslServerSessionContext) {
+            ((OpenSslServerSessionContext) sessionContext).setTicketKeys(toTicketKeys(sessionTicketKeys));
+        }
+    }
+
+    private static OpenSslSessionTicketKey[] toTicketKeys(byte[] bytes) {
+        OpenSslSessionTicketKey[] keys = new OpenSslSessionTicketKey[bytes.length / OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        for (int i = 0; i < keys.length; i++) {
+            int name = i * OpenSslSessionTicketKey.TICKET_KEY_SIZE;
+            int hmacKey = name + OpenSslSessionTicketKey.NAME_SIZE;
+            int aesKey = hmacKey + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+            keys[i] = new OpenSslSessionTicketKey(Arrays.copyOfRange(bytes, name, hmacKey),
+                    Arrays.copyOfRange(bytes, hmacKey, aesKey),
+                    Arrays.copyOfRange(bytes, aesKey, aesKey + OpenSslSessionTicketKey.AES_KEY_SIZE));
+        }
+        return keys;
+    }
+
     abstract public SslContext createSSLContext(boolean clientMode);
 }
@@ -0,0 +1,83 @@
+package com.firefly.net.tcp.ssl;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * The ALPN of the JDK SSL engines. The netty JDK provider of this version
+ * negotiates the application protocols with the Jetty ALPN boot library
+ * only, the JDK that has its own ALPN API (Java 9 or later, Java 8u252 or
+ * later) negotiates them with the SSL parameters of the engine.
+ *
+ * @author Pengtao Qiu
+ */
+abstract class JdkApplicationProtocols {
+
+    private static final Method setApplicationProtocols;
+    private static final Method getApplicationProtocol;
+
+    static {
+        Method set;
+        Method get;
+        try {
+            set = SSLParameters.class.getMethod("setApplicationProtocols", String[].class);
+            get = SSLEngine.class.getMethod("getApplicationProtocol");
+        } catch (NoSuchMethodException e) {
+            set = null;
+            get = null;
+        }
+        setApplicationProtocols = set;
+        getApplicationProtocol = get;
+    }
+
+    /**
+     * @return Whether the netty JDK provider negotiates the application
+     * protocols with the Jetty ALPN boot library
+     */
+    static boolean isJettyAlpnAvailable() {
+        try {
+            // the netty JDK provider checks the class in the bootstrap class loader
+            Class.forName("sun.security.ssl.ALPNExtension", true, null);
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Whether the JDK SSL engine has the ALPN API
+     */
+    static boolean isSupported() {
+        return setApplicationProtocols != null;
+    }
+
+    static void setApplicationProtocols(SSLEngine sslEngine, List<String> protocols) {
+        SSLParameters parameters = sslEngine.getSSLParameters();
+        try {
+            setApplicationProtocols.invoke(parameters, (Object) protocols.toArray(new String[0]));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("set the application protocols exception", e);
+        }
+        sslEngine.setSSLParameters(parameters);
+    }
+
+    /**
+     * Get the negotiated application protocol of the JDK SSL engine.
+     *
+     * @param sslEngine The SSL engine
+     * @return The application protocol, or null if it is not negotiated
+     */
+    static String getApplicationProtocol(SSLEngine sslEngine) {
+        if (getApplicationProtocol == null) {
+            return null;
+        }
+        try {
+            String protocol = (String) getApplicationProtocol.invoke(sslEngine);
+            return protocol == null || protocol.isEmpty() ? null : protocol;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.firefly.net.tcp.ssl;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run the delegated tasks of the SSL engines out of the I/O threads, such as
+ * the RSA and ECDHE computations of the handshakes. The concurrent handshakes
+ * are limited, the connection that exceeds the limit is closed before its
+ * handshake starts, so a reconnect storm does not starve the established
+ * connections.
+ *
+ * @author Pengtao Qiu
+ */
+public class SSLHandshakeExecutor {
+
+    public static final int DEFAULT_MAX_CONCURRENT_HANDSHAKES = 4096;
+
+    private static class DefaultExecutorHolder {
+        private static final SSLHandshakeExecutor executor = new SSLHandshakeExecutor(null,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_CONCURRENT_HANDSHAKES);
+    }
+
+    public static class HandshakeThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "firefly ssl handshake thread-" + number.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+    private final ExecutorService executor;
+    private final boolean sharedExecutor;
+    private final int maxConcurrentHandshakes;
+    private final AtomicInteger concurrentHandshakes = new AtomicInteger();
+    private final AtomicLong rejectedHandshakes = new AtomicLong();
+
+    /**
+     * Create the handshake executor.
+     *
+     * @param executor                The executor that runs the delegated tasks, if it is null, a bounded thread
+     *                                pool is created
+     * @param poolSize                The number of the threads of the created thread pool
+     * @param maxConcurrentHandshakes The max number of the handshakes in progress
+     */
+    public SSLHandshakeExecutor(ExecutorService executor, int poolSize, int maxConcurrentHandshakes) {
+        this.maxConcurrentHandshakes = maxConcurrentHandshakes;
+        if (executor != null) {
+            this.executor = executor;
+            sharedExecutor = true;
+        } else {
+            // a handshake waits for one batch of the tasks at most, so the queue never exceeds the handshake limit
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, maxConcurrentHandshakes)), new HandshakeThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            sharedExecutor = false;
+        }
+    }
+
+    /**
+     * Get the executor that is shared by the SSL context factories by default. It has a thread per processor and
+     * allows {@value #DEFAULT_MAX_CONCURRENT_HANDSHAKES} concurrent handshakes.
+     *
+     * @return The default handshake executor
+     */
+    public static SSLHandshakeExecutor getDefault() {
+        return DefaultExecutorHolder.executor;
+    }
+
+    /**
+     * Start a handshake.
+     *
+     * @return False if the concurrent handshakes exceed the limit, the handshake must not start
+     */
+    public boolean acquire() {
+        while (true) {
+            int current = concurrentHandshakes.get();
+            if (current >= maxConcurrentHandshakes) {
+                rejectedHandshakes.incrementAndGet();
+                return false;
+            }
+            if (concurrentHandshakes.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The handshake that is started by {@link #acquire()} is finished or failed.
+     */
+    public void release() {
+        concurrentHandshakes.decrementAndGet();
+    }
+
+    /**
+     * Run the delegated tasks of a handshake.
+     *
+     * @param tasks The tasks
+     * @throws RejectedExecutionException The executor is shut down
+     */
+    public void execute(Runnable tasks) {
+        executor.execute(tasks);
+    }
+
+    public int getConcurrentHandshakes() {
+        return concurrentHandshakes.get();
+    }
+
+    public long getRejectedHandshakes() {
+        return rejectedHandshakes.get();
+    }
+
+    public int getMaxConcurrentHandshakes() {
+        return maxConcurrentHandshakes;
+    }
+
+    /**
+     * Shutdown the executor, the executor that is passed to the constructor is not shut down.
+     */
+    public void shutdown() {
+        if (!sharedExecutor) {
+            executor.shutdown();
+        }
+    }
+}
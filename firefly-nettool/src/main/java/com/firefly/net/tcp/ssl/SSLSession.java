@@ -5,7 +5,7 @@ import com.firefly.net.SSLContextFactory;
 import com.firefly.net.SSLEventHandler;
 import com.firefly.net.Session;
 import com.firefly.net.buffer.FileRegion;
-import com.firefly.net.buffer.ThreadSafeIOBufferPool;
+import com.firefly.net.buffer.SizeClassBufferPool;
 import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.concurrent.CountingCallback;
 import com.firefly.utils.io.BufferReaderHandler;
@@ -17,25 +17,63 @@ import org.slf4j.LoggerFactory;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The TLS layer of a TCP session. The encrypted records are read and written
+ * with the direct buffers of a size classed pool. The inbound records are
+ * unwrapped from the received buffer directly, only an incomplete record is
+ * kept in a pooled buffer until the next read. The outbound buffers of a write
+ * are wrapped into as few records as possible, and the records are written to
+ * the session in one gathering write.
+ * <p>
+ * The delegated tasks of the handshake run in the handshake executor of the
+ * SSL context factory. The received data is kept until the tasks complete,
+ * then the handshake continues in the executor thread, and the decrypted data
+ * is passed to the decoder chain of the session.
+ */
 public class SSLSession implements Closeable {
 
     protected static final Logger log = LoggerFactory.getLogger("firefly-system");
 
-    private static final BufferPool bufferPool = new ThreadSafeIOBufferPool();
+    private static final BufferPool bufferPool = new SizeClassBufferPool();
+
+    /*
+     * The max plaintext length of a TLS record.
+     */
+    private static final int maxRecordSize = 1024 * 16;
+    private static final int maxWriteBufferSize = SizeClassBufferPool.DEFAULT_MAX_POOLED_BUFFER_SIZE;
+    private static final int recordOverhead = 512;
 
     private final Session session;
     private final SSLEngine sslEngine;
+    private final Object writeLock = new Object();
 
+    /*
+     * The pooled direct buffer that holds the incomplete inbound record.
+     */
     private ByteBuffer inNetBuffer;
-    private ByteBuffer outAppBuffer;
+
+    /*
+     * The application data that is received with the handshake messages.
+     */
+    private ByteBuffer handshakeAppBuffer;
+
+    /*
+     * The plaintext bytes of the current write that are not wrapped.
+     */
+    private long unwrappedBytes;
 
     private static final int requestBufferSize = 1024 * 8;
-    private static final int writeBufferSize = 1024 * 8;
 
     /*
      * An empty ByteBuffer for use when one isn't available, say as a source
@@ -66,24 +104,83 @@ public class SSLSession implements Closeable {
 
     private final SslHandler sslHandler;
 
+    private final SSLContextFactory factory;
+
+    /*
+     * The session ID of the client hello, the server echoes it only when it
+     * resumes the session.
+     */
+    private byte[] clientHelloSessionId;
+
+    private boolean sessionResumed;
+
+    private final SSLHandshakeExecutor handshakeExecutor;
+
+    private boolean handshakePermit;
+
+    /*
+     * The delegated tasks run in the handshake executor, the received data is
+     * kept until they complete.
+     */
+    private boolean taskRunning;
+
+    /*
+     * The executor thread that continues the handshake after the delegated
+     * tasks, the data that other threads receive meanwhile is kept.
+     */
+    private Thread resumingThread;
+
+    private boolean pendingInput;
+
     public SSLSession(SSLContextFactory factory, boolean clientMode, Session session, SSLEventHandler sslEventHandler) throws Throwable {
-        this(factory.createSSLEngine(clientMode), session, sslEventHandler);
+        this(factory, createSSLEngine(factory, clientMode, session), session, sslEventHandler);
     }
 
-    private SSLSession(SSLEngine sslEngine, Session session, SSLEventHandler sslEventHandler) throws Throwable {
+    private SSLSession(SSLContextFactory factory, SSLEngine sslEngine, Session session, SSLEventHandler sslEventHandler) throws Throwable {
+        this.factory = factory;
         this.session = session;
         this.sslEventHandler = sslEventHandler;
         this.sslEngine = sslEngine;
+        this.handshakeExecutor = factory.getHandshakeExecutor();
 
-        outAppBuffer = ByteBuffer.allocate(requestBufferSize);
         initialHSComplete = false;
         sslHandler = new SslHandler(sslEngine);
 
+        if (handshakeExecutor != null) {
+            if (!handshakeExecutor.acquire()) {
+                log.warn("session {} exceeds the max concurrent handshakes {}, close it",
+                        session.getSessionId(), handshakeExecutor.getMaxConcurrentHandshakes());
+                session.closeNow();
+                throw new SSLHandshakeException("The concurrent handshakes exceed the limit");
+            }
+            handshakePermit = true;
+        }
+
         // start tls
-        this.sslEngine.beginHandshake();
-        initialHSStatus = sslEngine.getHandshakeStatus();
-        if (sslEngine.getUseClientMode()) {
-            doHandshakeResponse();
+        try {
+            synchronized (this) {
+                this.sslEngine.beginHandshake();
+                initialHSStatus = sslEngine.getHandshakeStatus();
+                if (sslEngine.getUseClientMode()) {
+                    doHandshake(BufferUtils.EMPTY_BUFFER);
+                }
+            }
+        } catch (Throwable t) {
+            releaseHandshakePermit();
+            throw t;
+        }
+    }
+
+    /**
+     * The client engine is created with the remote address, so the cached
+     * session of the peer is resumed when the client connects to it again.
+     */
+    private static SSLEngine createSSLEngine(SSLContextFactory factory, boolean clientMode, Session session) {
+        InetSocketAddress address = clientMode ? session.getRemoteAddress() : null;
+        if (address != null) {
+            return factory.createSSLEngine(true, address.getHostString(), address.getPort());
+        } else {
+            return factory.createSSLEngine(clientMode);
         }
     }
 
@@ -92,195 +189,334 @@ public class SSLSession implements Closeable {
      * communication parameters until an SSLSession is established. Application
      * data can not be sent during this phase.
      *
-     * @param receiveBuffer Encrypted message
+     * @param netBuffer Encrypted message
      * @return True means handshake success
      * @throws IOException A runtime exception
      */
-    private boolean doHandshake(ByteBuffer receiveBuffer) throws IOException {
+    private boolean doHandshake(ByteBuffer netBuffer) throws IOException {
         if (!session.isOpen()) {
             sslEngine.closeInbound();
             return (initialHSComplete = false);
         }
 
-        if (initialHSComplete) {
-            return true;
-        }
+        while (!initialHSComplete) {
+            switch (initialHSStatus) {
+                case NOT_HANDSHAKING:
+                case FINISHED:
+                    handshakeFinish();
+                    break;
 
-        switch (initialHSStatus) {
-            case NOT_HANDSHAKING:
-            case FINISHED: {
-                handshakeFinish();
-                return initialHSComplete;
-            }
+                case NEED_UNWRAP:
+                    if (!doHandshakeReceive(netBuffer)) {
+                        return false;
+                    }
+                    break;
 
-            case NEED_UNWRAP:
-                doHandshakeReceive(receiveBuffer);
-                if (initialHSStatus != HandshakeStatus.NEED_WRAP)
+                case NEED_WRAP:
+                    doHandshakeResponse();
                     break;
 
-            case NEED_WRAP:
-                doHandshakeResponse();
-                break;
+                case NEED_TASK:
+                    if (handshakeExecutor == null) {
+                        initialHSStatus = doTasks();
+                        break;
+                    } else {
+                        runDelegatedTasks();
+                        return false;
+                    }
 
-            default: // NEED_TASK
-                throw new RuntimeException("Invalid Handshaking State" + initialHSStatus);
+                default:
+                    throw new IOException("Invalid handshaking state " + initialHSStatus);
+            }
         }
-        return initialHSComplete;
+        return true;
     }
 
-    private void doHandshakeReceive(ByteBuffer receiveBuffer) throws IOException {
-        SSLEngineResult result;
+    /**
+     * Unwrap a handshake record.
+     *
+     * @param netBuffer Encrypted message
+     * @return False means it needs more encrypted data
+     * @throws IOException The handshake is failed
+     */
+    private boolean doHandshakeReceive(ByteBuffer netBuffer) throws IOException {
+        if (!netBuffer.hasRemaining()) {
+            return false;
+        }
 
-        merge(receiveBuffer);
+        if (handshakeAppBuffer == null) {
+            handshakeAppBuffer = ByteBuffer.allocate(requestBufferSize);
+        }
+        if (clientHelloSessionId == null && !sslEngine.getUseClientMode()) {
+            clientHelloSessionId = readClientHelloSessionId(netBuffer, netBuffer.position(), netBuffer.limit());
+        }
+        SSLEngineResult result = unwrap(netBuffer, handshakeAppBuffer);
+        initialHSStatus = result.getHandshakeStatus();
+        if (initialHSStatus == HandshakeStatus.NEED_UNWRAP && !netBuffer.hasRemaining() && result.bytesConsumed() > 0) {
+            // the OpenSSL engine processes the last consumed record of the flight in the next unwrap
+            result = sslEngine.unwrap(hsBuffer, handshakeAppBuffer);
+            initialHSStatus = result.getHandshakeStatus();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("session {} handshake receives data, init: {} | ret: {} | complete: {}",
+                    session.getSessionId(), initialHSStatus, result.getStatus(), initialHSComplete);
+        }
+        switch (result.getStatus()) {
+            case OK:
+                return result.bytesConsumed() > 0 || initialHSStatus != HandshakeStatus.NEED_UNWRAP;
 
-        needIO:
-        while (initialHSStatus == HandshakeStatus.NEED_UNWRAP) {
+            case BUFFER_UNDERFLOW:
+                return initialHSStatus != HandshakeStatus.NEED_UNWRAP;
 
-            unwrap:
-            while (true) {
-                int netSize = sslEngine.getSession().getPacketBufferSize();
-                List<ByteBuffer> inNetBuffers = BufferUtils.split(inNetBuffer, netSize);
-                for (ByteBuffer net : inNetBuffers) {
-                    //FIXME using direct buffer avoid netty ByteBufAllocator bug
-                    ByteBuffer directTmpBuffer = bufferPool.acquire(net.remaining());
-                    try {
-                        directTmpBuffer.put(net.slice()).flip();
-                        result = sslEngine.unwrap(directTmpBuffer, outAppBuffer);
-                    } finally {
-                        bufferPool.release(directTmpBuffer);
-                    }
+            case BUFFER_OVERFLOW:
+                handshakeAppBuffer = grow(handshakeAppBuffer);
+                return true;
 
-                    int consumed = result.bytesConsumed();
-                    inNetBuffer.position(inNetBuffer.position() + consumed);
-                    net.position(net.position() + consumed);
+            default: // CLOSED:
+                throw new IOException("Received " + result.getStatus() + " during initial handshaking");
+        }
+    }
 
-                    initialHSStatus = result.getHandshakeStatus();
-                    if (log.isDebugEnabled()) {
-                        log.debug("session {} handshake receives data, init: {} | ret: {} | complete: {} ",
-                                session.getSessionId(), initialHSStatus, result.getStatus(), initialHSComplete);
-                    }
-                    switch (result.getStatus()) {
-                        case OK:
-                            switch (initialHSStatus) {
-                                case NEED_TASK:
-                                    initialHSStatus = doTasks();
-                                    break;
-
-                                case NOT_HANDSHAKING:
-                                case FINISHED:
-                                    handshakeFinish();
-                                    break needIO;
-                                default:
-                                    break;
-                            }
-                            break unwrap;
-
-                        case BUFFER_UNDERFLOW:
-                            switch (initialHSStatus) {
-                                case NOT_HANDSHAKING:
-                                case FINISHED:
-                                    handshakeFinish();
-                                    break needIO;
-                            }
-                            break needIO;
+    private void handshakeFinish() {
+        sessionResumed = isSessionIdEchoed(sslEngine.getSession());
+        log.info("session {} handshake success! resumed: {}", session.getSessionId(), sessionResumed);
+        initialHSComplete = true;
+        releaseHandshakePermit();
+        factory.handshakeFinished(sslEngine, sessionResumed);
+        sslEventHandler.handshakeFinished(this);
+    }
 
-                        case BUFFER_OVERFLOW:
-                            // Reset the application buffer size.
-                            int appSize = sslEngine.getSession().getApplicationBufferSize();
-                            ByteBuffer b = ByteBuffer.allocate(appSize + outAppBuffer.position());
-                            outAppBuffer.flip();
-                            b.put(outAppBuffer);
-                            outAppBuffer = b;
-                            // retry the operation.
-                            break;
+    private synchronized void releaseHandshakePermit() {
+        if (handshakePermit) {
+            handshakePermit = false;
+            handshakeExecutor.release();
+        }
+    }
 
-                        default: // CLOSED:
-                            throw new IOException("Received" + result.getStatus() + "during initial handshaking");
+    /**
+     * Run the delegated tasks in the handshake executor, then continue the
+     * handshake with the data that is received meanwhile.
+     */
+    private void runDelegatedTasks() throws IOException {
+        taskRunning = true;
+        try {
+            handshakeExecutor.execute(() -> {
+                try {
+                    Runnable task;
+                    while ((task = sslEngine.getDelegatedTask()) != null) {
+                        task.run();
                     }
+                } catch (Throwable t) {
+                    log.error("session {} runs the delegated handshake task exception", session.getSessionId(), t);
+                }
+                resumeHandshake();
+            });
+        } catch (RejectedExecutionException e) {
+            taskRunning = false;
+            throw new SSLHandshakeException("The handshake executor rejects the delegated tasks");
+        }
+    }
 
+    private void resumeHandshake() {
+        synchronized (this) {
+            taskRunning = false;
+            pendingInput = false;
+            initialHSStatus = sslEngine.getHandshakeStatus();
+            resumingThread = Thread.currentThread();
+        }
+        while (true) {
+            // the decoder chain reads the kept data in this thread
+            session.decode(BufferUtils.EMPTY_BUFFER);
+            synchronized (this) {
+                if (resumingThread != Thread.currentThread()) {
+                    // the next delegated tasks have resumed the handshake in another thread
+                    return;
+                }
+                if (!pendingInput || taskRunning) {
+                    resumingThread = null;
+                    return;
                 }
+                pendingInput = false;
+            }
+        }
+    }
 
+    /**
+     * The client offers the ID of the cached session in the client hello, the
+     * server echoes it when it resumes the session, or it creates a new
+     * session with a new ID. The session ticket resumption echoes the ID
+     * too.
+     * <p>
+     * The TLS 1.3 server echoes the legacy session ID of every client hello,
+     * and the providers of this netty version do not report the PSK
+     * resumption, so a TLS 1.3 handshake is counted as a full handshake.
+     */
+    private boolean isSessionIdEchoed(javax.net.ssl.SSLSession sslSession) {
+        return isSessionIdProtocol(sslSession.getProtocol())
+                && clientHelloSessionId != null && clientHelloSessionId.length > 0
+                && Arrays.equals(clientHelloSessionId, sslSession.getId());
+    }
 
-            } // "unwrap" block.
-        } // "needIO" block.
+    private static boolean isSessionIdProtocol(String protocol) {
+        if (protocol == null) {
+            return false;
+        }
+        switch (protocol) {
+            case "TLSv1":
+            case "TLSv1.1":
+            case "TLSv1.2":
+            case "SSLv3":
+                return true;
+            default:
+                return false;
+        }
     }
 
-    private void handshakeFinish() {
-        log.info("session {} handshake success!", session.getSessionId());
-        initialHSComplete = true;
-        sslEventHandler.handshakeFinished(this);
+    /**
+     * Read the session ID of the client hello record.
+     *
+     * @param record The encrypted buffer, it is read with the absolute gets
+     * @param start  The start of the record
+     * @param end    The end of the received data
+     * @return The session ID, an empty array if the record is not a client
+     * hello, or null if the session ID is not received completely
+     */
+    private static byte[] readClientHelloSessionId(ByteBuffer record, int start, int end) {
+        // the record header (5), the handshake header (4), the client version (2) and the random (32)
+        int offset = start + 43;
+        if (end <= offset) {
+            return null;
+        }
+        int length = record.get(offset) & 0xff;
+        if (record.get(start) != 22 || record.get(start + 5) != 1 || length > 32) {
+            return new byte[0];
+        }
+        if (end < offset + 1 + length) {
+            return null;
+        }
+        byte[] sessionId = new byte[length];
+        for (int i = 0; i < length; i++) {
+            sessionId[i] = record.get(offset + 1 + i);
+        }
+        return sessionId;
     }
 
     private void doHandshakeResponse() throws IOException {
-        while (initialHSStatus == HandshakeStatus.NEED_WRAP) {
-            SSLEngineResult result;
-            ByteBuffer writeBuf = ByteBuffer.allocateDirect(sslEngine.getSession().getPacketBufferSize());
-
-            wrap:
-            while (true) {
-                result = sslEngine.wrap(hsBuffer, writeBuf);
-                initialHSStatus = result.getHandshakeStatus();
-                if (log.isDebugEnabled()) {
-                    log.debug("session {} handshake response, init: {} | ret: {} | complete: {} ",
-                            session.getSessionId(), initialHSStatus, result.getStatus(), initialHSComplete);
-                }
-                switch (result.getStatus()) {
-                    case OK:
-                        if (initialHSStatus == HandshakeStatus.NEED_TASK) {
-                            initialHSStatus = doTasks();
-                        }
-
-                        writeBuf.flip();
-                        session.write(writeBuf, Callback.NOOP);
-                        break wrap;
+        synchronized (writeLock) {
+            List<ByteBuffer> records = new ArrayList<>(2);
+            try {
+                while (initialHSStatus == HandshakeStatus.NEED_WRAP) {
+                    ByteBuffer writeBuf = getWriteBuffer(records, 0);
+                    int start = writeBuf.position();
+                    SSLEngineResult result = sslEngine.wrap(hsBuffer, writeBuf);
+                    initialHSStatus = result.getHandshakeStatus();
+                    if (clientHelloSessionId == null && sslEngine.getUseClientMode() && result.bytesProduced() > 0) {
+                        clientHelloSessionId = readClientHelloSessionId(writeBuf, start, writeBuf.position());
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("session {} handshake response, init: {} | ret: {} | complete: {} ",
+                                session.getSessionId(), initialHSStatus, result.getStatus(), initialHSComplete);
+                    }
+                    switch (result.getStatus()) {
+                        case OK:
+                            // the initial handshake runs the tasks in the handshake executor
+                            if (initialHSStatus == HandshakeStatus.NEED_TASK && (initialHSComplete || handshakeExecutor == null)) {
+                                initialHSStatus = doTasks();
+                            }
+                            break;
 
-                    case BUFFER_OVERFLOW:
-                        int netSize = sslEngine.getSession().getPacketBufferSize();
-                        ByteBuffer b = ByteBuffer.allocate(writeBuf.position() + netSize);
-                        writeBuf.flip();
-                        b.put(writeBuf);
-                        writeBuf = b;
-                        break;
+                        case BUFFER_OVERFLOW:
+                            overflow(records, writeBuf, 0);
+                            break;
 
-                    default: // BUFFER_UNDERFLOW, CLOSED:
-                        throw new IOException("Received " + result.getStatus() + " during initial handshaking");
+                        default: // BUFFER_UNDERFLOW, CLOSED:
+                            throw new IOException("Received " + result.getStatus() + " during initial handshaking");
+                    }
                 }
+            } catch (IOException | RuntimeException e) {
+                records.forEach(bufferPool::release);
+                throw e;
             }
+            writeRecords(records, Callback.NOOP);
         }
     }
 
-    private void merge(ByteBuffer now) {
-        if (!now.hasRemaining())
-            return;
-
-        if (inNetBuffer != null) {
-            if (inNetBuffer.hasRemaining()) {
-                ByteBuffer ret = ByteBuffer.allocate(inNetBuffer.remaining() + now.remaining());
-                ret.put(inNetBuffer).put(now).flip();
-                inNetBuffer = ret;
-            } else {
-                inNetBuffer = now;
+    /**
+     * Merge the received buffer into the incomplete record. The OpenSSL engine
+     * copies the heap buffers with its allocator, so the encrypted data is
+     * unwrapped from a direct buffer.
+     *
+     * @param receiveBuffer Encrypted message
+     * @return The encrypted buffer that is unwrapped
+     */
+    private ByteBuffer mergeNetBuffer(ByteBuffer receiveBuffer) {
+        if (inNetBuffer == null) {
+            if (receiveBuffer.isDirect() || !receiveBuffer.hasRemaining()) {
+                return receiveBuffer;
             }
+            inNetBuffer = bufferPool.acquire(receiveBuffer.remaining());
+            inNetBuffer.put(receiveBuffer).flip();
+            return inNetBuffer;
+        }
+
+        if (!receiveBuffer.hasRemaining()) {
+            return inNetBuffer;
+        }
+
+        if (inNetBuffer.capacity() - inNetBuffer.remaining() >= receiveBuffer.remaining()) {
+            inNetBuffer.compact();
+            inNetBuffer.put(receiveBuffer).flip();
         } else {
-            inNetBuffer = now;
+            ByteBuffer buf = bufferPool.acquire(inNetBuffer.remaining() + receiveBuffer.remaining());
+            buf.put(inNetBuffer).put(receiveBuffer).flip();
+            bufferPool.release(inNetBuffer);
+            inNetBuffer = buf;
         }
+        return inNetBuffer;
     }
 
-    private ByteBuffer getOutAppBuffer() {
-        outAppBuffer.flip();
-        if (outAppBuffer.hasRemaining()) {
-            ByteBuffer buf = ByteBuffer.allocate(outAppBuffer.remaining());
-            buf.put(outAppBuffer).flip();
-            outAppBuffer = ByteBuffer.allocate(requestBufferSize);
-            if (log.isDebugEnabled()) {
-                log.debug("SSL session {} unwrap, app buffer -> {}", session.getSessionId(), buf.remaining());
+    /**
+     * The receive buffer may be a pooled read buffer that is returned to the pool after decoding,
+     * so the incomplete TLS record is copied out of it.
+     *
+     * @param netBuffer The unwrapped encrypted buffer
+     */
+    private void keepRemainingNetBuffer(ByteBuffer netBuffer) {
+        if (netBuffer.hasRemaining()) {
+            if (netBuffer != inNetBuffer) {
+                inNetBuffer = bufferPool.acquire(netBuffer.remaining());
+                inNetBuffer.put(netBuffer).flip();
             }
-            return buf;
-        } else {
-            return null;
+        } else if (inNetBuffer != null) {
+            bufferPool.release(inNetBuffer);
+            inNetBuffer = null;
         }
     }
 
+    /**
+     * The OpenSSL engine rejects the encrypted buffer that is larger than a
+     * packet, so the limit of the buffer is reduced instead of splitting it.
+     */
+    private SSLEngineResult unwrap(ByteBuffer netBuffer, ByteBuffer appBuffer) throws SSLException {
+        int limit = netBuffer.limit();
+        int packetSize = sslEngine.getSession().getPacketBufferSize();
+        if (netBuffer.remaining() > packetSize) {
+            netBuffer.limit(netBuffer.position() + packetSize);
+        }
+        try {
+            return sslEngine.unwrap(netBuffer, appBuffer);
+        } finally {
+            netBuffer.limit(limit);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer appBuffer) {
+        ByteBuffer b = ByteBuffer.allocate(appBuffer.capacity() << 1);
+        appBuffer.flip();
+        b.put(appBuffer);
+        return b;
+    }
+
     /**
      * Do all the outstanding handshake tasks in the current Thread.
      *
@@ -299,6 +535,7 @@ public class SSLSession implements Closeable {
 
     @Override
     public void close() throws IOException {
+        releaseHandshakePermit();
         if (!closed) {
             // log.debug("close SSL engine, {}|{}", sslEngine.isInboundDone(),
             // sslEngine.isOutboundDone());
@@ -307,8 +544,14 @@ public class SSLSession implements Closeable {
         }
     }
 
+    /**
+     * @return The negotiated application protocol. The JDK engine that
+     * negotiates it with the JDK ALPN API is not wrapped by netty, the
+     * protocol is read from the engine.
+     */
     public String applicationProtocol() {
-        return sslHandler.applicationProtocol();
+        String protocol = sslHandler.applicationProtocol();
+        return protocol != null ? protocol : JdkApplicationProtocols.getApplicationProtocol(sslEngine);
     }
 
     public boolean isOpen() {
@@ -322,152 +565,267 @@ public class SSLSession implements Closeable {
      * @return plaintext
      * @throws IOException sslEngine error during data read
      */
-    public ByteBuffer read(ByteBuffer receiveBuffer) throws IOException {
-        if (!doHandshake(receiveBuffer))
+    public synchronized ByteBuffer read(ByteBuffer receiveBuffer) throws IOException {
+        if (taskRunning || (resumingThread != null && resumingThread != Thread.currentThread())) {
+            keepRemainingNetBuffer(mergeNetBuffer(receiveBuffer));
+            pendingInput = true;
             return null;
+        }
 
-        if (!initialHSComplete)
-            throw new IllegalStateException("The initial handshake is not complete.");
+        ByteBuffer netBuffer = mergeNetBuffer(receiveBuffer);
+        try {
+            return unwrap(netBuffer);
+        } finally {
+            keepRemainingNetBuffer(netBuffer);
+        }
+    }
+
+    private ByteBuffer unwrap(ByteBuffer netBuffer) throws IOException {
+        if (!doHandshake(netBuffer))
+            return null;
 
         if (log.isDebugEnabled()) {
             log.debug("SSL read current session {} status -> {}", session.getSessionId(), session.isOpen());
         }
-        merge(receiveBuffer);
-        if (!inNetBuffer.hasRemaining()) {
+
+        // the plaintext of the complete records is not larger than the records
+        int handshakeAppBytes = handshakeAppBuffer == null ? 0 : handshakeAppBuffer.position();
+        if (!netBuffer.hasRemaining() && handshakeAppBytes == 0) {
+            handshakeAppBuffer = null;
             return null;
         }
+        ByteBuffer appBuffer = ByteBuffer.allocate(handshakeAppBytes + Math.max(netBuffer.remaining(), 1));
+        if (handshakeAppBytes > 0) {
+            handshakeAppBuffer.flip();
+            appBuffer.put(handshakeAppBuffer);
+        }
+        handshakeAppBuffer = null;
 
-        //split net buffer when the net buffer remaining great than the net size
-        int netSize = sslEngine.getSession().getPacketBufferSize();
-        List<ByteBuffer> inNetBuffers = BufferUtils.split(inNetBuffer, netSize);
-        for (ByteBuffer net : inNetBuffers) {
-            SSLEngineResult result;
-            while (true) {
-                if (log.isDebugEnabled()) {
-                    log.debug("SSL session {} unwrap, pocket -> {},  in -> {}, out -> {}, temp -> {}",
-                            session.getSessionId(), netSize, inNetBuffer.remaining(), outAppBuffer.remaining(),
-                            net.remaining());
-                }
-
-                //FIXME using direct buffer avoid netty ByteBufAllocator bug
-                ByteBuffer directTmpBuffer = bufferPool.acquire(net.remaining());
-                try {
-                    directTmpBuffer.put(net.slice()).flip();
-                    result = sslEngine.unwrap(directTmpBuffer, outAppBuffer);
-                } finally {
-                    bufferPool.release(directTmpBuffer);
-                }
-
-                int consumed = result.bytesConsumed();
-                inNetBuffer.position(inNetBuffer.position() + consumed);
-                net.position(net.position() + consumed);
-                if (log.isDebugEnabled()) {
-                    log.debug("SSL session {} unwrap, status -> {}, in -> {}, out -> {}, temp -> {}, consumed -> {}",
-                            session.getSessionId(), result.getStatus(), inNetBuffer.remaining(), outAppBuffer.remaining(),
-                            net.remaining(), consumed);
-                }
+        unwrap:
+        while (netBuffer.hasRemaining()) {
+            SSLEngineResult result = unwrap(netBuffer, appBuffer);
+            if (log.isDebugEnabled()) {
+                log.debug("SSL session {} unwrap, status -> {}, in -> {}, out -> {}, consumed -> {}",
+                        session.getSessionId(), result.getStatus(), netBuffer.remaining(), appBuffer.position(),
+                        result.bytesConsumed());
+            }
 
-                switch (result.getStatus()) {
-                    case BUFFER_OVERFLOW:
-                        // Reset the application buffer size.
-                        int appSize = sslEngine.getSession().getApplicationBufferSize();
-                        ByteBuffer b = ByteBuffer.allocate(appSize + outAppBuffer.position());
-                        outAppBuffer.flip();
-                        b.put(outAppBuffer);
-                        outAppBuffer = b;
-                        // retry the operation.
-                        break;
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW:
+                    appBuffer = grow(appBuffer);
+                    break;
 
-                    case BUFFER_UNDERFLOW:
-                        return getOutAppBuffer();
+                case BUFFER_UNDERFLOW:
+                    break unwrap;
 
-                    case OK:
-                        if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                case OK:
+                    switch (result.getHandshakeStatus()) {
+                        case NEED_TASK:
                             doTasks();
-                        }
-                        if (!inNetBuffer.hasRemaining()) {
-                            return getOutAppBuffer();
-                        }
-                        break;
+                            break;
+                        case NEED_WRAP:
+                            // the post-handshake messages, such as the key update
+                            initialHSStatus = HandshakeStatus.NEED_WRAP;
+                            doHandshakeResponse();
+                            break;
+                    }
+                    if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                        break unwrap;
+                    }
+                    break;
 
-                    default:
-                        throw new IOException("sslEngine error during data read: " + result.getStatus());
-                }
+                default:
+                    throw new IOException("sslEngine error during data read: " + result.getStatus());
             }
         }
 
-        return getOutAppBuffer();
+        appBuffer.flip();
+        if (log.isDebugEnabled()) {
+            log.debug("SSL session {} unwrap, app buffer -> {}", session.getSessionId(), appBuffer.remaining());
+        }
+        return appBuffer.hasRemaining() ? appBuffer : null;
     }
 
-    public int write(ByteBuffer[] outputBuffers, Callback callback) throws Throwable {
-        int ret = 0;
-        CountingCallback countingCallback = new CountingCallback(callback, outputBuffers.length);
+    /**
+     * Encrypt the buffers and flush them to the socket channel. The buffers are
+     * wrapped into as few TLS records as possible, and the records are written
+     * in one gathering write.
+     *
+     * @param outputBuffers Plaintext message
+     * @param callback      The callback is completed when all records of the buffers have been written
+     * @return writen length
+     * @throws IOException sslEngine error during data write
+     */
+    public int write(ByteBuffer[] outputBuffers, Callback callback) throws IOException {
+        if (!initialHSComplete)
+            throw new IllegalStateException("The initial handshake is not complete.");
+
+        long remaining = 0;
         for (ByteBuffer outputBuffer : outputBuffers) {
-            ret += write(outputBuffer, countingCallback);
+            remaining += outputBuffer.remaining();
         }
-        return ret;
+        if (remaining == 0) {
+            callback.succeeded();
+            return 0;
+        }
+
+        synchronized (writeLock) {
+            List<ByteBuffer> records = new ArrayList<>();
+            ByteBuffer stagingBuffer = null;
+            unwrappedBytes = remaining;
+            try {
+                for (ByteBuffer outputBuffer : outputBuffers) {
+                    if (!outputBuffer.hasRemaining()) {
+                        continue;
+                    }
+
+                    if (outputBuffer.isDirect()) {
+                        if (stagingBuffer != null && stagingBuffer.position() > 0) {
+                            wrapStagingBuffer(stagingBuffer, records);
+                        }
+                        wrap(outputBuffer, records);
+                    } else {
+                        // the small heap buffers are merged into the records of the max size
+                        while (outputBuffer.hasRemaining()) {
+                            if (stagingBuffer == null) {
+                                stagingBuffer = bufferPool.acquire((int) Math.min(unwrappedBytes, maxRecordSize));
+                            }
+                            int length = Math.min(stagingBuffer.remaining(), outputBuffer.remaining());
+                            ByteBuffer slice = outputBuffer.slice();
+                            slice.limit(length);
+                            stagingBuffer.put(slice);
+                            outputBuffer.position(outputBuffer.position() + length);
+                            if (!stagingBuffer.hasRemaining()) {
+                                wrapStagingBuffer(stagingBuffer, records);
+                            }
+                        }
+                    }
+                }
+                if (stagingBuffer != null && stagingBuffer.position() > 0) {
+                    wrapStagingBuffer(stagingBuffer, records);
+                }
+            } catch (IOException | RuntimeException e) {
+                records.forEach(bufferPool::release);
+                throw e;
+            } finally {
+                if (stagingBuffer != null) {
+                    bufferPool.release(stagingBuffer);
+                }
+            }
+            writeRecords(records, callback);
+        }
+        return (int) remaining;
     }
 
     /**
      * This method is used to encrypt and flush to socket channel
      *
      * @param outputBuffer Plaintext message
+     * @param callback     The callback is completed when all records of the buffer have been written
      * @return writen length
      * @throws IOException sslEngine error during data write
      */
     public int write(ByteBuffer outputBuffer, Callback callback) throws IOException {
-        if (!initialHSComplete)
-            throw new IllegalStateException("The initial handshake is not complete.");
+        return write(new ByteBuffer[]{outputBuffer}, callback);
+    }
 
-        int ret = 0;
-        if (!outputBuffer.hasRemaining())
-            return ret;
+    private void wrapStagingBuffer(ByteBuffer stagingBuffer, List<ByteBuffer> records) throws IOException {
+        stagingBuffer.flip();
+        wrap(stagingBuffer, records);
+        stagingBuffer.clear();
+    }
 
-        final int remain = outputBuffer.remaining();
+    private void wrap(ByteBuffer src, List<ByteBuffer> records) throws IOException {
+        while (src.hasRemaining()) {
+            ByteBuffer writeBuf = getWriteBuffer(records, unwrappedBytes);
+            SSLEngineResult result = sslEngine.wrap(src, writeBuf);
+            unwrappedBytes -= result.bytesConsumed();
 
-        while (ret < remain) {
-            ByteBuffer writeBuf = ByteBuffer.allocateDirect(writeBufferSize);
+            switch (result.getStatus()) {
+                case OK:
+                    if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                        doTasks();
+                    }
+                    if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                        throw new IOException("sslEngine can not wrap the data, handshake status: " + result.getHandshakeStatus());
+                    }
+                    break;
 
-            wrap:
-            while (true) {
-                SSLEngineResult result;
+                case BUFFER_OVERFLOW:
+                    overflow(records, writeBuf, unwrappedBytes);
+                    break;
 
-                //FIXME using direct buffer avoid netty ByteBufAllocator bug
-                ByteBuffer directTmpBuffer = bufferPool.acquire(outputBuffer.remaining());
-                try {
-                    directTmpBuffer.put(outputBuffer.slice()).flip();
-                    result = sslEngine.wrap(directTmpBuffer, writeBuf);
-                } finally {
-                    bufferPool.release(directTmpBuffer);
-                }
+                default:
+                    throw new IOException("sslEngine error during data write: " + result.getStatus());
+            }
+        }
+    }
 
-                ret += result.bytesConsumed();
+    /**
+     * Get the buffer that has the space of a record at least. The new buffer
+     * is large enough to hold the remaining records, up to the max pooled
+     * buffer size.
+     */
+    private ByteBuffer getWriteBuffer(List<ByteBuffer> records, long remaining) {
+        int packetSize = sslEngine.getSession().getPacketBufferSize();
+        if (!records.isEmpty()) {
+            ByteBuffer last = records.get(records.size() - 1);
+            if (last.remaining() >= packetSize) {
+                return last;
+            }
+        }
+        long estimate = remaining + (remaining / maxRecordSize + 1) * recordOverhead;
+        int size = (int) Math.max(packetSize, Math.min(estimate, maxWriteBufferSize));
+        ByteBuffer writeBuf = bufferPool.acquire(size);
+        records.add(writeBuf);
+        return writeBuf;
+    }
 
-                switch (result.getStatus()) {
-                    case OK:
-                        if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
-                            doTasks();
-                        }
+    private void overflow(List<ByteBuffer> records, ByteBuffer writeBuf, long remaining) throws IOException {
+        if (writeBuf.position() == 0) {
+            throw new IOException("the TLS record is larger than the packet buffer size " + writeBuf.remaining());
+        }
+        // the next record is written to a new buffer
+        int size = (int) Math.max(sslEngine.getSession().getPacketBufferSize(), Math.min(remaining, maxWriteBufferSize));
+        records.add(bufferPool.acquire(size));
+    }
 
-                        writeBuf.flip();
-                        session.write(writeBuf, callback);
-                        break wrap;
-
-                    case BUFFER_OVERFLOW:
-                        int netSize = sslEngine.getSession().getPacketBufferSize();
-                        ByteBuffer b = ByteBuffer.allocateDirect(writeBuf.position() + netSize);
-                        writeBuf.flip();
-                        b.put(writeBuf);
-                        writeBuf = b;
-                        // retry the operation.
-                        break;
-                    default:
-                        throw new IOException("sslEngine error during data write: " + result.getStatus());
-                }
+    private void writeRecords(List<ByteBuffer> records, Callback callback) {
+        List<ByteBuffer> buffers = new ArrayList<>(records.size());
+        for (ByteBuffer record : records) {
+            if (record.position() > 0) {
+                record.flip();
+                buffers.add(record);
+            } else {
+                bufferPool.release(record);
             }
         }
 
-        return ret;
+        if (buffers.isEmpty()) {
+            callback.succeeded();
+            return;
+        }
+
+        ByteBuffer[] recordBuffers = buffers.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY);
+        session.write(recordBuffers, new Callback() {
+            @Override
+            public void succeeded() {
+                release();
+                callback.succeeded();
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                release();
+                callback.failed(x);
+            }
+
+            private void release() {
+                for (ByteBuffer record : recordBuffers) {
+                    bufferPool.release(record);
+                }
+            }
+        });
     }
 
     private class FileBufferReaderHandler implements BufferReaderHandler {
@@ -501,4 +859,11 @@ public class SSLSession implements Closeable {
     public boolean isHandshakeFinished() {
         return initialHSComplete;
     }
+
+    /**
+     * @return Whether the initial handshake resumed a cached session
+     */
+    public boolean isSessionResumed() {
+        return sessionResumed;
+    }
 }
@@ -4,33 +4,43 @@ import com.firefly.utils.exception.CommonRuntimeException;
 import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import java.security.cert.CertificateException;
 import java.util.Arrays;
 import java.util.List;
 
 /**
+ * The SSL context factory of a self signed certificate, the certificate is
+ * generated when the server context is created.
+ * <p>
+ * The client context uses the JDK provider, so the client resumes the cached
+ * session when it connects to the same peer again. The application protocols
+ * are negotiated with the Jetty ALPN boot library or the JDK ALPN API, the
+ * OpenSSL provider is used if neither is available.
+ *
  * @author Pengtao Qiu
  */
 public class SelfSignedCertificateOpenSSLContextFactory extends AbstractOpenSSLContextFactory {
 
     private SelfSignedCertificate selfSignedCertificate;
     private List<String> supportedProtocols = Arrays.asList("h2", "h2-17", "h2-16", "h2-15", "h2-14", "http/1.1");
+    private volatile boolean jdkApplicationProtocols;
 
-    public SelfSignedCertificateOpenSSLContextFactory() {
-        try {
-            selfSignedCertificate = new SelfSignedCertificate("www.fireflysource.com");
-        } catch (CertificateException e) {
-            log.error("create certificate exception", e);
-            throw new CommonRuntimeException(e);
+    public synchronized SelfSignedCertificate getSelfSignedCertificate() {
+        if (selfSignedCertificate == null) {
+            try {
+                selfSignedCertificate = new SelfSignedCertificate("www.fireflysource.com");
+            } catch (CertificateException e) {
+                log.error("create certificate exception", e);
+                throw new CommonRuntimeException(e);
+            }
         }
-    }
-
-    public SelfSignedCertificate getSelfSignedCertificate() {
         return selfSignedCertificate;
     }
 
@@ -48,18 +58,54 @@ public class SelfSignedCertificateOpenSSLContextFactory extends AbstractOpenSSLC
 
     @Override
     public SslContext createSSLContext(boolean clientMode) {
-        SslContextBuilder sslContextBuilder = clientMode ? SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE)
-                : SslContextBuilder.forServer(selfSignedCertificate.certificate(), selfSignedCertificate.privateKey());
+        SslContextBuilder sslContextBuilder;
+        boolean nettyApplicationProtocols = true;
+        if (clientMode) {
+            sslContextBuilder = SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE);
+            if (JdkApplicationProtocols.isJettyAlpnAvailable()) {
+                sslContextBuilder.sslProvider(SslProvider.JDK);
+            } else if (JdkApplicationProtocols.isSupported()) {
+                sslContextBuilder.sslProvider(SslProvider.JDK);
+                nettyApplicationProtocols = false;
+            } else {
+                log.warn("the JDK does not support ALPN, the client uses the OpenSSL provider that does not resume the sessions");
+            }
+        } else {
+            SelfSignedCertificate certificate = getSelfSignedCertificate();
+            sslContextBuilder = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey());
+        }
 
         try {
-            return sslContextBuilder.ciphers(SecurityUtils.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
-                                    .applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
-                                            ApplicationProtocolConfig.SelectorFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
-                                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
-                                            supportedProtocols)).build();
+            sslContextBuilder.ciphers(SecurityUtils.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
+            if (nettyApplicationProtocols) {
+                sslContextBuilder.applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
+                        supportedProtocols));
+            }
+            SslContext sslContext = sslContextBuilder.build();
+            jdkApplicationProtocols = !nettyApplicationProtocols;
+            return sslContext;
         } catch (SSLException e) {
             log.error("create ssl context exception", e);
             throw new CommonRuntimeException(e);
         }
     }
+
+    @Override
+    public SSLEngine createSSLEngine(boolean clientMode) {
+        return setApplicationProtocols(super.createSSLEngine(clientMode));
+    }
+
+    @Override
+    public SSLEngine createSSLEngine(boolean clientMode, String peerHost, int peerPort) {
+        return setApplicationProtocols(super.createSSLEngine(clientMode, peerHost, peerPort));
+    }
+
+    private SSLEngine setApplicationProtocols(SSLEngine sslEngine) {
+        if (jdkApplicationProtocols) {
+            JdkApplicationProtocols.setApplicationProtocols(sslEngine, supportedProtocols);
+        }
+        return sslEngine;
+    }
 }
@@ -0,0 +1,95 @@
+package test.net.buffer;
+
+import com.firefly.net.buffer.PooledBuffer;
+import com.firefly.net.buffer.SizeClassBufferPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestPooledBuffer {
+
+    @Test
+    public void testSizeClass() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        ByteBuffer buf = pool.acquire(1000);
+        Assert.assertThat(buf.isDirect(), is(true));
+        Assert.assertThat(buf.capacity(), is(1024));
+        Assert.assertThat(buf.remaining(), is(1024));
+
+        buf.put((byte) 1).flip();
+        pool.release(buf);
+        ByteBuffer buf2 = pool.acquire(1024);
+        Assert.assertThat(buf2, sameInstance(buf));
+        Assert.assertThat(buf2.position(), is(0));
+        Assert.assertThat(buf2.limit(), is(1024));
+
+        ByteBuffer buf3 = pool.acquire(2000);
+        Assert.assertThat(buf3, not(sameInstance(buf)));
+        Assert.assertThat(buf3.capacity(), is(2048));
+    }
+
+    @Test
+    public void testUnpooledBuffer() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(true, 4096, 2);
+        ByteBuffer large = pool.acquire(8192);
+        pool.release(large);
+        Assert.assertThat(pool.acquire(8192), not(sameInstance(large)));
+
+        ByteBuffer heap = ByteBuffer.allocate(1024);
+        pool.release(heap);
+        Assert.assertThat(pool.acquire(1024), not(sameInstance(heap)));
+
+        ByteBuffer b1 = pool.acquire(1024);
+        ByteBuffer b2 = pool.acquire(1024);
+        ByteBuffer b3 = pool.acquire(1024);
+        pool.release(b1);
+        pool.release(b2);
+        pool.release(b3);
+        Assert.assertThat(pool.acquire(1024), sameInstance(b2));
+        Assert.assertThat(pool.acquire(1024), sameInstance(b1));
+        Assert.assertThat(pool.acquire(1024), not(sameInstance(b3)));
+    }
+
+    @Test
+    public void testReferenceCount() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        PooledBuffer pooledBuffer = new PooledBuffer(pool).acquire(1024);
+        ByteBuffer buf = pooledBuffer.getBuffer();
+        Assert.assertThat(pooledBuffer.referenceCount(), is(1));
+
+        pooledBuffer.retain();
+        Assert.assertThat(pooledBuffer.referenceCount(), is(2));
+        Assert.assertThat(pooledBuffer.release(), is(false));
+        Assert.assertThat(pool.acquire(1024), not(sameInstance(buf)));
+
+        Assert.assertThat(pooledBuffer.release(), is(true));
+        Assert.assertThat(pooledBuffer.getBuffer(), nullValue());
+        Assert.assertThat(pool.acquire(1024), sameInstance(buf));
+
+        pooledBuffer.acquire(1024);
+        Assert.assertThat(pooledBuffer.referenceCount(), is(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        PooledBuffer pooledBuffer = new PooledBuffer(new SizeClassBufferPool()).acquire(1024);
+        pooledBuffer.release();
+        pooledBuffer.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetainReleasedBuffer() {
+        PooledBuffer pooledBuffer = new PooledBuffer(new SizeClassBufferPool()).acquire(1024);
+        pooledBuffer.release();
+        pooledBuffer.retain();
+    }
+
+    @Test
+    public void testUnpooledPlaceholder() {
+        Assert.assertThat(PooledBuffer.UNPOOLED.retain(), sameInstance(PooledBuffer.UNPOOLED));
+        Assert.assertThat(PooledBuffer.UNPOOLED.release(), is(false));
+    }
+}
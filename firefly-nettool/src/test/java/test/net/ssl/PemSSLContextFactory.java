@@ -0,0 +1,51 @@
+package test.net.ssl;
+
+import com.firefly.net.tcp.ssl.AbstractOpenSSLContextFactory;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+
+import javax.net.ssl.SSLException;
+import java.io.File;
+
+/**
+ * The SSL context factory of the test certificate in the classpath.
+ *
+ * @author Pengtao Qiu
+ */
+public class PemSSLContextFactory extends AbstractOpenSSLContextFactory {
+
+    private final SslProvider provider;
+
+    public PemSSLContextFactory() {
+        this(null);
+    }
+
+    /**
+     * @param provider The provider of the engines, or null to use the default provider
+     */
+    public PemSSLContextFactory(SslProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public SslContext createSSLContext(boolean clientMode) {
+        try {
+            if (clientMode) {
+                return SslContextBuilder.forClient().sslProvider(provider)
+                                        .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+            } else {
+                return SslContextBuilder.forServer(resource("test-cert.pem"), resource("test-key.pem"))
+                                        .sslProvider(provider).build();
+            }
+        } catch (SSLException e) {
+            log.error("create ssl context exception", e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static File resource(String name) {
+        return new File(PemSSLContextFactory.class.getClassLoader().getResource(name).getFile());
+    }
+}
@@ -0,0 +1,404 @@
+package test.net.ssl;
+
+import com.firefly.net.SSLContextFactory;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.ssl.SSLHandshakeExecutor;
+import com.firefly.net.tcp.ssl.SSLSession;
+import com.firefly.net.tcp.ssl.SelfSignedCertificateOpenSSLContextFactory;
+import com.firefly.utils.concurrent.Callback;
+import io.netty.handler.ssl.SslProvider;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLHandshakeException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSSLSession {
+
+    private Peer client;
+    private Peer server;
+
+    @Before
+    public void init() throws Throwable {
+        server = new Peer(1);
+        client = new Peer(2);
+        handshake(client, new PemSSLContextFactory(), server, new PemSSLContextFactory());
+    }
+
+    private static void handshake(Peer client, SSLContextFactory clientFactory,
+                                  Peer server, SSLContextFactory serverFactory) throws Throwable {
+        server.sslSession = new SSLSession(serverFactory, false, server.session, s -> server.handshakeFinished = true);
+        client.sslSession = new SSLSession(clientFactory, true, client.session, s -> client.handshakeFinished = true);
+        handshake(client, server);
+    }
+
+    private static void handshake(Peer client, Peer server) throws Exception {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!client.handshakeFinished || !server.handshakeFinished) {
+            if (!transfer(client, server, 0) && !transfer(server, client, 0)) {
+                // the delegated tasks may run in the handshake executor
+                Assert.assertThat("the handshake is not finished", System.currentTimeMillis() < timeout, is(true));
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testDelegatedTasks() throws Throwable {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        SSLHandshakeExecutor handshakeExecutor = new SSLHandshakeExecutor(pool, 1, 1);
+        PemSSLContextFactory serverFactory = new PemSSLContextFactory(SslProvider.JDK);
+        serverFactory.setHandshakeExecutor(handshakeExecutor);
+
+        Peer server1 = new Peer(7);
+        Peer client1 = new Peer(8);
+        server1.sslSession = new SSLSession(serverFactory, false, server1.session, s -> server1.handshakeFinished = true);
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(1));
+
+        // the handshake that exceeds the limit is rejected
+        Peer server2 = new Peer(9);
+        try {
+            new SSLSession(serverFactory, false, server2.session, s -> server2.handshakeFinished = true);
+            Assert.fail();
+        } catch (SSLHandshakeException e) {
+            Assert.assertThat(server2.closed, is(true));
+            Assert.assertThat(handshakeExecutor.getRejectedHandshakes(), is(1L));
+        }
+
+        // the delegated tasks of the JDK engine run in the handshake executor
+        client1.sslSession = new SSLSession(new PemSSLContextFactory(), true, client1.session, s -> client1.handshakeFinished = true);
+        handshake(client1, server1);
+        Assert.assertThat(pool.getCompletedTaskCount(), greaterThan(0L));
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(0));
+
+        AtomicInteger written = new AtomicInteger();
+        client1.sslSession.write(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)), count(written));
+        transfer(client1, server1, 0);
+        server1.sslSession.write(ByteBuffer.wrap("pong".getBytes(StandardCharsets.UTF_8)), count(written));
+        transfer(server1, client1, 0);
+        Assert.assertThat(new String(server1.received.toByteArray(), StandardCharsets.UTF_8), is("ping"));
+        Assert.assertThat(new String(client1.received.toByteArray(), StandardCharsets.UTF_8), is("pong"));
+        Assert.assertThat(written.get(), is(2));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSessionResumption() throws Throwable {
+        PemSSLContextFactory serverFactory = new PemSSLContextFactory();
+        serverFactory.setSessionCacheSize(128);
+        serverFactory.setSessionTimeout(60);
+        PemSSLContextFactory clientFactory = new PemSSLContextFactory(SslProvider.JDK);
+
+        Peer server1 = new Peer(3);
+        Peer client1 = new Peer(4);
+        handshake(client1, clientFactory, server1, serverFactory);
+        Assert.assertThat(server1.sslSession.isSessionResumed(), is(false));
+        Assert.assertThat(client1.sslSession.isSessionResumed(), is(false));
+
+        // the client engine of the same peer resumes the cached session
+        Peer server2 = new Peer(5);
+        Peer client2 = new Peer(6);
+        handshake(client2, clientFactory, server2, serverFactory);
+        Assert.assertThat(server2.sslSession.isSessionResumed(), is(true));
+        Assert.assertThat(client2.sslSession.isSessionResumed(), is(true));
+        Assert.assertThat(serverFactory.getFullHandshakeCount(), is(1L));
+        Assert.assertThat(serverFactory.getResumedHandshakeCount(), is(1L));
+        Assert.assertThat(clientFactory.getFullHandshakeCount(), is(1L));
+        Assert.assertThat(clientFactory.getResumedHandshakeCount(), is(1L));
+
+        // the data is exchanged in the resumed session
+        AtomicInteger written = new AtomicInteger();
+        client2.sslSession.write(ByteBuffer.wrap("resumed".getBytes(StandardCharsets.UTF_8)), count(written));
+        transfer(client2, server2, 0);
+        Assert.assertThat(new String(server2.received.toByteArray(), StandardCharsets.UTF_8), is("resumed"));
+    }
+
+    @Test
+    public void testDefaultClientSessionResumption() throws Throwable {
+        PemSSLContextFactory serverFactory = new PemSSLContextFactory();
+        serverFactory.setSessionCacheSize(128);
+        SelfSignedCertificateOpenSSLContextFactory clientFactory = new SelfSignedCertificateOpenSSLContextFactory();
+
+        Peer server1 = new Peer(10);
+        Peer client1 = new Peer(11);
+        handshake(client1, clientFactory, server1, serverFactory);
+        Assert.assertThat(client1.sslSession.isSessionResumed(), is(false));
+
+        // the default client context resumes the session of the same peer
+        Peer server2 = new Peer(12);
+        Peer client2 = new Peer(13);
+        handshake(client2, clientFactory, server2, serverFactory);
+        Assert.assertThat(server2.sslSession.isSessionResumed(), is(true));
+        Assert.assertThat(client2.sslSession.isSessionResumed(), is(true));
+        Assert.assertThat(clientFactory.getResumedHandshakeCount(), is(1L));
+    }
+
+    @Test
+    public void testSessionTicketKeys() throws Throwable {
+        byte[] keys = new byte[48];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (byte) i;
+        }
+        PemSSLContextFactory serverFactory1 = new PemSSLContextFactory();
+        serverFactory1.setSessionTicketKeys(keys);
+        PemSSLContextFactory serverFactory2 = new PemSSLContextFactory();
+        serverFactory2.setSessionTicketKeys(keys);
+        PemSSLContextFactory clientFactory = new PemSSLContextFactory(SslProvider.JDK);
+
+        Peer server1 = new Peer(18);
+        Peer client1 = new Peer(19);
+        handshake(client1, clientFactory, server1, serverFactory1);
+        Assert.assertThat(client1.sslSession.isSessionResumed(), is(false));
+
+        // the server that shares the ticket keys resumes the session
+        Peer server2 = new Peer(20);
+        Peer client2 = new Peer(21);
+        handshake(client2, clientFactory, server2, serverFactory2);
+        Assert.assertThat(server2.sslSession.isSessionResumed(), is(true));
+        Assert.assertThat(client2.sslSession.isSessionResumed(), is(true));
+
+        try {
+            serverFactory1.setSessionTicketKeys(new byte[47]);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertThat(serverFactory1.getSessionTicketKeys(), is(keys));
+        }
+    }
+
+    @Test
+    public void testTLS13FullHandshake() throws Throwable {
+        Assume.assumeThat(Arrays.asList(SSLContext.getDefault().getSupportedSSLParameters().getProtocols()),
+                hasItem("TLSv1.3"));
+        TLS13SSLContextFactory serverFactory = new TLS13SSLContextFactory();
+        serverFactory.setSessionCacheSize(128);
+        TLS13SSLContextFactory clientFactory = new TLS13SSLContextFactory();
+
+        // the TLS 1.3 server echoes the legacy session ID of the new sessions
+        for (int i = 0; i < 2; i++) {
+            Peer server1 = new Peer(14 + i * 2);
+            Peer client1 = new Peer(15 + i * 2);
+            handshake(client1, clientFactory, server1, serverFactory);
+            Assert.assertThat(server1.sslSession.isSessionResumed(), is(false));
+            Assert.assertThat(client1.sslSession.isSessionResumed(), is(false));
+        }
+        Assert.assertThat(serverFactory.protocols, everyItem(is("TLSv1.3")));
+        Assert.assertThat(serverFactory.getResumedHandshakeCount(), is(0L));
+        Assert.assertThat(clientFactory.getResumedHandshakeCount(), is(0L));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(20 * 1024);
+        direct.put(data, 0, direct.capacity()).flip();
+        ByteBuffer[] buffers = new ByteBuffer[]{
+                ByteBuffer.wrap(data, 0, 10),
+                ByteBuffer.wrap(data, 10, 20),
+                ByteBuffer.wrap(data, 30, 50 * 1024 - 30),
+                ByteBuffer.wrap(data, 50 * 1024, 30 * 1024),
+                direct
+        };
+
+        AtomicInteger written = new AtomicInteger();
+        Assert.assertThat(client.sslSession.write(buffers, count(written)), is(100 * 1024));
+        for (ByteBuffer buffer : buffers) {
+            Assert.assertThat(buffer.hasRemaining(), is(false));
+        }
+
+        // the records of the buffers are written in one gathering write
+        Assert.assertThat(client.writes.size(), is(1));
+        Assert.assertThat(written.get(), is(0));
+        transfer(client, server, 0);
+        Assert.assertThat(written.get(), is(1));
+
+        byte[] expected = new byte[80 * 1024 + direct.capacity()];
+        System.arraycopy(data, 0, expected, 0, 80 * 1024);
+        System.arraycopy(data, 0, expected, 80 * 1024, direct.capacity());
+        Assert.assertThat(Arrays.equals(server.received.toByteArray(), expected), is(true));
+    }
+
+    @Test
+    public void testFragmentedRead() throws IOException {
+        byte[] data = new byte[64 * 1024 + 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        AtomicInteger written = new AtomicInteger();
+        server.sslSession.write(ByteBuffer.wrap(data), count(written));
+        server.sslSession.write(ByteBuffer.wrap(data), count(written));
+
+        // the incomplete records are kept until the next read
+        transfer(server, client, 1000);
+        Assert.assertThat(written.get(), is(2));
+        byte[] expected = new byte[data.length * 2];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        System.arraycopy(data, 0, expected, data.length, data.length);
+        Assert.assertThat(Arrays.equals(client.received.toByteArray(), expected), is(true));
+    }
+
+    @Test
+    public void testEmptyWrite() throws IOException {
+        AtomicInteger written = new AtomicInteger();
+        Assert.assertThat(client.sslSession.write(ByteBuffer.allocate(0), count(written)), is(0));
+        Assert.assertThat(written.get(), is(1));
+        Assert.assertThat(client.writes.isEmpty(), is(true));
+    }
+
+    private static Callback count(AtomicInteger written) {
+        return new Callback() {
+            @Override
+            public void succeeded() {
+                written.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Read the written records of a peer in the other peer.
+     *
+     * @param from         The writer
+     * @param to           The reader
+     * @param fragmentSize The size of the received heap buffers, or 0 to receive the written buffers
+     * @return Whether any record is transferred
+     */
+    private static boolean transfer(Peer from, Peer to, int fragmentSize) throws IOException {
+        boolean transferred = false;
+        Write write;
+        while ((write = from.writes.poll()) != null) {
+            transferred = true;
+            List<ByteBuffer> received = new ArrayList<>();
+            for (ByteBuffer buffer : write.buffers) {
+                if (fragmentSize == 0) {
+                    ByteBuffer copy = ByteBuffer.allocateDirect(buffer.remaining());
+                    copy.put(buffer).flip();
+                    received.add(copy);
+                } else {
+                    while (buffer.hasRemaining()) {
+                        byte[] b = new byte[Math.min(fragmentSize, buffer.remaining())];
+                        buffer.get(b);
+                        received.add(ByteBuffer.wrap(b));
+                    }
+                }
+            }
+            write.callback.succeeded();
+            for (ByteBuffer buffer : received) {
+                to.decode(buffer);
+            }
+        }
+        return transferred;
+    }
+
+    private static class Write {
+        private final ByteBuffer[] buffers;
+        private final Callback callback;
+
+        private Write(ByteBuffer[] buffers, Callback callback) {
+            this.buffers = buffers;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * The JDK engines of this netty version enable TLS 1.2 at most.
+     */
+    private static class TLS13SSLContextFactory extends PemSSLContextFactory {
+        private final List<String> protocols = new CopyOnWriteArrayList<>();
+
+        private TLS13SSLContextFactory() {
+            super(SslProvider.JDK);
+        }
+
+        @Override
+        public SSLEngine createSSLEngine(boolean clientMode) {
+            return enableTLS13(super.createSSLEngine(clientMode));
+        }
+
+        @Override
+        public SSLEngine createSSLEngine(boolean clientMode, String peerHost, int peerPort) {
+            return enableTLS13(super.createSSLEngine(clientMode, peerHost, peerPort));
+        }
+
+        @Override
+        public void handshakeFinished(SSLEngine sslEngine, boolean resumed) {
+            protocols.add(sslEngine.getSession().getProtocol());
+            super.handshakeFinished(sslEngine, resumed);
+        }
+
+        private static SSLEngine enableTLS13(SSLEngine sslEngine) {
+            sslEngine.setEnabledProtocols(new String[]{"TLSv1.3"});
+            sslEngine.setEnabledCipherSuites(new String[]{"TLS_AES_128_GCM_SHA256", "TLS_AES_256_GCM_SHA384"});
+            return sslEngine;
+        }
+    }
+
+    private static class Peer {
+        private final Queue<Write> writes = new ConcurrentLinkedQueue<>();
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final Session session;
+        private volatile SSLSession sslSession;
+        private volatile boolean handshakeFinished;
+        private volatile boolean closed;
+
+        private Peer(int sessionId) {
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getSessionId":
+                                return sessionId;
+                            case "isOpen":
+                                return true;
+                            case "getRemoteAddress":
+                                return InetSocketAddress.createUnresolved("localhost", 8443);
+                            case "decode":
+                                decode((ByteBuffer) args[0]);
+                                return null;
+                            case "closeNow":
+                                closed = true;
+                                return null;
+                            case "write":
+                                if (args[0] instanceof ByteBuffer[]) {
+                                    writes.offer(new Write((ByteBuffer[]) args[0], (Callback) args[1]));
+                                    return null;
+                                }
+                                throw new UnsupportedOperationException("write " + args[0].getClass());
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private void decode(ByteBuffer buffer) throws IOException {
+            ByteBuffer plaintext = sslSession.read(buffer);
+            if (plaintext != null) {
+                received.write(plaintext.array(), plaintext.arrayOffset() + plaintext.position(), plaintext.remaining());
+            }
+        }
+    }
+}
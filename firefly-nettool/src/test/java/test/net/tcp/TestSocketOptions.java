@@ -0,0 +1,57 @@
+package test.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.tcp.SocketOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestSocketOptions {
+
+    @Test
+    public void testConfigureSocket() throws IOException {
+        Config config = new Config();
+        config.setTcpNoDelay(true);
+        config.setKeepAlive(false);
+        config.setSoLinger(3);
+        config.setSendBufferSize(128 * 1024);
+        try (SocketChannel channel = SocketChannel.open()) {
+            SocketOptions.configureSocket(channel, config);
+            Assert.assertThat(channel.getOption(StandardSocketOptions.TCP_NODELAY), is(true));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_KEEPALIVE), is(false));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_LINGER), is(3));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_SNDBUF), greaterThan(0));
+        }
+    }
+
+    @Test
+    public void testDefaultOptions() throws IOException {
+        Config config = new Config();
+        try (SocketChannel channel = SocketChannel.open()) {
+            SocketOptions.configureSocket(channel, config);
+            Assert.assertThat(channel.getOption(StandardSocketOptions.TCP_NODELAY), is(false));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_KEEPALIVE), is(true));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_REUSEADDR), is(true));
+            Assert.assertThat(channel.getOption(StandardSocketOptions.SO_LINGER), lessThan(0));
+        }
+    }
+
+    @Test
+    public void testAcceptorSize() throws IOException {
+        Config config = new Config();
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            Assert.assertThat(SocketOptions.acceptorSize(channel, config), is(1));
+
+            config.setAcceptorSize(4);
+            boolean reusePort = channel.supportedOptions().stream()
+                                       .anyMatch(option -> option.name().equals("SO_REUSEPORT"));
+            Assert.assertThat(SocketOptions.acceptorSize(channel, config), is(reusePort ? 4 : 1));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package test.net.tcp;
+
+import com.firefly.net.tcp.TcpConnection;
+import com.firefly.net.tcp.TcpConnectionPool;
+import com.firefly.net.tcp.TcpConnectionPool.Lease;
+import com.firefly.net.tcp.TcpConnectionPoolConfiguration;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestTcpConnectionPool {
+
+    private final Scheduler scheduler = Schedulers.createTimeWheel();
+    private final List<TcpConnection> connections = new CopyOnWriteArrayList<>();
+
+    @After
+    public void after() {
+        scheduler.stop();
+    }
+
+    @Test
+    public void testLease() throws Exception {
+        TcpConnectionPoolConfiguration config = new TcpConnectionPoolConfiguration();
+        config.setMaxConnections(2);
+        TcpConnectionPool pool = createPool(config);
+
+        Lease a = pool.take().get();
+        Lease b = pool.take().get();
+        Assert.assertThat(connections.size(), is(2));
+        Promise.Completable<Lease> c = pool.take();
+        Assert.assertThat(c.isDone(), is(false));
+        Assert.assertThat(pool.getPendingAcquires(), is(1));
+
+        // the released connection is assigned to the pending acquisition
+        Assert.assertThat(a.release(), is(true));
+        Assert.assertThat(a.release(), is(false));
+        Assert.assertThat(c.get().getConnection(), sameInstance(a.getConnection()));
+
+        // the recently released connection is leased first
+        c.get().release();
+        b.release();
+        Assert.assertThat(pool.getIdleConnections(), is(2));
+        Assert.assertThat(pool.take().get().getConnection(), sameInstance(b.getConnection()));
+        Assert.assertThat(connections.size(), is(2));
+        Assert.assertThat(pool.getLeaseCount(), is(4L));
+        Assert.assertThat(pool.getMaxLeaseWaitTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+        TcpConnectionPoolConfiguration config = new TcpConnectionPoolConfiguration();
+        TcpConnectionPool pool = createPool(config);
+
+        Lease a = pool.take().get();
+        a.release();
+        a.getConnection().close();
+
+        // the closed connection is discarded and a new connection is opened
+        Lease b = pool.take().get();
+        Assert.assertThat(b.getConnection(), not(sameInstance(a.getConnection())));
+        Assert.assertThat(pool.size(), is(1));
+
+        b.release();
+        config.setValidator(connection -> false);
+        Lease c = pool.take().get();
+        Assert.assertThat(b.getConnection().isOpen(), is(false));
+        Assert.assertThat(c.getConnection(), sameInstance(connections.get(2)));
+    }
+
+    @Test
+    public void testLeaseTimeout() throws Exception {
+        TcpConnectionPoolConfiguration config = new TcpConnectionPoolConfiguration();
+        config.setMaxConnections(1);
+        config.setMaxPendingAcquires(1);
+        config.setLeaseTimeout(50);
+        TcpConnectionPool pool = createPool(config);
+
+        Lease a = pool.take().get();
+        Promise.Completable<Lease> b = pool.take();
+        try {
+            pool.take().get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+        try {
+            b.get(2, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        Assert.assertThat(pool.getLeaseTimeoutCount(), is(1L));
+        Assert.assertThat(pool.getRejectedCount(), is(1L));
+        Assert.assertThat(pool.getPendingAcquires(), is(0));
+
+        a.release();
+        Assert.assertThat(pool.getIdleConnections(), is(1));
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        TcpConnectionPoolConfiguration config = new TcpConnectionPoolConfiguration();
+        config.setMinConnections(1);
+        config.setMaxIdleTime(1);
+        config.setIdleCheckInterval(20);
+        TcpConnectionPool pool = createPool(config);
+
+        Lease a = pool.take().get();
+        Lease b = pool.take().get();
+        a.release();
+        b.release();
+
+        // the idle connections are closed except the min connections
+        long start = System.currentTimeMillis();
+        while (pool.getIdleConnections() > 1 && System.currentTimeMillis() - start < 2000) {
+            Thread.sleep(20);
+        }
+        Assert.assertThat(pool.getIdleConnections(), is(1));
+        Assert.assertThat(a.getConnection().isOpen(), is(false));
+        Assert.assertThat(b.getConnection().isOpen(), is(true));
+
+        pool.stop();
+        Assert.assertThat(b.getConnection().isOpen(), is(false));
+    }
+
+    private TcpConnectionPool createPool(TcpConnectionPoolConfiguration config) {
+        return new TcpConnectionPool(() -> {
+            Promise.Completable<TcpConnection> promise = new Promise.Completable<>();
+            TcpConnection connection = mockConnection(connections.size());
+            connections.add(connection);
+            promise.succeeded(connection);
+            return promise;
+        }, config, scheduler);
+    }
+
+    private static TcpConnection mockConnection(int sessionId) {
+        AtomicBoolean open = new AtomicBoolean(true);
+        return (TcpConnection) Proxy.newProxyInstance(TcpConnection.class.getClassLoader(),
+                new Class<?>[]{TcpConnection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isOpen":
+                            return open.get();
+                        case "close":
+                        case "closeNow":
+                            open.set(false);
+                            return null;
+                        case "getSessionId":
+                            return sessionId;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "mock connection " + sessionId;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,41 @@
+package test.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.Server;
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.aio.AsynchronousTcpServer;
+import com.firefly.net.tcp.nio.NioTcpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestTcpServer {
+
+    @Test
+    public void testNioBindError() throws IOException {
+        testBindError(new NioTcpServer(new Config()));
+    }
+
+    @Test
+    public void testAioBindError() throws IOException {
+        testBindError(new AsynchronousTcpServer(new Config()));
+    }
+
+    private void testBindError(Server server) throws IOException {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            channel.bind(new InetSocketAddress("localhost", 0));
+            int port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+            try {
+                server.listen("localhost", port);
+                Assert.fail("the server listens on the bound port");
+            } catch (NetException e) {
+                Assert.assertThat(e.getCause(), instanceOf(IOException.class));
+            }
+        }
+    }
+}
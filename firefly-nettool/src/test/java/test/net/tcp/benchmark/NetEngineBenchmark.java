@@ -0,0 +1,161 @@
+package test.net.tcp.benchmark;
+
+import com.firefly.net.*;
+import com.firefly.utils.concurrent.Callback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compare the throughput and latency of the asynchronous channel group engine and the selector engine.
+ * Every benchmark thread owns one connection and sends a message to the echo server, then waits for the response.
+ *
+ * @author Pengtao Qiu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetEngineBenchmark {
+
+    private static final String HOST = "localhost";
+    private static final int PORT = 18122;
+    private static final int MESSAGE_SIZE = 64;
+
+    @Param({"AIO", "NIO"})
+    private NetEngine engine;
+
+    private Server server;
+    private Client client;
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        private final CompletableFuture<Session> opened = new CompletableFuture<>();
+        private final Semaphore responses = new Semaphore(0);
+        private Session session;
+        private ByteBuffer message;
+        private int receivedBytes;
+
+        @Setup(Level.Trial)
+        public void setup(NetEngineBenchmark benchmark) throws Exception {
+            int sessionId = benchmark.sessionId.getAndIncrement();
+            benchmark.connections.put(sessionId, this);
+            benchmark.client.connect(HOST, PORT, sessionId);
+            session = opened.get(5, TimeUnit.SECONDS);
+            message = ByteBuffer.allocate(MESSAGE_SIZE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            session.closeNow();
+        }
+
+        private void receive(int bytes) {
+            receivedBytes += bytes;
+            if (receivedBytes >= MESSAGE_SIZE) {
+                responses.release(receivedBytes / MESSAGE_SIZE);
+                receivedBytes %= MESSAGE_SIZE;
+            }
+        }
+    }
+
+    private final AtomicInteger sessionId = new AtomicInteger();
+    private final Map<Integer, Connection> connections = new ConcurrentHashMap<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Config serverConfig = new Config();
+        serverConfig.setNetEngine(engine);
+        serverConfig.setDecoder((buf, session) -> {
+            ByteBuffer echo = ByteBuffer.allocate(buf.remaining());
+            echo.put(buf).flip();
+            session.write(echo, Callback.NOOP);
+        });
+        serverConfig.setEncoder((message, session) -> {
+        });
+        serverConfig.setHandler(new EmptyHandler());
+        server = engine.createServer(serverConfig);
+        server.listen(HOST, PORT);
+
+        Config clientConfig = new Config();
+        clientConfig.setNetEngine(engine);
+        clientConfig.setDecoder((buf, session) -> {
+            int bytes = buf.remaining();
+            buf.position(buf.limit());
+            ((Connection) session.getAttachment()).receive(bytes);
+        });
+        clientConfig.setEncoder((message, session) -> {
+        });
+        clientConfig.setHandler(new EmptyHandler() {
+            @Override
+            public void sessionOpened(Session session) {
+                Connection connection = connections.remove(session.getSessionId());
+                session.attachObject(connection);
+                connection.opened.complete(session);
+            }
+        });
+        client = engine.createClient(clientConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.stop();
+        server.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void echo1Thread(Connection connection) throws InterruptedException {
+        echo(connection);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void echo8Threads(Connection connection) throws InterruptedException {
+        echo(connection);
+    }
+
+    private void echo(Connection connection) throws InterruptedException {
+        connection.session.write(connection.message.duplicate(), Callback.NOOP);
+        connection.responses.acquire();
+    }
+
+    private static class EmptyHandler implements Handler {
+
+        @Override
+        public void sessionOpened(Session session) {
+        }
+
+        @Override
+        public void sessionClosed(Session session) {
+        }
+
+        @Override
+        public void messageReceived(Session session, Object message) {
+        }
+
+        @Override
+        public void exceptionCaught(Session session, Throwable t) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NetEngineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
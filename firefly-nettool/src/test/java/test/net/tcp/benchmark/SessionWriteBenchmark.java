@@ -0,0 +1,142 @@
+package test.net.tcp.benchmark;
+
+import com.firefly.net.Config;
+import com.firefly.net.Handler;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.aio.AsynchronousTcpClient;
+import com.firefly.net.tcp.aio.AsynchronousTcpServer;
+import com.firefly.utils.concurrent.Callback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the throughput of the concurrent writers of one TCP session. The pending writes are bounded,
+ * so the writers wait for the socket when the output queue is full.
+ *
+ * @author Pengtao Qiu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionWriteBenchmark {
+
+    private static final String HOST = "localhost";
+    private static final int PORT = 18121;
+    private static final int MAX_PENDING_WRITES = 4096;
+    private static final int MESSAGE_SIZE = 64;
+
+    private AsynchronousTcpServer server;
+    private AsynchronousTcpClient client;
+    private Session session;
+    private ByteBuffer message;
+    private Semaphore pendingWrites;
+    private Callback callback;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Config serverConfig = new Config();
+        serverConfig.setDecoder((buf, session) -> buf.position(buf.limit()));
+        serverConfig.setEncoder((message, session) -> {
+        });
+        serverConfig.setHandler(new EmptyHandler());
+        server = new AsynchronousTcpServer(serverConfig);
+        server.listen(HOST, PORT);
+
+        CompletableFuture<Session> opened = new CompletableFuture<>();
+        Config clientConfig = new Config();
+        clientConfig.setDecoder((buf, session) -> buf.position(buf.limit()));
+        clientConfig.setEncoder((message, session) -> {
+        });
+        clientConfig.setHandler(new EmptyHandler() {
+            @Override
+            public void sessionOpened(Session session) {
+                opened.complete(session);
+            }
+        });
+        client = new AsynchronousTcpClient(clientConfig);
+        client.connect(HOST, PORT);
+        session = opened.get(5, TimeUnit.SECONDS);
+
+        message = ByteBuffer.allocate(MESSAGE_SIZE);
+        pendingWrites = new Semaphore(MAX_PENDING_WRITES);
+        callback = new Callback() {
+            @Override
+            public void succeeded() {
+                pendingWrites.release();
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                pendingWrites.release();
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pendingWrites.tryAcquire(MAX_PENDING_WRITES, 5, TimeUnit.SECONDS);
+        session.closeNow();
+        client.stop();
+        server.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write1Thread() throws InterruptedException {
+        write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void write4Threads() throws InterruptedException {
+        write();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void write16Threads() throws InterruptedException {
+        write();
+    }
+
+    private void write() throws InterruptedException {
+        pendingWrites.acquire();
+        session.write(message.duplicate(), callback);
+    }
+
+    private static class EmptyHandler implements Handler {
+
+        @Override
+        public void sessionOpened(Session session) {
+        }
+
+        @Override
+        public void sessionClosed(Session session) {
+        }
+
+        @Override
+        public void messageReceived(Session session, Object message) {
+        }
+
+        @Override
+        public void exceptionCaught(Session session, Throwable t) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SessionWriteBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
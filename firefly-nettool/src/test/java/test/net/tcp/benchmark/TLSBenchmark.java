@@ -0,0 +1,97 @@
+package test.net.tcp.benchmark;
+
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpConfiguration;
+import com.firefly.net.tcp.TcpConnection;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import test.net.ssl.PemSSLContextFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the write throughput of the TLS connection with the plaintext connection of the simple TCP server.
+ * A message consists of several application buffers, the TLS connection wraps them into as few records as possible.
+ *
+ * @author Pengtao Qiu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TLSBenchmark {
+
+    private static final String HOST = "localhost";
+    private static final int PORT = 18122;
+    private static final int MAX_PENDING_WRITES = 256;
+    private static final int BUFFERS_PER_MESSAGE = 4;
+
+    @Param({"false", "true"})
+    private boolean secure;
+
+    @Param({"1024", "16384", "131072"})
+    private int messageSize;
+
+    private SimpleTcpServer server;
+    private SimpleTcpClient client;
+    private TcpConnection connection;
+    private ByteBuffer[] message;
+    private Semaphore pendingWrites;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setSecureConnectionEnabled(secure);
+        serverConfig.setSslContextFactory(new PemSSLContextFactory());
+        server = new SimpleTcpServer(serverConfig);
+        server.accept(connection -> connection.receive(buf -> buf.position(buf.limit())))
+              .listen(HOST, PORT);
+
+        TcpConfiguration clientConfig = new TcpConfiguration();
+        clientConfig.setSecureConnectionEnabled(secure);
+        clientConfig.setSslContextFactory(new PemSSLContextFactory());
+        client = new SimpleTcpClient(clientConfig);
+        connection = client.connect(HOST, PORT).get(5, TimeUnit.SECONDS);
+
+        message = new ByteBuffer[BUFFERS_PER_MESSAGE];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = ByteBuffer.allocate(messageSize / BUFFERS_PER_MESSAGE);
+        }
+        pendingWrites = new Semaphore(MAX_PENDING_WRITES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pendingWrites.tryAcquire(MAX_PENDING_WRITES, 5, TimeUnit.SECONDS);
+        connection.closeNow();
+        client.stop();
+        server.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write() throws InterruptedException {
+        ByteBuffer[] buffers = new ByteBuffer[message.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = message[i].duplicate();
+        }
+        pendingWrites.acquire();
+        connection.write(buffers, pendingWrites::release, t -> pendingWrites.release());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TLSBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
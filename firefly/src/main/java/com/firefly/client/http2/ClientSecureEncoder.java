@@ -35,9 +35,17 @@ public class ClientSecureEncoder extends EncoderChain {
 			if (message instanceof ByteBuffer) {
 				HTTP1ClientConnection http1ClientConnection = (HTTP1ClientConnection) connection;
 				http1ClientConnection.getSSLSession().write((ByteBuffer) message, Callback.NOOP);
+			} else if (message instanceof ByteBufferOutputEntry) {
+				HTTP1ClientConnection http1ClientConnection = (HTTP1ClientConnection) connection;
+				ByteBufferOutputEntry outputEntry = (ByteBufferOutputEntry) message;
+				http1ClientConnection.getSSLSession().write(outputEntry.getData(), outputEntry.getCallback());
+			} else if (message instanceof ByteBufferArrayOutputEntry) {
+				HTTP1ClientConnection http1ClientConnection = (HTTP1ClientConnection) connection;
+				ByteBufferArrayOutputEntry outputEntry = (ByteBufferArrayOutputEntry) message;
+				http1ClientConnection.getSSLSession().write(outputEntry.getData(), outputEntry.getCallback());
 			} else {
 				throw new IllegalArgumentException(
-						"the http1 encoder must receive the ByteBuffer, but this message type is "
+						"the http1 encoder must receive the ByteBuffer, ByteBufferOutputEntry and ByteBufferArrayOutputEntry, but this message type is "
 								+ message.getClass());
 			}
 			break;
@@ -132,10 +132,6 @@ public class HTTP1ClientConnection extends AbstractHTTP1Connection implements HT
 		return config;
 	}
 
-	Session getTcpSession() {
-		return tcpSession;
-	}
-
 	boolean upgradeProtocolToHTTP2(MetaData.Request request, MetaData.Response response) {
 		if (http2ConnectionPromise != null && http2Sessionlistener != null) {
 			String upgradeValue = response.getFields().get(HttpHeader.UPGRADE);
@@ -313,8 +309,8 @@ public class HTTP1ClientConnection extends AbstractHTTP1Connection implements HT
 		}
 
 		@Override
-		protected ByteBuffer getHeaderByteBuffer() {
-			return BufferUtils.allocate(connection.getHTTP2Configuration().getMaxRequestHeadLength());
+		protected HTTP1BufferArena getBufferArena() {
+			return connection.getBufferArena();
 		}
 
 		@Override
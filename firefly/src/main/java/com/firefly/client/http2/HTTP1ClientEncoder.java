@@ -3,6 +3,8 @@ package com.firefly.client.http2;
 import java.nio.ByteBuffer;
 
 import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.EncoderChain;
 import com.firefly.net.Session;
 import com.firefly.utils.concurrent.Callback;
@@ -27,9 +29,13 @@ public class HTTP1ClientEncoder extends EncoderChain {
 			} else {
 				if (message instanceof ByteBuffer) {
 					session.write((ByteBuffer) message, Callback.NOOP);
+				} else if (message instanceof ByteBufferOutputEntry) {
+					session.write((ByteBufferOutputEntry) message);
+				} else if (message instanceof ByteBufferArrayOutputEntry) {
+					session.write((ByteBufferArrayOutputEntry) message);
 				} else {
 					throw new IllegalArgumentException(
-							"the http1 encoder must receive the ByteBuffer, but this message type is "
+							"the http1 encoder must receive the ByteBuffer, ByteBufferOutputEntry and ByteBufferArrayOutputEntry, but this message type is "
 									+ message.getClass());
 				}
 			}
@@ -6,7 +6,6 @@ import com.firefly.codec.http2.stream.Session.Listener;
 import com.firefly.net.Client;
 import com.firefly.net.DecoderChain;
 import com.firefly.net.EncoderChain;
-import com.firefly.net.tcp.aio.AsynchronousTcpClient;
 import com.firefly.utils.concurrent.Promise;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.log.LogFactory;
@@ -42,7 +41,8 @@ public class HTTP2Client extends AbstractLifeCycle {
         http2Configuration.getTcpConfiguration().setEncoder(encoder);
         http2Configuration.getTcpConfiguration()
                           .setHandler(new HTTP2ClientHandler(http2Configuration, http2ClientContext));
-        this.client = new AsynchronousTcpClient(http2Configuration.getTcpConfiguration());
+        this.client = http2Configuration.getTcpConfiguration().getNetEngine()
+                .createClient(http2Configuration.getTcpConfiguration());
         this.http2Configuration = http2Configuration;
     }
 
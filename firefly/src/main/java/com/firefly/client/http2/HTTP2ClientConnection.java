@@ -81,7 +81,7 @@ public class HTTP2ClientConnection extends AbstractHTTP2Connection implements HT
 	@Override
 	protected Parser initParser(HTTP2Configuration config) {
 		return new Parser((HTTP2ClientSession) http2Session, config.getMaxDynamicTableSize(),
-				config.getMaxRequestHeadLength());
+				config.getMaxRequestHeadLength(), config.getHeaderBlockBufferPool());
 	}
 
 	Parser getParser() {
@@ -0,0 +1,381 @@
+package com.firefly.client.http2;
+
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.stream.HTTP2Session;
+import com.firefly.codec.http2.stream.Session;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.lang.pool.CompletableObjectFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The connection pool of a destination (host and port) that is shared by all threads.
+ * <p>
+ * The HTTP/2 requests are multiplexed over the open connections, a connection takes requests until its
+ * active streams reach the SETTINGS_MAX_CONCURRENT_STREAMS of the peer, another connection is opened only
+ * when all connections are saturated. An HTTP/1 connection serves one request at a time.
+ * </p>
+ * <p>
+ * The pool opens at most maxConnections connections. The requests wait in the pending queue when all
+ * connections are busy, and they are rejected when the queue has maxPendingRequests requests.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+public class HTTPClientConnectionPool extends AbstractLifeCycle {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final CompletableObjectFactory<HTTPClientConnection> connectionFactory;
+    private final int maxConnections;
+    private final int maxPendingRequests;
+
+    private final List<PooledConnection> connections = new ArrayList<>();
+    private final ArrayDeque<Promise.Completable<Lease>> pendingRequests = new ArrayDeque<>();
+    private int connecting;
+
+    /**
+     * @param connectionFactory  The factory opens the connections of the destination
+     * @param maxConnections     The max number of the open and opening connections
+     * @param maxPendingRequests The max number of the requests that wait for a connection
+     */
+    public HTTPClientConnectionPool(CompletableObjectFactory<HTTPClientConnection> connectionFactory,
+                                    int maxConnections, int maxPendingRequests) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections: " + maxConnections);
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxConnections = maxConnections;
+        this.maxPendingRequests = maxPendingRequests;
+        start();
+    }
+
+    /**
+     * Take a connection lease. The lease must be released when the exchange completes.
+     *
+     * @return The future of the lease, it fails with the {@link RejectedExecutionException} when the
+     * pending queue is full or the pool is stopped
+     */
+    public Promise.Completable<Lease> take() {
+        Promise.Completable<Lease> promise = new Promise.Completable<>();
+        Lease lease = null;
+        boolean connect = false;
+        boolean rejected = false;
+        synchronized (this) {
+            if (!isStarted()) {
+                rejected = true;
+            } else {
+                purge();
+                PooledConnection pooled = select();
+                if (pooled != null) {
+                    lease = pooled.lease();
+                } else if (pendingRequests.size() < maxPendingRequests) {
+                    pendingRequests.offer(promise);
+                    connect = needConnect();
+                    if (connect) {
+                        connecting++;
+                    }
+                } else {
+                    rejected = true;
+                }
+            }
+        }
+
+        if (lease != null) {
+            promise.succeeded(lease);
+        } else if (rejected) {
+            promise.failed(new RejectedExecutionException("the connection pool is exhausted, max connections: "
+                    + maxConnections + ", max pending requests: " + maxPendingRequests));
+        } else if (connect) {
+            connect();
+        }
+        return promise;
+    }
+
+    /**
+     * Get the number of the open connections.
+     *
+     * @return The number of the open connections
+     */
+    public synchronized int size() {
+        purge();
+        return connections.size();
+    }
+
+    public synchronized int getPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    public synchronized int getActiveRequests() {
+        int active = 0;
+        for (PooledConnection pooled : connections) {
+            active += pooled.active;
+        }
+        return active;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    /**
+     * Get the max number of the concurrent requests of the connection.
+     *
+     * @param connection The HTTP connection
+     * @return The SETTINGS_MAX_CONCURRENT_STREAMS of the peer for the HTTP/2 connection, or -1 if the peer does
+     * not limit the streams. It is 1 for the HTTP/1 connection.
+     */
+    protected int getMaxConcurrentRequests(HTTPClientConnection connection) {
+        if (connection.getHttpVersion() != HttpVersion.HTTP_2) {
+            return 1;
+        }
+        if (connection instanceof HTTP2ClientConnection) {
+            Session session = ((HTTP2ClientConnection) connection).getHttp2Session();
+            if (session instanceof HTTP2Session) {
+                return ((HTTP2Session) session).getMaxLocalStreams();
+            }
+        }
+        return -1;
+    }
+
+    private void connect() {
+        connectionFactory.createNew().thenAccept(this::onConnected).exceptionally(e -> {
+            onConnectFailed(e);
+            return null;
+        });
+    }
+
+    private void onConnected(HTTPClientConnection connection) {
+        List<Promise.Completable<Lease>> promises = new ArrayList<>();
+        List<Lease> leases = new ArrayList<>();
+        boolean closed = false;
+        synchronized (this) {
+            connecting--;
+            if (!isStarted()) {
+                closed = true;
+            } else {
+                PooledConnection pooled = new PooledConnection(connection);
+                connections.add(pooled);
+                dispatch(promises, leases);
+            }
+        }
+        log.debug("the connection {} of the pool is open, dispatch {} pending requests",
+                connection.getSessionId(), leases.size());
+
+        if (closed) {
+            close(connection);
+        }
+        complete(promises, leases);
+    }
+
+    private void onConnectFailed(Throwable e) {
+        List<Promise.Completable<Lease>> promises = new ArrayList<>();
+        synchronized (this) {
+            connecting--;
+            if (connections.isEmpty() && connecting == 0) {
+                // no connection will serve the pending requests
+                promises.addAll(pendingRequests);
+                pendingRequests.clear();
+            }
+        }
+        log.error("open connection exception", e);
+        promises.forEach(p -> p.failed(e));
+    }
+
+    private void release(Lease lease) {
+        List<Promise.Completable<Lease>> promises = new ArrayList<>();
+        List<Lease> leases = new ArrayList<>();
+        PooledConnection pooled = lease.pooled;
+        boolean closed = false;
+        synchronized (this) {
+            pooled.active--;
+            if (!isStarted() || !pooled.connection.isOpen()) {
+                connections.remove(pooled);
+                closed = pooled.active == 0;
+            }
+            if (isStarted()) {
+                purge();
+                dispatch(promises, leases);
+            }
+        }
+
+        if (closed) {
+            close(pooled.connection);
+        }
+        complete(promises, leases);
+    }
+
+    /**
+     * Assign the connections to the pending requests and open the connections that the remained pending
+     * requests need. It is called under the lock.
+     */
+    private void dispatch(List<Promise.Completable<Lease>> promises, List<Lease> leases) {
+        while (!pendingRequests.isEmpty()) {
+            PooledConnection pooled = select();
+            if (pooled == null) {
+                break;
+            }
+            promises.add(pendingRequests.poll());
+            leases.add(pooled.lease());
+        }
+
+        int count = 0;
+        while (needConnect()) {
+            connecting++;
+            count++;
+        }
+        for (int i = 0; i < count; i++) {
+            // the connection factory completes the promise asynchronously
+            connect();
+        }
+    }
+
+    private void complete(List<Promise.Completable<Lease>> promises, List<Lease> leases) {
+        for (int i = 0; i < promises.size(); i++) {
+            promises.get(i).succeeded(leases.get(i));
+        }
+    }
+
+    /**
+     * Select the connection that has the fewest active requests under its limit.
+     */
+    private PooledConnection select() {
+        PooledConnection selected = null;
+        for (PooledConnection pooled : connections) {
+            if (pooled.isAvailable() && (selected == null || pooled.active < selected.active)) {
+                selected = pooled;
+            }
+        }
+        return selected;
+    }
+
+    private boolean needConnect() {
+        if (pendingRequests.isEmpty() || connections.size() + connecting >= maxConnections) {
+            return false;
+        }
+        if (connections.isEmpty() || connections.get(0).connection.getHttpVersion() == HttpVersion.HTTP_2) {
+            // the first connection may be HTTP/2, the other requests wait for it instead of opening connections,
+            // and another HTTP/2 connection is opened only when the others are saturated
+            return connecting == 0;
+        } else {
+            return pendingRequests.size() > connecting;
+        }
+    }
+
+    private void purge() {
+        Iterator<PooledConnection> iterator = connections.iterator();
+        while (iterator.hasNext()) {
+            PooledConnection pooled = iterator.next();
+            if (!pooled.connection.isOpen()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void close(HTTPClientConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.error("close http connection exception", e);
+        }
+    }
+
+    @Override
+    protected void init() {
+    }
+
+    /**
+     * Close the idle connections and reject the pending requests. The connections in use are closed when
+     * their leases are released.
+     */
+    @Override
+    protected void destroy() {
+        List<Promise.Completable<Lease>> promises;
+        List<HTTPClientConnection> idle = new ArrayList<>();
+        synchronized (this) {
+            promises = new ArrayList<>(pendingRequests);
+            pendingRequests.clear();
+            Iterator<PooledConnection> iterator = connections.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (pooled.active == 0) {
+                    idle.add(pooled.connection);
+                    iterator.remove();
+                }
+            }
+        }
+        idle.forEach(this::close);
+        promises.forEach(p -> p.failed(new RejectedExecutionException("the connection pool is stopped")));
+    }
+
+    private class PooledConnection {
+        private final HTTPClientConnection connection;
+        private int active;
+
+        private PooledConnection(HTTPClientConnection connection) {
+            this.connection = connection;
+        }
+
+        private boolean isAvailable() {
+            if (!connection.isOpen()) {
+                return false;
+            }
+            int max = getMaxConcurrentRequests(connection);
+            return max < 0 || active < max;
+        }
+
+        private Lease lease() {
+            active++;
+            return new Lease(this);
+        }
+    }
+
+    /**
+     * The lease of one exchange on a pooled connection. An HTTP/2 connection is leased once per active
+     * stream, so the leases of the concurrent requests may share the connection.
+     */
+    public class Lease {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        public HTTPClientConnection getConnection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Free the exchange slot of the connection for the pending requests. The connection is removed from
+         * the pool if it has been closed, and it is closed after its last lease is released. Calling it more
+         * than once has no effect.
+         *
+         * @return True if the lease is released by this call
+         */
+        public boolean release() {
+            if (released.compareAndSet(false, true)) {
+                HTTPClientConnectionPool.this.release(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isReleased() {
+            return released.get();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.HTTP2Configuration;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
-import com.firefly.utils.collection.ConcurrentReferenceHashMap;
 import com.firefly.utils.concurrent.Promise;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action3;
@@ -12,13 +11,10 @@ import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.io.EofException;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.lang.AbstractLifeCycle;
-import com.firefly.utils.lang.pool.AsynchronousPool;
-import com.firefly.utils.lang.pool.ThreadLocalAsynchronousPool;
 import com.firefly.utils.time.Millisecond100Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -29,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleHTTPClient extends AbstractLifeCycle {
 
@@ -36,15 +33,30 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     private static Logger monitor = LoggerFactory.getLogger("firefly-monitor");
 
     private final HTTP2Client http2Client;
+    private final int maxConnectionsPerDestination;
+    private final int maxPendingRequestsPerDestination;
 
-    private final Map<RequestBuilder, AsynchronousPool<HTTPClientConnection>> poolMap = new ConcurrentReferenceHashMap<>();
+    private final Map<RequestBuilder, HTTPClientConnectionPool> poolMap = new ConcurrentHashMap<>();
 
     public SimpleHTTPClient() {
-        this(new HTTP2Configuration());
+        this(new SimpleHTTPClientConfiguration());
     }
 
     public SimpleHTTPClient(HTTP2Configuration http2Configuration) {
+        this(http2Configuration, SimpleHTTPClientConfiguration.DEFAULT_MAX_CONNECTIONS_PER_DESTINATION,
+                SimpleHTTPClientConfiguration.DEFAULT_MAX_PENDING_REQUESTS_PER_DESTINATION);
+    }
+
+    public SimpleHTTPClient(SimpleHTTPClientConfiguration configuration) {
+        this(configuration, configuration.getMaxConnectionsPerDestination(),
+                configuration.getMaxPendingRequestsPerDestination());
+    }
+
+    private SimpleHTTPClient(HTTP2Configuration http2Configuration, int maxConnectionsPerDestination,
+                             int maxPendingRequestsPerDestination) {
         http2Client = new HTTP2Client(http2Configuration);
+        this.maxConnectionsPerDestination = maxConnectionsPerDestination;
+        this.maxPendingRequestsPerDestination = maxPendingRequestsPerDestination;
         start();
     }
 
@@ -104,7 +116,9 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         }
 
         public RequestBuilder jsonBody(Object obj) {
-            return put(HttpHeader.CONTENT_TYPE, MimeTypes.Type.APPLICATION_JSON.asString()).body(Json.toJson(obj));
+            put(HttpHeader.CONTENT_TYPE, MimeTypes.Type.APPLICATION_JSON.asString());
+            requestBody.addAll(Json.toJsonBuffers(obj));
+            return this;
         }
 
         public RequestBuilder body(String content) {
@@ -213,14 +227,21 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         RequestBuilder req = new RequestBuilder();
         req.host = url.getHost();
         req.port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
-        poolMap.remove(req);
+        removeConnectionPool(req);
     }
 
     public void removeConnectionPool(String host, int port) {
         RequestBuilder req = new RequestBuilder();
         req.host = host;
         req.port = port;
-        poolMap.remove(req);
+        removeConnectionPool(req);
+    }
+
+    private void removeConnectionPool(RequestBuilder req) {
+        HTTPClientConnectionPool pool = poolMap.remove(req);
+        if (pool != null) {
+            pool.stop();
+        }
     }
 
     public int getConnectionPoolSize(String host, int port) {
@@ -247,7 +268,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     }
 
     private int _getPoolSize(RequestBuilder req) {
-        AsynchronousPool<HTTPClientConnection> pool = poolMap.get(req);
+        HTTPClientConnectionPool pool = poolMap.get(req);
         if (pool != null) {
             return pool.size();
         } else {
@@ -302,26 +323,12 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         }
     }
 
-    private void release(HTTPClientConnection connection, AsynchronousPool<HTTPClientConnection> pool) {
-        boolean released = (Boolean) connection.getAttachment();
-        if (!released) {
-            connection.setAttachment(true);
-            pool.release(connection);
-        }
-    }
-
     protected void send(RequestBuilder r) {
         long start = Millisecond100Clock.currentTimeMillis();
-        AsynchronousPool<HTTPClientConnection> pool = getPool(r);
-        pool.take().thenAccept(connection -> {
-            connection.setAttachment(false);
-
-            if (connection.getHttpVersion() == HttpVersion.HTTP_2) {
-                release(connection, pool);
-            }
-
-            log.debug("take the connection {} from pool, released: {}", connection.getSessionId(),
-                    connection.getAttachment());
+        HTTPClientConnectionPool pool = getPool(r);
+        pool.take().thenAccept(lease -> {
+            HTTPClientConnection connection = lease.getConnection();
+            log.debug("take the connection {} from pool", connection.getSessionId());
 
             ClientHTTPHandler handler = new ClientHTTPHandler.Adapter()
                     .headerComplete((req, resp, outputStream, conn) -> {
@@ -335,9 +342,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                         }
                         return false;
                     }).messageComplete((req, resp, outputStream, conn) -> {
-                        release(connection, pool);
-                        log.debug("complete request of the connection {} , released: {}", connection.getSessionId(),
-                                connection.getAttachment());
+                        lease.release();
+                        log.debug("complete request of the connection {} ", connection.getSessionId());
                         if (r.messageComplete != null) {
                             r.messageComplete.call(resp);
                         }
@@ -354,9 +360,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                         }
                         return false;
                     }).badMessage((errCode, reason, req, resp, outputStream, conn) -> {
-                        release(connection, pool);
-                        log.debug("bad message of the connection {} , released: {}", connection.getSessionId(),
-                                connection.getAttachment());
+                        lease.release();
+                        log.debug("bad message of the connection {} ", connection.getSessionId());
                         if (r.badMessage != null) {
                             r.badMessage.call(errCode, reason, resp);
                         }
@@ -367,9 +372,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                             r.future.failed(new BadMessageException(errCode, reason));
                         }
                     }).earlyEOF((req, resp, outputStream, conn) -> {
-                        release(connection, pool);
-                        log.debug("eafly EOF of the connection {} , released: {}", connection.getSessionId(),
-                                connection.getAttachment());
+                        lease.release();
+                        log.debug("eafly EOF of the connection {} ", connection.getSessionId());
                         if (r.earlyEof != null) {
                             r.earlyEof.call(resp);
                         }
@@ -381,42 +385,46 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                         }
                     });
 
-            if (r.requestBody != null && !r.requestBody.isEmpty()) {
-                connection.send(r.request, r.requestBody.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY), handler);
-            } else if (r.promise != null) {
-                connection.send(r.request, r.promise, handler);
-            } else if (r.output != null) {
-                Promise<HTTPOutputStream> p = new Promise<HTTPOutputStream>() {
-                    public void succeeded(HTTPOutputStream out) {
-                        r.output.call(out);
-                    }
-                };
-                connection.send(r.request, p, handler);
-            } else {
-                connection.send(r.request, handler);
+            try {
+                if (r.requestBody != null && !r.requestBody.isEmpty()) {
+                    connection.send(r.request, r.requestBody.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY), handler);
+                } else if (r.promise != null) {
+                    connection.send(r.request, r.promise, handler);
+                } else if (r.output != null) {
+                    Promise<HTTPOutputStream> p = new Promise<HTTPOutputStream>() {
+                        public void succeeded(HTTPOutputStream out) {
+                            r.output.call(out);
+                        }
+                    };
+                    connection.send(r.request, p, handler);
+                } else {
+                    connection.send(r.request, handler);
+                }
+            } catch (RuntimeException e) {
+                lease.release();
+                throw e;
             }
             long end = Millisecond100Clock.currentTimeMillis();
             monitor.info("SimpleHTTPClient take connection total time: {}", (end - start));
         }).exceptionally(e -> {
             log.error("SimpleHTTPClient sends message exception", e);
+            if (r.future != null) {
+                r.future.failed(e);
+            }
             return null;
         });
     }
 
-    private AsynchronousPool<HTTPClientConnection> getPool(RequestBuilder request) {
-        AsynchronousPool<HTTPClientConnection> pool = poolMap.get(request);
+    private HTTPClientConnectionPool getPool(RequestBuilder request) {
+        HTTPClientConnectionPool pool = poolMap.get(request);
         if (pool == null) {
-            pool = new ThreadLocalAsynchronousPool<>(() -> http2Client.connect(request.host, request.port),
-                    HTTPClientConnection::isOpen,
-                    (conn) -> {
-                        try {
-                            conn.close();
-                        } catch (IOException e) {
-                            log.error("close http connection exception", e);
-                        }
-                    });
-            poolMap.put(request, pool);
-            return pool;
+            // the key keeps the destination only, not the request of the builder
+            RequestBuilder destination = new RequestBuilder();
+            destination.host = request.host;
+            destination.port = request.port;
+            pool = poolMap.computeIfAbsent(destination, d -> new HTTPClientConnectionPool(
+                    () -> http2Client.connect(d.host, d.port),
+                    maxConnectionsPerDestination, maxPendingRequestsPerDestination));
         }
         return pool;
     }
@@ -428,6 +436,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
 
     @Override
     protected void destroy() {
+        poolMap.values().forEach(HTTPClientConnectionPool::stop);
+        poolMap.clear();
         http2Client.stop();
     }
 }
@@ -4,4 +4,52 @@ import com.firefly.codec.http2.stream.HTTP2Configuration;
 
 public class SimpleHTTPClientConfiguration extends HTTP2Configuration {
 
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_DESTINATION = 16;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS_PER_DESTINATION = 1024;
+
+    private int maxConnectionsPerDestination = DEFAULT_MAX_CONNECTIONS_PER_DESTINATION;
+    private int maxPendingRequestsPerDestination = DEFAULT_MAX_PENDING_REQUESTS_PER_DESTINATION;
+
+    /**
+     * Get the max number of the connections of a destination (host and port).
+     *
+     * @return The max number of the connections, the default value is 16.
+     */
+    public int getMaxConnectionsPerDestination() {
+        return maxConnectionsPerDestination;
+    }
+
+    /**
+     * Set the max number of the connections of a destination (host and port).
+     * The HTTP/2 requests are multiplexed, another connection is opened only
+     * when the streams of the open connections reach the max concurrent
+     * streams of the server.
+     *
+     * @param maxConnectionsPerDestination The max number of the connections
+     */
+    public void setMaxConnectionsPerDestination(int maxConnectionsPerDestination) {
+        this.maxConnectionsPerDestination = maxConnectionsPerDestination;
+    }
+
+    /**
+     * Get the max number of the requests that wait for a connection of a
+     * destination.
+     *
+     * @return The max number of the pending requests, the default value is
+     * 1024.
+     */
+    public int getMaxPendingRequestsPerDestination() {
+        return maxPendingRequestsPerDestination;
+    }
+
+    /**
+     * Set the max number of the requests that wait for a connection of a
+     * destination. The requests are rejected when the pending queue is full.
+     *
+     * @param maxPendingRequestsPerDestination The max number of the pending
+     *                                         requests
+     */
+    public void setMaxPendingRequestsPerDestination(int maxPendingRequestsPerDestination) {
+        this.maxPendingRequestsPerDestination = maxPendingRequestsPerDestination;
+    }
 }
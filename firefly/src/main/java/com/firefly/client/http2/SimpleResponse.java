@@ -47,15 +47,27 @@ public class SimpleResponse {
 	}
 
 	public <T> T getJsonBody(Class<T> clazz) {
-		return Json.toObject(getStringBody(), clazz);
+		if (stringBody != null) {
+			return Json.toObject(stringBody, clazz);
+		} else {
+			return Json.toObject(responseBody, clazz);
+		}
 	}
 
 	public JsonObject getJsonObjectBody() {
-		return Json.toJsonObject(getStringBody());
+		if (stringBody != null) {
+			return Json.toJsonObject(stringBody);
+		} else {
+			return Json.toJsonObject(responseBody);
+		}
 	}
 
 	public JsonArray getJsonArrayBody() {
-		return Json.toJsonArray(getStringBody());
+		if (stringBody != null) {
+			return Json.toJsonArray(stringBody);
+		} else {
+			return Json.toJsonArray(responseBody);
+		}
 	}
 
 	public List<Cookie> getCookies() {
@@ -67,7 +67,12 @@ public class ContinuationBodyParser extends BodyParser {
 
 	private void onHeaders() {
 		ByteBuffer headerBlock = headerBlockFragments.complete();
-		MetaData metaData = headerBlockParser.parse(headerBlock, headerBlock.remaining());
+		MetaData metaData;
+		try {
+			metaData = headerBlockParser.parse(headerBlock, headerBlock.remaining());
+		} finally {
+			headerBlockFragments.release(headerBlock);
+		}
 		HeadersFrame frame = new HeadersFrame(getStreamId(), metaData, headerBlockFragments.getPriorityFrame(),
 				headerBlockFragments.isEndStream());
 		notifyHeaders(frame);
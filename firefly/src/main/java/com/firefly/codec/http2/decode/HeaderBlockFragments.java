@@ -3,26 +3,44 @@ package com.firefly.codec.http2.decode;
 import java.nio.ByteBuffer;
 
 import com.firefly.codec.http2.frame.PriorityFrame;
+import com.firefly.net.BufferPool;
 
 public class HeaderBlockFragments {
+	private final BufferPool bufferPool;
 	private PriorityFrame priorityFrame;
 	private boolean endStream;
 	private int streamId;
 	private ByteBuffer storage;
 
+	public HeaderBlockFragments() {
+		this(null);
+	}
+
+	/**
+	 * Create the header block fragments.
+	 * 
+	 * @param bufferPool
+	 *            The heap buffer pool of the fragment storage, or null to
+	 *            allocate the storage
+	 */
+	public HeaderBlockFragments(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
 	public void storeFragment(ByteBuffer fragment, int length, boolean last) {
 		if (storage == null) {
 			int space = last ? length : length * 2;
-			storage = ByteBuffer.allocate(space);
+			storage = acquire(space);
 		}
 
 		// Grow the storage if necessary.
 		if (storage.remaining() < length) {
 			int space = last ? length : length * 2;
 			int capacity = storage.position() + space;
-			ByteBuffer newStorage = ByteBuffer.allocate(capacity);
+			ByteBuffer newStorage = acquire(capacity);
 			storage.flip();
 			newStorage.put(storage);
+			release(storage);
 			storage = newStorage;
 		}
 
@@ -56,6 +74,26 @@ public class HeaderBlockFragments {
 		return result;
 	}
 
+	/**
+	 * Return the completed header block to the pool after it is decoded.
+	 * 
+	 * @param headerBlock
+	 *            The header block that is returned by {@link #complete()}
+	 */
+	public void release(ByteBuffer headerBlock) {
+		if (bufferPool != null)
+			bufferPool.release(headerBlock);
+	}
+
+	private ByteBuffer acquire(int capacity) {
+		if (bufferPool == null)
+			return ByteBuffer.allocate(capacity);
+
+		ByteBuffer buffer = bufferPool.acquire(capacity);
+		buffer.clear();
+		return buffer;
+	}
+
 	public int getStreamId() {
 		return streamId;
 	}
@@ -4,14 +4,30 @@ import java.nio.ByteBuffer;
 
 import com.firefly.codec.http2.hpack.HpackDecoder;
 import com.firefly.codec.http2.model.MetaData;
+import com.firefly.net.BufferPool;
 import com.firefly.utils.io.BufferUtils;
 
 public class HeaderBlockParser {
 	private final HpackDecoder hpackDecoder;
+	private final BufferPool bufferPool;
 	private ByteBuffer blockBuffer;
 
 	public HeaderBlockParser(HpackDecoder hpackDecoder) {
+		this(hpackDecoder, null);
+	}
+
+	/**
+	 * Create the header block parser.
+	 * 
+	 * @param hpackDecoder
+	 *            The HPACK decoder
+	 * @param bufferPool
+	 *            The heap buffer pool of the header blocks that arrive in
+	 *            several reads, or null to allocate the buffers
+	 */
+	public HeaderBlockParser(HpackDecoder hpackDecoder, BufferPool bufferPool) {
 		this.hpackDecoder = hpackDecoder;
+		this.bufferPool = bufferPool;
 	}
 
 	public MetaData parse(ByteBuffer buffer, int blockLength) {
@@ -24,8 +40,9 @@ public class HeaderBlockParser {
 
 		if (buffer.remaining() < remaining) {
 			if (blockBuffer == null) {
-				blockBuffer = ByteBuffer.allocate(blockLength);
+				blockBuffer = acquire(blockLength);
 				BufferUtils.clearToFill(blockBuffer);
+				blockBuffer.limit(blockLength);
 			}
 			blockBuffer.put(buffer);
 			return null;
@@ -41,13 +58,37 @@ public class HeaderBlockParser {
 				toDecode = buffer;
 			}
 
-			MetaData result = hpackDecoder.decode(toDecode);
-			buffer.limit(limit);
-			
-			if(blockBuffer != null) {
-				blockBuffer = null;
+			try {
+				return hpackDecoder.decode(toDecode);
+			} finally {
+				buffer.limit(limit);
+				if (blockBuffer != null) {
+					release(blockBuffer);
+					blockBuffer = null;
+				}
 			}
-			return result;
 		}
 	}
+
+	/**
+	 * Acquire a buffer that accumulates the header block.
+	 * 
+	 * @param size
+	 *            The min capacity
+	 * @return The buffer
+	 */
+	public ByteBuffer acquire(int size) {
+		return bufferPool != null ? bufferPool.acquire(size) : ByteBuffer.allocate(size);
+	}
+
+	/**
+	 * Return the decoded header block buffer to the pool.
+	 * 
+	 * @param buffer
+	 *            The buffer that is acquired by {@link #acquire(int)}
+	 */
+	public void release(ByteBuffer buffer) {
+		if (bufferPool != null)
+			bufferPool.release(buffer);
+	}
 }
@@ -21,5 +21,9 @@ public abstract class FrameGenerator {
 		return headerGenerator.generate(frameType, Frame.HEADER_LENGTH + length, length, flags, streamId);
 	}
 
+	protected void generateHeader(ByteBuffer header, FrameType frameType, int length, int flags, int streamId) {
+		headerGenerator.generate(header, frameType, length, flags, streamId);
+	}
+
 	public abstract List<ByteBuffer> generate(Frame frame);
 }
@@ -7,6 +7,7 @@ import com.firefly.codec.http2.frame.DataFrame;
 import com.firefly.codec.http2.frame.Frame;
 import com.firefly.codec.http2.frame.FrameType;
 import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.net.BufferPool;
 import com.firefly.utils.lang.Pair;
 
 public class Generator {
@@ -14,22 +15,41 @@ public class Generator {
 	private final HpackEncoder hpackEncoder;
 	private final FrameGenerator[] generators;
 	private final DataGenerator dataGenerator;
+	private final HeaderBlockBuffers headerBlockBuffers;
 
 	public Generator() {
 		this(4096, 0);
 	}
 
 	public Generator(int maxDynamicTableSize, int maxHeaderBlockFragment) {
+		this(maxDynamicTableSize, maxHeaderBlockFragment, null);
+	}
 
+	/**
+	 * Create the HTTP/2 frame generator.
+	 * 
+	 * @param maxDynamicTableSize
+	 *            The HPACK dynamic table size
+	 * @param maxHeaderBlockFragment
+	 *            The max header block fragment length, 0 means the header
+	 *            block is not split
+	 * @param bufferPool
+	 *            The heap buffer pool of the header blocks, the pooled buffers
+	 *            must be released by {@link #releaseHeaderBlocks()} after the
+	 *            generated frames have been written. If it is null, the header
+	 *            block buffers are allocated
+	 */
+	public Generator(int maxDynamicTableSize, int maxHeaderBlockFragment, BufferPool bufferPool) {
+		headerBlockBuffers = new HeaderBlockBuffers(bufferPool);
 		headerGenerator = new HeaderGenerator();
 		hpackEncoder = new HpackEncoder(maxDynamicTableSize);
 
 		this.generators = new FrameGenerator[FrameType.values().length];
-		this.generators[FrameType.HEADERS.getType()] = new HeadersGenerator(headerGenerator, hpackEncoder, maxHeaderBlockFragment);
+		this.generators[FrameType.HEADERS.getType()] = new HeadersGenerator(headerGenerator, hpackEncoder, maxHeaderBlockFragment, headerBlockBuffers);
 		this.generators[FrameType.PRIORITY.getType()] = new PriorityGenerator(headerGenerator);
 		this.generators[FrameType.RST_STREAM.getType()] = new ResetGenerator(headerGenerator);
 		this.generators[FrameType.SETTINGS.getType()] = new SettingsGenerator(headerGenerator);
-		this.generators[FrameType.PUSH_PROMISE.getType()] = new PushPromiseGenerator(headerGenerator, hpackEncoder);
+		this.generators[FrameType.PUSH_PROMISE.getType()] = new PushPromiseGenerator(headerGenerator, hpackEncoder, headerBlockBuffers);
 		this.generators[FrameType.PING.getType()] = new PingGenerator(headerGenerator);
 		this.generators[FrameType.GO_AWAY.getType()] = new GoAwayGenerator(headerGenerator);
 		this.generators[FrameType.WINDOW_UPDATE.getType()] = new WindowUpdateGenerator(headerGenerator);
@@ -61,6 +81,26 @@ public class Generator {
 		return dataGenerator.generate(frame, maxLength);
 	}
 	
+	/**
+	 * Release the pooled header block buffers of the frames that have been
+	 * written.
+	 */
+	public void releaseHeaderBlocks() {
+		headerBlockBuffers.release();
+	}
+
+	/**
+	 * Forget the pooled header block buffers of the frames that have failed
+	 * to write.
+	 */
+	public void discardHeaderBlocks() {
+		headerBlockBuffers.discard();
+	}
+
+	public HeaderBlockBuffers getHeaderBlockBuffers() {
+		return headerBlockBuffers;
+	}
+
 	public void setMaxHeaderListSize(int value) {
         hpackEncoder.setMaxHeaderListSize(value);
     }
@@ -0,0 +1,78 @@
+package com.firefly.codec.http2.encode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.firefly.net.BufferPool;
+
+/**
+ * The header block buffers of the HEADERS and PUSH_PROMISE frames. The
+ * buffers are acquired from the pool when the frames are generated, and they
+ * are released together after the generated frames have been written. Without
+ * a pool, the buffers are allocated and nothing is tracked.
+ * <p>
+ * This is not thread safe, the frames are generated and the writes are
+ * completed by the HTTP/2 flusher serially.
+ * </p>
+ */
+public class HeaderBlockBuffers {
+
+	private final BufferPool bufferPool;
+	private final List<ByteBuffer> acquired = new ArrayList<>();
+
+	public HeaderBlockBuffers(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Acquire a header block buffer.
+	 * 
+	 * @param size
+	 *            The min capacity
+	 * @return The buffer in the fill mode, its capacity may be larger than the
+	 *         size
+	 */
+	public ByteBuffer acquire(int size) {
+		if (bufferPool == null) {
+			return ByteBuffer.allocate(size);
+		}
+
+		ByteBuffer buffer = bufferPool.acquire(size);
+		buffer.clear();
+		acquired.add(buffer);
+		return buffer;
+	}
+
+	/**
+	 * Release the buffers that have been acquired since the last release, the
+	 * generated frames must have been written.
+	 */
+	public void release() {
+		for (int i = 0; i < acquired.size(); i++) {
+			bufferPool.release(acquired.get(i));
+		}
+		acquired.clear();
+	}
+
+	/**
+	 * Forget the acquired buffers without returning them to the pool, such as
+	 * the write has failed and the buffers may be still referenced.
+	 */
+	public void discard() {
+		acquired.clear();
+	}
+
+	/**
+	 * Get the number of the buffers that have not been released.
+	 * 
+	 * @return The number of the acquired buffers
+	 */
+	public int getAcquiredCount() {
+		return acquired.size();
+	}
+
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+}
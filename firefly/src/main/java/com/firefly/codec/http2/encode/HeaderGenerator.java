@@ -10,13 +10,32 @@ public class HeaderGenerator {
 	
 	public ByteBuffer generate(FrameType frameType, int capacity, int length, int flags, int streamId) {
 		ByteBuffer header = ByteBuffer.allocate(capacity);
+		generate(header, frameType, length, flags, streamId);
+		return header;
+	}
+
+	/**
+	 * Put the frame header to the buffer, such as the reserved space in front
+	 * of the frame payload.
+	 * 
+	 * @param header
+	 *            The buffer in the fill mode
+	 * @param frameType
+	 *            The frame type
+	 * @param length
+	 *            The payload length
+	 * @param flags
+	 *            The frame flags
+	 * @param streamId
+	 *            The stream id
+	 */
+	public void generate(ByteBuffer header, FrameType frameType, int length, int flags, int streamId) {
 		header.put((byte)((length & 0x00_FF_00_00) >>> 16));
         header.put((byte)((length & 0x00_00_FF_00) >>> 8));
         header.put((byte)((length & 0x00_00_00_FF)));
         header.put((byte)frameType.getType());
         header.put((byte)flags);
         header.putInt(streamId);
-        return header;
 	}
 
 	public int getMaxFrameSize() {
@@ -17,16 +17,23 @@ public class HeadersGenerator extends FrameGenerator {
 	private final HpackEncoder encoder;
 	private final int maxHeaderBlockFragment;
 	private final PriorityGenerator priorityGenerator;
+	private final HeaderBlockBuffers headerBlockBuffers;
 
 	public HeadersGenerator(HeaderGenerator headerGenerator, HpackEncoder encoder) {
 		this(headerGenerator, encoder, 0);
 	}
 
 	public HeadersGenerator(HeaderGenerator headerGenerator, HpackEncoder encoder, int maxHeaderBlockFragment) {
+		this(headerGenerator, encoder, maxHeaderBlockFragment, new HeaderBlockBuffers(null));
+	}
+
+	public HeadersGenerator(HeaderGenerator headerGenerator, HpackEncoder encoder, int maxHeaderBlockFragment,
+			HeaderBlockBuffers headerBlockBuffers) {
 		super(headerGenerator);
 		this.encoder = encoder;
 		this.maxHeaderBlockFragment = maxHeaderBlockFragment;
 		this.priorityGenerator = new PriorityGenerator(headerGenerator);
+		this.headerBlockBuffers = headerBlockBuffers;
 	}
 
 	@Override
@@ -48,11 +55,14 @@ public class HeadersGenerator extends FrameGenerator {
 			flags = Flags.PRIORITY;
 
 		int maxFrameSize = getMaxFrameSize();
-		ByteBuffer hpacked = ByteBuffer.allocate(maxFrameSize);
-		BufferUtils.clearToFill(hpacked);
+		// The frame header is put in the space in front of the header block if the block is not split.
+		int reserved = Frame.HEADER_LENGTH;
+		if (priority != null)
+			reserved += PriorityFrame.PRIORITY_LENGTH;
+		ByteBuffer hpacked = headerBlockBuffers.acquire(reserved + maxFrameSize);
+		hpacked.position(reserved).limit(reserved + maxFrameSize);
 		encoder.encode(hpacked, metaData);
-		int hpackedLength = hpacked.position();
-		BufferUtils.flipToFlush(hpacked, 0);
+		int hpackedLength = hpacked.position() - reserved;
 
 		// Split into CONTINUATION frames if necessary.
 		if (maxHeaderBlockFragment > 0 && hpackedLength > maxHeaderBlockFragment) {
@@ -68,12 +78,13 @@ public class HeadersGenerator extends FrameGenerator {
 			BufferUtils.flipToFlush(header, 0);
 			list.add(header);
 
-			hpacked.limit(maxHeaderBlockFragment);
+			int end = reserved + hpackedLength;
+			hpacked.position(reserved).limit(reserved + maxHeaderBlockFragment);
 			list.add(hpacked.slice());
 
-			int position = maxHeaderBlockFragment;
+			int position = reserved + maxHeaderBlockFragment;
 			int limit = position + maxHeaderBlockFragment;
-			while (limit < hpackedLength) {
+			while (limit < end) {
 				hpacked.position(position).limit(limit);
 				header = generateHeader(FrameType.CONTINUATION, maxHeaderBlockFragment, Flags.NONE, streamId);
 				BufferUtils.flipToFlush(header, 0);
@@ -83,7 +94,7 @@ public class HeadersGenerator extends FrameGenerator {
 				limit += maxHeaderBlockFragment;
 			}
 
-			hpacked.position(position).limit(hpackedLength);
+			hpacked.position(position).limit(end);
 			header = generateHeader(FrameType.CONTINUATION, hpacked.remaining(), Flags.END_HEADERS, streamId);
 			BufferUtils.flipToFlush(header, 0);
 			list.add(header);
@@ -97,10 +108,12 @@ public class HeadersGenerator extends FrameGenerator {
 			if (priority != null)
 				length += PriorityFrame.PRIORITY_LENGTH;
 
-			ByteBuffer header = generateHeader(FrameType.HEADERS, length, flags, streamId);
-			generatePriority(header, priority);
-			BufferUtils.flipToFlush(header, 0);
-			list.add(header);
+			hpacked.position(0);
+			generateHeader(hpacked, FrameType.HEADERS, length, flags, streamId);
+			generatePriority(hpacked, priority);
+			hpacked.position(0).limit(reserved);
+			list.add(hpacked.slice());
+			hpacked.position(reserved).limit(reserved + hpackedLength);
 			list.add(hpacked);
 		}
 		return list;
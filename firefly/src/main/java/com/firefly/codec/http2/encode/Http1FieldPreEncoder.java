@@ -18,8 +18,9 @@ public class Http1FieldPreEncoder implements HttpFieldPreEncoder {
 	public byte[] getEncodedField(HttpHeader header, String headerString, String value) {
 		if (header != null) {
 			int cbl = header.getBytesColonSpace().length;
-			byte[] bytes = Arrays.copyOf(header.getBytesColonSpace(), cbl + value.length() + 2);
-			System.arraycopy(value.getBytes(UTF_8), 0, bytes, cbl, value.length());
+			byte[] v = value.getBytes(UTF_8);
+			byte[] bytes = Arrays.copyOf(header.getBytesColonSpace(), cbl + v.length + 2);
+			System.arraycopy(v, 0, bytes, cbl, v.length);
 			bytes[bytes.length - 2] = (byte) '\r';
 			bytes[bytes.length - 1] = (byte) '\n';
 			return bytes;
@@ -29,7 +30,8 @@ public class Http1FieldPreEncoder implements HttpFieldPreEncoder {
 		byte[] v = value.getBytes(UTF_8);
 		byte[] bytes = Arrays.copyOf(n, n.length + 2 + v.length + 2);
 		bytes[n.length] = (byte) ':';
-		bytes[n.length] = (byte) ' ';
+		bytes[n.length + 1] = (byte) ' ';
+		System.arraycopy(v, 0, bytes, n.length + 2, v.length);
 		bytes[bytes.length - 2] = (byte) '\r';
 		bytes[bytes.length - 1] = (byte) '\n';
 		return bytes;
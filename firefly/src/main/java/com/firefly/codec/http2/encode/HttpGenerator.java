@@ -54,6 +54,7 @@ public class HttpGenerator {
     private Boolean _persistent = null;
 
     private final int _send;
+    private final PreEncodedResponseFields _responseFields;
     private final static int SEND_SERVER = 0x01;
     private final static int SEND_XPOWEREDBY = 0x02;
     private final static Trie<Boolean> __assumedContentMethods = new ArrayTrie<>(8);
@@ -78,7 +79,21 @@ public class HttpGenerator {
     }
 
     public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy) {
+        this(sendServerVersion, sendXPoweredBy, null);
+    }
+
+    /**
+     * @param sendServerVersion Send the Server header
+     * @param sendXPoweredBy    Send the X-Powered-By header
+     * @param responseFields    The pre-encoded fields of the responses, it may be null
+     */
+    public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy, PreEncodedResponseFields responseFields) {
         _send = (sendServerVersion ? SEND_SERVER : 0) | (sendXPoweredBy ? SEND_XPOWEREDBY : 0);
+        _responseFields = responseFields;
+    }
+
+    public PreEncodedResponseFields getResponseFields() {
+        return _responseFields;
     }
 
     public void reset() {
@@ -487,6 +502,13 @@ public class HttpGenerator {
 
         // default field values
         int send = _send;
+        final PreEncodedResponseFields responseFields = response != null ? _responseFields : null;
+        if (responseFields != null) {
+            if (responseFields.contains(HttpHeader.SERVER))
+                send = send & ~SEND_SERVER;
+            if (responseFields.contains(HttpHeader.X_POWERED_BY))
+                send = send & ~SEND_XPOWEREDBY;
+        }
         HttpField transfer_encoding = null;
         boolean http11 = info.getHttpVersion() == HttpVersion.HTTP_1_1;
         boolean close = false;
@@ -505,6 +527,9 @@ public class HttpGenerator {
                 if (v == null || v.length() == 0)
                     continue; // rfc7230 does not allow no value
 
+                if (responseFields != null)
+                    field = responseFields.getCachedField(field);
+
                 HttpHeader h = field.getHeader();
                 if (h == null)
                     putTo(field, header);
@@ -636,8 +661,11 @@ public class HttpGenerator {
 
         // Send server?
         int status = response != null ? response.getStatus() : -1;
-        if (status > 199)
+        if (status > 199) {
             header.put(SEND[send]);
+            if (responseFields != null)
+                responseFields.putTo(header, fields);
+        }
 
         // end the header.
         header.put(HttpTokens.CRLF);
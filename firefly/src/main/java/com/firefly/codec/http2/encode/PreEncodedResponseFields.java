@@ -0,0 +1,234 @@
+package com.firefly.codec.http2.encode;
+
+import com.firefly.codec.http2.model.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The server-wide pre-encoded HTTP/1 response fields.
+ * <p>
+ * The static fields are added to every response as one pre-encoded byte
+ * block, a static field is skipped when the response sets the same header. The
+ * cached fields replace the equal fields of the response, so the generator
+ * copies the bytes instead of encoding the name and value again. The Date
+ * header is taken from {@link DateGenerator#getDateField()} that is refreshed
+ * once per second.
+ * </p>
+ * <p>
+ * The fields are read by the generators of all connections, they can be
+ * changed at any time, the change is visible for the next response.
+ * </p>
+ */
+public class PreEncodedResponseFields {
+
+    private final ConcurrentMap<HttpField, PreEncodedHttpField> cachedFields = new ConcurrentHashMap<>();
+    private volatile StaticFields staticFields = new StaticFields(new PreEncodedHttpField[0]);
+    private volatile boolean sendDateHeader = true;
+
+    public PreEncodedResponseFields() {
+        cache(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString());
+        cache(HttpHeader.CONNECTION, HttpHeaderValue.KEEP_ALIVE.asString());
+        cache(HttpHeader.CACHE_CONTROL, "no-cache");
+        cache(HttpHeader.CONTENT_ENCODING, "gzip");
+
+        // the common content types of the responses
+        for (String type : new String[]{"text/plain", "text/html", "text/xml", "text/json", "application/json",
+                "application/octet-stream"}) {
+            cache(HttpHeader.CONTENT_TYPE, type);
+            for (String charset : new String[]{"utf-8", "UTF-8"}) {
+                cache(HttpHeader.CONTENT_TYPE, type + ";charset=" + charset);
+                cache(HttpHeader.CONTENT_TYPE, type + "; charset=" + charset);
+            }
+        }
+    }
+
+    private static class StaticFields {
+        private final PreEncodedHttpField[] fields;
+        private final byte[] block;
+
+        private StaticFields(PreEncodedHttpField[] fields) {
+            this.fields = fields;
+            int length = 0;
+            for (PreEncodedHttpField field : fields) {
+                length += field.getEncodedLength(HttpVersion.HTTP_1_0);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            for (PreEncodedHttpField field : fields) {
+                field.putTo(buffer, HttpVersion.HTTP_1_0);
+            }
+            block = buffer.array();
+        }
+    }
+
+    /**
+     * Add a field to every response. The field replaces the static field that
+     * has the same name.
+     *
+     * @param field The response field
+     * @return This object
+     * @throws IllegalArgumentException If the field is Content-Length,
+     *                                  Transfer-Encoding or Connection, the
+     *                                  generator writes them by the message
+     */
+    public synchronized PreEncodedResponseFields add(HttpField field) {
+        checkStaticField(field);
+        PreEncodedHttpField preEncodedField = preEncode(field);
+        List<PreEncodedHttpField> list = new ArrayList<>(staticFields.fields.length + 1);
+        for (PreEncodedHttpField f : staticFields.fields) {
+            if (!f.isSameName(field)) {
+                list.add(f);
+            }
+        }
+        list.add(preEncodedField);
+        staticFields = new StaticFields(list.toArray(new PreEncodedHttpField[0]));
+        return this;
+    }
+
+    public PreEncodedResponseFields add(HttpHeader header, String value) {
+        return add(new PreEncodedHttpField(header, value));
+    }
+
+    public PreEncodedResponseFields add(String name, String value) {
+        HttpHeader header = HttpHeader.CACHE.get(name);
+        return add(header != null ? new PreEncodedHttpField(header, value) : new PreEncodedHttpField(name, value));
+    }
+
+    /**
+     * Remove the static field.
+     *
+     * @param name The field name
+     * @return If the field is removed, return true
+     */
+    public synchronized boolean remove(String name) {
+        List<PreEncodedHttpField> list = new ArrayList<>(staticFields.fields.length);
+        for (PreEncodedHttpField f : staticFields.fields) {
+            if (!f.getName().equalsIgnoreCase(name)) {
+                list.add(f);
+            }
+        }
+        if (list.size() == staticFields.fields.length) {
+            return false;
+        } else {
+            staticFields = new StaticFields(list.toArray(new PreEncodedHttpField[0]));
+            return true;
+        }
+    }
+
+    public List<HttpField> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(staticFields.fields));
+    }
+
+    public boolean contains(HttpHeader header) {
+        for (PreEncodedHttpField f : staticFields.fields) {
+            if (f.getHeader() == header) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache a constant field, such as "Content-Type: application/json;
+     * charset=UTF-8". When a response sets an equal field, the generator writes
+     * the pre-encoded bytes.
+     *
+     * @param field The constant field
+     * @return This object
+     */
+    public PreEncodedResponseFields cache(HttpField field) {
+        PreEncodedHttpField preEncodedField = preEncode(field);
+        cachedFields.put(preEncodedField, preEncodedField);
+        return this;
+    }
+
+    public PreEncodedResponseFields cache(HttpHeader header, String value) {
+        return cache(new PreEncodedHttpField(header, value));
+    }
+
+    public boolean removeCachedField(HttpField field) {
+        return cachedFields.remove(field) != null;
+    }
+
+    /**
+     * Get the pre-encoded field that equals the response field.
+     *
+     * @param field The response field
+     * @return The cached field, or the response field if it is not cached
+     */
+    public HttpField getCachedField(HttpField field) {
+        if (field instanceof PreEncodedHttpField || cachedFields.isEmpty()) {
+            return field;
+        }
+        HttpField cachedField = cachedFields.get(field);
+        return cachedField != null ? cachedField : field;
+    }
+
+    public boolean isSendDateHeader() {
+        return sendDateHeader;
+    }
+
+    public void setSendDateHeader(boolean sendDateHeader) {
+        this.sendDateHeader = sendDateHeader;
+    }
+
+    /**
+     * Write the static fields and the Date header that the response does not
+     * set.
+     *
+     * @param header The header buffer in the fill mode
+     * @param fields The response fields
+     */
+    public void putTo(ByteBuffer header, HttpFields fields) {
+        StaticFields s = staticFields;
+        if (fields == null || fields.size() == 0 || !containsAny(fields, s.fields)) {
+            header.put(s.block);
+        } else {
+            for (PreEncodedHttpField f : s.fields) {
+                if (!contains(fields, f)) {
+                    f.putTo(header, HttpVersion.HTTP_1_0);
+                }
+            }
+        }
+
+        if (sendDateHeader && (fields == null || !fields.contains(HttpHeader.DATE))) {
+            DateGenerator.getDateField().putTo(header, HttpVersion.HTTP_1_0);
+        }
+    }
+
+    private static boolean containsAny(HttpFields fields, PreEncodedHttpField[] staticFields) {
+        for (PreEncodedHttpField f : staticFields) {
+            if (contains(fields, f)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(HttpFields fields, HttpField field) {
+        return field.getHeader() != null ? fields.contains(field.getHeader()) : fields.containsKey(field.getName());
+    }
+
+    private static void checkStaticField(HttpField field) {
+        HttpHeader header = field.getHeader();
+        if (header == HttpHeader.CONTENT_LENGTH
+                || header == HttpHeader.TRANSFER_ENCODING
+                || header == HttpHeader.CONNECTION) {
+            throw new IllegalArgumentException("The " + header + " field can not be static");
+        }
+    }
+
+    private static PreEncodedHttpField preEncode(HttpField field) {
+        if (field instanceof PreEncodedHttpField) {
+            return (PreEncodedHttpField) field;
+        } else {
+            return new PreEncodedHttpField(field.getHeader(), field.getName(), field.getValue());
+        }
+    }
+
+}
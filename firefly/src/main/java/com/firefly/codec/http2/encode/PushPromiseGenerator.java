@@ -10,14 +10,20 @@ import com.firefly.codec.http2.frame.FrameType;
 import com.firefly.codec.http2.frame.PushPromiseFrame;
 import com.firefly.codec.http2.hpack.HpackEncoder;
 import com.firefly.codec.http2.model.MetaData;
-import com.firefly.utils.io.BufferUtils;
 
 public class PushPromiseGenerator extends FrameGenerator {
 	private final HpackEncoder encoder;
+	private final HeaderBlockBuffers headerBlockBuffers;
 
 	public PushPromiseGenerator(HeaderGenerator headerGenerator, HpackEncoder encoder) {
+		this(headerGenerator, encoder, new HeaderBlockBuffers(null));
+	}
+
+	public PushPromiseGenerator(HeaderGenerator headerGenerator, HpackEncoder encoder,
+			HeaderBlockBuffers headerBlockBuffers) {
 		super(headerGenerator);
 		this.encoder = encoder;
+		this.headerBlockBuffers = headerBlockBuffers;
 	}
 
 	@Override
@@ -39,20 +45,23 @@ public class PushPromiseGenerator extends FrameGenerator {
 		int extraSpace = 4;
 		maxFrameSize -= extraSpace;
 
-		ByteBuffer hpacked = ByteBuffer.allocate(maxFrameSize);
-		BufferUtils.clearToFill(hpacked);
+		// The frame header and the promised stream id are put in the space in front of the header block.
+		int reserved = Frame.HEADER_LENGTH + extraSpace;
+		ByteBuffer hpacked = headerBlockBuffers.acquire(reserved + maxFrameSize);
+		hpacked.position(reserved).limit(reserved + maxFrameSize);
 		encoder.encode(hpacked, metaData);
-		int hpackedLength = hpacked.position();
-		BufferUtils.flipToFlush(hpacked, 0);
+		int hpackedLength = hpacked.position() - reserved;
 
 		int length = hpackedLength + extraSpace;
 		int flags = Flags.END_HEADERS;
 
-		ByteBuffer header = generateHeader(FrameType.PUSH_PROMISE, length, flags, streamId);
-		header.putInt(promisedStreamId);
-		BufferUtils.flipToFlush(header, 0);
+		hpacked.position(0);
+		generateHeader(hpacked, FrameType.PUSH_PROMISE, length, flags, streamId);
+		hpacked.putInt(promisedStreamId);
+		hpacked.position(0).limit(reserved);
+		list.add(hpacked.slice());
 
-		list.add(header);
+		hpacked.position(reserved).limit(reserved + hpackedLength);
 		list.add(hpacked);
 		return list;
 	}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Hpack Decoder
@@ -21,6 +22,7 @@ public class HpackDecoder {
 
     private final HpackContext _context;
     private final MetaDataBuilder _builder;
+    private final HpackFieldCache _fieldCache;
     private int _localMaxDynamicTableSize;
 
     /**
@@ -28,9 +30,19 @@ public class HpackDecoder {
      * @param maxHeaderSize            The maximum allowed size of a headers block, expressed as total of all name and value characters, plus 32 per field
      */
     public HpackDecoder(int localMaxDynamicTableSize, int maxHeaderSize) {
+        this(localMaxDynamicTableSize, maxHeaderSize, HpackFieldCache.getDefault());
+    }
+
+    /**
+     * @param localMaxDynamicTableSize The maximum allowed size of the local dynamic header field table.
+     * @param maxHeaderSize            The maximum allowed size of a headers block, expressed as total of all name and value characters, plus 32 per field
+     * @param fieldCache               The cache of the decoded literal fields, or null to decode every literal
+     */
+    public HpackDecoder(int localMaxDynamicTableSize, int maxHeaderSize, HpackFieldCache fieldCache) {
         _context = new HpackContext(localMaxDynamicTableSize);
         _localMaxDynamicTableSize = localMaxDynamicTableSize;
         _builder = new MetaDataBuilder(maxHeaderSize);
+        _fieldCache = fieldCache;
     }
 
     public HpackContext getHpackContext() {
@@ -146,42 +158,21 @@ public class HpackDecoder {
                 boolean huffmanValue = (buffer.get() & 0x80) == 0x80;
                 int length = NBitInteger.decode(buffer, 7);
                 _builder.checkSize(length, huffmanValue);
-                if (huffmanValue)
-                    value = Huffman.decode(buffer, length);
-                else
-                    value = toASCIIString(buffer, length);
 
-                // Make the new field
-                HttpField field;
-                if (header == null) {
-                    // just make a normal field and bypass header name lookup
-                    field = new HttpField(null, name, value);
+                // The repeated literal fields are decoded once
+                int valuePosition = buffer.position();
+                HttpField field = _fieldCache == null ? null : _fieldCache.get(name, huffmanValue, buffer, length);
+                if (field != null) {
+                    buffer.position(valuePosition + length);
                 } else {
-                    // might be worthwhile to create a value HttpField if it is indexed
-                    // and/or of a type that may be looked up multiple times.
-                    switch (header) {
-                        case C_STATUS:
-                            if (indexed)
-                                field = new HttpField.IntValueHttpField(header, name, value);
-                            else
-                                field = new HttpField(header, name, value);
-                            break;
-
-                        case C_AUTHORITY:
-                            field = new AuthorityHttpField(value);
-                            break;
-
-                        case CONTENT_LENGTH:
-                            if ("0".equals(value))
-                                field = CONTENT_LENGTH_0;
-                            else
-                                field = new HttpField.LongValueHttpField(header, name, value);
-                            break;
-
-                        default:
-                            field = new HttpField(header, name, value);
-                            break;
-                    }
+                    if (huffmanValue)
+                        value = Huffman.decode(buffer, length);
+                    else
+                        value = toASCIIString(buffer, length);
+
+                    field = newHttpField(header, name, value, indexed);
+                    if (_fieldCache != null)
+                        _fieldCache.put(name, huffmanValue, buffer, valuePosition, length, field);
                 }
 
                 if (log.isDebugEnabled()) {
@@ -208,16 +199,52 @@ public class HpackDecoder {
         return _builder.build();
     }
 
+    private static HttpField newHttpField(HttpHeader header, String name, String value, boolean indexed) {
+        if (header == null) {
+            // just make a normal field and bypass header name lookup
+            return new HttpField(null, name, value);
+        }
+
+        // might be worthwhile to create a value HttpField if it is indexed
+        // and/or of a type that may be looked up multiple times.
+        switch (header) {
+            case C_STATUS:
+                if (indexed)
+                    return new HttpField.IntValueHttpField(header, name, value);
+                else
+                    return new HttpField(header, name, value);
+
+            case C_AUTHORITY:
+                return new AuthorityHttpField(value);
+
+            case CONTENT_LENGTH:
+                if ("0".equals(value))
+                    return CONTENT_LENGTH_0;
+                else
+                    return new HttpField.LongValueHttpField(header, name, value);
+
+            default:
+                return new HttpField(header, name, value);
+        }
+    }
+
     public static String toASCIIString(ByteBuffer buffer, int length) {
-        StringBuilder builder = new StringBuilder(length);
         int position = buffer.position();
         int start = buffer.arrayOffset() + position;
         int end = start + length;
         buffer.position(position + length);
         byte[] array = buffer.array();
-        for (int i = start; i < end; i++)
-            builder.append((char) (0x7f & array[i]));
-        return builder.toString();
+        for (int i = start; i < end; i++) {
+            if (array[i] < 0) {
+                // mask the octets that are not ASCII
+                char[] chars = new char[length];
+                for (int j = 0; j < length; j++)
+                    chars[j] = (char) (0x7f & array[start + j]);
+                return new String(chars);
+            }
+        }
+        // the ASCII octets are copied into the string without an intermediate builder
+        return new String(array, start, length, StandardCharsets.ISO_8859_1);
     }
 
     @Override
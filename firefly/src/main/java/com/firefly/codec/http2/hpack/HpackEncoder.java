@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.EnumSet;
+import java.util.Objects;
 
 public class HpackEncoder {
 
@@ -58,6 +59,7 @@ public class HpackEncoder {
     }
 
     private final HpackContext _context;
+    private final HttpField[] _pseudoFields = new HttpField[4];
     private final boolean _debug;
     private int _remoteMaxDynamicTableSize;
     private int _localMaxDynamicTableSize;
@@ -120,12 +122,11 @@ public class HpackEncoder {
         if (metadata.isRequest()) {
             MetaData.Request request = (MetaData.Request) metadata;
 
-            // TODO optimise these to avoid HttpField creation
             String scheme = request.getURI().getScheme();
-            encode(buffer, new HttpField(HttpHeader.C_SCHEME, scheme == null ? HttpScheme.HTTP.asString() : scheme));
-            encode(buffer, new HttpField(HttpHeader.C_METHOD, request.getMethod()));
-            encode(buffer, new HttpField(HttpHeader.C_AUTHORITY, request.getURI().getAuthority()));
-            encode(buffer, new HttpField(HttpHeader.C_PATH, request.getURI().getPathQuery()));
+            encode(buffer, pseudoField(0, HttpHeader.C_SCHEME, scheme == null ? HttpScheme.HTTP.asString() : scheme));
+            encode(buffer, pseudoField(1, HttpHeader.C_METHOD, request.getMethod()));
+            encode(buffer, pseudoField(2, HttpHeader.C_AUTHORITY, request.getURI().getAuthority()));
+            encode(buffer, pseudoField(3, HttpHeader.C_PATH, request.getURI().getPathQuery()));
         } else if (metadata.isResponse()) {
             MetaData.Response response = (MetaData.Response) metadata;
             int code = response.getStatus();
@@ -150,6 +151,19 @@ public class HpackEncoder {
             log.debug(String.format("CtxTbl[%x] encoded %d octets", _context.hashCode(), buffer.position() - pos));
     }
 
+    /**
+     * The pseudo header values of the requests on a connection rarely change,
+     * except the path, so the last field of every pseudo header is reused.
+     */
+    private HttpField pseudoField(int slot, HttpHeader header, String value) {
+        HttpField field = _pseudoFields[slot];
+        if (field == null || !Objects.equals(field.getValue(), value)) {
+            field = new HttpField(header, value);
+            _pseudoFields[slot] = field;
+        }
+        return field;
+    }
+
     public void encodeMaxDynamicTableSize(ByteBuffer buffer, int maxDynamicTableSize) {
         if (maxDynamicTableSize > _remoteMaxDynamicTableSize)
             throw new IllegalArgumentException();
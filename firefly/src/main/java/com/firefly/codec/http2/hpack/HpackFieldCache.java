@@ -0,0 +1,135 @@
+package com.firefly.codec.http2.hpack;
+
+import com.firefly.codec.http2.model.HttpField;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The cache of the decoded literal header fields. The fields are keyed by the
+ * header name and the encoded value octets, so a repeated (name, value) pair,
+ * such as the user agent or the content type of the API requests, is decoded
+ * once and the same immutable {@link HttpField} is emitted for the following
+ * header blocks without decoding the string again.
+ * <p>
+ * The cache is direct mapped, a slot is overwritten by the latest field that
+ * hashes to it. It can be shared by the decoders of many connections, the
+ * slots are replaced without locking because the cached entries are
+ * immutable.
+ * </p>
+ */
+public class HpackFieldCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 128;
+
+    private static final HpackFieldCache DEFAULT = new HpackFieldCache(DEFAULT_CAPACITY, DEFAULT_MAX_VALUE_LENGTH);
+
+    private final CachedField[] fields;
+    private final int mask;
+    private final int maxValueLength;
+
+    /**
+     * @param capacity       The number of the cache slots, it is rounded up to the power of 2
+     * @param maxValueLength The max length of the encoded value, the longer values, such as the
+     *                       cookies, are not cached
+     */
+    public HpackFieldCache(int capacity, int maxValueLength) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.fields = new CachedField[size];
+        this.mask = size - 1;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * Get the cache that is shared by the decoders by default.
+     *
+     * @return The shared cache
+     */
+    public static HpackFieldCache getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    /**
+     * Get the cached field. The buffer position is not changed.
+     *
+     * @param name     The header name
+     * @param huffman  Whether the value is huffman encoded
+     * @param buffer   The header block, the value octets start at the buffer position
+     * @param length   The encoded value length
+     * @return The cached field or null
+     */
+    public HttpField get(String name, boolean huffman, ByteBuffer buffer, int length) {
+        if (length > maxValueLength)
+            return null;
+
+        int hash = hash(name, huffman, buffer, buffer.position(), length);
+        CachedField cached = fields[hash & mask];
+        if (cached != null && cached.matches(hash, name, huffman, buffer, buffer.position(), length))
+            return cached.field;
+        return null;
+    }
+
+    /**
+     * Put the decoded field to the cache.
+     *
+     * @param name     The header name
+     * @param huffman  Whether the value is huffman encoded
+     * @param buffer   The header block
+     * @param position The position of the encoded value octets
+     * @param length   The encoded value length
+     * @param field    The decoded field
+     */
+    public void put(String name, boolean huffman, ByteBuffer buffer, int position, int length, HttpField field) {
+        if (length > maxValueLength)
+            return;
+
+        int hash = hash(name, huffman, buffer, position, length);
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = buffer.get(position + i);
+        }
+        fields[hash & mask] = new CachedField(hash, name, huffman, value, field);
+    }
+
+    private static int hash(String name, boolean huffman, ByteBuffer buffer, int position, int length) {
+        int hash = name.hashCode() * 31 + (huffman ? 1 : 0);
+        for (int i = position, end = position + length; i < end; i++) {
+            hash = hash * 31 + buffer.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class CachedField {
+        private final int hash;
+        private final String name;
+        private final boolean huffman;
+        private final byte[] value;
+        private final HttpField field;
+
+        private CachedField(int hash, String name, boolean huffman, byte[] value, HttpField field) {
+            this.hash = hash;
+            this.name = name;
+            this.huffman = huffman;
+            this.value = value;
+            this.field = field;
+        }
+
+        private boolean matches(int hash, String name, boolean huffman, ByteBuffer buffer, int position, int length) {
+            if (this.hash != hash || this.huffman != huffman || value.length != length || !this.name.equals(name))
+                return false;
+            for (int i = 0; i < length; i++) {
+                if (value[i] != buffer.get(position + i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
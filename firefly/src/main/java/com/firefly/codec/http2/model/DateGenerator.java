@@ -29,6 +29,46 @@ public class DateGenerator {
 
 	public final static String __01Jan1970 = DateGenerator.formatDate(0);
 
+	private static volatile CachedDateField __dateField = new CachedDateField(0);
+
+	private static class CachedDateField {
+		private final long seconds;
+		private final PreEncodedHttpField field;
+
+		private CachedDateField(long seconds) {
+			this.seconds = seconds;
+			this.field = new PreEncodedHttpField(HttpHeader.DATE, formatDate(seconds * 1000));
+		}
+	}
+
+	/**
+	 * Get the Date header of the current second. The field is pre-encoded and
+	 * it is shared by all threads, it is refreshed at most once per second.
+	 * 
+	 * @return the pre-encoded Date header
+	 */
+	public static PreEncodedHttpField getDateField() {
+		return getDateField(System.currentTimeMillis());
+	}
+
+	/**
+	 * Get the cached Date header of the second that contains the time.
+	 * 
+	 * @param now
+	 *            the time in milliseconds
+	 * @return the pre-encoded Date header
+	 */
+	public static PreEncodedHttpField getDateField(long now) {
+		long seconds = now / 1000;
+		CachedDateField dateField = __dateField;
+		if (dateField.seconds != seconds) {
+			// the race only formats the same second more than once
+			dateField = new CachedDateField(seconds);
+			__dateField = dateField;
+		}
+		return dateField.field;
+	}
+
 	/**
 	 * Format HTTP date "EEE, dd MMM yyyy HH:mm:ss 'GMT'"
 	 * 
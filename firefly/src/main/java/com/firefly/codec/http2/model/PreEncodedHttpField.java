@@ -27,7 +27,7 @@ public class PreEncodedHttpField extends HttpField {
         super(header, name, value);
 
         for (HttpFieldPreEncoder e : __encoders) {
-            _encodedField[e.getHttpVersion() == HttpVersion.HTTP_2 ? 1 : 0] = e.getEncodedField(header, header.asString(), value);
+            _encodedField[e.getHttpVersion() == HttpVersion.HTTP_2 ? 1 : 0] = e.getEncodedField(header, header == null ? name : header.asString(), value);
         }
     }
 
@@ -39,6 +39,10 @@ public class PreEncodedHttpField extends HttpField {
         this(null, name, value);
     }
 
+    public int getEncodedLength(HttpVersion version) {
+        return _encodedField[version == HttpVersion.HTTP_2 ? 1 : 0].length;
+    }
+
     public void putTo(ByteBuffer bufferInFillMode, HttpVersion version) {
         bufferInFillMode.put(_encodedField[version == HttpVersion.HTTP_2 ? 1 : 0]);
     }
@@ -15,17 +15,23 @@ abstract public class AbstractHTTP1Connection extends AbstractHTTPConnection {
 	protected final HttpGenerator generator;
 	protected final Generator http2Generator;
 	protected final HTTP2Configuration config;
+	protected final HTTP1BufferArena bufferArena;
 
 	public AbstractHTTP1Connection(HTTP2Configuration config, SSLSession sslSession, Session tcpSession,
 			RequestHandler requestHandler, ResponseHandler responseHandler) {
 		super(sslSession, tcpSession, HttpVersion.HTTP_1_1);
 
 		this.config = config;
+		bufferArena = new HTTP1BufferArena(config.getMaxRequestHeadLength());
 		parser = initHttpParser(config, requestHandler, responseHandler);
 		generator = initHttpGenerator();
 		http2Generator = new Generator(config.getMaxDynamicTableSize(), config.getMaxHeaderBlockFragment());
 	}
 
+	public HTTP1BufferArena getBufferArena() {
+		return bufferArena;
+	}
+
 	abstract protected HttpParser initHttpParser(HTTP2Configuration config, RequestHandler requestHandler,
 			ResponseHandler responseHandler);
 	
@@ -6,8 +6,11 @@ import java.nio.ByteBuffer;
 import com.firefly.codec.http2.encode.HttpGenerator;
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.HTTP1BufferArena.ArenaBuffer;
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.Session;
-import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.concurrent.Callback;
 
 abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 
@@ -31,6 +34,86 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 		}
 	}
 
+	/**
+	 * If the header is not committed, the header is generated and written
+	 * with the content buffers in one gathered write.
+	 */
+	@Override
+	public synchronized void writeWithContentLength(ByteBuffer[] data, Callback callback) throws IOException {
+		if (closed) {
+			callback.succeeded();
+			return;
+		}
+
+		if (commited) {
+			try {
+				int last = data.length - 1;
+				while (last >= 0 && !data[last].hasRemaining()) {
+					last--;
+				}
+				for (int i = 0; i <= last; i++) {
+					write(data[i], i == last ? callback : Callback.NOOP);
+				}
+				if (last < 0) {
+					callback.succeeded();
+				}
+			} finally {
+				close();
+			}
+			return;
+		}
+
+		try {
+			long contentLength = 0;
+			for (ByteBuffer buf : data) {
+				contentLength += buf.remaining();
+			}
+			info.getFields().put(HttpHeader.CONTENT_LENGTH, String.valueOf(contentLength));
+
+			final HttpGenerator generator = getHttpGenerator();
+			HttpGenerator.Result generatorResult;
+			ArenaBuffer header = getBufferArena().acquireHeaderBuffer();
+			try {
+				generatorResult = generate(info, header.getByteBuffer(), null, null, true);
+			} catch (RuntimeException e) {
+				header.failed(e);
+				throw e;
+			}
+			if (generatorResult == HttpGenerator.Result.FLUSH
+					&& generator.getState() == HttpGenerator.State.COMPLETING) {
+				ByteBuffer[] buffers = new ByteBuffer[data.length + 1];
+				buffers[0] = header.getByteBuffer();
+				System.arraycopy(data, 0, buffers, 1, data.length);
+				encode(buffers, new Callback() {
+					@Override
+					public void succeeded() {
+						header.succeeded();
+						callback.succeeded();
+					}
+
+					@Override
+					public void failed(Throwable x) {
+						header.failed(x);
+						callback.failed(x);
+					}
+				});
+				commited = true;
+
+				generatorResult = generate(null, null, null, null, true);
+				if (generatorResult == HttpGenerator.Result.DONE && generator.getState() == HttpGenerator.State.END) {
+					generateHTTPMessageSuccessfully();
+				} else {
+					generateHTTPMessageExceptionally(generatorResult, generator.getState());
+				}
+			} else {
+				header.release();
+				generateHTTPMessageExceptionally(generatorResult, generator.getState());
+			}
+		} finally {
+			closed = true;
+		}
+	}
+
 	@Override
 	public synchronized void writeWithContentLength(ByteBuffer data) throws IOException {
 		try {
@@ -47,22 +130,26 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 	}
 
 	protected synchronized void commit(ByteBuffer data) throws IOException {
-		if (closed)
-			return;
+		commit(data, Callback.NOOP);
+	}
 
-		if (commited)
+	protected synchronized void commit(ByteBuffer data, Callback callback) throws IOException {
+		if (closed || commited) {
+			callback.succeeded();
 			return;
+		}
 
 		final HttpGenerator generator = getHttpGenerator();
-		final Session tcpSession = getSession();
 		HttpGenerator.Result generatorResult;
-		ByteBuffer header = getHeaderByteBuffer();
+		ArenaBuffer header = getBufferArena().acquireHeaderBuffer();
 
-		generatorResult = generate(info, header, null, data, false);
+		generatorResult = generate(info, header.getByteBuffer(), null, data, false);
 		if (generatorResult == HttpGenerator.Result.FLUSH && generator.getState() == HttpGenerator.State.COMMITTED) {
-			tcpSession.encode(header);
+			encode(header);
 			if (data != null) {
-				tcpSession.encode(data);
+				encode(data, callback);
+			} else {
+				callback.succeeded();
 			}
 			commited = true;
 		} else {
@@ -71,28 +158,31 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 	}
 
 	@Override
-	public synchronized void write(ByteBuffer data) throws IOException {
-		if (closed)
-			return;
+	public void write(ByteBuffer data) throws IOException {
+		write(data, Callback.NOOP);
+	}
 
-		if (!data.hasRemaining())
+	@Override
+	public synchronized void write(ByteBuffer data, Callback callback) throws IOException {
+		if (closed || !data.hasRemaining()) {
+			callback.succeeded();
 			return;
+		}
 
 		final HttpGenerator generator = getHttpGenerator();
-		final Session tcpSession = getSession();
 		HttpGenerator.Result generatorResult;
 
 		if (!commited) {
-			commit(data);
+			commit(data, callback);
 		} else {
 			if (generator.isChunking()) {
-				ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
+				ArenaBuffer chunk = getBufferArena().acquireChunkBuffer();
 
-				generatorResult = generate(null, null, chunk, data, false);
+				generatorResult = generate(null, null, chunk.getByteBuffer(), data, false);
 				if (generatorResult == HttpGenerator.Result.FLUSH
 						&& generator.getState() == HttpGenerator.State.COMMITTED) {
-					tcpSession.encode(chunk);
-					tcpSession.encode(data);
+					encode(chunk);
+					encode(data, callback);
 				} else {
 					generateHTTPMessageExceptionally(generatorResult, generator.getState());
 				}
@@ -100,7 +190,7 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 				generatorResult = generate(null, null, null, data, false);
 				if (generatorResult == HttpGenerator.Result.FLUSH
 						&& generator.getState() == HttpGenerator.State.COMMITTED) {
-					tcpSession.encode(data);
+					encode(data, callback);
 				} else {
 					generateHTTPMessageExceptionally(generatorResult, generator.getState());
 				}
@@ -116,15 +206,14 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 		try {
 			log.debug("http1 output stream is closing");
 			final HttpGenerator generator = getHttpGenerator();
-			final Session tcpSession = getSession();
 			HttpGenerator.Result generatorResult;
 
 			if (!commited) {
-				ByteBuffer header = getHeaderByteBuffer();
-				generatorResult = generate(info, header, null, null, true);
+				ArenaBuffer header = getBufferArena().acquireHeaderBuffer();
+				generatorResult = generate(info, header.getByteBuffer(), null, null, true);
 				if (generatorResult == HttpGenerator.Result.FLUSH
 						&& generator.getState() == HttpGenerator.State.COMPLETING) {
-					tcpSession.encode(header);
+					encode(header);
 					generatorResult = generate(null, null, null, null, true);
 					if (generatorResult == HttpGenerator.Result.DONE
 							&& generator.getState() == HttpGenerator.State.END) {
@@ -139,14 +228,14 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 			} else {
 				if (generator.isChunking()) {
 					log.debug("http1 output stream is generating chunk");
-					ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
-					generatorResult = generate(null, null, chunk, null, true);
+					ArenaBuffer chunk = getBufferArena().acquireChunkBuffer();
+					generatorResult = generate(null, null, chunk.getByteBuffer(), null, true);
 					if (generatorResult == HttpGenerator.Result.CONTINUE
 							&& generator.getState() == HttpGenerator.State.COMPLETING) {
-						generatorResult = generate(null, null, chunk, null, true);
+						generatorResult = generate(null, null, chunk.getByteBuffer(), null, true);
 						if (generatorResult == HttpGenerator.Result.FLUSH
 								&& generator.getState() == HttpGenerator.State.COMPLETING) {
-							tcpSession.encode(chunk);
+							encode(chunk);
 
 							generatorResult = generate(null, null, null, null, true);
 							if (generatorResult == HttpGenerator.Result.DONE
@@ -192,7 +281,57 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
 		}
 	}
 
-	abstract protected ByteBuffer getHeaderByteBuffer();
+	/**
+	 * Write the header or chunk buffer, the buffer returns to the arena after
+	 * it has been written.
+	 *
+	 * @param buffer
+	 *            The header or chunk buffer
+	 */
+	protected void encode(ArenaBuffer buffer) {
+		getSession().encode(new ByteBufferOutputEntry(buffer, buffer.getByteBuffer()));
+	}
+
+	/**
+	 * Write the message content.
+	 *
+	 * @param data
+	 *            The content buffer
+	 */
+	protected void encode(ByteBuffer data) {
+		getSession().encode(data);
+	}
+
+	/**
+	 * Write the message content, the callback is completed when the content
+	 * has been written to the connection.
+	 *
+	 * @param data
+	 *            The content buffer
+	 * @param callback
+	 *            The callback of the content
+	 */
+	protected void encode(ByteBuffer data, Callback callback) {
+		if (callback == Callback.NOOP) {
+			encode(data);
+		} else {
+			getSession().encode(new ByteBufferOutputEntry(callback, data));
+		}
+	}
+
+	/**
+	 * Write the header and content buffers in one gathered write.
+	 *
+	 * @param data
+	 *            The header and content buffers
+	 * @param callback
+	 *            The callback of the buffers
+	 */
+	protected void encode(ByteBuffer[] data, Callback callback) {
+		getSession().encode(new ByteBufferArrayOutputEntry(callback, data));
+	}
+
+	abstract protected HTTP1BufferArena getBufferArena();
 
 	abstract protected Session getSession();
 
@@ -15,7 +15,7 @@ abstract public class AbstractHTTP2Connection extends AbstractHTTPConnection {
 	protected final Parser parser;
 	protected final Generator generator;
 
-	protected static final Scheduler scheduler = Schedulers.createScheduler();
+	protected static final Scheduler scheduler = Schedulers.createTimeWheel();
 	
 	public static void stopScheduler() {
 		scheduler.stop();
@@ -30,6 +30,10 @@ abstract public class AbstractHTTP2Connection extends AbstractHTTPConnection {
 		case "buffer":
 			flowControl = new BufferingFlowControlStrategy(config.getInitialStreamSendWindow(), 0.5f);
 			break;
+		case "adaptive":
+			flowControl = new AdaptiveFlowControlStrategy(config.getInitialStreamSendWindow(), 0.5f,
+					config.getMaxSessionRecvWindow(), config.getMaxStreamRecvWindow());
+			break;
 		case "simple":
 			flowControl = new SimpleFlowControlStrategy(config.getInitialStreamSendWindow());
 			break;
@@ -37,8 +41,17 @@ abstract public class AbstractHTTP2Connection extends AbstractHTTPConnection {
 			flowControl = new SimpleFlowControlStrategy(config.getInitialStreamSendWindow());
 			break;
 		}
-		this.generator = new Generator(config.getMaxDynamicTableSize(), config.getMaxHeaderBlockFragment());
+		this.generator = new Generator(config.getMaxDynamicTableSize(), config.getMaxHeaderBlockFragment(),
+				config.getHeaderBlockBufferPool());
 		this.http2Session = initHTTP2Session(config, flowControl, listener);
+		switch (config.getStreamScheduler()) {
+		case "round-robin":
+			http2Session.setStreamScheduler(new RoundRobinStreamScheduler(config.getStreamSchedulerQuantum()));
+			break;
+		default:
+			break;
+		}
+		http2Session.setMaxFlushDataBytes(config.getMaxFlushDataBytes());
 		this.parser = initParser(config);
 	}
 
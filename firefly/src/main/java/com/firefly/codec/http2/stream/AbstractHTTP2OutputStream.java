@@ -7,12 +7,15 @@ import com.firefly.codec.http2.frame.HeadersFrame;
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.MetaData;
 import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
@@ -22,9 +25,11 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 	private long size;
 	private long contentLength;
 	private boolean isWriting;
-	private LinkedList<Frame> frames = new LinkedList<>();
+	private LinkedList<FrameEntry> frames = new LinkedList<>();
 	private FrameCallback frameCallback = new FrameCallback();
+	private Callback writingCallback;
 	private DataFrame currentDataFrame;
+	private Callback currentCallback;
 
 	public AbstractHTTP2OutputStream(MetaData info, boolean clientMode) {
 		super(info, clientMode);
@@ -53,6 +58,41 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 		}
 	}
 
+	/**
+	 * The content buffers are sent in the DATA frames without copying, the
+	 * callback is completed with the last frame.
+	 */
+	@Override
+	public synchronized void writeWithContentLength(ByteBuffer[] data, Callback callback) throws IOException {
+		if (closed) {
+			callback.succeeded();
+			return;
+		}
+
+		try {
+			if (!commited) {
+				long contentLength = 0;
+				for (ByteBuffer buf : data) {
+					contentLength += buf.remaining();
+				}
+				info.getFields().put(HttpHeader.CONTENT_LENGTH, String.valueOf(contentLength));
+			}
+
+			int last = data.length - 1;
+			while (last >= 0 && !data[last].hasRemaining()) {
+				last--;
+			}
+			for (int i = 0; i <= last; i++) {
+				write(data[i], i == last ? callback : Callback.NOOP);
+			}
+			if (last < 0) {
+				callback.succeeded();
+			}
+		} finally {
+			close();
+		}
+	}
+
 	@Override
 	public synchronized void writeWithContentLength(ByteBuffer data) throws IOException {
 		if (closed) {
@@ -77,11 +117,15 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
 	@Override
 	public void write(ByteBuffer data) throws IOException {
-		if (closed)
-			return;
+		write(data, Callback.NOOP);
+	}
 
-		if (data == null || !data.hasRemaining())
+	@Override
+	public synchronized void write(ByteBuffer data, Callback callback) throws IOException {
+		if (closed || data == null || !data.hasRemaining()) {
+			callback.succeeded();
 			return;
+		}
 
 		if (!commited) {
 			commit(false);
@@ -98,10 +142,23 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
 		final Stream stream = getStream();
 		final DataFrame frame = new DataFrame(stream.getId(), data, endStream);
-		writeFrame(frame);
+		writeFrame(frame, callback);
 	}
 
-	public synchronized void writeFrame(Frame frame) {
+	public void writeFrame(Frame frame) {
+		writeFrame(frame, Callback.NOOP);
+	}
+
+	/**
+	 * Write the frame, the callback is completed when the frame has been
+	 * written to the connection.
+	 *
+	 * @param frame
+	 *            The HEADERS, DATA or DISCONNECT frame
+	 * @param callback
+	 *            The callback of the frame
+	 */
+	public synchronized void writeFrame(Frame frame, Callback callback) {
 		switch (frame.getType()) {
 		case DATA:
 			if (!commited)
@@ -111,25 +168,35 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 			if (isChunked) {
 				if (dataFrame.isEndStream()) {
 					if (currentDataFrame == null) {
-						writeDataFrame(dataFrame);
+						writeDataFrame(dataFrame, callback);
 					} else {
-						writeDataFrame(currentDataFrame);
-						writeDataFrame(dataFrame);
+						writeDataFrame(currentDataFrame, currentCallback);
+						writeDataFrame(dataFrame, callback);
 					}
+				} else if (callback != Callback.NOOP) {
+					// the writer waits for the callback, the frame can not be cached until the next frame
+					if (currentDataFrame != null) {
+						writeDataFrame(currentDataFrame, currentCallback);
+						currentDataFrame = null;
+						currentCallback = null;
+					}
+					writeDataFrame(dataFrame, callback);
 				} else {
 					if (currentDataFrame == null) {
 						currentDataFrame = dataFrame;
+						currentCallback = callback;
 					} else {
-						writeDataFrame(currentDataFrame);
+						writeDataFrame(currentDataFrame, currentCallback);
 						currentDataFrame = dataFrame;
+						currentCallback = callback;
 					}
 				}
 			} else {
-				writeDataFrame(dataFrame);
+				writeDataFrame(dataFrame, callback);
 			}
 			break;
 		case HEADERS:
-			writeHeadersFrame((HeadersFrame) frame);
+			writeHeadersFrame((HeadersFrame) frame, callback);
 			break;
 		case DISCONNECT:
 			if (isChunked) {
@@ -137,13 +204,15 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 					if (!currentDataFrame.isEndStream()) {
 						DataFrame theLastDataFrame = new DataFrame(currentDataFrame.getStreamId(),
 								currentDataFrame.getData(), true);
-						writeDataFrame(theLastDataFrame);
+						writeDataFrame(theLastDataFrame, currentCallback);
 						currentDataFrame = null;
+						currentCallback = null;
+						callback.succeeded();
 					} else {
 						throw new IllegalStateException("the end data stream is cached");
 					}
 				} else {
-					throw new IllegalStateException("the cached data stream is null");
+					writeDataFrame(new DataFrame(getStream().getId(), BufferUtils.EMPTY_BUFFER, true), callback);
 				}
 			} else {
 				throw new IllegalArgumentException(
@@ -156,11 +225,11 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 		}
 	}
 
-	protected synchronized void writeDataFrame(DataFrame dataFrame) {
+	protected synchronized void writeDataFrame(DataFrame dataFrame, Callback callback) {
 		closed = dataFrame.isEndStream();
 
 		if (isWriting) {
-			frames.offer(dataFrame);
+			frames.offer(new FrameEntry(dataFrame, callback));
 		} else {
 			if (log.isDebugEnabled()) {
 				log.debug("the stream {} writes a frame {}, remaining frames are {}", dataFrame.getStreamId(), dataFrame, frames.toString());
@@ -168,21 +237,23 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 			}
 
 			isWriting = true;
+			writingCallback = callback;
 			getStream().data(dataFrame, frameCallback);
 		}
 	}
 
-	protected synchronized void writeHeadersFrame(HeadersFrame headersFrame) {
+	protected synchronized void writeHeadersFrame(HeadersFrame headersFrame, Callback callback) {
 		closed = headersFrame.isEndStream();
 
 		if (isWriting) {
-			frames.offer(headersFrame);
+			frames.offer(new FrameEntry(headersFrame, callback));
 		} else {
 			if (log.isDebugEnabled()) {
 				log.debug("the stream {} writes a frame {}", headersFrame.getStreamId(), headersFrame);
 			}
 
 			isWriting = true;
+			writingCallback = callback;
 			getStream().headers(headersFrame, frameCallback);
 		}
 	}
@@ -240,26 +311,37 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 		writeFrame(headersFrame);
 	}
 
+	private static class FrameEntry {
+		private final Frame frame;
+		private final Callback callback;
+
+		private FrameEntry(Frame frame, Callback callback) {
+			this.frame = frame;
+			this.callback = callback;
+		}
+	}
+
 	private class FrameCallback implements Callback {
 
 		@Override
 		public void succeeded() {
+			Callback written;
 			synchronized (AbstractHTTP2OutputStream.this) {
+				written = writingCallback;
+				writingCallback = null;
 				isWriting = false;
-				final Frame frame = frames.poll();
-				if (frame != null) {
-					switch (frame.getType()) {
+				final FrameEntry entry = frames.poll();
+				if (entry != null) {
+					switch (entry.frame.getType()) {
 					case DATA:
-						writeDataFrame((DataFrame) frame);
+						writeDataFrame((DataFrame) entry.frame, entry.callback);
 						break;
 					case HEADERS:
-						writeHeadersFrame((HeadersFrame) frame);
+						writeHeadersFrame((HeadersFrame) entry.frame, entry.callback);
 						break;
 					default:
-						throw new IllegalArgumentException("the frame type is error, the type is " + frame.getType());
+						throw new IllegalArgumentException("the frame type is error, the type is " + entry.frame.getType());
 					}
-				} else {
-					isWriting = false;
 				}
 
 				if (log.isDebugEnabled()) {
@@ -267,14 +349,29 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 							getStream().getId(), frames.size());
 				}
 			}
+			// the writer may write the next frame in the callback
+			if (written != null) {
+				written.succeeded();
+			}
 		}
 
 		@Override
 		public void failed(Throwable x) {
+			List<Callback> failedCallbacks = new ArrayList<>();
 			synchronized (AbstractHTTP2OutputStream.this) {
 				log.error("the stream {} outputs http2 frame unsuccessfully ", x, getStream().getId());
 				isWriting = false;
+				if (writingCallback != null) {
+					failedCallbacks.add(writingCallback);
+					writingCallback = null;
+				}
+				// the queued frames can not be written after the failed frame
+				FrameEntry entry;
+				while ((entry = frames.poll()) != null) {
+					failedCallbacks.add(entry.callback);
+				}
 			}
+			failedCallbacks.forEach(c -> c.failed(x));
 		}
 
 	}
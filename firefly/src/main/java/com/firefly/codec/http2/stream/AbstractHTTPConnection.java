@@ -20,6 +20,13 @@ abstract public class AbstractHTTPConnection implements HTTPConnection {
 		this.httpVersion = httpVersion;
 	}
 
+	/**
+	 * @return The TCP session of this connection
+	 */
+	public Session getTcpSession() {
+		return tcpSession;
+	}
+
 	@Override
 	public Object getAttachment() {
 		return attachment;
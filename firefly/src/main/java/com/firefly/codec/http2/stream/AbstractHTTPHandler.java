@@ -2,11 +2,13 @@ package com.firefly.codec.http2.stream;
 
 import com.firefly.net.Handler;
 import com.firefly.net.Session;
+import com.firefly.net.tcp.ssl.SSLSession;
 import com.firefly.server.utils.StatisticsUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLContext;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -28,12 +30,7 @@ public abstract class AbstractHTTPHandler implements Handler {
 	@Override
 	public void exceptionCaught(Session session, Throwable t) throws Throwable {
 		log.error("HTTP handler exception", t);
-		if (session.getAttachment() instanceof HTTPConnection) {
-			HTTPConnection httpConnection = (HTTPConnection) session.getAttachment();
-			if (httpConnection != null && httpConnection.isOpen()) {
-				httpConnection.close();
-			}
-		}
+		closeAttachment(session);
 	}
 
 	@Override
@@ -41,15 +38,30 @@ public abstract class AbstractHTTPHandler implements Handler {
 		log.info("session {} closed", session.getSessionId());
 		StatisticsUtils.saveConnectionInfo(session);
 		try {
-			if (session.getAttachment() instanceof HTTPConnection) {
-				HTTPConnection httpConnection = (HTTPConnection) session.getAttachment();
-				if (httpConnection != null && httpConnection.isOpen()) {
-					httpConnection.close();
-				}
-			}
+			closeAttachment(session);
 		} catch (Throwable t) {
 			log.error("http2 conection close exception", t);
 		}
 	}
 
+	/**
+	 * Close the HTTP connection of the session, or the SSL session if the
+	 * session is closed before the handshake finishes, so the handshake permit
+	 * is released.
+	 */
+	private void closeAttachment(Session session) throws IOException {
+		Object attachment = session.getAttachment();
+		if (attachment instanceof HTTPConnection) {
+			HTTPConnection httpConnection = (HTTPConnection) attachment;
+			if (httpConnection.isOpen()) {
+				httpConnection.close();
+			}
+		} else if (attachment instanceof SSLSession) {
+			SSLSession sslSession = (SSLSession) attachment;
+			if (sslSession.isOpen()) {
+				sslSession.close();
+			}
+		}
+	}
+
 }
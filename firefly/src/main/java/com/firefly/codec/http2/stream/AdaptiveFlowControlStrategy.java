@@ -0,0 +1,340 @@
+package com.firefly.codec.http2.stream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.frame.PingFrame;
+import com.firefly.codec.http2.frame.WindowUpdateFrame;
+import com.firefly.utils.concurrent.Callback;
+
+/**
+ * <p>
+ * A flow control strategy that sizes the receive windows by the measured
+ * bandwidth-delay product of the connection.
+ * </p>
+ * <p>
+ * When the DATA frames arrive, the strategy sends a PING and counts the bytes
+ * received until the PING reply arrives. The count is the bytes that the peer
+ * delivers in one round trip, it is limited by the network and by the
+ * consumption rate of the application, since the peer can not send more than
+ * the consumed bytes allow. If the count fills most of the session window, the
+ * window is the bottleneck and the target window grows to twice the count. If
+ * the count uses a small part of the window, the target window shrinks by
+ * half.
+ * </p>
+ * <p>
+ * As the {@link BufferingFlowControlStrategy}, the consumed bytes are
+ * accumulated and a WINDOW_UPDATE is sent when the accumulated bytes reach a
+ * ratio of the window. The WINDOW_UPDATE carries the accumulated bytes plus the
+ * growth of the window, or the accumulated bytes minus the shrinkage of the
+ * window, so that the received and unconsumed bytes plus the window of the
+ * peer never exceed the target. The targets are bounded by the max session and
+ * stream receive windows, that are the memory ceilings of one connection.
+ * </p>
+ */
+public class AdaptiveFlowControlStrategy extends AbstractFlowControlStrategy {
+	public static final int DEFAULT_MAX_SESSION_RECV_WINDOW = 16 * 1024 * 1024;
+	public static final int DEFAULT_MAX_STREAM_RECV_WINDOW = 8 * 1024 * 1024;
+	public static final long DEFAULT_PING_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+
+	// the high bits identify the PING frames of this strategy, the low bits are the measurement sequence
+	private static final long PING_SEQUENCE_MASK = 0xffffL;
+
+	private final long pingPrefix = ThreadLocalRandom.current().nextLong() & ~PING_SEQUENCE_MASK;
+	private final AtomicBoolean measuring = new AtomicBoolean();
+	private volatile long pingPayload;
+	private volatile long pingTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PING_TIMEOUT);
+	private final AtomicLong receivedBytes = new AtomicLong();
+	private final Window sessionWindow = new Window(DEFAULT_WINDOW_SIZE);
+	private final Map<StreamSPI, Window> streamWindows = new ConcurrentHashMap<>();
+	private final int maxSessionRecvWindow;
+	private final int maxStreamRecvWindow;
+	private float bufferRatio;
+	private volatile int minSessionRecvWindow = DEFAULT_WINDOW_SIZE;
+	private volatile int sessionRecvWindowTarget = DEFAULT_WINDOW_SIZE;
+	private volatile int streamRecvWindowTarget;
+	private volatile long pingTime;
+	private volatile long pingReceivedBytes;
+	private volatile long roundTripTime;
+	private volatile long bandwidth;
+
+	public AdaptiveFlowControlStrategy(float bufferRatio) {
+		this(DEFAULT_WINDOW_SIZE, bufferRatio, DEFAULT_MAX_SESSION_RECV_WINDOW, DEFAULT_MAX_STREAM_RECV_WINDOW);
+	}
+
+	public AdaptiveFlowControlStrategy(int initialStreamSendWindow, float bufferRatio, int maxSessionRecvWindow,
+			int maxStreamRecvWindow) {
+		super(initialStreamSendWindow);
+		this.bufferRatio = bufferRatio;
+		this.maxSessionRecvWindow = Math.max(maxSessionRecvWindow, DEFAULT_WINDOW_SIZE);
+		this.maxStreamRecvWindow = Math.max(maxStreamRecvWindow, DEFAULT_WINDOW_SIZE);
+	}
+
+	public float getBufferRatio() {
+		return bufferRatio;
+	}
+
+	public void setBufferRatio(float bufferRatio) {
+		this.bufferRatio = bufferRatio;
+	}
+
+	public int getMaxSessionRecvWindow() {
+		return maxSessionRecvWindow;
+	}
+
+	public int getMaxStreamRecvWindow() {
+		return maxStreamRecvWindow;
+	}
+
+	/**
+	 * @return The time (ms) to wait for a PING reply before the measurement is
+	 *         restarted, the default value is {@value #DEFAULT_PING_TIMEOUT}.
+	 *         The time is extended to four smoothed round trips.
+	 */
+	public long getPingTimeout() {
+		return TimeUnit.NANOSECONDS.toMillis(pingTimeout);
+	}
+
+	public void setPingTimeout(long pingTimeout) {
+		this.pingTimeout = TimeUnit.MILLISECONDS.toNanos(pingTimeout);
+	}
+
+	/**
+	 * @return The session receive window that the strategy converges to
+	 */
+	public int getSessionRecvWindowTarget() {
+		return sessionRecvWindowTarget;
+	}
+
+	/**
+	 * @return The stream receive window that the strategy converges to
+	 */
+	public int getStreamRecvWindowTarget() {
+		return Math.max(streamRecvWindowTarget, getInitialStreamRecvWindow());
+	}
+
+	/**
+	 * @param unit
+	 *            The time unit
+	 * @return The smoothed round trip time measured by the PING frames, or 0
+	 *         if it is not measured yet
+	 */
+	public long getRoundTripTime(TimeUnit unit) {
+		return unit.convert(roundTripTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return The bytes per second received in the last round trip
+	 */
+	public long getBandwidth() {
+		return bandwidth;
+	}
+
+	@Override
+	public void onStreamCreated(StreamSPI stream) {
+		super.onStreamCreated(stream);
+		streamWindows.put(stream, new Window(getInitialStreamRecvWindow()));
+	}
+
+	@Override
+	public void onStreamDestroyed(StreamSPI stream) {
+		streamWindows.remove(stream);
+		super.onStreamDestroyed(stream);
+	}
+
+	@Override
+	public void updateInitialStreamWindow(SessionSPI session, int initialStreamWindow, boolean local) {
+		int previousInitialStreamWindow = getInitialStreamRecvWindow();
+		super.updateInitialStreamWindow(session, initialStreamWindow, local);
+		if (local) {
+			int delta = initialStreamWindow - previousInitialStreamWindow;
+			for (Window window : streamWindows.values()) {
+				synchronized (window) {
+					window.size += delta;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onDataReceived(SessionSPI session, StreamSPI stream, int length) {
+		super.onDataReceived(session, stream, length);
+
+		long received = receivedBytes.addAndGet(length);
+		if (measuring.compareAndSet(false, true)) {
+			ping(session, received - length);
+		} else if (System.nanoTime() - pingTime > Math.max(pingTimeout, roundTripTime * 4)) {
+			// The PING or its reply is lost, a late reply of the abandoned PING is ignored.
+			if (log.isDebugEnabled())
+				log.debug("The PING reply timed out, restarting the measurement for {}", session);
+			ping(session, received - length);
+		}
+	}
+
+	private void ping(SessionSPI session, long received) {
+		long payload = pingPrefix | ((pingPayload + 1) & PING_SEQUENCE_MASK);
+		pingReceivedBytes = received;
+		pingTime = System.nanoTime();
+		pingPayload = payload;
+		session.ping(new PingFrame(payload, false), Callback.NOOP);
+	}
+
+	@Override
+	public boolean onPingReply(SessionSPI session, PingFrame frame) {
+		long payload = frame.getPayloadAsLong();
+		if ((payload & ~PING_SEQUENCE_MASK) != pingPrefix)
+			return false;
+		if (payload != pingPayload || !measuring.get())
+			return true;
+
+		long rtt = Math.max(System.nanoTime() - pingTime, 1L);
+		long sample = receivedBytes.get() - pingReceivedBytes;
+		long smoothedRtt = roundTripTime;
+		roundTripTime = smoothedRtt == 0 ? rtt : (smoothedRtt * 7 + rtt) / 8;
+		bandwidth = sample * TimeUnit.SECONDS.toNanos(1) / rtt;
+
+		int target = sessionRecvWindowTarget;
+		int newTarget = target;
+		if (sample >= target * 2L / 3) {
+			// The window is the bottleneck, more bytes are in flight than it allows.
+			newTarget = (int) Math.min(sample * 2, maxSessionRecvWindow);
+		} else if (sample < target / 8) {
+			newTarget = Math.max(target / 2, minSessionRecvWindow);
+		}
+		if (newTarget != target) {
+			sessionRecvWindowTarget = newTarget;
+			streamRecvWindowTarget = Math.min(newTarget, maxStreamRecvWindow);
+			if (log.isDebugEnabled())
+				log.debug("Measured {} bytes in {} ns, updated session recv window target {} -> {} for {}", sample,
+						rtt, target, newTarget, session);
+		}
+		measuring.set(false);
+
+		// Enlarge the session window now rather than waiting for the next
+		// consumption, the peer may be already stalled.
+		int delta = 0;
+		synchronized (sessionWindow) {
+			if (newTarget > sessionWindow.size) {
+				delta = newTarget - sessionWindow.size;
+				sessionWindow.size = newTarget;
+			}
+		}
+		if (delta > 0) {
+			session.updateRecvWindow(delta);
+			session.frames(null, Callback.NOOP, new WindowUpdateFrame(0, delta), Frame.EMPTY_ARRAY);
+		}
+		return true;
+	}
+
+	@Override
+	public void onDataConsumed(SessionSPI session, StreamSPI stream, int length) {
+		if (length <= 0)
+			return;
+
+		WindowUpdateFrame windowFrame = null;
+		int delta = sessionWindow.consume(length, sessionRecvWindowTarget, bufferRatio);
+		if (delta > 0) {
+			session.updateRecvWindow(delta);
+			if (log.isDebugEnabled())
+				log.debug("Data consumed, {} bytes, updated session recv window by {} for {}", length, delta, session);
+			windowFrame = new WindowUpdateFrame(0, delta);
+		}
+
+		Frame[] windowFrames = Frame.EMPTY_ARRAY;
+		if (stream != null) {
+			if (stream.isClosed()) {
+				if (log.isDebugEnabled())
+					log.debug("Data consumed, {} bytes, ignoring update stream recv window for closed {}", length,
+							stream);
+			} else {
+				Window window = streamWindows.get(stream);
+				if (window != null) {
+					delta = window.consume(length, getStreamRecvWindowTarget(), bufferRatio);
+					if (delta > 0) {
+						stream.updateRecvWindow(delta);
+						if (log.isDebugEnabled())
+							log.debug("Data consumed, {} bytes, updated stream recv window by {} for {}", length,
+									delta, stream);
+						WindowUpdateFrame frame = new WindowUpdateFrame(stream.getId(), delta);
+						if (windowFrame == null)
+							windowFrame = frame;
+						else
+							windowFrames = new Frame[] { frame };
+					}
+				}
+			}
+		}
+
+		if (windowFrame != null)
+			session.frames(stream, Callback.NOOP, windowFrame, windowFrames);
+	}
+
+	@Override
+	public void windowUpdate(SessionSPI session, StreamSPI stream, WindowUpdateFrame frame) {
+		super.windowUpdate(session, stream, frame);
+
+		// The window updates of this strategy never make the session recv
+		// window larger than the tracked size, a larger window means that the
+		// session was enlarged by the configured initial session recv window.
+		if (frame.getStreamId() == 0) {
+			int window = session.updateRecvWindow(0);
+			synchronized (sessionWindow) {
+				if (window > sessionWindow.size) {
+					sessionWindow.size = window;
+					minSessionRecvWindow = Math.max(minSessionRecvWindow, window);
+					if (window > sessionRecvWindowTarget)
+						sessionRecvWindowTarget = window;
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s@%x[ratio=%.2f,sessionTarget=%d,streamTarget=%d,rtt=%dus,sessionStallTime=%dms,streamsStallTime=%dms]",
+				getClass().getSimpleName(), hashCode(), bufferRatio, sessionRecvWindowTarget,
+				getStreamRecvWindowTarget(), getRoundTripTime(TimeUnit.MICROSECONDS), getSessionStallTime(),
+				getStreamsStallTime());
+	}
+
+	/**
+	 * The size is the window of the peer plus the received bytes that are not
+	 * returned to the peer yet, the level is the consumed bytes that are not
+	 * returned to the peer yet.
+	 */
+	private static class Window {
+		private int size;
+		private int level;
+
+		private Window(int size) {
+			this.size = size;
+		}
+
+		/**
+		 * @return The delta of the WINDOW_UPDATE frame, or 0 if no frame is
+		 *         needed
+		 */
+		private synchronized int consume(int length, int target, float ratio) {
+			level += length;
+			if (target <= size && level <= (int) (Math.min(size, target) * ratio))
+				return 0;
+
+			int delta = level + target - size;
+			level = 0;
+			if (delta > 0) {
+				size = target;
+				return delta;
+			} else {
+				// Withhold the consumed bytes to shrink the window.
+				size = target - delta;
+				return 0;
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.firefly.codec.http2.stream;
 
+import com.firefly.codec.http2.frame.PingFrame;
 import com.firefly.codec.http2.frame.WindowUpdateFrame;
 
 public interface FlowControlStrategy {
@@ -22,4 +23,15 @@ public interface FlowControlStrategy {
 	public void onDataSending(StreamSPI stream, int length);
 
 	public void onDataSent(StreamSPI stream, int length);
+
+	/**
+	 * Callback method invoked when a PING reply has been received.
+	 *
+	 * @return whether the reply answers a PING sent by this strategy, in which
+	 *         case the session listener is not notified. By default it
+	 *         returns false.
+	 */
+	default boolean onPingReply(SessionSPI session, PingFrame frame) {
+		return false;
+	}
 }
@@ -0,0 +1,130 @@
+package com.firefly.codec.http2.stream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import com.firefly.codec.http2.encode.HttpGenerator;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+
+/**
+ * The reusable header and chunk buffers of an HTTP/1 connection. A buffer is
+ * the callback of its own write, it returns to the arena when the write
+ * completes, so a persistent connection reuses a few buffers for all messages.
+ * The buffer that is never released is collected as the garbage, and the arena
+ * allocates a new one.
+ */
+public class HTTP1BufferArena {
+
+	public static final int DEFAULT_MAX_CACHED_BUFFERS = 4;
+
+	private final int headerBufferSize;
+	private final int maxCachedBuffers;
+	private final ArrayDeque<ArenaBuffer> headerBuffers = new ArrayDeque<>();
+	private final ArrayDeque<ArenaBuffer> chunkBuffers = new ArrayDeque<>();
+
+	public HTTP1BufferArena(int headerBufferSize) {
+		this(headerBufferSize, DEFAULT_MAX_CACHED_BUFFERS);
+	}
+
+	/**
+	 * Create the buffer arena.
+	 *
+	 * @param headerBufferSize
+	 *            The size of the header buffer
+	 * @param maxCachedBuffers
+	 *            The max number of the cached buffers of each type
+	 */
+	public HTTP1BufferArena(int headerBufferSize, int maxCachedBuffers) {
+		this.headerBufferSize = headerBufferSize;
+		this.maxCachedBuffers = maxCachedBuffers;
+	}
+
+	/**
+	 * Acquire a header buffer in the flush mode.
+	 *
+	 * @return The header buffer
+	 */
+	public ArenaBuffer acquireHeaderBuffer() {
+		return acquire(headerBuffers, headerBufferSize);
+	}
+
+	/**
+	 * Acquire a chunk buffer in the flush mode.
+	 *
+	 * @return The chunk buffer
+	 */
+	public ArenaBuffer acquireChunkBuffer() {
+		return acquire(chunkBuffers, HttpGenerator.CHUNK_SIZE);
+	}
+
+	private ArenaBuffer acquire(ArrayDeque<ArenaBuffer> buffers, int size) {
+		ArenaBuffer buffer;
+		synchronized (this) {
+			buffer = buffers.pollFirst();
+			if (buffer != null) {
+				buffer.inUse = true;
+			}
+		}
+		if (buffer != null) {
+			BufferUtils.clear(buffer.byteBuffer);
+			return buffer;
+		} else {
+			return new ArenaBuffer(buffers, BufferUtils.allocate(size));
+		}
+	}
+
+	public synchronized int getCachedHeaderBufferCount() {
+		return headerBuffers.size();
+	}
+
+	public synchronized int getCachedChunkBufferCount() {
+		return chunkBuffers.size();
+	}
+
+	public class ArenaBuffer implements Callback {
+
+		private final ArrayDeque<ArenaBuffer> buffers;
+		private final ByteBuffer byteBuffer;
+		private boolean inUse = true;
+
+		private ArenaBuffer(ArrayDeque<ArenaBuffer> buffers, ByteBuffer byteBuffer) {
+			this.buffers = buffers;
+			this.byteBuffer = byteBuffer;
+		}
+
+		public ByteBuffer getByteBuffer() {
+			return byteBuffer;
+		}
+
+		/**
+		 * Return the buffer to the arena, it does nothing if the buffer has
+		 * been released.
+		 */
+		public void release() {
+			synchronized (HTTP1BufferArena.this) {
+				if (inUse) {
+					inUse = false;
+					if (buffers.size() < maxCachedBuffers) {
+						buffers.offerFirst(this);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void succeeded() {
+			release();
+		}
+
+		@Override
+		public void failed(Throwable x) {
+			release();
+		}
+
+		@Override
+		public boolean isNonBlocking() {
+			return true;
+		}
+	}
+}
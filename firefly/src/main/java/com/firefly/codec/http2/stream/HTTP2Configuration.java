@@ -1,6 +1,9 @@
 package com.firefly.codec.http2.stream;
 
+import com.firefly.codec.http2.encode.PreEncodedResponseFields;
+import com.firefly.net.BufferPool;
 import com.firefly.net.SSLContextFactory;
+import com.firefly.net.buffer.SizeClassBufferPool;
 import com.firefly.net.tcp.ssl.SelfSignedCertificateOpenSSLContextFactory;
 
 public class HTTP2Configuration {
@@ -18,11 +21,19 @@ public class HTTP2Configuration {
     private String flowControlStrategy = "buffer";
     private int initialStreamSendWindow = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
     private int initialSessionRecvWindow = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+    private int maxSessionRecvWindow = AdaptiveFlowControlStrategy.DEFAULT_MAX_SESSION_RECV_WINDOW;
+    private int maxStreamRecvWindow = AdaptiveFlowControlStrategy.DEFAULT_MAX_STREAM_RECV_WINDOW;
     private int maxConcurrentStreams = -1;
     private int maxHeaderBlockFragment = 0;
     private int maxRequestHeadLength = 4 * 1024;
     private int maxResponseHeadLength = 4 * 1024;
     private String characterEncoding = "UTF-8";
+    private PreEncodedResponseFields preEncodedResponseFields = new PreEncodedResponseFields();
+    private String streamScheduler = "priority";
+    private int streamSchedulerQuantum = RoundRobinStreamScheduler.DEFAULT_QUANTUM;
+    private int maxFlushDataBytes = HTTP2Flusher.DEFAULT_MAX_FLUSH_DATA_BYTES;
+    private BufferPool headerBlockBufferPool = new SizeClassBufferPool(false,
+            SizeClassBufferPool.DEFAULT_MAX_POOLED_BUFFER_SIZE, SizeClassBufferPool.DEFAULT_MAX_BUFFERS_PER_CLASS);
 
     public com.firefly.net.Config getTcpConfiguration() {
         return tcpConfiguration;
@@ -64,6 +75,35 @@ public class HTTP2Configuration {
         this.initialSessionRecvWindow = initialSessionRecvWindow;
     }
 
+    /**
+     * Get the ceiling of the session receive window when the "adaptive" flow
+     * control strategy is used. It bounds the unconsumed bytes that the peer
+     * can send on one connection.
+     *
+     * @return The max session receive window
+     */
+    public int getMaxSessionRecvWindow() {
+        return maxSessionRecvWindow;
+    }
+
+    public void setMaxSessionRecvWindow(int maxSessionRecvWindow) {
+        this.maxSessionRecvWindow = maxSessionRecvWindow;
+    }
+
+    /**
+     * Get the ceiling of the stream receive windows when the "adaptive" flow
+     * control strategy is used.
+     *
+     * @return The max stream receive window
+     */
+    public int getMaxStreamRecvWindow() {
+        return maxStreamRecvWindow;
+    }
+
+    public void setMaxStreamRecvWindow(int maxStreamRecvWindow) {
+        this.maxStreamRecvWindow = maxStreamRecvWindow;
+    }
+
     public int getInitialStreamSendWindow() {
         return initialStreamSendWindow;
     }
@@ -112,6 +152,81 @@ public class HTTP2Configuration {
         this.characterEncoding = characterEncoding;
     }
 
+    /**
+     * Get the server-wide pre-encoded fields of the HTTP/1 responses, such as
+     * the Server header, the cached Date header and the constant Content-Type
+     * values.
+     *
+     * @return The pre-encoded response fields
+     */
+    public PreEncodedResponseFields getPreEncodedResponseFields() {
+        return preEncodedResponseFields;
+    }
+
+    public void setPreEncodedResponseFields(PreEncodedResponseFields preEncodedResponseFields) {
+        this.preEncodedResponseFields = preEncodedResponseFields;
+    }
+
+    /**
+     * Get the scheduler that interleaves the frames of the HTTP/2 streams,
+     * "priority" is the RFC 7540 dependency tree scheduler, "round-robin"
+     * serves the streams in turn and ignores the priorities.
+     *
+     * @return The stream scheduler name
+     */
+    public String getStreamScheduler() {
+        return streamScheduler;
+    }
+
+    public void setStreamScheduler(String streamScheduler) {
+        this.streamScheduler = streamScheduler;
+    }
+
+    /**
+     * Get the max DATA bytes that a stream writes in its turn when the
+     * "round-robin" stream scheduler is used.
+     *
+     * @return The round-robin quantum
+     */
+    public int getStreamSchedulerQuantum() {
+        return streamSchedulerQuantum;
+    }
+
+    public void setStreamSchedulerQuantum(int streamSchedulerQuantum) {
+        this.streamSchedulerQuantum = streamSchedulerQuantum;
+    }
+
+    /**
+     * Get the max DATA bytes of one HTTP/2 write, the streams that become
+     * ready during the write can be interleaved in the next write.
+     *
+     * @return The max DATA bytes of one write
+     */
+    public int getMaxFlushDataBytes() {
+        return maxFlushDataBytes;
+    }
+
+    public void setMaxFlushDataBytes(int maxFlushDataBytes) {
+        this.maxFlushDataBytes = maxFlushDataBytes;
+    }
+
+    /**
+     * Get the heap buffer pool of the HTTP/2 header blocks. The HEADERS and
+     * PUSH_PROMISE frames are generated into the pooled buffers, and the
+     * header blocks that span several reads or CONTINUATION frames are
+     * accumulated in the pooled buffers. If it is null, the header block
+     * buffers are allocated.
+     *
+     * @return The header block buffer pool
+     */
+    public BufferPool getHeaderBlockBufferPool() {
+        return headerBlockBufferPool;
+    }
+
+    public void setHeaderBlockBufferPool(BufferPool headerBlockBufferPool) {
+        this.headerBlockBufferPool = headerBlockBufferPool;
+    }
+
     public boolean isSecureConnectionEnabled() {
         return isSecureConnectionEnabled;
     }
@@ -1,6 +1,7 @@
 package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.frame.PriorityFrame;
 import com.firefly.codec.http2.frame.WindowUpdateFrame;
 import com.firefly.net.ByteBufferArrayOutputEntry;
 import com.firefly.utils.concurrent.Callback;
@@ -12,23 +13,79 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.*;
-
+import java.util.function.Consumer;
+
+/**
+ * The flusher writes the queued frames of a session. The control frames are
+ * written first, the frames of the streams are interleaved by the
+ * {@link StreamScheduler}, and the DATA bytes of one write are limited, so the
+ * newly queued streams are not starved by a large download.
+ */
 public class HTTP2Flusher extends IteratingCallback {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    public static final int DEFAULT_MAX_FLUSH_DATA_BYTES = 128 * 1024;
+
     private final Queue<WindowEntry> windows = new ArrayDeque<>();
+    private final Queue<Consumer<StreamScheduler>> schedulerUpdates = new ArrayDeque<>();
     private final Deque<Entry> frames = new ArrayDeque<>();
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    private final Deque<Entry> controls = new ArrayDeque<>();
     private final List<Entry> actives = new ArrayList<>();
+    private final List<Entry> stalled = new ArrayList<>();
     private final HTTP2Session session;
     private final Queue<ByteBuffer> buffers = new LinkedList<>();
-    private Entry stalled;
+    private StreamScheduler scheduler = new PriorityStreamScheduler();
+    private volatile int maxFlushDataBytes = DEFAULT_MAX_FLUSH_DATA_BYTES;
     private Throwable terminated;
 
     public HTTP2Flusher(HTTP2Session session) {
         this.session = session;
     }
 
+    /**
+     * Replace the stream scheduler, the queued frames are moved to the new
+     * scheduler.
+     *
+     * @param streamScheduler The stream scheduler
+     */
+    public void setStreamScheduler(StreamScheduler streamScheduler) {
+        updateScheduler(old -> {
+            Entry entry;
+            while ((entry = old.poll()) != null) {
+                streamScheduler.offer(entry);
+            }
+            scheduler = streamScheduler;
+        });
+    }
+
+    public int getMaxFlushDataBytes() {
+        return maxFlushDataBytes;
+    }
+
+    /**
+     * Set the max DATA bytes of one write.
+     *
+     * @param maxFlushDataBytes The max DATA bytes of one write
+     */
+    public void setMaxFlushDataBytes(int maxFlushDataBytes) {
+        this.maxFlushDataBytes = maxFlushDataBytes;
+    }
+
+    public void priority(PriorityFrame frame) {
+        updateScheduler(s -> s.priority(frame));
+    }
+
+    public void removeStream(int streamId) {
+        updateScheduler(s -> s.remove(streamId));
+    }
+
+    private void updateScheduler(Consumer<StreamScheduler> update) {
+        synchronized (this) {
+            if (terminated == null)
+                schedulerUpdates.offer(update);
+        }
+    }
+
     public void window(StreamSPI stream, WindowUpdateFrame frame) {
         Throwable closed;
         synchronized (this) {
@@ -93,49 +150,60 @@ public class HTTP2Flusher extends IteratingCallback {
                 entry.perform();
             }
 
+            while (!schedulerUpdates.isEmpty()) {
+                schedulerUpdates.poll().accept(scheduler);
+            }
+
             if (!frames.isEmpty()) {
                 for (Entry entry : frames) {
-                    entries.offer(entry);
-                    actives.add(entry);
+                    if (entry.stream == null || entry.isProtocol())
+                        controls.offer(entry);
+                    else
+                        scheduler.offer(entry);
                 }
                 frames.clear();
             }
         }
 
-
-        if (entries.isEmpty()) {
+        if (controls.isEmpty() && scheduler.isEmpty()) {
             if (log.isDebugEnabled())
                 log.debug("Flushed {}", session);
             return Action.IDLE;
         }
 
-        while (!entries.isEmpty()) {
-            Entry entry = entries.poll();
-            if (log.isDebugEnabled())
-                log.debug("Processing {}", entry);
-
-            // If the stream has been reset, don't send the frame.
-            if (entry.reset()) {
-                if (log.isDebugEnabled())
-                    log.debug("Resetting {}", entry);
-                continue;
+        try {
+            Entry entry;
+            while ((entry = controls.poll()) != null) {
+                if (activate(entry))
+                    entry.generate(buffers);
             }
 
-            try {
+            // the streams are interleaved until the data limit of this write
+            int dataBytes = 0;
+            while (dataBytes < maxFlushDataBytes && (entry = scheduler.poll()) != null) {
+                if (!activate(entry))
+                    continue;
+
+                int dataRemaining = entry.dataRemaining();
                 if (entry.generate(buffers)) {
+                    int written = dataRemaining - entry.dataRemaining();
+                    if (written > 0) {
+                        dataBytes += written;
+                        scheduler.onSent(entry.stream.getId(), written);
+                    }
                     if (entry.dataRemaining() > 0)
-                        entries.offer(entry);
+                        scheduler.offerFirst(entry);
                 } else {
-                    if (stalled == null)
-                        stalled = entry;
+                    // the flow control window is exhausted
+                    stalled.add(entry);
                 }
-            } catch (Throwable failure) {
-                // Failure to generate the entry is catastrophic.
-                if (log.isDebugEnabled())
-                    log.debug("Failure generating frame " + entry.frame, failure);
-                failed(failure);
-                return Action.SUCCEEDED;
             }
+        } catch (Throwable failure) {
+            // Failure to generate the entry is catastrophic.
+            if (log.isDebugEnabled())
+                log.debug("Failure generating frames", failure);
+            failed(failure);
+            return Action.SUCCEEDED;
         }
 
         if (buffers.isEmpty()) {
@@ -153,6 +221,24 @@ public class HTTP2Flusher extends IteratingCallback {
         return Action.SCHEDULED;
     }
 
+    private boolean activate(Entry entry) {
+        if (log.isDebugEnabled())
+            log.debug("Processing {}", entry);
+
+        if (!entry.active) {
+            entry.active = true;
+            actives.add(entry);
+        }
+
+        // If the stream has been reset, don't send the frame.
+        if (entry.reset()) {
+            if (log.isDebugEnabled())
+                log.debug("Resetting {}", entry);
+            return false;
+        }
+        return true;
+    }
+
     private int getBufferTotalLength() {
         int length = 0;
         for (ByteBuffer buf : buffers) {
@@ -173,29 +259,17 @@ public class HTTP2Flusher extends IteratingCallback {
 
     private void complete() {
         buffers.clear();
+        // The header blocks have been written.
+        session.getGenerator().releaseHeaderBlocks();
 
         actives.forEach(Entry::complete);
+        actives.clear();
 
-        if (stalled != null) {
-            // We have written part of the frame, but there is more to write.
-            // The API will not allow to send two data frames for the same
-            // stream so we append the unfinished frame at the end to allow
-            // better interleaving with other streams.
-            int index = actives.indexOf(stalled);
-            for (int i = index; i < actives.size(); ++i) {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            for (int i = 0; i < index; ++i) {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            stalled = null;
+        // The stalled entries wait for the window update at the head of their streams.
+        for (int i = stalled.size() - 1; i >= 0; i--) {
+            scheduler.offerFirst(stalled.get(i));
         }
-
-        actives.clear();
+        stalled.clear();
     }
 
     @Override
@@ -206,6 +280,7 @@ public class HTTP2Flusher extends IteratingCallback {
     @Override
     protected void onCompleteFailure(Throwable x) {
         buffers.clear();
+        session.getGenerator().discardHeaderBlocks();
 
         Throwable closed;
         synchronized (this) {
@@ -215,9 +290,23 @@ public class HTTP2Flusher extends IteratingCallback {
                 log.debug("{}, active/queued={}/{}", closed != null ? "Closing" : "Failing", actives.size(), frames.size());
             actives.addAll(frames);
             frames.clear();
+            schedulerUpdates.clear();
+        }
+
+        actives.addAll(controls);
+        controls.clear();
+        for (Entry entry : stalled) {
+            if (!entry.active)
+                actives.add(entry);
+        }
+        stalled.clear();
+        Entry entry;
+        while ((entry = scheduler.poll()) != null) {
+            if (!entry.active)
+                actives.add(entry);
         }
 
-        actives.forEach(entry -> entry.failed(x));
+        actives.forEach(e -> e.failed(x));
         actives.clear();
 
         // If the failure came from within the
@@ -246,6 +335,7 @@ public class HTTP2Flusher extends IteratingCallback {
         protected final Frame frame;
         protected final StreamSPI stream;
         private boolean reset;
+        private boolean active;
 
         protected Entry(Frame frame, StreamSPI stream, Callback callback) {
             super(callback);
@@ -260,6 +350,7 @@ public class HTTP2Flusher extends IteratingCallback {
         protected abstract boolean generate(Queue<ByteBuffer> buffers);
 
         private void complete() {
+            active = false;
             if (reset)
                 failed(new EofException("reset"));
             else
@@ -279,7 +370,7 @@ public class HTTP2Flusher extends IteratingCallback {
             return this.reset = stream != null && stream.isReset() && !isProtocol();
         }
 
-        private boolean isProtocol() {
+        boolean isProtocol() {
             switch (frame.getType()) {
                 case PRIORITY:
                 case RST_STREAM:
@@ -39,7 +39,7 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
     private final Session.Listener listener;
     private final FlowControlStrategy flowControl;
     private final HTTP2Flusher flusher;
-    private int maxLocalStreams;
+    private volatile int maxLocalStreams;
     private int maxRemoteStreams;
     private long streamIdleTimeout;
     private int initialSessionRecvWindow;
@@ -108,6 +108,26 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
         return generator;
     }
 
+    /**
+     * Set the scheduler that interleaves the frames of the streams, the
+     * default scheduler is the {@link PriorityStreamScheduler}.
+     *
+     * @param streamScheduler The stream scheduler
+     */
+    public void setStreamScheduler(StreamScheduler streamScheduler) {
+        flusher.setStreamScheduler(streamScheduler);
+    }
+
+    /**
+     * Set the max DATA bytes of one write, the streams that are queued during
+     * the write can be interleaved in the next write.
+     *
+     * @param maxFlushDataBytes The max DATA bytes of one write
+     */
+    public void setMaxFlushDataBytes(int maxFlushDataBytes) {
+        flusher.setMaxFlushDataBytes(maxFlushDataBytes);
+    }
+
     @Override
     public long getBytesWritten() {
         return bytesWritten.get();
@@ -166,6 +186,9 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
     public void onPriority(PriorityFrame frame) {
         if (log.isDebugEnabled())
             log.debug("Received {}", frame);
+
+        flusher.priority(frame);
+        flusher.iterate();
     }
 
     @Override
@@ -263,7 +286,8 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
             log.debug("Received {}", frame);
 
         if (frame.isReply()) {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         } else {
             PingFrame reply = new PingFrame(frame.getPayload(), true);
             control(null, Callback.NOOP, reply);
@@ -587,6 +611,7 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
             onStreamClosed(stream);
 
             flowControl.onStreamDestroyed(stream);
+            flusher.removeStream(stream.getId());
 
             if (log.isDebugEnabled())
                 log.debug("Removed {} {}", local ? "local" : "remote", stream);
@@ -992,12 +1017,13 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
             Pair<Integer, List<ByteBuffer>> pair = generator.data((DataFrame) frame, length);
             buffers.addAll(pair.second);
             // Only one DATA frame is generated.
-            bytes = pair.first;
-            int written = bytes;
+            // More than one DATA frame may be generated before the write completes.
+            int written = pair.first;
+            bytes += written;
             if (log.isDebugEnabled())
                 log.debug("Generated {}, length/window/data={}/{}/{}", frame, written, window, dataRemaining);
 
-            this.dataWritten = written;
+            this.dataWritten += written;
             this.dataRemaining -= written;
 
             flowControl.onDataSending(stream, written);
@@ -1008,7 +1034,10 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
         @Override
         public void succeeded() {
             bytesWritten.addAndGet(bytes);
+            stream.updateBytesSent(dataWritten);
             flowControl.onDataSent(stream, dataWritten);
+            bytes = 0;
+            dataWritten = 0;
 
             // Do we have more to send ?
             DataFrame dataFrame = (DataFrame) frame;
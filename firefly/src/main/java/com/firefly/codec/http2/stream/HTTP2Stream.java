@@ -15,6 +15,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class HTTP2Stream extends IdleTimeout implements StreamSPI, Callback {
@@ -26,6 +27,7 @@ public class HTTP2Stream extends IdleTimeout implements StreamSPI, Callback {
 	private final AtomicReference<Callback> writing = new AtomicReference<>();
 	private final AtomicInteger sendWindow = new AtomicInteger();
 	private final AtomicInteger recvWindow = new AtomicInteger();
+	private final AtomicLong bytesSent = new AtomicLong();
 	private final SessionSPI session;
 	private final int streamId;
 	private final boolean local;
@@ -296,6 +298,16 @@ public class HTTP2Stream extends IdleTimeout implements StreamSPI, Callback {
 		return recvWindow.getAndAdd(delta);
 	}
 
+	@Override
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	@Override
+	public void updateBytesSent(int delta) {
+		bytesSent.addAndGet(delta);
+	}
+
 	@Override
 	public void close() {
 		closeState.set(CloseState.CLOSED);
@@ -1,6 +1,7 @@
 package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.model.MetaData;
+import com.firefly.utils.concurrent.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,8 +44,44 @@ public abstract class HTTPOutputStream extends OutputStream {
 	abstract public void writeWithContentLength(ByteBuffer[] data) throws IOException;
 	
 	abstract public void writeWithContentLength(ByteBuffer data) throws IOException;
+
+	/**
+	 * Write the content with the content length and close the stream. The
+	 * buffers are not copied, they may be read-only, direct or mapped buffers,
+	 * and they must not be modified until the callback completes.
+	 *
+	 * @param data
+	 *            The content buffers
+	 * @param callback
+	 *            The callback that is completed when the content has been
+	 *            written
+	 * @throws IOException
+	 *             The message can not be generated
+	 */
+	public void writeWithContentLength(ByteBuffer[] data, Callback callback) throws IOException {
+		writeWithContentLength(data);
+		callback.succeeded();
+	}
 	
 	abstract public void commit() throws IOException;
 	
 	abstract public void write(ByteBuffer data) throws IOException;
+
+	/**
+	 * Write the data without waiting for the connection, the callback is
+	 * completed when the data has been written to the connection. The data
+	 * must not be modified until the callback completes.
+	 *
+	 * @param data
+	 *            The content
+	 * @param callback
+	 *            The callback that is completed when the data has been
+	 *            written
+	 * @throws IOException
+	 *             The data can not be generated
+	 */
+	public void write(ByteBuffer data, Callback callback) throws IOException {
+		write(data);
+		callback.succeeded();
+	}
 }
@@ -0,0 +1,275 @@
+package com.firefly.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.PriorityFrame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The RFC 7540 (section 5.3) stream priority scheduler. The streams form a
+ * dependency tree, a stream is served before its dependent streams, and the
+ * sibling streams share the bandwidth in proportion to their weights by the
+ * weighted fair queuing: every node has a virtual pass that advances by the
+ * sent bytes divided by the weight, the active sibling that has the smallest
+ * pass is served next.
+ */
+public class PriorityStreamScheduler implements StreamScheduler {
+
+    public static final int DEFAULT_WEIGHT = 16;
+    public static final int DEFAULT_MAX_NODES = 1024;
+    private static final long STRIDE = 256;
+
+    private final Node root = new Node(0);
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final int maxNodes;
+    private int size;
+
+    public PriorityStreamScheduler() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param maxNodes The max number of the streams in the dependency tree,
+     *                 the PRIORITY frames of the idle streams that exceed the
+     *                 limit are ignored
+     */
+    public PriorityStreamScheduler(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public void offer(HTTP2Flusher.Entry entry) {
+        Node node = getOrCreateNode(entry.stream.getId());
+        node.entries.offer(entry);
+        onEntryAdded(node);
+    }
+
+    @Override
+    public void offerFirst(HTTP2Flusher.Entry entry) {
+        Node node = getOrCreateNode(entry.stream.getId());
+        node.entries.offerFirst(entry);
+        onEntryAdded(node);
+    }
+
+    @Override
+    public HTTP2Flusher.Entry poll() {
+        if (root.active == 0) {
+            return null;
+        }
+
+        Node node = root;
+        while (node == root || node.entries.isEmpty()) {
+            node = selectChild(node);
+        }
+
+        HTTP2Flusher.Entry entry = node.entries.poll();
+        size--;
+        if (node.entries.isEmpty()) {
+            updateActive(node, -1);
+            if (node.removed) {
+                removeNode(node);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void onSent(int streamId, int bytes) {
+        Node node = nodes.get(streamId);
+        for (Node n = node; n != null && n.parent != null; n = n.parent) {
+            n.parent.virtualTime = Math.max(n.parent.virtualTime, n.pass);
+            n.pass += bytes * STRIDE / n.weight;
+        }
+    }
+
+    @Override
+    public void priority(PriorityFrame frame) {
+        int streamId = frame.getStreamId();
+        int parentStreamId = frame.getParentStreamId();
+        if (streamId == 0 || streamId == parentStreamId) {
+            return;
+        }
+
+        Node node = nodes.get(streamId);
+        if (node == null) {
+            if (nodes.size() >= maxNodes) {
+                return;
+            }
+            node = createNode(streamId);
+        }
+
+        Node parent;
+        if (parentStreamId == 0) {
+            parent = root;
+        } else {
+            parent = nodes.get(parentStreamId);
+            if (parent == null) {
+                // SPEC: the stream depends on a stream that is not in the tree
+                parent = nodes.size() < maxNodes ? createNode(parentStreamId) : root;
+            }
+        }
+
+        node.weight = Math.max(1, Math.min(256, frame.getWeight()));
+        if (isAncestor(node, parent)) {
+            // SPEC: the dependent stream is moved to the former parent of the node first
+            Node formerParent = node.parent;
+            detach(parent);
+            attach(parent, formerParent);
+        }
+
+        detach(node);
+        if (frame.isExclusive()) {
+            for (Node child : new ArrayList<>(parent.children)) {
+                detach(child);
+                attach(child, node);
+            }
+        }
+        attach(node, parent);
+    }
+
+    @Override
+    public void remove(int streamId) {
+        Node node = nodes.get(streamId);
+        if (node != null) {
+            if (node.entries.isEmpty()) {
+                removeNode(node);
+            } else {
+                node.removed = true;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the parent stream id of the stream in the dependency tree.
+     *
+     * @param streamId The stream id
+     * @return The parent stream id, or -1 if the stream is not in the tree
+     */
+    public int getParentStreamId(int streamId) {
+        Node node = nodes.get(streamId);
+        return node != null ? node.parent.streamId : -1;
+    }
+
+    /**
+     * Get the weight of the stream in the dependency tree.
+     *
+     * @param streamId The stream id
+     * @return The weight, or -1 if the stream is not in the tree
+     */
+    public int getWeight(int streamId) {
+        Node node = nodes.get(streamId);
+        return node != null ? node.weight : -1;
+    }
+
+    private Node selectChild(Node node) {
+        Node selected = null;
+        for (Node child : node.children) {
+            if (child.active > 0 && (selected == null || child.pass < selected.pass)) {
+                selected = child;
+            }
+        }
+        return selected;
+    }
+
+    private void onEntryAdded(Node node) {
+        size++;
+        if (node.entries.size() == 1) {
+            updateActive(node, 1);
+        }
+    }
+
+    private void updateActive(Node node, int delta) {
+        for (Node n = node; n != null; n = n.parent) {
+            n.active += delta;
+            if (n.active == 1 && delta > 0 && n.parent != null) {
+                // the reactivated stream can not take the bandwidth that it did not use
+                n.pass = Math.max(n.pass, n.parent.virtualTime);
+            }
+        }
+    }
+
+    private Node getOrCreateNode(int streamId) {
+        Node node = nodes.get(streamId);
+        return node != null ? node : createNode(streamId);
+    }
+
+    private Node createNode(int streamId) {
+        Node node = new Node(streamId);
+        nodes.put(streamId, node);
+        attach(node, root);
+        return node;
+    }
+
+    private void removeNode(Node node) {
+        nodes.remove(node.streamId);
+        Node parent = node.parent;
+        detach(node);
+
+        // SPEC: the dependent streams take the weight of the removed stream in proportion to their weights
+        int totalWeight = 0;
+        for (Node child : node.children) {
+            totalWeight += child.weight;
+        }
+        for (Node child : new ArrayList<>(node.children)) {
+            detach(child);
+            child.weight = Math.max(1, node.weight * child.weight / totalWeight);
+            attach(child, parent);
+        }
+    }
+
+    private static boolean isAncestor(Node node, Node descendant) {
+        for (Node n = descendant.parent; n != null; n = n.parent) {
+            if (n == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void detach(Node node) {
+        Node parent = node.parent;
+        if (parent != null) {
+            parent.children.remove(node);
+            for (Node n = parent; n != null; n = n.parent) {
+                n.active -= node.active;
+            }
+            node.parent = null;
+        }
+    }
+
+    private static void attach(Node node, Node parent) {
+        node.parent = parent;
+        parent.children.add(node);
+        for (Node n = parent; n != null; n = n.parent) {
+            n.active += node.active;
+        }
+        if (node.active > 0) {
+            node.pass = Math.max(node.pass, parent.virtualTime);
+        }
+    }
+
+    private static class Node {
+        private final int streamId;
+        private final ArrayDeque<HTTP2Flusher.Entry> entries = new ArrayDeque<>();
+        private final List<Node> children = new ArrayList<>();
+        private Node parent;
+        private int weight = DEFAULT_WEIGHT;
+        // the number of the nodes that have entries in this subtree
+        private int active;
+        private long pass;
+        private long virtualTime;
+        private boolean removed;
+
+        private Node(int streamId) {
+            this.streamId = streamId;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.firefly.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.PriorityFrame;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serve the streams in turn, every stream writes at most a quantum of data
+ * bytes before the next stream. The stream priorities are ignored.
+ */
+public class RoundRobinStreamScheduler implements StreamScheduler {
+
+    public static final int DEFAULT_QUANTUM = 16 * 1024;
+
+    private final Map<Integer, StreamQueue> queues = new HashMap<>();
+    private final ArrayDeque<StreamQueue> ring = new ArrayDeque<>();
+    private final int quantum;
+    private StreamQueue current;
+    private int credit;
+    private int size;
+
+    public RoundRobinStreamScheduler() {
+        this(DEFAULT_QUANTUM);
+    }
+
+    /**
+     * @param quantum The max data bytes of a stream in one turn
+     */
+    public RoundRobinStreamScheduler(int quantum) {
+        this.quantum = Math.max(1, quantum);
+    }
+
+    @Override
+    public void offer(HTTP2Flusher.Entry entry) {
+        StreamQueue queue = getQueue(entry.stream.getId());
+        queue.entries.offer(entry);
+        size++;
+        schedule(queue);
+    }
+
+    @Override
+    public void offerFirst(HTTP2Flusher.Entry entry) {
+        StreamQueue queue = getQueue(entry.stream.getId());
+        queue.entries.offerFirst(entry);
+        size++;
+        schedule(queue);
+    }
+
+    @Override
+    public HTTP2Flusher.Entry poll() {
+        if (current != null && (credit <= 0 || current.entries.isEmpty())) {
+            StreamQueue queue = current;
+            current = null;
+            if (queue.entries.isEmpty()) {
+                unschedule(queue);
+            } else {
+                ring.offer(queue);
+            }
+        }
+
+        if (current == null) {
+            current = ring.poll();
+            if (current == null) {
+                return null;
+            }
+            credit = quantum;
+        }
+        size--;
+        return current.entries.poll();
+    }
+
+    @Override
+    public void onSent(int streamId, int bytes) {
+        if (current != null && current.streamId == streamId) {
+            credit -= bytes;
+        }
+    }
+
+    @Override
+    public void priority(PriorityFrame frame) {
+    }
+
+    @Override
+    public void remove(int streamId) {
+        StreamQueue queue = queues.get(streamId);
+        if (queue != null) {
+            if (queue.scheduled) {
+                queue.removed = true;
+            } else {
+                queues.remove(streamId);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private StreamQueue getQueue(int streamId) {
+        return queues.computeIfAbsent(streamId, StreamQueue::new);
+    }
+
+    private void schedule(StreamQueue queue) {
+        if (!queue.scheduled) {
+            queue.scheduled = true;
+            ring.offer(queue);
+        }
+    }
+
+    private void unschedule(StreamQueue queue) {
+        queue.scheduled = false;
+        if (queue.removed) {
+            queues.remove(queue.streamId);
+        }
+    }
+
+    private static class StreamQueue {
+        private final int streamId;
+        private final ArrayDeque<HTTP2Flusher.Entry> entries = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean removed;
+
+        private StreamQueue(int streamId) {
+            this.streamId = streamId;
+        }
+    }
+}
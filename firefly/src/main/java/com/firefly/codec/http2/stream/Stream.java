@@ -144,6 +144,12 @@ public interface Stream {
 	 */
 	public void setIdleTimeout(long idleTimeout);
 
+	/**
+	 * @return the number of the DATA bytes that have been written by this
+	 *         stream
+	 */
+	public long getBytesSent();
+
 	/**
 	 * <p>
 	 * A {@link Stream.Listener} is the passive counterpart of a {@link Stream}
@@ -109,4 +109,15 @@ public interface StreamSPI extends Stream, Closeable {
 	 * </p>
 	 */
 	public void notIdle();
+
+	/**
+	 * <p>
+	 * Updates the number of the DATA bytes that have been written.
+	 * </p>
+	 * 
+	 * @param delta
+	 *            the written DATA bytes
+	 */
+	public void updateBytesSent(int delta);
+
 }
@@ -0,0 +1,72 @@
+package com.firefly.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.PriorityFrame;
+
+/**
+ * The scheduler selects the order in which the {@link HTTP2Flusher} writes the
+ * frames of the multiplexed streams. The frames of one stream are always
+ * written in the order they are queued, the scheduler only interleaves the
+ * streams.
+ * <p>
+ * The scheduler is used by the flusher only, it is not thread safe.
+ * </p>
+ */
+public interface StreamScheduler {
+
+    /**
+     * Append the entry to the queue of its stream.
+     *
+     * @param entry The frame entry of a stream
+     */
+    void offer(HTTP2Flusher.Entry entry);
+
+    /**
+     * Put the entry back at the head of the queue of its stream, such as the
+     * DATA entry that has been written partially.
+     *
+     * @param entry The frame entry of a stream
+     */
+    void offerFirst(HTTP2Flusher.Entry entry);
+
+    /**
+     * Remove the next entry that should be written.
+     *
+     * @return The next entry, or null if there is no queued entry
+     */
+    HTTP2Flusher.Entry poll();
+
+    /**
+     * The flusher has generated the data of a stream.
+     *
+     * @param streamId The stream id
+     * @param bytes    The data length
+     */
+    void onSent(int streamId, int bytes);
+
+    /**
+     * Update the priority of a stream by the PRIORITY frame or the priority of
+     * the HEADERS frame.
+     *
+     * @param frame The priority frame
+     */
+    void priority(PriorityFrame frame);
+
+    /**
+     * The stream has been removed from the session.
+     *
+     * @param streamId The stream id
+     */
+    void remove(int streamId);
+
+    /**
+     * Get the number of the queued entries.
+     *
+     * @return The number of the queued entries
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+}
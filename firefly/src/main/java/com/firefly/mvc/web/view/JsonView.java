@@ -8,7 +8,9 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 
 public class JsonView<T> implements View {
 
@@ -42,8 +44,15 @@ public class JsonView<T> implements View {
         }
         response.setCharacterEncoding(ENCODING);
         response.setHeader("Content-Type", CONTENT_TYPE);
-        try (PrintWriter writer = response.getWriter()) {
-            writer.print(Json.toJson(object));
+        if (StandardCharsets.UTF_8.name().equalsIgnoreCase(ENCODING)) {
+            // encode the JSON content to the UTF-8 bytes of the response directly
+            try (OutputStream out = response.getOutputStream()) {
+                Json.toJson(object, out);
+            }
+        } else {
+            try (PrintWriter writer = response.getWriter()) {
+                writer.print(Json.toJson(object));
+            }
         }
     }
 
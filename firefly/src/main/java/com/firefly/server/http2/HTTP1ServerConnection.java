@@ -11,11 +11,16 @@ import com.firefly.codec.http2.frame.SettingsFrame;
 import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.stream.AbstractHTTP1Connection;
 import com.firefly.codec.http2.stream.AbstractHTTP1OutputStream;
+import com.firefly.codec.http2.stream.HTTP1BufferArena;
+import com.firefly.codec.http2.stream.HTTP1BufferArena.ArenaBuffer;
 import com.firefly.codec.http2.stream.HTTP2Configuration;
 import com.firefly.codec.http2.stream.SessionSPI;
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.Session;
 import com.firefly.net.tcp.ssl.SSLSession;
 import com.firefly.utils.codec.Base64Utils;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.lang.TypeUtils;
 import org.slf4j.Logger;
@@ -30,6 +35,7 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 
 	final ServerSessionListener serverSessionListener;
 	final HTTP1ServerRequestHandler serverRequestHandler;
+	final HTTP1ServerResponseQueue responseQueue;
 	boolean upgradeHTTP2Successfully = false;
 
 	public HTTP1ServerConnection(HTTP2Configuration config, Session tcpSession, SSLSession sslSession,
@@ -38,6 +44,7 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		requestHandler.connection = this;
 		this.serverSessionListener = serverSessionListener;
 		this.serverRequestHandler = requestHandler;
+		this.responseQueue = new HTTP1ServerResponseQueue(tcpSession, this);
 	}
 
 	@Override
@@ -48,7 +55,7 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 
 	@Override
 	protected HttpGenerator initHttpGenerator() {
-		return new HttpGenerator(true, true);
+		return new HttpGenerator(true, true, config.getPreEncodedResponseFields());
 	}
 
 	HttpParser getParser() {
@@ -59,12 +66,12 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		return generator;
 	}
 
-	SSLSession getSSLSession() {
-		return sslSession;
+	HTTP1ServerResponseQueue getResponseQueue() {
+		return responseQueue;
 	}
 
-	Session getTcpSession() {
-		return tcpSession;
+	SSLSession getSSLSession() {
+		return sslSession;
 	}
 
 	HTTP2Configuration getHTTP2Configuration() {
@@ -106,10 +113,18 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		}
 
 		private final HTTP1ServerConnection connection;
+		private final MetaData.Request request;
+		private final HttpGenerator generator;
+		private final HTTP1ServerResponseQueue.ResponseSlot responseSlot;
 
-		public HTTP1ServerResponseOutputStream(MetaData.Response response, HTTP1ServerConnection connection) {
+		public HTTP1ServerResponseOutputStream(MetaData.Request request, MetaData.Response response,
+				HTTP1ServerConnection connection) {
 			super(response, false);
 			this.connection = connection;
+			this.request = request;
+			// every pipelined response has its own generator, the responses can be generated concurrently
+			this.generator = connection.initHttpGenerator();
+			this.responseSlot = connection.getResponseQueue().register();
 		}
 
 		HTTP1ServerConnection getHTTP1ServerConnection() {
@@ -117,11 +132,13 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		}
 
 		void responseH2c() throws IOException {
-			ByteBuffer header = getHeaderByteBuffer();
+			ArenaBuffer header = getBufferArena().acquireHeaderBuffer();
 			HttpGenerator gen = getHttpGenerator();
-			HttpGenerator.Result result = gen.generateResponse(H2C_RESPONSE, header, null, null, true);
+			HttpGenerator.Result result = gen.generateResponse(H2C_RESPONSE, header.getByteBuffer(), null, null,
+					true);
 			if (result == HttpGenerator.Result.FLUSH && gen.getState() == HttpGenerator.State.COMPLETING) {
-				getSession().encode(header);
+				encode(header);
+				connection.getResponseQueue().flush();
 				result = gen.generateResponse(null, null, null, null, true);
 				if (result == HttpGenerator.Result.DONE && gen.getState() == HttpGenerator.State.END) {
 					log.debug("the server session {} sends 101 switching protocols successfully",
@@ -135,12 +152,12 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		}
 
 		void response100Continue() throws IOException {
-			ByteBuffer header = getHeaderByteBuffer();
+			ArenaBuffer header = getBufferArena().acquireHeaderBuffer();
 			HttpGenerator gen = getHttpGenerator();
-			HttpGenerator.Result result = gen.generateResponse(HttpGenerator.CONTINUE_100_INFO, header, null, null,
-					false);
+			HttpGenerator.Result result = gen.generateResponse(HttpGenerator.CONTINUE_100_INFO,
+					header.getByteBuffer(), null, null, false);
 			if (result == HttpGenerator.Result.FLUSH && gen.getState() == HttpGenerator.State.COMPLETING_1XX) {
-				getSession().encode(header);
+				encode(header);
 				result = gen.generateResponse(null, null, null, null, false);
 				if (result == HttpGenerator.Result.DONE && gen.getState() == HttpGenerator.State.START) {
 					log.debug("the server session {} sends 100 continue successfully", getSession().getSessionId());
@@ -157,13 +174,12 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 		protected void generateHTTPMessageSuccessfully() {
 			log.debug("server session {} generates the HTTP message completely", connection.getSessionId());
 
-			final MetaData.Response response = connection.getResponse();
-			final MetaData.Request request = connection.getRequest();
+			final MetaData.Response response = (MetaData.Response) info;
 
 			String requestConnectionValue = request.getFields().get(HttpHeader.CONNECTION);
 			String responseConnectionValue = response.getFields().get(HttpHeader.CONNECTION);
 
-			connection.getGenerator().reset();
+			generator.reset();
 
 			switch (request.getHttpVersion()) {
 			case HTTP_1_0:
@@ -171,25 +187,19 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 						&& "keep-alive".equalsIgnoreCase(responseConnectionValue)) {
 					log.debug("the server {} connection {} is persistent", response.getHttpVersion(),
 							connection.getSessionId());
+					responseSlot.complete(false);
 				} else {
-					try {
-						connection.close();
-					} catch (IOException e) {
-						log.error("server closes connection exception", e);
-					}
+					responseSlot.complete(true);
 				}
 				break;
 			case HTTP_1_1: // the persistent connection is default in HTTP 1.1
 				if ("close".equalsIgnoreCase(requestConnectionValue)
 						|| "close".equalsIgnoreCase(responseConnectionValue)) {
-					try {
-						connection.close();
-					} catch (IOException e) {
-						log.error("server closes connection exception", e);
-					}
+					responseSlot.complete(true);
 				} else {
 					log.debug("the server {} connection {} is persistent", response.getHttpVersion(),
 							connection.getSessionId());
+					responseSlot.complete(false);
 				}
 				break;
 			default:
@@ -206,13 +216,38 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 				log.debug("http1 generator error, the result is {}, and the generator state is {}", generatorResult,
 						generatorState);
 			}
-			connection.getGenerator().reset();
+			generator.reset();
+			responseSlot.complete(true);
 			throw new IllegalStateException("server generates http message exception.");
 		}
 
 		@Override
-		protected ByteBuffer getHeaderByteBuffer() {
-			return BufferUtils.allocate(connection.getHTTP2Configuration().getMaxRequestHeadLength());
+		protected void encode(ArenaBuffer buffer) {
+			responseSlot.write(new ByteBufferOutputEntry(buffer, buffer.getByteBuffer()));
+		}
+
+		@Override
+		protected void encode(ByteBuffer data) {
+			responseSlot.write(data);
+		}
+
+		@Override
+		protected void encode(ByteBuffer data, Callback callback) {
+			if (callback == Callback.NOOP) {
+				encode(data);
+			} else {
+				responseSlot.write(new ByteBufferOutputEntry(callback, data));
+			}
+		}
+
+		@Override
+		protected void encode(ByteBuffer[] data, Callback callback) {
+			responseSlot.write(new ByteBufferArrayOutputEntry(callback, data));
+		}
+
+		@Override
+		protected HTTP1BufferArena getBufferArena() {
+			return connection.getBufferArena();
 		}
 
 		@Override
@@ -222,7 +257,7 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
 
 		@Override
 		protected HttpGenerator getHttpGenerator() {
-			return connection.getGenerator();
+			return generator;
 		}
 
 	}
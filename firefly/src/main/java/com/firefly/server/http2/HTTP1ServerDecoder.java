@@ -24,8 +24,15 @@ public class HTTP1ServerDecoder extends DecoderChain {
 		case HTTP_1_1:
 			final HTTP1ServerConnection http1Connection = (HTTP1ServerConnection) connection;
 			final HttpParser parser = http1Connection.getParser();
-			while (buf.hasRemaining()) {
-				parser.parseNext(buf);
+			final HTTP1ServerResponseQueue responseQueue = http1Connection.getResponseQueue();
+			// the responses of the pipelined requests in this buffer are flushed together
+			responseQueue.startBatch();
+			try {
+				while (buf.hasRemaining()) {
+					parser.parseNext(buf);
+				}
+			} finally {
+				responseQueue.endBatch();
 			}
 			break;
 		default:
@@ -30,7 +30,7 @@ public class HTTP1ServerRequestHandler implements RequestHandler {
 		
 		request = new HTTPServerRequest(method, uri, version);
 		response = new HTTPServerResponse();
-		outputStream = new HTTP1ServerResponseOutputStream(response, connection);
+		outputStream = new HTTP1ServerResponseOutputStream(request, response, connection);
 		
 		if(HttpMethod.PRI.is(method)) {
 			return connection.upgradeProtocolToHTTP2(request, response);
@@ -0,0 +1,292 @@
+package com.firefly.server.http2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
+import com.firefly.net.Session;
+import com.firefly.utils.concurrent.Callback;
+
+/**
+ * The responses of the pipelined HTTP/1.1 requests. Every parsed request
+ * registers a slot in the request order, the requests can be processed
+ * concurrently, but only the first uncompleted slot writes to the connection.
+ * The output of the following slots is held until all previous responses
+ * complete.
+ *
+ * The output in a read batch (the decoder parses the received buffer) is
+ * collected, and it is flushed in one gathered write when the batch ends.
+ */
+public class HTTP1ServerResponseQueue {
+
+	protected static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+	private final Session tcpSession;
+	private final Closeable connection;
+	private final ArrayDeque<ResponseSlot> slots = new ArrayDeque<>();
+	private final List<Object> batch = new ArrayList<>();
+	private boolean batching;
+	private boolean closing;
+	private boolean closed;
+
+	/**
+	 * Create the response queue.
+	 *
+	 * @param tcpSession
+	 *            The session that writes the responses
+	 * @param connection
+	 *            The connection is closed after the response that does not
+	 *            keep the connection alive
+	 */
+	public HTTP1ServerResponseQueue(Session tcpSession, Closeable connection) {
+		this.tcpSession = tcpSession;
+		this.connection = connection;
+	}
+
+	/**
+	 * Register the response slot of a parsed request.
+	 *
+	 * @return The response slot
+	 */
+	public synchronized ResponseSlot register() {
+		ResponseSlot slot = new ResponseSlot();
+		if (!closing) {
+			slots.offer(slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Start a read batch, the output is collected until the batch ends.
+	 */
+	public synchronized void startBatch() {
+		batching = true;
+	}
+
+	/**
+	 * End the read batch and flush the collected output.
+	 */
+	public synchronized void endBatch() {
+		batching = false;
+		flushBatch();
+		if (closing) {
+			closeConnection();
+		}
+	}
+
+	/**
+	 * Flush the collected output immediately, such as the protocol upgrade
+	 * response that must be written before the new protocol frames.
+	 */
+	public synchronized void flush() {
+		flushBatch();
+	}
+
+	/**
+	 * Get the number of the responses that have not been written completely.
+	 *
+	 * @return The number of the pending responses
+	 */
+	public synchronized int getPendingResponses() {
+		return slots.size();
+	}
+
+	private void write(ResponseSlot slot, Object entry) {
+		if (closing || slot.discarded) {
+			discard(entry);
+		} else if (slots.peek() == slot) {
+			output(entry);
+		} else {
+			if (slot.pending == null) {
+				slot.pending = new ArrayList<>();
+			}
+			slot.pending.add(entry);
+		}
+	}
+
+	private void complete(ResponseSlot slot, boolean closeConnection) {
+		if (slot.completed || slot.discarded) {
+			return;
+		}
+
+		slot.completed = true;
+		slot.closeConnection = closeConnection;
+		ResponseSlot head;
+		while ((head = slots.peek()) != null && head.completed) {
+			slots.poll();
+			if (head.closeConnection) {
+				closing = true;
+				for (ResponseSlot s : slots) {
+					s.discard();
+				}
+				slots.clear();
+				break;
+			}
+
+			ResponseSlot next = slots.peek();
+			if (next != null && next.pending != null) {
+				next.pending.forEach(this::output);
+				next.pending = null;
+			}
+		}
+
+		if (closing && !batching) {
+			closeConnection();
+		}
+	}
+
+	private void output(Object entry) {
+		if (batching) {
+			batch.add(entry);
+		} else {
+			tcpSession.encode(entry);
+		}
+	}
+
+	private void flushBatch() {
+		switch (batch.size()) {
+		case 0:
+			break;
+		case 1:
+			tcpSession.encode(batch.get(0));
+			batch.clear();
+			break;
+		default:
+			List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+			List<Callback> callbacks = new ArrayList<>(batch.size());
+			for (Object entry : batch) {
+				if (entry instanceof ByteBuffer) {
+					buffers.add((ByteBuffer) entry);
+				} else if (entry instanceof ByteBufferOutputEntry) {
+					ByteBufferOutputEntry outputEntry = (ByteBufferOutputEntry) entry;
+					buffers.add(outputEntry.getData());
+					callbacks.add(outputEntry.getCallback());
+				} else if (entry instanceof ByteBufferArrayOutputEntry) {
+					ByteBufferArrayOutputEntry outputEntry = (ByteBufferArrayOutputEntry) entry;
+					Collections.addAll(buffers, outputEntry.getData());
+					callbacks.add(outputEntry.getCallback());
+				} else {
+					encode(buffers, callbacks);
+					buffers = new ArrayList<>();
+					callbacks = new ArrayList<>();
+					tcpSession.encode(entry);
+				}
+			}
+			encode(buffers, callbacks);
+			batch.clear();
+			break;
+		}
+	}
+
+	private void encode(List<ByteBuffer> buffers, List<Callback> callbacks) {
+		if (!buffers.isEmpty()) {
+			tcpSession.encode(new ByteBufferArrayOutputEntry(new BatchCallback(callbacks),
+					buffers.toArray(new ByteBuffer[buffers.size()])));
+		}
+	}
+
+	private void closeConnection() {
+		if (!closed) {
+			closed = true;
+			try {
+				connection.close();
+			} catch (IOException e) {
+				log.error("server closes connection exception", e);
+			}
+		}
+	}
+
+	private static void discard(Object entry) {
+		if (entry instanceof ByteBufferOutputEntry) {
+			((ByteBufferOutputEntry) entry).getCallback().failed(new IOException("the connection is closing"));
+		} else if (entry instanceof ByteBufferArrayOutputEntry) {
+			((ByteBufferArrayOutputEntry) entry).getCallback().failed(new IOException("the connection is closing"));
+		}
+	}
+
+	/**
+	 * The response of a pipelined request.
+	 */
+	public class ResponseSlot {
+
+		private List<Object> pending;
+		private boolean completed;
+		private boolean closeConnection;
+		private boolean discarded;
+
+		private ResponseSlot() {
+		}
+
+		/**
+		 * Write the response data in the request order.
+		 *
+		 * @param entry
+		 *            The ByteBuffer or the output entry
+		 */
+		public void write(Object entry) {
+			synchronized (HTTP1ServerResponseQueue.this) {
+				HTTP1ServerResponseQueue.this.write(this, entry);
+			}
+		}
+
+		/**
+		 * The response is generated completely.
+		 *
+		 * @param closeConnection
+		 *            If true, the connection is closed after this response
+		 *            and the following responses are discarded
+		 */
+		public void complete(boolean closeConnection) {
+			synchronized (HTTP1ServerResponseQueue.this) {
+				HTTP1ServerResponseQueue.this.complete(this, closeConnection);
+			}
+		}
+
+		private void discard() {
+			discarded = true;
+			if (pending != null) {
+				pending.forEach(HTTP1ServerResponseQueue::discard);
+				pending = null;
+			}
+		}
+	}
+
+	private static class BatchCallback implements Callback {
+
+		private final List<Callback> callbacks;
+		private final AtomicBoolean done = new AtomicBoolean(false);
+
+		private BatchCallback(List<Callback> callbacks) {
+			this.callbacks = callbacks;
+		}
+
+		@Override
+		public void succeeded() {
+			if (done.compareAndSet(false, true)) {
+				callbacks.forEach(Callback::succeeded);
+			}
+		}
+
+		@Override
+		public void failed(Throwable x) {
+			if (done.compareAndSet(false, true)) {
+				callbacks.forEach(c -> c.failed(x));
+			}
+		}
+
+		@Override
+		public boolean isNonBlocking() {
+			return true;
+		}
+	}
+}
@@ -5,7 +5,6 @@ import com.firefly.codec.http2.stream.HTTP2Configuration;
 import com.firefly.net.DecoderChain;
 import com.firefly.net.EncoderChain;
 import com.firefly.net.Server;
-import com.firefly.net.tcp.aio.AsynchronousTcpServer;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.log.LogFactory;
 import com.firefly.utils.time.Millisecond100Clock;
@@ -48,7 +47,8 @@ public class HTTP2Server extends AbstractLifeCycle {
         http2Configuration.getTcpConfiguration().setEncoder(encoder);
         http2Configuration.getTcpConfiguration()
                 .setHandler(new HTTP2ServerHandler(http2Configuration, listener, serverHTTPHandler));
-        this.server = new AsynchronousTcpServer(http2Configuration.getTcpConfiguration());
+        this.server = http2Configuration.getTcpConfiguration().getNetEngine()
+                .createServer(http2Configuration.getTcpConfiguration());
         this.http2Configuration = http2Configuration;
     }
 
@@ -35,7 +35,7 @@ public class HTTP2ServerConnection extends AbstractHTTP2Connection implements HT
 
 	protected Parser initParser(HTTP2Configuration config) {
 		return new ServerParser((HTTP2ServerSession) http2Session, config.getMaxDynamicTableSize(),
-				config.getMaxRequestHeadLength());
+				config.getMaxRequestHeadLength(), config.getHeaderBlockBufferPool());
 	}
 
 	ServerParser getParser() {
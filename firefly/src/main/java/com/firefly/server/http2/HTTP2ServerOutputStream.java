@@ -0,0 +1,55 @@
+package com.firefly.server.http2;
+
+import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.AbstractHTTP2OutputStream;
+import com.firefly.codec.http2.stream.SessionSPI;
+import com.firefly.codec.http2.stream.Stream;
+
+/**
+ * The output stream of the HTTP/2 server response, it pushes the resources on
+ * the stream of the request.
+ */
+public class HTTP2ServerOutputStream extends AbstractHTTP2OutputStream {
+
+	private final Stream stream;
+	private final HTTP2ServerRequestHandler requestHandler;
+
+	public HTTP2ServerOutputStream(MetaData.Response response, Stream stream,
+			HTTP2ServerRequestHandler requestHandler) {
+		super(response, false);
+		this.stream = stream;
+		this.requestHandler = requestHandler;
+	}
+
+	@Override
+	protected Stream getStream() {
+		return stream;
+	}
+
+	/**
+	 * The server can push the resources until the response is complete, if the
+	 * client enables the push. The pushed streams can not push again.
+	 *
+	 * @return Whether the server can push the resources on this stream
+	 */
+	public synchronized boolean isPushSupported() {
+		return !closed && (stream.getId() & 1) == 1 && ((SessionSPI) stream.getSession()).isPushEnabled();
+	}
+
+	/**
+	 * Send a PUSH_PROMISE frame of the request and serve the request on the
+	 * pushed stream like a request from the client.
+	 *
+	 * @param request
+	 *            The pushed request
+	 * @return Whether the push promise is sent
+	 */
+	public boolean push(MetaData.Request request) {
+		if (!isPushSupported()) {
+			return false;
+		}
+		requestHandler.push(stream, request);
+		return true;
+	}
+
+}
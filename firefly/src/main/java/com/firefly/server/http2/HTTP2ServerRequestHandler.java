@@ -3,16 +3,19 @@ package com.firefly.server.http2;
 import com.firefly.codec.http2.frame.DataFrame;
 import com.firefly.codec.http2.frame.ErrorCode;
 import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.frame.PushPromiseFrame;
 import com.firefly.codec.http2.frame.ResetFrame;
 import com.firefly.codec.http2.model.*;
-import com.firefly.codec.http2.stream.AbstractHTTP2OutputStream;
 import com.firefly.codec.http2.stream.Stream;
 import com.firefly.codec.http2.stream.Stream.Listener;
 import com.firefly.utils.VerifyUtils;
 import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
 
 	protected static final Logger log = LoggerFactory.getLogger("firefly-system");
@@ -37,13 +40,7 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
 
 		final MetaData.Request request = (MetaData.Request) headersFrame.getMetaData();
 		final MetaData.Response response = new HTTPServerResponse();
-		final AbstractHTTP2OutputStream output = new AbstractHTTP2OutputStream(response, false) {
-
-			@Override
-			protected Stream getStream() {
-				return stream;
-			}
-		};
+		final HTTP2ServerOutputStream output = new HTTP2ServerOutputStream(response, stream, this);
 
 		String expectedValue = request.getFields().get(HttpHeader.EXPECT);
 		if ("100-continue".equalsIgnoreCase(expectedValue)) {
@@ -91,11 +88,27 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
 
 			@Override
 			public void onData(Stream stream, DataFrame dataFrame, Callback callback) {
+				// the content callback may complete later, when the content is consumed
+				AtomicBoolean completed = new AtomicBoolean();
+				Callback consumed = new Callback() {
+					@Override
+					public void succeeded() {
+						if (completed.compareAndSet(false, true)) {
+							callback.succeeded();
+						}
+					}
+
+					@Override
+					public void failed(Throwable x) {
+						if (completed.compareAndSet(false, true)) {
+							callback.failed(x);
+						}
+					}
+				};
 				try {
-					serverHTTPHandler.content(dataFrame.getData(), request, response, output, connection);
-					callback.succeeded();
+					serverHTTPHandler.content(dataFrame.getData(), request, response, output, connection, consumed);
 				} catch (Throwable t) {
-					callback.failed(t);
+					consumed.failed(t);
 				}
 
 				if (dataFrame.isEndStream()) {
@@ -122,4 +135,28 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
 		};
 	}
 
+	void push(Stream stream, MetaData.Request request) {
+		if (log.isDebugEnabled()) {
+			log.debug("the stream {} pushes the resource {}", stream.getId(), request.getURI());
+		}
+
+		stream.push(new PushPromiseFrame(stream.getId(), 0, request), new Promise<Stream>() {
+
+			@Override
+			public void succeeded(Stream pushedStream) {
+				// the pushed request has no content, the server completes it at once
+				MetaData.Response response = new HTTPServerResponse();
+				HTTP2ServerOutputStream output = new HTTP2ServerOutputStream(response, pushedStream,
+						HTTP2ServerRequestHandler.this);
+				serverHTTPHandler.headerComplete(request, response, output, connection);
+				serverHTTPHandler.messageComplete(request, response, output, connection);
+			}
+
+			@Override
+			public void failed(Throwable x) {
+				log.error("push the resource " + request.getURI() + " exception", x);
+			}
+		}, new Listener.Adapter());
+	}
+
 }
@@ -0,0 +1,440 @@
+package com.firefly.server.http2;
+
+import com.firefly.codec.http2.model.Cookie;
+import com.firefly.codec.http2.model.HostPort;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpMethod;
+import com.firefly.codec.http2.model.HttpScheme;
+import com.firefly.codec.http2.model.HttpURI;
+import com.firefly.codec.http2.model.MetaData.Request;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.codec.http2.stream.Session;
+import com.firefly.utils.collection.ConcurrentLinkedHashMap;
+import com.firefly.utils.collection.ConcurrentLinkedHashMap.MapEventListener;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The policy learns which resources follow a primary resource, such as the
+ * stylesheets and scripts of a HTML page, and pushes them when the primary
+ * resource is requested again.
+ * </p>
+ * <p>
+ * A request without a referrer of the same authority is a primary resource,
+ * the primary resources are identified by the path without the query. A
+ * request whose referrer is a primary resource and that arrives within the
+ * associate period after the primary resource is a candidate, the candidate
+ * is associated to the primary resource after it is requested on several
+ * connections. The policy keeps the recently requested primary resources, and
+ * removes the primary resources and the associations that are not requested
+ * within their timeouts.
+ * </p>
+ * <p>
+ * The policy skips the resources that were pushed on the same connection, and
+ * the resources that the client has in the cache according to the digest
+ * cookie. The digest cookie is a bloom filter of the pushed resources, its
+ * false positives only cause the client to request the resources.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+public class PushCachePolicy {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final int DIGEST_BITS = 256;
+    private static final int CANDIDATES_PER_ASSOCIATION = 4;
+
+    private final Map<Session, Set<String>> pushedResources = Collections.synchronizedMap(new WeakHashMap<>());
+    private long associatePeriod = 4000L;
+    private int maxAssociations = 16;
+    private int minAssociationHits = 2;
+    private long associationTimeout = 3600 * 1000L;
+    private int maxPrimaryResources = 1024;
+    private long primaryResourceTimeout = 3600 * 1000L;
+    private String digestCookieName = "firefly-push-digest";
+    private int digestCookieMaxAge = 7 * 24 * 3600;
+    private ConcurrentLinkedHashMap<String, PrimaryResource> primaryResources = createPrimaryResources();
+
+    /**
+     * Learn the associations of the request, and push the associated resources
+     * if the request is a primary resource. It is called before the response
+     * is committed.
+     *
+     * @param request The request
+     */
+    public void onRequest(SimpleRequest request) {
+        Request r = request.getRequest();
+        if (!HttpMethod.GET.is(r.getMethod()) || isPushed(request)) {
+            return;
+        }
+
+        HttpURI uri = r.getURI();
+        String path = uri.getPath();
+        if (path == null) {
+            return;
+        }
+        long now = Millisecond100Clock.currentTimeMillis();
+        String referrer = r.getFields().get(HttpHeader.REFERER);
+        if (referrer != null) {
+            HttpURI referrerURI = new HttpURI(referrer);
+            if (isSameAuthority(r, referrerURI)) {
+                PrimaryResource primaryResource = referrerURI.getPath() == null ? null : primaryResources.get(referrerURI.getPath());
+                if (primaryResource != null && !path.equals(referrerURI.getPath())
+                        && now - primaryResource.timestamp <= associatePeriod) {
+                    primaryResource.associate(uri.getPathQuery(), getConnection(request), now, referrerURI.getPath());
+                }
+                return;
+            }
+        }
+
+        PrimaryResource primaryResource = primaryResources.get(path);
+        if (primaryResource == null) {
+            primaryResource = new PrimaryResource();
+            primaryResources.put(path, primaryResource);
+        }
+        primaryResource.timestamp = now;
+        if (!request.getResponse().isPushSupported()) {
+            return;
+        }
+        Set<String> associated = primaryResource.getAssociated(now);
+        if (!associated.isEmpty()) {
+            push(request, associated);
+        }
+    }
+
+    private static boolean isPushed(SimpleRequest request) {
+        // the server serves the pushed requests on the even streams
+        HTTPOutputStream output = request.getResponse().output;
+        return output instanceof HTTP2ServerOutputStream && (((HTTP2ServerOutputStream) output).getStream().getId() & 1) == 0;
+    }
+
+    private static Object getConnection(SimpleRequest request) {
+        HTTPOutputStream output = request.getResponse().output;
+        if (output instanceof HTTP2ServerOutputStream) {
+            return ((HTTP2ServerOutputStream) output).getStream().getSession();
+        }
+        return request.getConnection();
+    }
+
+    private static boolean isSameAuthority(Request request, HttpURI referrerURI) {
+        if (referrerURI.getHost() == null) {
+            return false;
+        }
+
+        // the HTTP/2 request URI has the :authority, the HTTP/1 request has the host header
+        String host;
+        int port;
+        HttpURI uri = request.getURI();
+        if (uri.getHost() != null) {
+            host = uri.getHost();
+            port = uri.getPort();
+        } else {
+            String authority = request.getFields().get(HttpHeader.HOST);
+            if (authority == null) {
+                return false;
+            }
+            try {
+                HostPort hostPort = new HostPort(authority);
+                host = hostPort.getHost();
+                port = hostPort.getPort();
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        int defaultPort = HttpScheme.HTTPS.is(referrerURI.getScheme()) ? 443 : 80;
+        return host.equalsIgnoreCase(referrerURI.getHost())
+                && (port > 0 ? port : defaultPort) == (referrerURI.getPort() > 0 ? referrerURI.getPort() : defaultPort);
+    }
+
+    private void push(SimpleRequest request, Set<String> resources) {
+        SimpleResponse response = request.getResponse();
+        Session session = ((HTTP2ServerOutputStream) response.output).getStream().getSession();
+        Set<String> pushed = pushedResources.computeIfAbsent(session, k -> ConcurrentHashMap.newKeySet());
+        byte[] digest = getDigest(request);
+        boolean digestChanged = false;
+        for (String resource : resources) {
+            if (pushed.contains(resource) || containsDigest(digest, resource)) {
+                continue;
+            }
+            if (response.push(resource)) {
+                pushed.add(resource);
+                if (digest != null) {
+                    addDigest(digest, resource);
+                    digestChanged = true;
+                }
+            }
+        }
+        if (digestChanged) {
+            Cookie cookie = new Cookie(digestCookieName, Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+            cookie.setPath("/");
+            cookie.setMaxAge(digestCookieMaxAge);
+            response.addCookie(cookie);
+        }
+    }
+
+    private byte[] getDigest(SimpleRequest request) {
+        if (digestCookieName == null) {
+            return null;
+        }
+        if (request.getRequest().getFields().containsKey(HttpHeader.COOKIE.asString())) {
+            for (Cookie cookie : request.getCookies()) {
+                if (digestCookieName.equals(cookie.getName())) {
+                    try {
+                        byte[] digest = Base64.getUrlDecoder().decode(cookie.getValue());
+                        if (digest.length == DIGEST_BITS / 8) {
+                            return digest;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        log.debug("the push digest cookie is invalid {}", cookie.getValue());
+                    }
+                }
+            }
+        }
+        return new byte[DIGEST_BITS / 8];
+    }
+
+    private static boolean containsDigest(byte[] digest, String resource) {
+        if (digest == null) {
+            return false;
+        }
+        int hash = hash(resource);
+        return isSet(digest, hash & (DIGEST_BITS - 1)) && isSet(digest, (hash >>> 16) & (DIGEST_BITS - 1));
+    }
+
+    private static void addDigest(byte[] digest, String resource) {
+        int hash = hash(resource);
+        set(digest, hash & (DIGEST_BITS - 1));
+        set(digest, (hash >>> 16) & (DIGEST_BITS - 1));
+    }
+
+    private static int hash(String resource) {
+        int h = resource.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    private static boolean isSet(byte[] digest, int bit) {
+        return (digest[bit >>> 3] & (1 << (bit & 7))) != 0;
+    }
+
+    private static void set(byte[] digest, int bit) {
+        digest[bit >>> 3] |= 1 << (bit & 7);
+    }
+
+    /**
+     * Get the associated resources of a primary resource.
+     *
+     * @param path The path of the primary resource
+     * @return The associated resources
+     */
+    public Set<String> getAssociatedResources(String path) {
+        PrimaryResource primaryResource = primaryResources.get(path);
+        return primaryResource == null ? Collections.emptySet() : primaryResource.getAssociated(Millisecond100Clock.currentTimeMillis());
+    }
+
+    /**
+     * Get the period that the resources following a primary resource are associated to it.
+     *
+     * @return The associate period (millisecond), the default value is 4 seconds.
+     */
+    public long getAssociatePeriod() {
+        return associatePeriod;
+    }
+
+    public void setAssociatePeriod(long associatePeriod) {
+        this.associatePeriod = associatePeriod;
+    }
+
+    /**
+     * Get the max number of the resources that are associated to a primary resource.
+     *
+     * @return The max associations, the default value is 16.
+     */
+    public int getMaxAssociations() {
+        return maxAssociations;
+    }
+
+    public void setMaxAssociations(int maxAssociations) {
+        this.maxAssociations = maxAssociations;
+    }
+
+    /**
+     * Get the number of the connections that request a resource following a
+     * primary resource before the resource is associated to it.
+     *
+     * @return The min association hits, the default value is 2.
+     */
+    public int getMinAssociationHits() {
+        return minAssociationHits;
+    }
+
+    public void setMinAssociationHits(int minAssociationHits) {
+        this.minAssociationHits = minAssociationHits;
+    }
+
+    /**
+     * Get the time that an association is kept after the resource is
+     * requested following the primary resource last time.
+     *
+     * @return The association timeout (millisecond), the default value is 1 hour.
+     */
+    public long getAssociationTimeout() {
+        return associationTimeout;
+    }
+
+    public void setAssociationTimeout(long associationTimeout) {
+        this.associationTimeout = associationTimeout;
+    }
+
+    /**
+     * Get the max number of the primary resources that the policy learns, the
+     * least recently requested primary resources are removed when the number
+     * exceeds it.
+     *
+     * @return The max primary resources, the default value is 1024.
+     */
+    public int getMaxPrimaryResources() {
+        return maxPrimaryResources;
+    }
+
+    /**
+     * Set the max number of the primary resources, the learned primary
+     * resources are cleared.
+     *
+     * @param maxPrimaryResources The max primary resources
+     */
+    public void setMaxPrimaryResources(int maxPrimaryResources) {
+        this.maxPrimaryResources = maxPrimaryResources;
+        primaryResources = createPrimaryResources();
+    }
+
+    /**
+     * Get the time that a primary resource is kept after it is requested last time.
+     *
+     * @return The primary resource timeout (millisecond), the default value is 1 hour.
+     */
+    public long getPrimaryResourceTimeout() {
+        return primaryResourceTimeout;
+    }
+
+    public void setPrimaryResourceTimeout(long primaryResourceTimeout) {
+        this.primaryResourceTimeout = primaryResourceTimeout;
+    }
+
+    /**
+     * Get the name of the cookie that records the pushed resources on the client.
+     *
+     * @return The digest cookie name, the policy only skips the resources pushed on the same connection if it is null.
+     */
+    public String getDigestCookieName() {
+        return digestCookieName;
+    }
+
+    public void setDigestCookieName(String digestCookieName) {
+        this.digestCookieName = digestCookieName;
+    }
+
+    /**
+     * Get the max age of the digest cookie, it should not exceed the cache
+     * lifetime of the pushed resources.
+     *
+     * @return The max age (second), the default value is 7 days.
+     */
+    public int getDigestCookieMaxAge() {
+        return digestCookieMaxAge;
+    }
+
+    public void setDigestCookieMaxAge(int digestCookieMaxAge) {
+        this.digestCookieMaxAge = digestCookieMaxAge;
+    }
+
+    private ConcurrentLinkedHashMap<String, PrimaryResource> createPrimaryResources() {
+        return new ConcurrentLinkedHashMap<>(true, maxPrimaryResources, new MapEventListener<String, PrimaryResource>() {
+
+            @Override
+            public boolean onEliminateEntry(String key, PrimaryResource value) {
+                return true;
+            }
+
+            @Override
+            public PrimaryResource onGetEntry(String key, PrimaryResource value) {
+                if (value != null && Millisecond100Clock.currentTimeMillis() - value.timestamp > primaryResourceTimeout) {
+                    return null;
+                }
+                return value;
+            }
+
+            @Override
+            public PrimaryResource onPutEntry(String key, PrimaryResource value, PrimaryResource previousValue) {
+                return previousValue;
+            }
+
+            @Override
+            public PrimaryResource onRemoveEntry(String key, PrimaryResource value) {
+                return value;
+            }
+        });
+    }
+
+    private class PrimaryResource {
+        private final Map<String, Association> associations = new HashMap<>();
+        private volatile long timestamp;
+
+        private synchronized void associate(String resource, Object connection, long now, String primaryPath) {
+            Association association = associations.get(resource);
+            if (association == null) {
+                if (associations.size() >= maxAssociations * CANDIDATES_PER_ASSOCIATION && !removeCandidate(now)) {
+                    return;
+                }
+                association = new Association();
+                associations.put(resource, association);
+            }
+            association.timestamp = now;
+            if (association.associated || connection == null || !association.connections.add(connection)) {
+                return;
+            }
+            if (association.connections.size() >= minAssociationHits && getAssociated(now).size() < maxAssociations) {
+                association.associated = true;
+                association.connections.clear();
+                if (log.isDebugEnabled()) {
+                    log.debug("associate the resource {} to the primary resource {}", resource, primaryPath);
+                }
+            }
+        }
+
+        private boolean removeCandidate(long now) {
+            associations.values().removeIf(a -> now - a.timestamp > associationTimeout);
+            if (associations.size() < maxAssociations * CANDIDATES_PER_ASSOCIATION) {
+                return true;
+            }
+            // the least recently requested candidate gives place to the new one
+            return associations.entrySet().stream().filter(e -> !e.getValue().associated)
+                               .min(Comparator.comparingLong(e -> e.getValue().timestamp))
+                               .map(e -> associations.remove(e.getKey()) != null)
+                               .orElse(false);
+        }
+
+        private synchronized Set<String> getAssociated(long now) {
+            associations.values().removeIf(a -> now - a.timestamp > associationTimeout);
+            Set<String> associated = new HashSet<>();
+            associations.forEach((resource, association) -> {
+                if (association.associated) {
+                    associated.add(resource);
+                }
+            });
+            return associated;
+        }
+    }
+
+    private static class Association {
+        // the connections are weak keys, they are not retained after they are closed
+        private final Set<Object> connections = Collections.newSetFromMap(new WeakHashMap<>());
+        private boolean associated;
+        private long timestamp;
+    }
+}
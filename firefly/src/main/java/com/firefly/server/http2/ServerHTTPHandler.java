@@ -8,6 +8,7 @@ import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.HTTPConnection;
 import com.firefly.codec.http2.stream.HTTPHandler;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action4;
 import com.firefly.utils.function.Action6;
@@ -21,6 +22,30 @@ public interface ServerHTTPHandler extends HTTPHandler {
 	public boolean accept100Continue(MetaData.Request request, MetaData.Response response, HTTPOutputStream output,
 			HTTPConnection connection);
 
+	/**
+	 * Receive the content of the request. The HTTP/2 connection returns the
+	 * flow control window to the client when the callback completes, so the
+	 * handler that consumes the content later holds back the client. The
+	 * handler must complete the callback once. By default the callback
+	 * succeeds when the content handler returns, and fails when it throws.
+	 *
+	 * @param callback
+	 *            The callback that is completed when the content is consumed
+	 * @return Whether the content is handled
+	 */
+	default boolean content(ByteBuffer item, MetaData.Request request, MetaData.Response response,
+			HTTPOutputStream output, HTTPConnection connection, Callback callback) {
+		boolean handled;
+		try {
+			handled = content(item, request, response, output, connection);
+		} catch (Throwable x) {
+			callback.failed(x);
+			throw x;
+		}
+		callback.succeeded();
+		return handled;
+	}
+
 	public static class Adapter extends HTTPHandler.Adapter implements ServerHTTPHandler {
 
 		protected Action1<HTTPConnection> acceptConnection;
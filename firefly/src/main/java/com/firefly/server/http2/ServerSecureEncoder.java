@@ -35,9 +35,17 @@ public class ServerSecureEncoder extends EncoderChain {
 			if (message instanceof ByteBuffer) {
 				HTTP1ServerConnection http1ServerConnection = (HTTP1ServerConnection) connection;
 				http1ServerConnection.getSSLSession().write((ByteBuffer) message, Callback.NOOP);
+			} else if (message instanceof ByteBufferOutputEntry) {
+				HTTP1ServerConnection http1ServerConnection = (HTTP1ServerConnection) connection;
+				ByteBufferOutputEntry outputEntry = (ByteBufferOutputEntry) message;
+				http1ServerConnection.getSSLSession().write(outputEntry.getData(), outputEntry.getCallback());
+			} else if (message instanceof ByteBufferArrayOutputEntry) {
+				HTTP1ServerConnection http1ServerConnection = (HTTP1ServerConnection) connection;
+				ByteBufferArrayOutputEntry outputEntry = (ByteBufferArrayOutputEntry) message;
+				http1ServerConnection.getSSLSession().write(outputEntry.getData(), outputEntry.getCallback());
 			} else {
 				throw new IllegalArgumentException(
-						"the http1 encoder must receive the ByteBuffer, but this message type is "
+						"the http1 encoder must receive the ByteBuffer, ByteBufferOutputEntry and ByteBufferArrayOutputEntry, but this message type is "
 								+ message.getClass());
 			}
 			break;
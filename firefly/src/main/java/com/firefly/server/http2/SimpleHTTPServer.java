@@ -19,6 +19,7 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
     private Action3<Integer, String, SimpleRequest> badMessage;
     private Action1<SimpleRequest> earlyEof;
     private Action1<HTTPConnection> acceptConnection;
+    private PushCachePolicy pushCachePolicy;
 
     public SimpleHTTPServer() {
         this(new SimpleHTTPServerConfiguration());
@@ -48,6 +49,17 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
         return this;
     }
 
+    /**
+     * Push the resources that follow the requested pages to the HTTP/2 clients.
+     *
+     * @param pushCachePolicy The policy that learns the associated resources of the pages
+     * @return The server
+     */
+    public SimpleHTTPServer pushCachePolicy(PushCachePolicy pushCachePolicy) {
+        this.pushCachePolicy = pushCachePolicy;
+        return this;
+    }
+
     public void listen(String host, int port) {
         configuration.setHost(host);
         configuration.setPort(port);
@@ -63,7 +75,11 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
         http2Server = new HTTP2Server(configuration.getHost(), configuration.getPort(), configuration,
                 new ServerHTTPHandler.Adapter().headerComplete((request, response, out, connection) -> {
                     SimpleRequest r = new SimpleRequest(request, response, out);
+                    r.connection = connection;
                     request.setAttachment(r);
+                    if (pushCachePolicy != null) {
+                        pushCachePolicy.onRequest(r);
+                    }
                     if (headerComplete != null) {
                         headerComplete.call(r);
                     }
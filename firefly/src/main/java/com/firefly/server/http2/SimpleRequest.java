@@ -36,6 +36,7 @@ public class SimpleRequest {
 		response.setStatus(HttpStatus.OK_200);
 		response.setHttpVersion(HttpVersion.HTTP_1_1);
 		this.response = new SimpleResponse(response, output);
+		this.response.request = request;
 	}
 
 	public Request getRequest() {
@@ -78,15 +79,27 @@ public class SimpleRequest {
 	}
 
 	public <T> T getJsonBody(Class<T> clazz) {
-		return Json.toObject(getStringBody(), clazz);
+		if (stringBody != null) {
+			return Json.toObject(stringBody, clazz);
+		} else {
+			return Json.toObject(requestBody, clazz);
+		}
 	}
 
 	public JsonObject getJsonObjectBody() {
-		return Json.toJsonObject(getStringBody());
+		if (stringBody != null) {
+			return Json.toJsonObject(stringBody);
+		} else {
+			return Json.toJsonObject(requestBody);
+		}
 	}
 
 	public JsonArray getJsonArrayBody() {
-		return Json.toJsonArray(getStringBody());
+		if (stringBody != null) {
+			return Json.toJsonArray(stringBody);
+		} else {
+			return Json.toJsonArray(requestBody);
+		}
 	}
 
 	public List<Cookie> getCookies() {
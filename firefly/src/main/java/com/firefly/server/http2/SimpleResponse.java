@@ -2,19 +2,33 @@ package com.firefly.server.http2;
 
 import com.firefly.codec.http2.model.Cookie;
 import com.firefly.codec.http2.model.CookieGenerator;
+import com.firefly.codec.http2.model.HttpFields;
 import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpMethod;
+import com.firefly.codec.http2.model.HttpURI;
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.model.MetaData.Request;
 import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.BufferedHTTPOutputStream;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class SimpleResponse implements Closeable {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    private static final HttpHeader[] UNINHERITED_PUSH_HEADERS = {
+            HttpHeader.IF_MATCH, HttpHeader.IF_NONE_MATCH, HttpHeader.IF_MODIFIED_SINCE,
+            HttpHeader.IF_UNMODIFIED_SINCE, HttpHeader.IF_RANGE, HttpHeader.RANGE, HttpHeader.EXPECT,
+            HttpHeader.AUTHORIZATION, HttpHeader.REFERER, HttpHeader.CONTENT_TYPE, HttpHeader.CONTENT_LENGTH,
+            HttpHeader.TRANSFER_ENCODING};
+
+    Request request;
     Response response;
     HTTPOutputStream output;
     PrintWriter printWriter;
@@ -89,6 +103,81 @@ public class SimpleResponse implements Closeable {
         this.bufferSize = bufferSize;
     }
 
+    /**
+     * @return Whether the server can push the resources with this response, it
+     * is supported by the HTTP/2 responses if the client enables the push.
+     */
+    public boolean isPushSupported() {
+        return output instanceof HTTP2ServerOutputStream && ((HTTP2ServerOutputStream) output).isPushSupported();
+    }
+
+    /**
+     * Push a resource of the same authority. The pushed GET request inherits
+     * the headers of this request except the conditional, range, authorization
+     * and content headers, and its referrer is this request. The server serves
+     * the pushed request like a request from the client.
+     *
+     * @param pathQuery The path and query of the pushed resource
+     * @return Whether the resource is pushed
+     */
+    public boolean push(String pathQuery) {
+        if (!isPushSupported() || request == null) {
+            return false;
+        }
+
+        HttpFields fields = new HttpFields(request.getFields());
+        for (HttpHeader header : UNINHERITED_PUSH_HEADERS) {
+            fields.remove(header);
+        }
+        HttpURI uri = request.getURI();
+        fields.put(HttpHeader.REFERER, uri.toString());
+        HttpURI pushURI = new HttpURI(uri.getScheme(), uri.getHost(), uri.getPort(), pathQuery);
+        return push(new Request(HttpMethod.GET.asString(), pushURI, HttpVersion.HTTP_2, fields));
+    }
+
+    /**
+     * Push a resource with the request that is created by the application.
+     *
+     * @param pushRequest The pushed request, it must be a safe and cacheable request, such as GET
+     * @return Whether the resource is pushed
+     */
+    public boolean push(Request pushRequest) {
+        return isPushSupported() && ((HTTP2ServerOutputStream) output).push(pushRequest);
+    }
+
+    /**
+     * Send the content with the content length and complete the response. The
+     * buffers are sent without copying, they can be read-only, direct or
+     * memory-mapped buffers that the application prepares. The HTTP/1 header is
+     * generated and written with the content in one gathered write, the HTTP/2
+     * content is written in the DATA frames.
+     *
+     * @param content  The content buffers, they must not be modified until the callback completes
+     * @param callback The callback that is completed when the content has been written to the connection
+     */
+    public void writeWithContentLength(ByteBuffer[] content, Callback callback) {
+        if (bufferedOutputStream != null || printWriter != null) {
+            throw new IllegalStateException("the response has used output stream or print writer");
+        }
+
+        try {
+            output.writeWithContentLength(content, callback);
+        } catch (IOException e) {
+            log.error("write the response content exception", e);
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * Send the content with the content length and complete the response.
+     *
+     * @param content The content buffers, they must not be modified after they are written
+     * @see #writeWithContentLength(ByteBuffer[], Callback)
+     */
+    public void writeWithContentLength(ByteBuffer... content) {
+        writeWithContentLength(content, Callback.NOOP);
+    }
+
     public boolean isClosed() {
         return output.isClosed();
     }
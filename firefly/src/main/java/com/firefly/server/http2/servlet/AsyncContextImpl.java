@@ -33,6 +33,17 @@ public class AsyncContextImpl implements AsyncContext {
 				TimeUnit.MILLISECONDS, new LinkedTransferQueue<Runnable>(), new AsyncContextTreadFactory());
 	}
 
+	/**
+	 * Run the task of the non-blocking I/O listeners, the listeners are not
+	 * invoked in the network threads.
+	 *
+	 * @param task
+	 *            The listener task
+	 */
+	static void execute(Runnable task) {
+		executor.execute(task);
+	}
+
 	public static void shutdown() {
 		executor.shutdown();
 		TIME_WHEEL.stop();
@@ -73,7 +84,9 @@ public class AsyncContextImpl implements AsyncContext {
 		if (complete)
 			return;
 
-		timeoutFuture.cancel();
+		if (timeoutFuture != null) {
+			timeoutFuture.cancel();
+		}
 		fireOnComplete();
 		startAsync = false;
 		complete = true;
@@ -106,15 +119,26 @@ public class AsyncContextImpl implements AsyncContext {
 		dispatch(null, path);
 	}
 
+	/**
+	 * Forward the request to the path, then complete the asynchronous
+	 * context, unless the dispatched resource starts the asynchronous mode
+	 * again. The request is open until the forward returns.
+	 */
 	@Override
 	public void dispatch(ServletContext context, String path) {
-		complete();
+		if (timeoutFuture != null) {
+			timeoutFuture.cancel();
+		}
+		startAsync = false;
 		try {
 			request.getRequestDispatcher(path).forward(request, response);
 		} catch (Throwable e) {
 			log.error("async dispatch exception", e);
 			fireOnError();
 		}
+		if (!startAsync) {
+			complete();
+		}
 	}
 
 	@Override
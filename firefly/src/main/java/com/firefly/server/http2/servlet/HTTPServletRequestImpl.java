@@ -57,6 +57,7 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
     private HttpSession httpSession;
 
     private PipedStream bodyPipedStream;
+    private StreamingHTTPBody streamingBody;
     private ServletInputStream servletInputStream;
     private BufferedReader bufferedReader;
 
@@ -64,6 +65,7 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
     private RequestDispatcherImpl requestDispatcher;
 
     private String stringBody;
+    private boolean closed;
 
     HTTPServletRequestImpl(ServerHTTP2Configuration http2Configuration, Request request, Response response,
                            HTTPOutputStream output, HTTPConnection connection) {
@@ -440,12 +442,38 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
         }
     }
 
+    StreamingHTTPBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    StreamingHTTPBody createStreamingBody() {
+        streamingBody = new StreamingHTTPBody(http2Configuration.getStreamingBodyHighWaterMark(),
+                http2Configuration.getTemporaryDirectory());
+        return streamingBody;
+    }
+
+    private InputStream getBodyInputStream() throws IOException {
+        if (streamingBody != null) {
+            return streamingBody.getInputStream();
+        } else {
+            return getBodyPipedStream().getInputStream();
+        }
+    }
+
     private boolean hasData() {
-        return bodyPipedStream != null;
+        return bodyPipedStream != null || streamingBody != null;
+    }
+
+    void failDataReceiving(Throwable x) {
+        if (streamingBody != null) {
+            streamingBody.fail(x);
+        }
     }
 
     void completeDataReceiving() {
-        if (hasData()) {
+        if (streamingBody != null) {
+            streamingBody.complete();
+        } else if (hasData()) {
             try {
                 getBodyPipedStream().getOutputStream().close();
             } catch (IOException e) {
@@ -455,12 +483,20 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
         if (hasData()) {
-            try {
-                getBodyPipedStream().close();
-            } catch (IOException e) {
-                log.error("close http body piped stream exception", e);
+            if (streamingBody != null) {
+                streamingBody.close();
+            } else {
+                try {
+                    getBodyPipedStream().close();
+                } catch (IOException e) {
+                    log.error("close http body piped stream exception", e);
+                }
             }
 
             if (parts != null) {
@@ -478,11 +514,13 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
     private class HTTPServletInputStream extends ServletInputStream {
 
         private volatile boolean finished;
+        private volatile ReadListener readListener;
+        private boolean allDataRead;
 
         @Override
         public int available() throws IOException {
             if (hasData()) {
-                return getBodyPipedStream().getInputStream().available();
+                return getBodyInputStream().available();
             } else {
                 return 0;
             }
@@ -491,53 +529,96 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
         @Override
         public void close() throws IOException {
             if (hasData()) {
-                getBodyPipedStream().getInputStream().close();
+                getBodyInputStream().close();
             }
             finished = true;
         }
 
         @Override
         public boolean isFinished() {
-            return finished;
+            if (streamingBody != null) {
+                return finished || streamingBody.isFinished();
+            } else {
+                return finished || !hasData();
+            }
         }
 
+        /**
+         * The buffered body has been received before the servlet is dispatched.
+         * If the streaming body is not ready, the read listener is notified when
+         * the next content arrives.
+         */
         @Override
         public boolean isReady() {
-            return hasData();
+            if (streamingBody == null) {
+                return true;
+            } else if (readListener == null) {
+                return streamingBody.isReady();
+            } else {
+                return streamingBody.onReady(() -> AsyncContextImpl.execute(this::notifyReadListener));
+            }
         }
 
         @Override
         public void setReadListener(ReadListener readListener) {
-            if (hasData()) {
-                try {
+            if (readListener == null) {
+                throw new NullPointerException("the read listener is null");
+            }
+            if (this.readListener != null) {
+                throw new IllegalStateException("the read listener has been set");
+            }
+            if (!isAsyncStarted()) {
+                throw new IllegalStateException("the non-blocking read needs the asynchronous servlet");
+            }
+            this.readListener = readListener;
+            AsyncContextImpl.execute(this::notifyReadListener);
+        }
+
+        private synchronized void notifyReadListener() {
+            if (allDataRead) {
+                return;
+            }
+            try {
+                if (!isFinished()) {
                     readListener.onDataAvailable();
+                }
+                if (isFinished()) {
+                    allDataRead = true;
                     readListener.onAllDataRead();
-                } catch (IOException e) {
-                    readListener.onError(e);
                 }
+            } catch (Throwable t) {
+                allDataRead = true;
+                readListener.onError(t);
             }
         }
 
         @Override
         public int read() throws IOException {
-            finished = true;
             if (hasData()) {
-                return getBodyPipedStream().getInputStream().read();
+                return eof(getBodyInputStream().read());
             } else {
+                finished = true;
                 return -1;
             }
         }
 
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
-            finished = true;
             if (hasData()) {
-                return getBodyPipedStream().getInputStream().read(b, off, len);
+                return eof(getBodyInputStream().read(b, off, len));
             } else {
+                finished = true;
                 return -1;
             }
         }
 
+        private int eof(int n) {
+            if (n < 0) {
+                finished = true;
+            }
+            return n;
+        }
+
     }
 
     @Override
@@ -787,6 +868,8 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
             throws IllegalStateException {
         if (asyncContext == null) {
             asyncContext = new AsyncContextImpl();
+            // the request is closed when the asynchronous context ends instead of when the servlet returns
+            asyncContext.addListener(new RequestCloseListener(), servletRequest, servletResponse);
         }
 
         asyncContext.startAsync(servletRequest, servletResponse,
@@ -800,6 +883,36 @@ public class HTTPServletRequestImpl implements HttpServletRequest, HttpStringBod
         return asyncContext != null && asyncContext.isStartAsync();
     }
 
+    /**
+     * @return Whether the servlet has started the asynchronous mode, then the
+     * request is closed by its asynchronous context even if it has completed
+     */
+    boolean isAsyncContextCreated() {
+        return asyncContext != null;
+    }
+
+    private class RequestCloseListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
     @Override
     public boolean isAsyncSupported() {
         return true;
@@ -9,6 +9,7 @@ import com.firefly.mvc.web.servlet.SystemHtmlPage;
 import com.firefly.server.exception.HttpServerException;
 import com.firefly.utils.StringUtils;
 import com.firefly.utils.VerifyUtils;
+import com.firefly.utils.concurrent.Callback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +20,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class HTTPServletResponseImpl implements HttpServletResponse {
@@ -291,28 +293,116 @@ public class HTTPServletResponseImpl implements HttpServletResponse {
 
         BufferedHTTPOutputStream bufferedHTTPOutputStream = new BufferedHTTPOutputStream(output, bufferSize);
 
+        private volatile WriteListener writeListener;
+        private final Object listenerLock = new Object();
+        private boolean writing;
+        private boolean writePossible;
+        private final Callback writeCallback = new Callback() {
+            @Override
+            public void succeeded() {
+                boolean notify;
+                synchronized (HTTPServletOutputStream.this) {
+                    writing = false;
+                    notify = writePossible;
+                    writePossible = false;
+                }
+                if (notify) {
+                    AsyncContextImpl.execute(HTTPServletOutputStream.this::notifyWritePossible);
+                }
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                synchronized (HTTPServletOutputStream.this) {
+                    writing = false;
+                    writePossible = false;
+                }
+                AsyncContextImpl.execute(() -> notifyError(x));
+            }
+        };
+
+        /**
+         * In the non-blocking mode, the stream is not ready until the
+         * connection has written the previous content, and the write listener
+         * is notified when the content has been written.
+         */
         @Override
-        public boolean isReady() {
-            return true;
+        public synchronized boolean isReady() {
+            if (writeListener == null || !writing) {
+                return true;
+            }
+            writePossible = true;
+            return false;
         }
 
         @Override
         public void setWriteListener(WriteListener writeListener) {
+            if (writeListener == null) {
+                throw new NullPointerException("the write listener is null");
+            }
+            if (this.writeListener != null) {
+                throw new IllegalStateException("the write listener has been set");
+            }
+            if (!request.isAsyncStarted()) {
+                throw new IllegalStateException("the non-blocking write needs the asynchronous servlet");
+            }
             try {
-                writeListener.onWritePossible();
+                bufferedHTTPOutputStream.flush();
             } catch (IOException e) {
-                writeListener.onError(e);
+                log.error("flush the buffered content exception", e);
+            }
+            this.writeListener = writeListener;
+            AsyncContextImpl.execute(this::notifyWritePossible);
+        }
+
+        private void notifyWritePossible() {
+            synchronized (listenerLock) {
+                try {
+                    writeListener.onWritePossible();
+                } catch (Throwable t) {
+                    writeListener.onError(t);
+                }
+            }
+        }
+
+        private void notifyError(Throwable x) {
+            synchronized (listenerLock) {
+                writeListener.onError(x);
             }
         }
 
         @Override
         public void write(int b) throws IOException {
-            bufferedHTTPOutputStream.write(b);
+            if (writeListener == null) {
+                bufferedHTTPOutputStream.write(b);
+            } else {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
         }
 
         @Override
         public void write(byte[] array, int offset, int length) throws IOException {
-            bufferedHTTPOutputStream.write(array, offset, length);
+            if (writeListener == null) {
+                bufferedHTTPOutputStream.write(array, offset, length);
+            } else {
+                synchronized (this) {
+                    if (writing) {
+                        throw new IllegalStateException("the previous content is being written, the stream is not ready");
+                    }
+                    writing = true;
+                }
+                // the application can reuse the array after the write returns
+                ByteBuffer content = ByteBuffer.allocate(length);
+                content.put(array, offset, length).flip();
+                try {
+                    output.write(content, writeCallback);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        writing = false;
+                    }
+                    throw e;
+                }
+            }
         }
 
         @Override
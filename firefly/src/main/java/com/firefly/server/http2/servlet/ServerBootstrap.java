@@ -21,14 +21,16 @@ public class ServerBootstrap extends AbstractLifeCycle {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
     private final HTTP2Server http2Server;
+    private final ServletServerHTTPHandler servletServerHTTPHandler;
     private final long createTime = System.currentTimeMillis();
     private File tempDir;
 
     public ServerBootstrap(ServerHTTP2Configuration http2Configuration) {
         WebContext context = new ServerAnnotationWebContext(http2Configuration);
+        this.servletServerHTTPHandler = new ServletServerHTTPHandler(http2Configuration,
+                new HttpServletDispatcherController(context));
         this.http2Server = new HTTP2Server(http2Configuration.getHost(), http2Configuration.getPort(),
-                http2Configuration,
-                new ServletServerHTTPHandler(http2Configuration, new HttpServletDispatcherController(context)));
+                http2Configuration, servletServerHTTPHandler);
     }
 
     public ServerBootstrap(String configFileName) {
@@ -38,9 +40,10 @@ public class ServerBootstrap extends AbstractLifeCycle {
 
         WebContext context = new ServerAnnotationWebContext(configFileName);
         ServerHTTP2Configuration http2Configuration = context.getBean(ServerHTTP2Configuration.class);
+        this.servletServerHTTPHandler = new ServletServerHTTPHandler(http2Configuration,
+                new HttpServletDispatcherController(context));
         this.http2Server = new HTTP2Server(http2Configuration.getHost(), http2Configuration.getPort(),
-                http2Configuration,
-                new ServletServerHTTPHandler(http2Configuration, new HttpServletDispatcherController(context)));
+                http2Configuration, servletServerHTTPHandler);
     }
 
     public ServerBootstrap(String host, int port) {
@@ -60,9 +63,10 @@ public class ServerBootstrap extends AbstractLifeCycle {
 
         http2Configuration.setHost(host);
         http2Configuration.setPort(port);
+        this.servletServerHTTPHandler = new ServletServerHTTPHandler(http2Configuration,
+                new HttpServletDispatcherController(context));
         this.http2Server = new HTTP2Server(http2Configuration.getHost(), http2Configuration.getPort(),
-                http2Configuration,
-                new ServletServerHTTPHandler(http2Configuration, new HttpServletDispatcherController(context)));
+                http2Configuration, servletServerHTTPHandler);
     }
 
     public File getTempDir() {
@@ -110,6 +114,7 @@ public class ServerBootstrap extends AbstractLifeCycle {
     protected void destroy() {
         AsyncContextImpl.shutdown();
         http2Server.stop();
+        servletServerHTTPHandler.shutdown();
         ((ServerHTTP2Configuration) http2Server.getHttp2Configuration()).getHttpSessionManager().stop();
     }
 
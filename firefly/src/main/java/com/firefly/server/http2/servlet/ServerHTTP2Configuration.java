@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class ServerHTTP2Configuration extends HTTP2Configuration {
 
@@ -44,6 +45,15 @@ public class ServerHTTP2Configuration extends HTTP2Configuration {
     private int asynchronousContextCorePoolKeepAliveTime = 10 * 1000;
     private int asynchronousContextTimeout = 6 * 1000;
 
+    // servlet dispatch executor settings
+    private boolean asynchronousDispatchEnabled = true;
+    private int dispatchPoolSize = 128;
+    private int dispatchPoolKeepAliveTime = 30 * 1000;
+    private int maxPendingDispatches = 4 * 1024;
+    private ExecutorService dispatchExecutor;
+    private boolean streamingBodyEnabled;
+    private int streamingBodyHighWaterMark = 1024 * 1024;
+
     public int getHttpBodyThreshold() {
         return httpBodyThreshold;
     }
@@ -173,6 +183,112 @@ public class ServerHTTP2Configuration extends HTTP2Configuration {
         this.asynchronousContextTimeout = asynchronousContextTimeout;
     }
 
+    /**
+     * Whether the servlet dispatches run in the dispatch executor, the default
+     * value is true. If false, the servlets run in the I/O threads.
+     *
+     * @return If true, the servlet dispatches run out of the I/O threads.
+     */
+    public boolean isAsynchronousDispatchEnabled() {
+        return asynchronousDispatchEnabled;
+    }
+
+    public void setAsynchronousDispatchEnabled(boolean asynchronousDispatchEnabled) {
+        this.asynchronousDispatchEnabled = asynchronousDispatchEnabled;
+    }
+
+    /**
+     * The number of the servlet dispatch threads, the default value is 128.
+     *
+     * @return The number of the dispatch threads.
+     */
+    public int getDispatchPoolSize() {
+        return dispatchPoolSize;
+    }
+
+    public void setDispatchPoolSize(int dispatchPoolSize) {
+        this.dispatchPoolSize = dispatchPoolSize;
+    }
+
+    /**
+     * The idle time of the dispatch thread before it terminates, the default
+     * value is 30 seconds.
+     *
+     * @return The keep-alive time of the dispatch threads, the unit is MS.
+     */
+    public int getDispatchPoolKeepAliveTime() {
+        return dispatchPoolKeepAliveTime;
+    }
+
+    public void setDispatchPoolKeepAliveTime(int dispatchPoolKeepAliveTime) {
+        this.dispatchPoolKeepAliveTime = dispatchPoolKeepAliveTime;
+    }
+
+    /**
+     * The max number of the queued and running servlet dispatches, the default
+     * value is 4096. When it is exceeded, the server responds 503 without
+     * running the servlet.
+     *
+     * @return The max number of the pending dispatches.
+     */
+    public int getMaxPendingDispatches() {
+        return maxPendingDispatches;
+    }
+
+    public void setMaxPendingDispatches(int maxPendingDispatches) {
+        this.maxPendingDispatches = maxPendingDispatches;
+    }
+
+    public ExecutorService getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * Set the executor that runs the servlet dispatches instead of the default
+     * bounded thread pool, e.g. a virtual thread executor on JDK 21+. The
+     * pending dispatches are still limited by
+     * {@link #getMaxPendingDispatches()}, and the executor is not shut down
+     * when the server stops.
+     *
+     * @param dispatchExecutor
+     *            The servlet dispatch executor.
+     */
+    public void setDispatchExecutor(ExecutorService dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * Whether the servlet is dispatched when the first content of the request
+     * arrives and it reads the body while the body is being received, the
+     * default value is false. It needs the asynchronous dispatch. If false, the
+     * body is buffered completely before the servlet is dispatched.
+     *
+     * @return If true, the servlets read the streaming request bodies.
+     */
+    public boolean isStreamingBodyEnabled() {
+        return streamingBodyEnabled;
+    }
+
+    public void setStreamingBodyEnabled(boolean streamingBodyEnabled) {
+        this.streamingBodyEnabled = streamingBodyEnabled;
+    }
+
+    /**
+     * The max unread bytes of a streaming request body that are held in
+     * memory, the default value is 1MB. The HTTP/2 clients are held back by
+     * the flow control window until the servlet reads the content, and the
+     * content beyond the high-water mark is written to a temporary file.
+     *
+     * @return The high-water mark of the streaming request body.
+     */
+    public int getStreamingBodyHighWaterMark() {
+        return streamingBodyHighWaterMark;
+    }
+
+    public void setStreamingBodyHighWaterMark(int streamingBodyHighWaterMark) {
+        this.streamingBodyHighWaterMark = streamingBodyHighWaterMark;
+    }
+
     public String getHost() {
         return host;
     }
@@ -0,0 +1,162 @@
+package com.firefly.server.http2.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run the servlet dispatches out of the I/O threads. The pending dispatches
+ * (queued and running) are limited, the dispatch that exceeds the limit is
+ * rejected and the server responds 503 immediately.
+ *
+ * The dispatches of the pipelined HTTP/1.1 requests and the HTTP/2 streams run
+ * concurrently, the HTTP/1.1 connection writes the responses in the order of
+ * the requests.
+ */
+public class ServletDispatchExecutor {
+
+	private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+	public static class DispatchThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger number = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new Thread(r, "firefly servlet dispatch thread-" + number.getAndIncrement());
+		}
+
+	}
+
+	private final ExecutorService executor;
+	private final boolean sharedExecutor;
+	private final int maxPendingDispatches;
+	private final AtomicInteger pendingDispatches = new AtomicInteger();
+	private final AtomicInteger rejectedDispatches = new AtomicInteger();
+
+	public ServletDispatchExecutor(ServerHTTP2Configuration config) {
+		this(config.getDispatchExecutor(), config.getDispatchPoolSize(), config.getDispatchPoolKeepAliveTime(),
+				config.getMaxPendingDispatches());
+	}
+
+	/**
+	 * Create the dispatch executor.
+	 *
+	 * @param executor
+	 *            The executor that runs the dispatches, if it is null, a
+	 *            bounded thread pool is created
+	 * @param poolSize
+	 *            The number of the threads of the created thread pool
+	 * @param keepAliveTime
+	 *            The idle time of the created threads, the unit is MS
+	 * @param maxPendingDispatches
+	 *            The max number of the queued and running dispatches
+	 */
+	public ServletDispatchExecutor(ExecutorService executor, int poolSize, int keepAliveTime,
+			int maxPendingDispatches) {
+		this.maxPendingDispatches = maxPendingDispatches;
+		if (executor != null) {
+			this.executor = executor;
+			sharedExecutor = true;
+		} else {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, keepAliveTime,
+					TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, maxPendingDispatches)),
+					new DispatchThreadFactory());
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+			sharedExecutor = false;
+		}
+	}
+
+	/**
+	 * Run the dispatch in the executor.
+	 *
+	 * @param dispatch
+	 *            The servlet dispatch
+	 * @param rejection
+	 *            It responds the request when the executor is saturated
+	 */
+	public void execute(Runnable dispatch, Runnable rejection) {
+		Dispatch d = new Dispatch(dispatch, rejection);
+		if (!d.acquire()) {
+			d.reject();
+			return;
+		}
+		try {
+			executor.execute(d::run);
+		} catch (RejectedExecutionException e) {
+			log.warn("the servlet dispatch executor rejects the task", e);
+			d.release();
+			d.reject();
+		}
+	}
+
+	public int getPendingDispatches() {
+		return pendingDispatches.get();
+	}
+
+	public int getRejectedDispatches() {
+		return rejectedDispatches.get();
+	}
+
+	/**
+	 * Shutdown the executor, the executor that is set by
+	 * {@link ServerHTTP2Configuration#setDispatchExecutor(ExecutorService)} is
+	 * not shut down.
+	 */
+	public void shutdown() {
+		if (!sharedExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	private class Dispatch {
+
+		private final Runnable dispatch;
+		private final Runnable rejection;
+		private boolean acquired;
+
+		private Dispatch(Runnable dispatch, Runnable rejection) {
+			this.dispatch = dispatch;
+			this.rejection = rejection;
+		}
+
+		private boolean acquire() {
+			if (pendingDispatches.incrementAndGet() > maxPendingDispatches) {
+				pendingDispatches.decrementAndGet();
+				return false;
+			} else {
+				acquired = true;
+				return true;
+			}
+		}
+
+		private void release() {
+			if (acquired) {
+				acquired = false;
+				pendingDispatches.decrementAndGet();
+			}
+		}
+
+		private void run() {
+			try {
+				dispatch.run();
+			} catch (Throwable t) {
+				log.error("the servlet dispatch exception", t);
+			} finally {
+				release();
+			}
+		}
+
+		private void reject() {
+			rejectedDispatches.incrementAndGet();
+			try {
+				rejection.run();
+			} catch (Throwable t) {
+				log.error("the servlet dispatch rejection exception", t);
+			}
+		}
+	}
+}
@@ -1,19 +1,24 @@
 package com.firefly.server.http2.servlet;
 
 import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.codec.http2.model.MetaData.Request;
 import com.firefly.codec.http2.model.MetaData.Response;
+import com.firefly.codec.http2.stream.AbstractHTTPConnection;
 import com.firefly.codec.http2.stream.HTTPConnection;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
 import com.firefly.mvc.web.servlet.HttpServletDispatcherController;
+import com.firefly.net.buffer.PooledBuffer;
 import com.firefly.server.http2.ServerHTTPHandler;
 import com.firefly.server.http2.servlet.utils.ClientIPUtils;
 import com.firefly.server.utils.StatisticsUtils;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.time.Millisecond100Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -23,13 +28,34 @@ public class ServletServerHTTPHandler extends ServerHTTPHandler.Adapter {
 
 	private final ServerHTTP2Configuration http2Configuration;
 	private final HttpServletDispatcherController controller;
+	private final ServletDispatchExecutor dispatchExecutor;
+	private final boolean streamingBodyEnabled;
 
 	public ServletServerHTTPHandler(ServerHTTP2Configuration http2Configuration, HttpServletDispatcherController controller) {
 		this.http2Configuration = http2Configuration;
 		this.controller = controller;
+		if (http2Configuration.isAsynchronousDispatchEnabled()) {
+			dispatchExecutor = new ServletDispatchExecutor(http2Configuration);
+		} else {
+			dispatchExecutor = null;
+		}
+		if (http2Configuration.isStreamingBodyEnabled() && dispatchExecutor == null) {
+			log.warn("the streaming request body needs the asynchronous dispatch, the request bodies are buffered");
+		}
+		streamingBodyEnabled = http2Configuration.isStreamingBodyEnabled() && dispatchExecutor != null;
 		AsyncContextImpl.init(http2Configuration);
 	}
 
+	public ServletDispatchExecutor getDispatchExecutor() {
+		return dispatchExecutor;
+	}
+
+	public void shutdown() {
+		if (dispatchExecutor != null) {
+			dispatchExecutor.shutdown();
+		}
+	}
+
 	@Override
 	public boolean headerComplete(Request request, Response response, HTTPOutputStream output,
 			HTTPConnection connection) {
@@ -43,34 +69,105 @@ public class ServletServerHTTPHandler extends ServerHTTPHandler.Adapter {
 	@Override
 	public boolean content(ByteBuffer item, Request request, Response response, HTTPOutputStream output,
 			HTTPConnection connection) {
+		return content(item, request, response, output, connection, Callback.NOOP);
+	}
+
+	@Override
+	public boolean content(ByteBuffer item, Request request, Response response, HTTPOutputStream output,
+			HTTPConnection connection, Callback callback) {
 		HTTPServletRequestImpl servletRequest = (HTTPServletRequestImpl) request.getAttachment();
-		try {
-			servletRequest.getBodyPipedStream().getOutputStream().write(BufferUtils.toArray(item));
-		} catch (IOException e) {
-			log.error("receive http body data exception", e);
+		if (streamingBodyEnabled) {
+			// the servlet is dispatched with the first content and reads the rest while it is being received
+			StreamingHTTPBody body = servletRequest.getStreamingBody();
+			boolean first = body == null;
+			if (first) {
+				body = servletRequest.createStreamingBody();
+			}
+			body.offer(item, retainReadBuffer(connection), callback);
+			if (first) {
+				dispatch(servletRequest, request, connection);
+			}
+		} else {
+			try {
+				BufferUtils.writeTo(item.slice(), servletRequest.getBodyPipedStream().getOutputStream());
+			} catch (IOException e) {
+				log.error("receive http body data exception", e);
+			} finally {
+				callback.succeeded();
+			}
 		}
 		return false;
 	}
 
+	private PooledBuffer retainReadBuffer(HTTPConnection connection) {
+		// the decrypted content is not in the read buffer
+		if (connection instanceof AbstractHTTPConnection && !connection.isEncrypted()) {
+			return ((AbstractHTTPConnection) connection).getTcpSession().retainReadBuffer();
+		} else {
+			return PooledBuffer.UNPOOLED;
+		}
+	}
+
 	@Override
 	public boolean messageComplete(Request request, Response response, HTTPOutputStream output,
 			HTTPConnection connection) {
+		HTTPServletRequestImpl servletRequest = (HTTPServletRequestImpl) request.getAttachment();
+		servletRequest.completeDataReceiving();
+		if (servletRequest.getStreamingBody() == null) {
+			dispatch(servletRequest, request, connection);
+		}
+		return true;
+	}
+
+	@Override
+	public void earlyEOF(Request request, Response response, HTTPOutputStream output, HTTPConnection connection) {
+		HTTPServletRequestImpl servletRequest = (HTTPServletRequestImpl) request.getAttachment();
+		if (servletRequest != null) {
+			servletRequest.failDataReceiving(new EOFException("the connection is closed before the request is complete"));
+		}
+	}
+
+	private void dispatch(HTTPServletRequestImpl servletRequest, Request request, HTTPConnection connection) {
+		if (dispatchExecutor != null) {
+			dispatchExecutor.execute(() -> doDispatch(servletRequest, request, connection),
+					() -> reject(servletRequest, request, connection));
+		} else {
+			doDispatch(servletRequest, request, connection);
+		}
+	}
+
+	private void doDispatch(HTTPServletRequestImpl servletRequest, Request request, HTTPConnection connection) {
 		long start = Millisecond100Clock.currentTimeMillis();
-		try (HTTPServletRequestImpl servletRequest = (HTTPServletRequestImpl) request.getAttachment()) {
-			servletRequest.completeDataReceiving();
+		try {
 			controller.dispatch(servletRequest, servletRequest.getResponse());
+		} finally {
+			// the asynchronous servlet and the non-blocking listeners use the request after the dispatch,
+			// the asynchronous context closes it
+			if (!servletRequest.isAsyncContextCreated()) {
+				servletRequest.close();
+			}
 		}
 		long timeDifference = Millisecond100Clock.currentTimeMillis() - start;
 
 		StatisticsUtils.saveRequestInfo(connection.getSessionId(), getRemoteAddr(request, connection),
 				request.getMethod(), request.getURI(), timeDifference);
-		return true;
+	}
+
+	private void reject(HTTPServletRequestImpl servletRequest, Request request, HTTPConnection connection) {
+		log.warn("the server is busy, reject the request {} {}, pending dispatches: {}", request.getMethod(),
+				request.getURI(), dispatchExecutor.getPendingDispatches());
+		try (HTTPServletRequestImpl r = servletRequest) {
+			r.getResponse().sendError(HttpStatus.SERVICE_UNAVAILABLE_503);
+		} catch (IOException e) {
+			log.error("response service unavailable exception", e);
+		}
 	}
 
 	@Override
 	public void badMessage(int status, String reason, Request request, Response response, HTTPOutputStream output,
 			HTTPConnection connection) {
 		HTTPServletRequestImpl servletRequest = (HTTPServletRequestImpl) request.getAttachment();
+		servletRequest.failDataReceiving(new IOException("bad message, status: " + status + ", reason: " + reason));
 		if (servletRequest.getResponse().isCommitted()) {
 			log.error("receive the bad message, status: {}, reason: {}", status, reason);
 		} else {
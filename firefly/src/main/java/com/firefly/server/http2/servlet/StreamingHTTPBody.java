@@ -0,0 +1,319 @@
+package com.firefly.server.http2.servlet;
+
+import com.firefly.net.buffer.PooledBuffer;
+import com.firefly.utils.concurrent.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.UUID;
+
+/**
+ * The HTTP body that the servlet reads while it is being received. The
+ * received buffers are queued without copying, and the callback of a buffer is
+ * completed when the servlet reads it, so the HTTP/2 client is held back by the
+ * flow control window if the servlet reads slowly. The buffers beyond the
+ * high-water mark are written to a temporary file and their callbacks are
+ * completed at once, it bounds the memory of the clients that send faster
+ * than the servlet reads, such as the HTTP/1 clients that have no flow
+ * control.
+ */
+public class StreamingHTTPBody implements Closeable {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private final long highWaterMark;
+    private final String temporaryDirectory;
+    private final InputStream inputStream = new BodyInputStream();
+    private long memoryBytes;
+    private File spillFile;
+    private FileChannel spillChannel;
+    private long spillWritePosition;
+    private long spillReadPosition;
+    private boolean completed;
+    private boolean closed;
+    private Throwable failure;
+    private Runnable readyTask;
+
+    /**
+     * Create the streaming body.
+     *
+     * @param highWaterMark      The max bytes that are held in memory
+     * @param temporaryDirectory The directory of the temporary file
+     */
+    public StreamingHTTPBody(long highWaterMark, String temporaryDirectory) {
+        this.highWaterMark = highWaterMark;
+        this.temporaryDirectory = temporaryDirectory;
+    }
+
+    /**
+     * Append the received content.
+     *
+     * @param content      The content, it must not be modified until the callback completes
+     * @param pooledBuffer The retained pooled buffer of the content, it is released when the content is consumed
+     * @param callback     The callback that is completed when the content is consumed
+     */
+    public void offer(ByteBuffer content, PooledBuffer pooledBuffer, Callback callback) {
+        // the reader moves the position of the slice, the content is unchanged
+        Chunk chunk = new Chunk(content.slice(), pooledBuffer, callback);
+        Runnable task = null;
+        boolean queued = false;
+        synchronized (this) {
+            if (!closed && failure == null) {
+                if (spillChannel == null && memoryBytes + chunk.content.remaining() <= highWaterMark) {
+                    chunks.offer(chunk);
+                    memoryBytes += chunk.content.remaining();
+                    queued = true;
+                } else {
+                    try {
+                        spill(chunk.content);
+                    } catch (IOException e) {
+                        log.error("write the http body to the temporary file exception", e);
+                        failure = e;
+                    }
+                }
+                task = ready();
+            }
+        }
+        if (!queued) {
+            chunk.consumed();
+        }
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    private void spill(ByteBuffer content) throws IOException {
+        if (spillChannel == null) {
+            File directory = new File(temporaryDirectory);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("create the temporary directory " + directory + " failure");
+            }
+            spillFile = new File(directory, UUID.randomUUID().toString());
+            spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        while (content.hasRemaining()) {
+            spillWritePosition += spillChannel.write(content, spillWritePosition);
+        }
+    }
+
+    /**
+     * All content has been received.
+     */
+    public void complete() {
+        Runnable task;
+        synchronized (this) {
+            completed = true;
+            task = ready();
+        }
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * The content can not be received completely, e.g. the connection is closed.
+     *
+     * @param x The cause
+     */
+    public void fail(Throwable x) {
+        Runnable task = null;
+        synchronized (this) {
+            if (!completed && failure == null) {
+                failure = x;
+                task = ready();
+            }
+        }
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    private Runnable ready() {
+        notifyAll();
+        Runnable task = readyTask;
+        readyTask = null;
+        return task;
+    }
+
+    /**
+     * @return Whether the input stream can be read without blocking
+     */
+    public synchronized boolean isReady() {
+        return isReadable();
+    }
+
+    private boolean isReadable() {
+        return !chunks.isEmpty() || spillReadPosition < spillWritePosition || completed || closed || failure != null;
+    }
+
+    /**
+     * Run the task once when the input stream can be read without blocking.
+     * It is used by the non-blocking reader instead of waiting.
+     *
+     * @param task The task that runs in the thread that receives the content
+     * @return True if the input stream can be read now, and the task is not registered
+     */
+    public synchronized boolean onReady(Runnable task) {
+        if (isReadable()) {
+            return true;
+        }
+        readyTask = task;
+        return false;
+    }
+
+    /**
+     * @return Whether all content has been received and read
+     */
+    public synchronized boolean isFinished() {
+        return closed || (completed && chunks.isEmpty() && spillReadPosition >= spillWritePosition);
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The received bytes that are not read
+     */
+    public synchronized long available() {
+        return memoryBytes + spillWritePosition - spillReadPosition;
+    }
+
+    /**
+     * @return Whether the unread content is written to the temporary file
+     */
+    public synchronized boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Release the unread content and delete the temporary file.
+     */
+    @Override
+    public void close() {
+        ArrayDeque<Chunk> unread;
+        Runnable task;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unread = new ArrayDeque<>(chunks);
+            chunks.clear();
+            memoryBytes = 0;
+            if (spillChannel != null) {
+                try {
+                    spillChannel.close();
+                } catch (IOException e) {
+                    log.error("close the temporary file exception", e);
+                }
+                if (!spillFile.delete()) {
+                    log.warn("delete the temporary file {} failure", spillFile);
+                }
+            }
+            task = ready();
+        }
+        for (Chunk chunk : unread) {
+            chunk.consumed();
+        }
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    private class BodyInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int len = read(b, 0, 1);
+            return len < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            Chunk consumed = null;
+            int n;
+            synchronized (StreamingHTTPBody.this) {
+                while (true) {
+                    if (closed) {
+                        return -1;
+                    }
+                    Chunk chunk = chunks.peek();
+                    if (chunk != null) {
+                        n = Math.min(len, chunk.content.remaining());
+                        chunk.content.get(b, off, n);
+                        memoryBytes -= n;
+                        if (!chunk.content.hasRemaining()) {
+                            consumed = chunks.poll();
+                        }
+                        break;
+                    }
+                    if (spillReadPosition < spillWritePosition) {
+                        int size = (int) Math.min(len, spillWritePosition - spillReadPosition);
+                        n = spillChannel.read(ByteBuffer.wrap(b, off, size), spillReadPosition);
+                        spillReadPosition += n;
+                        break;
+                    }
+                    if (failure != null) {
+                        throw new IOException("receive the http body exception", failure);
+                    }
+                    if (completed) {
+                        return -1;
+                    }
+                    try {
+                        StreamingHTTPBody.this.wait();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("wait the http body interrupted");
+                    }
+                }
+            }
+            if (consumed != null) {
+                consumed.consumed();
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(StreamingHTTPBody.this.available(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() {
+            StreamingHTTPBody.this.close();
+        }
+    }
+
+    private static class Chunk {
+        private final ByteBuffer content;
+        private final PooledBuffer pooledBuffer;
+        private final Callback callback;
+
+        private Chunk(ByteBuffer content, PooledBuffer pooledBuffer, Callback callback) {
+            this.content = content;
+            this.pooledBuffer = pooledBuffer;
+            this.callback = callback;
+        }
+
+        private void consumed() {
+            pooledBuffer.release();
+            callback.succeeded();
+        }
+    }
+}
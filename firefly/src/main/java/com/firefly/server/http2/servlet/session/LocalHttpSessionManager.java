@@ -1,7 +1,8 @@
 package com.firefly.server.http2.servlet.session;
 
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
 import com.firefly.utils.lang.AbstractLifeCycle;
-import com.firefly.utils.time.HashTimeWheel;
 import com.firefly.utils.time.Millisecond100Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +13,7 @@ import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class LocalHttpSessionManager extends AbstractLifeCycle implements HttpSessionManager {
 
@@ -23,7 +25,7 @@ public class LocalHttpSessionManager extends AbstractLifeCycle implements HttpSe
 	private HttpSessionAttributeListener httpSessionAttributeListener = new HttpSessionAttributeListenerAdapter();
 	private HttpSessionListener httpSessionListener = new HttpSessionListenerAdapter();
 
-	private static final HashTimeWheel TIME_WHEEL = new HashTimeWheel();
+	private static final Scheduler TIME_WHEEL = Schedulers.createTimeWheel();
 
 	public LocalHttpSessionManager() {
 		start();
@@ -54,7 +56,7 @@ public class LocalHttpSessionManager extends AbstractLifeCycle implements HttpSe
 		long timeout = maxSessionInactiveInterval * 1000;
 		HttpSessionImpl session = new HttpSessionImpl(this, id, Millisecond100Clock.currentTimeMillis(),
 				maxSessionInactiveInterval);
-		TIME_WHEEL.add(timeout, new TimeoutTask(session));
+		TIME_WHEEL.schedule(new TimeoutTask(session), timeout, TimeUnit.MILLISECONDS);
 		map.put(id, session);
 		httpSessionListener.sessionCreated(new HttpSessionEvent(session));
 		return session;
@@ -83,7 +85,7 @@ public class LocalHttpSessionManager extends AbstractLifeCycle implements HttpSe
 			} else {
 				if (timeout > 0) {
 					long nextCheckTime = timeout - timeDifference;
-					TIME_WHEEL.add(nextCheckTime, TimeoutTask.this);
+					TIME_WHEEL.schedule(TimeoutTask.this, nextCheckTime, TimeUnit.MILLISECONDS);
 				} else if (timeout == 0) {
 					remove(session.getId());
 				}
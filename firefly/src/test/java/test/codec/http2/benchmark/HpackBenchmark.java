@@ -0,0 +1,115 @@
+package test.codec.http2.benchmark;
+
+import com.firefly.codec.http2.encode.Generator;
+import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.hpack.HpackDecoder;
+import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.codec.http2.hpack.HpackFieldCache;
+import com.firefly.codec.http2.model.*;
+import com.firefly.net.buffer.SizeClassBufferPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the HPACK encoding and decoding of the API request header blocks. Run it with the GC profiler,
+ * the gc.alloc.rate.norm is the allocated bytes per header block.
+ * <p>
+ * The decodeFirstRequest decodes the block by a new context, like the first request of every connection,
+ * the fields are literals. The decodeNextRequest decodes the block by the context of a connection, the
+ * fields are indexed in the dynamic table.
+ * </p>
+ * <p>
+ * The firefly-system logger of the test resources is DEBUG, put a firefly-log.xml of the INFO level in front of
+ * the classpath, otherwise the debug messages of the codec dominate the result.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HpackBenchmark {
+
+    @Param({"true", "false"})
+    private boolean pooled;
+
+    private HpackFieldCache fieldCache;
+    private HpackDecoder decoder;
+    private ByteBuffer firstBlock;
+    private ByteBuffer nextBlock;
+    private Generator generator;
+    private HeadersFrame headersFrame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fieldCache = pooled ? new HpackFieldCache(HpackFieldCache.DEFAULT_CAPACITY, HpackFieldCache.DEFAULT_MAX_VALUE_LENGTH) : null;
+
+        MetaData.Request request = request();
+        HpackEncoder encoder = new HpackEncoder();
+        firstBlock = encode(encoder, request);
+        nextBlock = encode(encoder, request);
+
+        decoder = new HpackDecoder(4096, 8192, fieldCache);
+        decoder.decode(firstBlock.duplicate());
+
+        generator = pooled
+                ? new Generator(4096, 0, new SizeClassBufferPool(false, 64 * 1024, 16))
+                : new Generator(4096, 0);
+        headersFrame = new HeadersFrame(1, request, null, true);
+    }
+
+    @Benchmark
+    public MetaData decodeFirstRequest() {
+        return new HpackDecoder(4096, 8192, fieldCache).decode(firstBlock.duplicate());
+    }
+
+    @Benchmark
+    public MetaData decodeNextRequest() {
+        return decoder.decode(nextBlock.duplicate());
+    }
+
+    @Benchmark
+    public List<ByteBuffer> generateHeaders() {
+        List<ByteBuffer> buffers = generator.control(headersFrame);
+        generator.releaseHeaderBlocks();
+        return buffers;
+    }
+
+    private static MetaData.Request request() {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.ACCEPT, "application/json");
+        fields.put(HttpHeader.ACCEPT_ENCODING, "gzip, deflate");
+        fields.put(HttpHeader.CONTENT_TYPE, "application/json; charset=UTF-8");
+        fields.put(HttpHeader.USER_AGENT, "firefly-http-client/4.0");
+        fields.put(HttpHeader.AUTHORIZATION, "Bearer 3f9c2a8e71d54b0c");
+        fields.put("x-request-source", "mobile-app");
+        return new MetaData.Request("POST", HttpScheme.HTTPS, new HostPortHttpField("api.fireflysource.com"),
+                "/v1/orders", HttpVersion.HTTP_2, fields);
+    }
+
+    private static ByteBuffer encode(HpackEncoder encoder, MetaData metaData) {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encoder.encode(buffer, metaData);
+        buffer.flip();
+        return buffer;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HpackBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+}
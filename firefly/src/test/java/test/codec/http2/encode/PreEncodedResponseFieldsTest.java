@@ -0,0 +1,92 @@
+package test.codec.http2.encode;
+
+import com.firefly.codec.http2.encode.HttpGenerator;
+import com.firefly.codec.http2.encode.PreEncodedResponseFields;
+import com.firefly.codec.http2.model.*;
+import com.firefly.utils.io.BufferUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.*;
+
+public class PreEncodedResponseFieldsTest {
+
+    @Test
+    public void testStaticFields() throws Exception {
+        PreEncodedResponseFields responseFields = new PreEncodedResponseFields();
+        responseFields.add("X-Frame-Options", "DENY").add(HttpHeader.SERVER, "firefly-test");
+
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+        info.getFields().put(HttpHeader.CONTENT_TYPE, "application/json; charset=UTF-8");
+        String response = generate(new HttpGenerator(true, true, responseFields), info);
+
+        Assert.assertThat(response, startsWith("HTTP/1.1 200 OK\r\n"));
+        Assert.assertThat(response, containsString("Content-Type: application/json; charset=UTF-8\r\n"));
+        Assert.assertThat(response, containsString("X-Frame-Options: DENY\r\n"));
+        Assert.assertThat(response, containsString("Server: firefly-test\r\n"));
+        Assert.assertThat(response, containsString("X-Powered-By: "));
+        Assert.assertThat(response, containsString("Date: " + DateGenerator.getDateField().getValue() + "\r\n"));
+        Assert.assertThat(response.indexOf("Server: "), is(response.lastIndexOf("Server: ")));
+        Assert.assertThat(response, endsWith("\r\n\r\n"));
+
+        // the response field replaces the static field
+        info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+        info.getFields().put("X-Frame-Options", "SAMEORIGIN");
+        info.getFields().put(HttpHeader.DATE, DateGenerator.__01Jan1970);
+        response = generate(new HttpGenerator(true, true, responseFields), info);
+        Assert.assertThat(response, containsString("X-Frame-Options: SAMEORIGIN\r\n"));
+        Assert.assertThat(response, not(containsString("X-Frame-Options: DENY")));
+        Assert.assertThat(response, containsString("Server: firefly-test\r\n"));
+        Assert.assertThat(response, containsString("Date: " + DateGenerator.__01Jan1970 + "\r\n"));
+        Assert.assertThat(response.indexOf("Date: "), is(response.lastIndexOf("Date: ")));
+
+        Assert.assertThat(responseFields.remove("X-Frame-Options"), is(true));
+        Assert.assertThat(responseFields.remove("X-Frame-Options"), is(false));
+        responseFields.setSendDateHeader(false);
+        info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+        response = generate(new HttpGenerator(true, true, responseFields), info);
+        Assert.assertThat(response, not(containsString("X-Frame-Options")));
+        Assert.assertThat(response, not(containsString("Date: ")));
+    }
+
+    @Test
+    public void testCachedFields() {
+        PreEncodedResponseFields responseFields = new PreEncodedResponseFields();
+        HttpField field = new HttpField(HttpHeader.CONTENT_TYPE, "application/json; charset=UTF-8");
+        Assert.assertThat(responseFields.getCachedField(field), instanceOf(PreEncodedHttpField.class));
+        Assert.assertThat(responseFields.getCachedField(field), is(field));
+
+        HttpField custom = new HttpField("X-Custom", "value");
+        Assert.assertThat(responseFields.getCachedField(custom), sameInstance(custom));
+        responseFields.cache(custom);
+        Assert.assertThat(responseFields.getCachedField(custom), instanceOf(PreEncodedHttpField.class));
+
+        ByteBuffer buffer = BufferUtils.allocate(64);
+        int pos = BufferUtils.flipToFill(buffer);
+        HttpGenerator.putTo(responseFields.getCachedField(custom), buffer);
+        BufferUtils.flipToFlush(buffer, pos);
+        Assert.assertThat(BufferUtils.toString(buffer), is("X-Custom: value\r\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFramingField() {
+        new PreEncodedResponseFields().add(HttpHeader.CONNECTION, "keep-alive");
+    }
+
+    @Test
+    public void testDateField() {
+        PreEncodedHttpField date = DateGenerator.getDateField(1000L);
+        Assert.assertThat(date.getValue(), is("Thu, 01 Jan 1970 00:00:01 GMT"));
+        Assert.assertThat(DateGenerator.getDateField(1999L), sameInstance(date));
+        Assert.assertThat(DateGenerator.getDateField(2000L).getValue(), is("Thu, 01 Jan 1970 00:00:02 GMT"));
+    }
+
+    private static String generate(HttpGenerator gen, MetaData.Response info) throws Exception {
+        ByteBuffer header = BufferUtils.allocate(4096);
+        HttpGenerator.Result result = gen.generateResponse(info, header, null, null, true);
+        Assert.assertThat(result, is(HttpGenerator.Result.FLUSH));
+        return BufferUtils.toString(header);
+    }
+}
@@ -0,0 +1,99 @@
+package test.codec.http2.hpack;
+
+import com.firefly.codec.http2.decode.Parser;
+import com.firefly.codec.http2.encode.Generator;
+import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.hpack.HpackDecoder;
+import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.codec.http2.hpack.HpackFieldCache;
+import com.firefly.codec.http2.model.*;
+import com.firefly.net.buffer.SizeClassBufferPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestHpackFieldCache {
+
+    @Test
+    public void testCachedField() {
+        HpackFieldCache cache = new HpackFieldCache(64, 128);
+        HpackDecoder decoder1 = new HpackDecoder(4096, 8192, cache);
+        HpackDecoder decoder2 = new HpackDecoder(4096, 8192, cache);
+
+        MetaData.Request request1 = (MetaData.Request) decoder1.decode(encode(request("firefly/1.0", "a=1")));
+        MetaData.Request request2 = (MetaData.Request) decoder2.decode(encode(request("firefly/1.0", "a=2")));
+
+        // the repeated literal of another connection is emitted without decoding
+        Assert.assertThat(request2.getFields().getField(HttpHeader.USER_AGENT),
+                sameInstance(request1.getFields().getField(HttpHeader.USER_AGENT)));
+        Assert.assertThat(request2.getFields().getField("x-token"),
+                not(sameInstance(request1.getFields().getField("x-token"))));
+        Assert.assertThat(request2.getFields().get("x-token"), is("a=2"));
+        Assert.assertThat(request2.getURI().getHost(), is("www.fireflysource.com"));
+    }
+
+    @Test
+    public void testLongValue() {
+        HpackFieldCache cache = new HpackFieldCache(64, 8);
+        HpackDecoder decoder1 = new HpackDecoder(4096, 8192, cache);
+        HpackDecoder decoder2 = new HpackDecoder(4096, 8192, cache);
+
+        String agent = "firefly-http-client/4.0";
+        MetaData.Request request1 = (MetaData.Request) decoder1.decode(encode(request(agent, "a=1")));
+        MetaData.Request request2 = (MetaData.Request) decoder2.decode(encode(request(agent, "a=1")));
+        Assert.assertThat(request2.getFields().getField(HttpHeader.USER_AGENT),
+                not(sameInstance(request1.getFields().getField(HttpHeader.USER_AGENT))));
+        Assert.assertThat(request2.getFields().get(HttpHeader.USER_AGENT), is(agent));
+    }
+
+    @Test
+    public void testPooledHeaderBlock() {
+        Generator generator = new Generator(4096, 0, new SizeClassBufferPool(false, 64 * 1024, 4));
+        List<HeadersFrame> frames = new ArrayList<>();
+        Parser parser = new Parser(new Parser.Listener.Adapter() {
+            @Override
+            public void onHeaders(HeadersFrame frame) {
+                frames.add(frame);
+            }
+        }, 4096, 8192);
+
+        List<ByteBuffer> list = generator.control(new HeadersFrame(1, request("firefly/1.0", "a=1"), null, true));
+        // the frame header is a slice of the pooled header block buffer
+        Assert.assertThat(list.size(), is(2));
+        Assert.assertThat(generator.getHeaderBlockBuffers().getAcquiredCount(), is(1));
+        ByteBuffer block = list.get(1);
+        list.forEach(parser::parse);
+        Assert.assertThat(frames.size(), is(1));
+        Assert.assertThat(frames.get(0).getMetaData().getFields().get("x-token"), is("a=1"));
+
+        generator.releaseHeaderBlocks();
+        Assert.assertThat(generator.getHeaderBlockBuffers().getAcquiredCount(), is(0));
+        list = generator.control(new HeadersFrame(3, request("firefly/1.0", "a=2"), null, true));
+        Assert.assertThat(list.get(1), sameInstance(block));
+        list.forEach(parser::parse);
+        Assert.assertThat(frames.size(), is(2));
+        Assert.assertThat(frames.get(1).getStreamId(), is(3));
+        Assert.assertThat(frames.get(1).getMetaData().getFields().get("x-token"), is("a=2"));
+    }
+
+    private static MetaData.Request request(String userAgent, String token) {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.USER_AGENT, userAgent);
+        fields.put("x-token", token);
+        return new MetaData.Request("GET", HttpScheme.HTTP, new HostPortHttpField("www.fireflysource.com:8080"),
+                "/index", HttpVersion.HTTP_2, fields);
+    }
+
+    private static ByteBuffer encode(MetaData metaData) {
+        HpackEncoder encoder = new HpackEncoder();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encoder.encode(buffer, metaData);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,153 @@
+package test.codec.http2.stream;
+
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.frame.PingFrame;
+import com.firefly.codec.http2.frame.WindowUpdateFrame;
+import com.firefly.codec.http2.stream.AdaptiveFlowControlStrategy;
+import com.firefly.codec.http2.stream.FlowControlStrategy;
+import com.firefly.codec.http2.stream.HTTP2Stream;
+import com.firefly.codec.http2.stream.SessionSPI;
+
+public class TestAdaptiveFlowControlStrategy {
+
+	private final AtomicInteger recvWindow = new AtomicInteger(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
+	private final List<Frame> frames = new ArrayList<>();
+	private final List<PingFrame> pings = new ArrayList<>();
+	private final SessionSPI session = mockSession();
+
+	@Test
+	public void testGrowth() {
+		AdaptiveFlowControlStrategy flowControl = new AdaptiveFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE,
+				0.5f, 1024 * 1024, 512 * 1024);
+		HTTP2Stream stream = new HTTP2Stream(null, session, 1, false);
+		flowControl.onStreamCreated(stream);
+
+		// only one PING is in flight
+		for (int i = 0; i < 3; i++) {
+			flowControl.onDataReceived(session, stream, 16384);
+		}
+		Assert.assertThat(pings.size(), is(1));
+		for (int i = 0; i < 3; i++) {
+			flowControl.onDataConsumed(session, stream, 16384);
+		}
+		Assert.assertThat(sessionDeltas(), is(32768));
+
+		// the peer sent more than 2/3 of the window in one round trip
+		Assert.assertThat(flowControl.onPingReply(session, new PingFrame(0L, true)), is(false));
+		Assert.assertThat(flowControl.onPingReply(session, reply()), is(true));
+		Assert.assertThat(flowControl.getSessionRecvWindowTarget(), is(98304));
+		Assert.assertThat(flowControl.getStreamRecvWindowTarget(), is(98304));
+		Assert.assertThat(flowControl.getRoundTripTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+
+		// the session window is enlarged at once, the unreturned consumed bytes fill the target
+		Assert.assertThat(recvWindow.get() + 16384, is(98304));
+
+		// the stream window is enlarged at the next consumption
+		frames.clear();
+		flowControl.onDataReceived(session, stream, 1024);
+		flowControl.onDataConsumed(session, stream, 1024);
+		Assert.assertThat(stream.updateRecvWindow(0), is(98304));
+		Assert.assertThat(pings.size(), is(2));
+	}
+
+	@Test
+	public void testCeilingAndShrink() {
+		AdaptiveFlowControlStrategy flowControl = new AdaptiveFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE,
+				0.5f, 100000, 100000);
+
+		// the target never exceeds the max session recv window
+		for (int i = 0; i < 4; i++) {
+			flowControl.onDataReceived(session, null, 16000);
+			flowControl.onDataConsumed(session, null, 16000);
+		}
+		flowControl.onPingReply(session, reply());
+		Assert.assertThat(flowControl.getSessionRecvWindowTarget(), is(100000));
+		Assert.assertThat(recvWindow.get(), lessThanOrEqualTo(100000));
+
+		// the peer sent a small part of the window, the consumed bytes are withheld
+		flowControl.onDataReceived(session, null, 1000);
+		flowControl.onPingReply(session, reply());
+		Assert.assertThat(flowControl.getSessionRecvWindowTarget(), is(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+
+		frames.clear();
+		int window = recvWindow.get();
+		flowControl.onDataConsumed(session, null, 1000);
+		Assert.assertThat(frames.isEmpty(), is(true));
+		Assert.assertThat(recvWindow.get(), is(window));
+		for (int i = 0; i < 40; i++) {
+			flowControl.onDataReceived(session, null, 1000);
+			flowControl.onDataConsumed(session, null, 1000);
+		}
+		Assert.assertThat(recvWindow.get(), lessThanOrEqualTo(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+	}
+
+	@Test
+	public void testLostPing() throws InterruptedException {
+		AdaptiveFlowControlStrategy flowControl = new AdaptiveFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE,
+				0.5f, 1024 * 1024, 512 * 1024);
+		flowControl.setPingTimeout(1);
+		flowControl.onDataReceived(session, null, 16384);
+		PingFrame lost = pings.get(0);
+
+		// the measurement restarts when the reply does not arrive in time
+		Thread.sleep(10);
+		flowControl.onDataReceived(session, null, 16384);
+		Assert.assertThat(pings.size(), is(2));
+		Assert.assertThat(pings.get(1).getPayloadAsLong(), not(lost.getPayloadAsLong()));
+
+		// the late reply of the abandoned PING is consumed but not measured
+		Assert.assertThat(flowControl.onPingReply(session, new PingFrame(lost.getPayload(), true)), is(true));
+		Assert.assertThat(flowControl.getRoundTripTime(TimeUnit.NANOSECONDS), is(0L));
+		Assert.assertThat(flowControl.onPingReply(session, reply()), is(true));
+		Assert.assertThat(flowControl.getRoundTripTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+	}
+
+	private PingFrame reply() {
+		return new PingFrame(pings.get(pings.size() - 1).getPayload(), true);
+	}
+
+	private int sessionDeltas() {
+		return frames.stream().filter(f -> f instanceof WindowUpdateFrame)
+				.map(f -> (WindowUpdateFrame) f).filter(f -> f.getStreamId() == 0)
+				.mapToInt(WindowUpdateFrame::getWindowDelta).sum();
+	}
+
+	private SessionSPI mockSession() {
+		return (SessionSPI) Proxy.newProxyInstance(SessionSPI.class.getClassLoader(),
+				new Class<?>[] { SessionSPI.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "ping":
+						pings.add((PingFrame) args[0]);
+						return null;
+					case "frames":
+						frames.add((Frame) args[2]);
+						Collections.addAll(frames, (Frame[]) args[3]);
+						return null;
+					case "updateRecvWindow":
+						return recvWindow.getAndAdd((Integer) args[0]);
+					case "getStreams":
+						return Collections.emptyList();
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "mock session";
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
@@ -0,0 +1,217 @@
+package test.codec.http2.stream;
+
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.codec.http2.encode.HttpGenerator;
+import com.firefly.codec.http2.model.HttpFields;
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.AbstractHTTP1OutputStream;
+import com.firefly.codec.http2.stream.HTTP1BufferArena;
+import com.firefly.codec.http2.stream.HTTP1BufferArena.ArenaBuffer;
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
+import com.firefly.net.Session;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+
+import test.codec.http2.decode.HTTP2MockSession;
+
+public class TestHTTP1BufferArena {
+
+	@Test
+	public void testReuse() {
+		HTTP1BufferArena arena = new HTTP1BufferArena(1024, 1);
+		ArenaBuffer header = arena.acquireHeaderBuffer();
+		Assert.assertThat(header.getByteBuffer().capacity(), is(1024));
+		Assert.assertThat(header.getByteBuffer().remaining(), is(0));
+
+		header.getByteBuffer().limit(10);
+		header.succeeded();
+		header.succeeded();
+		Assert.assertThat(arena.getCachedHeaderBufferCount(), is(1));
+
+		ArenaBuffer header2 = arena.acquireHeaderBuffer();
+		Assert.assertThat(header2, sameInstance(header));
+		Assert.assertThat(header2.getByteBuffer().remaining(), is(0));
+		Assert.assertThat(arena.acquireHeaderBuffer(), not(sameInstance(header)));
+
+		ArenaBuffer chunk = arena.acquireChunkBuffer();
+		ArenaBuffer chunk2 = arena.acquireChunkBuffer();
+		chunk.failed(new IOException());
+		chunk2.succeeded();
+		Assert.assertThat(arena.getCachedChunkBufferCount(), is(1));
+		Assert.assertThat(arena.acquireChunkBuffer(), sameInstance(chunk));
+	}
+
+	@Test
+	public void testChunkedResponses() throws IOException {
+		HTTP1BufferArena arena = new HTTP1BufferArena(4096);
+		MockSession session = new MockSession();
+		HttpGenerator generator = new HttpGenerator(true, true);
+
+		for (int i = 0; i < 3; i++) {
+			MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+			try (MockOutputStream output = new MockOutputStream(response, arena, session, generator)) {
+				output.write("hello".getBytes(StandardCharsets.UTF_8));
+				output.write(" world".getBytes(StandardCharsets.UTF_8));
+			}
+
+			String message = new String(session.output.toByteArray(), StandardCharsets.UTF_8);
+			Assert.assertThat(message, startsWith("HTTP/1.1 200 OK\r\n"));
+			Assert.assertThat(message, containsString("Transfer-Encoding: chunked\r\n"));
+			Assert.assertThat(message, endsWith("\r\n\r\n5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n"));
+			session.output.reset();
+		}
+		Assert.assertThat(arena.getCachedHeaderBufferCount(), is(1));
+		Assert.assertThat(arena.getCachedChunkBufferCount(), is(1));
+	}
+
+	@Test
+	public void testGatheredWrite() throws IOException {
+		HTTP1BufferArena arena = new HTTP1BufferArena(4096);
+		MockSession session = new MockSession();
+		HttpGenerator generator = new HttpGenerator(true, true);
+		MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+		MockOutputStream output = new MockOutputStream(response, arena, session, generator);
+
+		ByteBuffer hello = ByteBuffer.allocateDirect(5).put("hello".getBytes(StandardCharsets.UTF_8));
+		hello.flip();
+		ByteBuffer world = ByteBuffer.wrap(" world".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+		AtomicInteger written = new AtomicInteger();
+		output.writeWithContentLength(new ByteBuffer[]{hello, world}, new Callback() {
+			@Override
+			public void succeeded() {
+				written.incrementAndGet();
+			}
+		});
+
+		// the header and content are written in one entry
+		Assert.assertThat(session.entries, is(1));
+		Assert.assertThat(written.get(), is(1));
+		Assert.assertThat(output.isClosed(), is(true));
+		String message = new String(session.output.toByteArray(), StandardCharsets.UTF_8);
+		Assert.assertThat(message, startsWith("HTTP/1.1 200 OK\r\n"));
+		Assert.assertThat(message, containsString("Content-Length: 11\r\n"));
+		Assert.assertThat(message, endsWith("\r\n\r\nhello world"));
+		Assert.assertThat(arena.getCachedHeaderBufferCount(), is(1));
+	}
+
+	@Test
+	public void testGatheredWriteAfterCommit() throws IOException {
+		HTTP1BufferArena arena = new HTTP1BufferArena(4096);
+		MockSession session = new MockSession();
+		HttpGenerator generator = new HttpGenerator(true, true);
+		MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+		MockOutputStream output = new MockOutputStream(response, arena, session, generator);
+		output.commit();
+
+		// the callback completes even though there is no content to write
+		AtomicInteger written = new AtomicInteger();
+		output.writeWithContentLength(new ByteBuffer[0], new Callback() {
+			@Override
+			public void succeeded() {
+				written.incrementAndGet();
+			}
+		});
+		Assert.assertThat(written.get(), is(1));
+		Assert.assertThat(output.isClosed(), is(true));
+	}
+
+	@Test
+	public void testGatheredWriteFailure() throws IOException {
+		HTTP1BufferArena arena = new HTTP1BufferArena(4096);
+		MockSession session = new MockSession();
+		HttpGenerator generator = new HttpGenerator(true, true);
+		new MockOutputStream(new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields()), arena, session,
+				generator).commit();
+
+		// the generator has been committed by another response, the header buffer is returned on the error path
+		MockOutputStream output = new MockOutputStream(
+				new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields()), arena, session, generator);
+		try {
+			output.writeWithContentLength(new ByteBuffer[]{BufferUtils.toBuffer("hello", StandardCharsets.UTF_8)},
+					Callback.NOOP);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertThat(output.isClosed(), is(true));
+		}
+		Assert.assertThat(arena.getCachedHeaderBufferCount(), is(1));
+	}
+
+	private static class MockSession extends HTTP2MockSession {
+
+		private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		private int entries;
+
+		@Override
+		public void encode(Object message) {
+			entries++;
+			if (message instanceof ByteBufferArrayOutputEntry) {
+				ByteBufferArrayOutputEntry entry = (ByteBufferArrayOutputEntry) message;
+				for (ByteBuffer buffer : entry.getData()) {
+					output.write(BufferUtils.toArray(buffer), 0, buffer.remaining());
+				}
+				entry.getCallback().succeeded();
+			} else if (message instanceof ByteBufferOutputEntry) {
+				ByteBufferOutputEntry entry = (ByteBufferOutputEntry) message;
+				output.write(BufferUtils.toArray(entry.getData()), 0, entry.getData().remaining());
+				entry.getCallback().succeeded();
+			} else {
+				ByteBuffer buffer = (ByteBuffer) message;
+				output.write(BufferUtils.toArray(buffer), 0, buffer.remaining());
+			}
+		}
+	}
+
+	private static class MockOutputStream extends AbstractHTTP1OutputStream {
+
+		private final HTTP1BufferArena arena;
+		private final Session session;
+		private final HttpGenerator generator;
+
+		private MockOutputStream(MetaData.Response response, HTTP1BufferArena arena, Session session,
+				HttpGenerator generator) {
+			super(response, false);
+			this.arena = arena;
+			this.session = session;
+			this.generator = generator;
+		}
+
+		@Override
+		protected HTTP1BufferArena getBufferArena() {
+			return arena;
+		}
+
+		@Override
+		protected Session getSession() {
+			return session;
+		}
+
+		@Override
+		protected HttpGenerator getHttpGenerator() {
+			return generator;
+		}
+
+		@Override
+		protected void generateHTTPMessageSuccessfully() {
+			generator.reset();
+		}
+
+		@Override
+		protected void generateHTTPMessageExceptionally(HttpGenerator.Result generatorResult,
+				HttpGenerator.State generatorState) {
+			generator.reset();
+			throw new IllegalStateException("generate http message exception " + generatorResult);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package test.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.DataFrame;
+import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.model.HttpFields;
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.AbstractHTTP2OutputStream;
+import com.firefly.codec.http2.stream.Stream;
+import com.firefly.utils.concurrent.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestHTTP2OutputStreamCallback {
+
+    private final List<Frame> frames = new ArrayList<>();
+    private final List<Callback> frameCallbacks = new ArrayList<>();
+
+    @Test
+    public void testWriteCallback() throws IOException {
+        AbstractHTTP2OutputStream output = new AbstractHTTP2OutputStream(
+                new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields()), false) {
+            private final Stream stream = mockStream();
+
+            @Override
+            protected Stream getStream() {
+                return stream;
+            }
+        };
+
+        AtomicInteger written = new AtomicInteger();
+        Callback callback = new Callback() {
+            @Override
+            public void succeeded() {
+                written.incrementAndGet();
+            }
+        };
+
+        // the chunked data frame is written at once if the writer waits for the callback
+        output.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), callback);
+        Assert.assertThat(frames.size(), is(1));
+        Assert.assertThat(written.get(), is(0));
+
+        // the headers frame is written, then the data frame
+        frameCallbacks.remove(0).succeeded();
+        Assert.assertThat(frames.size(), is(2));
+        Assert.assertThat(written.get(), is(0));
+        frameCallbacks.remove(0).succeeded();
+        Assert.assertThat(written.get(), is(1));
+
+        // the last frame of the chunked stream is empty
+        output.close();
+        Assert.assertThat(frames.size(), is(3));
+        DataFrame last = (DataFrame) frames.get(2);
+        Assert.assertThat(last.isEndStream(), is(true));
+        Assert.assertThat(last.remaining(), is(0));
+    }
+
+    @Test
+    public void testFailedCallback() throws IOException {
+        AbstractHTTP2OutputStream output = new AbstractHTTP2OutputStream(
+                new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields()), false) {
+            private final Stream stream = mockStream();
+
+            @Override
+            protected Stream getStream() {
+                return stream;
+            }
+        };
+
+        List<Throwable> failures = new ArrayList<>();
+        Callback callback = new Callback() {
+            @Override
+            public void failed(Throwable x) {
+                failures.add(x);
+            }
+        };
+        output.write(ByteBuffer.wrap(new byte[]{1}), callback);
+        frameCallbacks.remove(0).failed(new IOException("reset"));
+        Assert.assertThat(failures.size(), is(1));
+    }
+
+    private Stream mockStream() {
+        return (Stream) Proxy.newProxyInstance(Stream.class.getClassLoader(), new Class<?>[]{Stream.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return 1;
+                        case "headers":
+                        case "data":
+                            frames.add((Frame) args[0]);
+                            frameCallbacks.add((Callback) args[1]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,172 @@
+package test.codec.http2.stream;
+
+import static org.hamcrest.Matchers.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.codec.http2.frame.DataFrame;
+import com.firefly.codec.http2.frame.PriorityFrame;
+import com.firefly.codec.http2.stream.HTTP2Flusher;
+import com.firefly.codec.http2.stream.HTTP2Stream;
+import com.firefly.codec.http2.stream.PriorityStreamScheduler;
+import com.firefly.codec.http2.stream.RoundRobinStreamScheduler;
+import com.firefly.codec.http2.stream.StreamScheduler;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+
+public class TestStreamScheduler {
+
+	private static final int FRAME_SIZE = 1024;
+
+	@Test
+	public void testWeight() {
+		PriorityStreamScheduler scheduler = new PriorityStreamScheduler();
+		scheduler.priority(new PriorityFrame(1, 0, 64, false));
+		scheduler.priority(new PriorityFrame(3, 0, 192, false));
+		scheduler.offer(new MockEntry(1, 1024 * 1024));
+		scheduler.offer(new MockEntry(3, 1024 * 1024));
+
+		// the siblings share the bandwidth in proportion to their weights
+		Map<Integer, Integer> sent = send(scheduler, 400);
+		Assert.assertThat(sent.get(1), is(100 * FRAME_SIZE));
+		Assert.assertThat(sent.get(3), is(300 * FRAME_SIZE));
+	}
+
+	@Test
+	public void testDependency() {
+		PriorityStreamScheduler scheduler = new PriorityStreamScheduler();
+		scheduler.priority(new PriorityFrame(3, 1, 16, false));
+		scheduler.offer(new MockEntry(3, 2 * FRAME_SIZE));
+		scheduler.offer(new MockEntry(1, 2 * FRAME_SIZE));
+		Assert.assertThat(scheduler.getParentStreamId(3), is(1));
+
+		// the parent stream is served before its dependent streams
+		List<Integer> order = order(scheduler);
+		Assert.assertThat(order, contains(1, 1, 3, 3));
+	}
+
+	@Test
+	public void testExclusive() {
+		PriorityStreamScheduler scheduler = new PriorityStreamScheduler();
+		scheduler.priority(new PriorityFrame(1, 0, 16, false));
+		scheduler.priority(new PriorityFrame(3, 0, 16, false));
+		scheduler.priority(new PriorityFrame(5, 0, 32, true));
+		Assert.assertThat(scheduler.getParentStreamId(1), is(5));
+		Assert.assertThat(scheduler.getParentStreamId(3), is(5));
+		Assert.assertThat(scheduler.getWeight(5), is(32));
+
+		// the parent depends on its former dependent stream
+		scheduler.priority(new PriorityFrame(5, 1, 16, false));
+		Assert.assertThat(scheduler.getParentStreamId(1), is(0));
+		Assert.assertThat(scheduler.getParentStreamId(5), is(1));
+		Assert.assertThat(scheduler.getParentStreamId(3), is(5));
+
+		// the dependent streams take the place of the removed stream
+		scheduler.remove(5);
+		Assert.assertThat(scheduler.getParentStreamId(5), is(-1));
+		Assert.assertThat(scheduler.getParentStreamId(3), is(1));
+	}
+
+	@Test
+	public void testRoundRobin() {
+		RoundRobinStreamScheduler scheduler = new RoundRobinStreamScheduler(2 * FRAME_SIZE);
+		scheduler.priority(new PriorityFrame(3, 1, 16, false));
+		scheduler.offer(new MockEntry(1, 4 * FRAME_SIZE));
+		scheduler.offer(new MockEntry(3, 3 * FRAME_SIZE));
+		scheduler.offer(new MockEntry(5, FRAME_SIZE));
+
+		// every stream writes a quantum in its turn, the priorities are ignored
+		List<Integer> order = order(scheduler);
+		Assert.assertThat(order, contains(1, 1, 3, 3, 5, 1, 1, 3));
+	}
+
+	@Test
+	public void testStreamOrder() {
+		StreamScheduler[] schedulers = { new PriorityStreamScheduler(), new RoundRobinStreamScheduler() };
+		for (StreamScheduler scheduler : schedulers) {
+			MockEntry first = new MockEntry(1, FRAME_SIZE);
+			MockEntry second = new MockEntry(1, FRAME_SIZE);
+			MockEntry third = new MockEntry(3, FRAME_SIZE);
+			scheduler.offer(first);
+			scheduler.offer(third);
+			scheduler.offer(second);
+			Assert.assertThat(scheduler.size(), is(3));
+
+			List<MockEntry> entries = new ArrayList<>();
+			MockEntry entry;
+			while ((entry = (MockEntry) scheduler.poll()) != null) {
+				entries.add(entry);
+			}
+			Assert.assertThat(entries.indexOf(first), lessThan(entries.indexOf(second)));
+			Assert.assertThat(entries.size(), is(3));
+			Assert.assertTrue(scheduler.isEmpty());
+		}
+	}
+
+	private static Map<Integer, Integer> send(StreamScheduler scheduler, int frames) {
+		Map<Integer, Integer> sent = new HashMap<>();
+		for (int i = 0; i < frames; i++) {
+			MockEntry entry = (MockEntry) scheduler.poll();
+			int bytes = entry.send(scheduler);
+			sent.merge(entry.getStreamId(), bytes, Integer::sum);
+		}
+		return sent;
+	}
+
+	private static List<Integer> order(StreamScheduler scheduler) {
+		List<Integer> order = new ArrayList<>();
+		MockEntry entry;
+		while ((entry = (MockEntry) scheduler.poll()) != null) {
+			entry.send(scheduler);
+			order.add(entry.getStreamId());
+		}
+		return order;
+	}
+
+	private static class MockEntry extends HTTP2Flusher.Entry {
+
+		private int remaining;
+
+		private MockEntry(int streamId, int length) {
+			super(new DataFrame(streamId, BufferUtils.EMPTY_BUFFER, true), new HTTP2Stream(null, null, streamId, false),
+					Callback.NOOP);
+			this.remaining = length;
+		}
+
+		private int getStreamId() {
+			return stream.getId();
+		}
+
+		/**
+		 * Generate a DATA frame like the flusher, the entry is put back if it
+		 * has remaining data.
+		 */
+		private int send(StreamScheduler scheduler) {
+			int bytes = Math.min(FRAME_SIZE, remaining);
+			remaining -= bytes;
+			scheduler.onSent(getStreamId(), bytes);
+			if (remaining > 0) {
+				scheduler.offerFirst(this);
+			}
+			return bytes;
+		}
+
+		@Override
+		public int dataRemaining() {
+			return remaining;
+		}
+
+		@Override
+		protected boolean generate(Queue<ByteBuffer> buffers) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package test.http;
+
+import static org.hamcrest.Matchers.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.server.http2.servlet.AsyncContextImpl;
+
+public class TestAsyncContext {
+
+	private final AtomicInteger completed = new AtomicInteger();
+
+	@Test
+	public void testDispatch() {
+		AsyncContextImpl asyncContext = new AsyncContextImpl();
+		AtomicInteger completedInForward = new AtomicInteger(-1);
+		ServletRequest request = createRequest((req, resp) -> completedInForward.set(completed.get()));
+		asyncContext.startAsync(request, null, true, -1);
+		asyncContext.addListener(new CompleteListener());
+
+		// the context completes after the dispatched resource returns
+		asyncContext.dispatch("/test");
+		Assert.assertThat(completedInForward.get(), is(0));
+		Assert.assertThat(completed.get(), is(1));
+		Assert.assertThat(asyncContext.isStartAsync(), is(false));
+	}
+
+	@Test
+	public void testDispatchStartsAsyncAgain() {
+		AsyncContextImpl asyncContext = new AsyncContextImpl();
+		ServletRequest request = createRequest(
+				(req, resp) -> asyncContext.startAsync(req, resp, true, -1));
+		asyncContext.startAsync(request, null, true, -1);
+		asyncContext.addListener(new CompleteListener());
+
+		asyncContext.dispatch("/test");
+		Assert.assertThat(completed.get(), is(0));
+		Assert.assertThat(asyncContext.isStartAsync(), is(true));
+
+		asyncContext.complete();
+		Assert.assertThat(completed.get(), is(1));
+	}
+
+	private static ServletRequest createRequest(Forward forward) {
+		RequestDispatcher dispatcher = (RequestDispatcher) Proxy.newProxyInstance(
+				RequestDispatcher.class.getClassLoader(), new Class<?>[] { RequestDispatcher.class },
+				(proxy, method, args) -> {
+					forward.forward((ServletRequest) args[0], (ServletResponse) args[1]);
+					return null;
+				});
+		return (ServletRequest) Proxy.newProxyInstance(ServletRequest.class.getClassLoader(),
+				new Class<?>[] { ServletRequest.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getRequestDispatcher")) {
+						return dispatcher;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private interface Forward {
+		void forward(ServletRequest request, ServletResponse response);
+	}
+
+	private class CompleteListener implements AsyncListener {
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			completed.incrementAndGet();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package test.http;
+
+import static org.hamcrest.Matchers.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.net.ByteBufferArrayOutputEntry;
+import com.firefly.net.ByteBufferOutputEntry;
+import com.firefly.server.http2.HTTP1ServerResponseQueue;
+import com.firefly.server.http2.HTTP1ServerResponseQueue.ResponseSlot;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+
+import test.codec.http2.decode.HTTP2MockSession;
+
+public class TestHTTP1ServerResponseQueue {
+
+	@Test
+	public void testOrder() {
+		MockSession session = new MockSession();
+		HTTP1ServerResponseQueue queue = new HTTP1ServerResponseQueue(session,
+				() -> Assert.fail("the connection is closed"));
+		ResponseSlot first = queue.register();
+		ResponseSlot second = queue.register();
+		ResponseSlot third = queue.register();
+
+		// the later responses are held until the previous responses complete
+		third.write(buffer("c"));
+		third.complete(false);
+		second.write(buffer("b1"));
+		Assert.assertThat(session.output(), is(""));
+
+		first.write(buffer("a"));
+		Assert.assertThat(session.output(), is("a"));
+		first.complete(false);
+		Assert.assertThat(session.output(), is("ab1"));
+		Assert.assertThat(queue.getPendingResponses(), is(2));
+
+		second.write(buffer("b2"));
+		second.complete(false);
+		Assert.assertThat(session.output(), is("ab1b2c"));
+		Assert.assertThat(queue.getPendingResponses(), is(0));
+	}
+
+	@Test
+	public void testBatch() {
+		MockSession session = new MockSession();
+		HTTP1ServerResponseQueue queue = new HTTP1ServerResponseQueue(session,
+				() -> Assert.fail("the connection is closed"));
+		AtomicInteger succeeded = new AtomicInteger();
+		Callback callback = callback(succeeded::incrementAndGet, t -> Assert.fail());
+
+		queue.startBatch();
+		for (int i = 0; i < 3; i++) {
+			ResponseSlot slot = queue.register();
+			slot.write(new ByteBufferOutputEntry(callback, buffer("h" + i)));
+			slot.write(buffer("d" + i));
+			slot.complete(false);
+		}
+		Assert.assertThat(session.entries.size(), is(0));
+		queue.endBatch();
+
+		// all completed responses are flushed in one gathered write
+		Assert.assertThat(session.entries.size(), is(1));
+		Assert.assertThat(session.entries.get(0), instanceOf(ByteBufferArrayOutputEntry.class));
+		Assert.assertThat(session.output(), is("h0d0h1d1h2d2"));
+		Assert.assertThat(succeeded.get(), is(3));
+	}
+
+	@Test
+	public void testClose() {
+		MockSession session = new MockSession();
+		AtomicBoolean closed = new AtomicBoolean();
+		HTTP1ServerResponseQueue queue = new HTTP1ServerResponseQueue(session, () -> closed.set(true));
+		AtomicInteger failed = new AtomicInteger();
+		Callback callback = callback(Assert::fail, t -> failed.incrementAndGet());
+
+		queue.startBatch();
+		ResponseSlot first = queue.register();
+		ResponseSlot second = queue.register();
+		second.write(new ByteBufferOutputEntry(callback, buffer("b")));
+		first.write(buffer("a"));
+		first.complete(true);
+		Assert.assertThat(closed.get(), is(false));
+		queue.endBatch();
+
+		// the connection is closed after the response is flushed
+		Assert.assertThat(session.output(), is("a"));
+		Assert.assertThat(closed.get(), is(true));
+		Assert.assertThat(failed.get(), is(1));
+
+		second.write(new ByteBufferOutputEntry(callback, buffer("c")));
+		second.complete(false);
+		Assert.assertThat(session.output(), is("a"));
+		Assert.assertThat(failed.get(), is(2));
+	}
+
+	private static Callback callback(Runnable succeeded, Consumer<Throwable> failed) {
+		return new Callback() {
+			@Override
+			public void succeeded() {
+				succeeded.run();
+			}
+
+			@Override
+			public void failed(Throwable x) {
+				failed.accept(x);
+			}
+		};
+	}
+
+	private static ByteBuffer buffer(String s) {
+		return BufferUtils.toBuffer(s, StandardCharsets.UTF_8);
+	}
+
+	private static class MockSession extends HTTP2MockSession {
+
+		private final List<Object> entries = new ArrayList<>();
+
+		@Override
+		public void encode(Object message) {
+			entries.add(message);
+			if (message instanceof ByteBufferArrayOutputEntry) {
+				((ByteBufferArrayOutputEntry) message).getCallback().succeeded();
+			} else if (message instanceof ByteBufferOutputEntry) {
+				((ByteBufferOutputEntry) message).getCallback().succeeded();
+			}
+		}
+
+		private String output() {
+			StringBuilder s = new StringBuilder();
+			for (Object entry : entries) {
+				if (entry instanceof ByteBuffer) {
+					s.append(BufferUtils.toString((ByteBuffer) entry));
+				} else if (entry instanceof ByteBufferOutputEntry) {
+					s.append(BufferUtils.toString(((ByteBufferOutputEntry) entry).getData()));
+				} else if (entry instanceof ByteBufferArrayOutputEntry) {
+					for (ByteBuffer buffer : ((ByteBufferArrayOutputEntry) entry).getData()) {
+						s.append(BufferUtils.toString(buffer));
+					}
+				}
+			}
+			return s.toString();
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package test.http;
+
+import com.firefly.client.http2.ClientHTTPHandler;
+import com.firefly.client.http2.HTTPClientConnection;
+import com.firefly.client.http2.HTTPClientConnectionPool;
+import com.firefly.client.http2.HTTPClientConnectionPool.Lease;
+import com.firefly.codec.http2.frame.SettingsFrame;
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Promise;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestHTTPClientConnectionPool {
+
+    @Test
+    public void testHTTP2Multiplexing() throws Exception {
+        MockPool pool = new MockPool(HttpVersion.HTTP_2, 4, 2, 16);
+
+        // the requests wait for the first connection instead of opening more connections
+        List<Promise.Completable<Lease>> leases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            leases.add(pool.take());
+        }
+        Assert.assertThat(pool.connectCount(), is(1));
+        pool.connected(0);
+        Assert.assertThat(pool.size(), is(1));
+        for (Promise.Completable<Lease> lease : leases) {
+            Assert.assertThat(lease.get().getConnection(), sameInstance(pool.connection(0)));
+        }
+
+        // the connection takes requests until it reaches the max concurrent streams
+        leases.add(pool.take());
+        Assert.assertThat(leases.get(3).get().getConnection(), sameInstance(pool.connection(0)));
+        Promise.Completable<Lease> fifth = pool.take();
+        Assert.assertThat(fifth.isDone(), is(false));
+        Assert.assertThat(pool.connectCount(), is(2));
+        pool.connected(1);
+        Assert.assertThat(fifth.get().getConnection(), sameInstance(pool.connection(1)));
+        Assert.assertThat(pool.getActiveRequests(), is(5));
+
+        // the released stream is reused by the least loaded connection
+        Assert.assertThat(leases.get(0).get().release(), is(true));
+        Assert.assertThat(leases.get(0).get().release(), is(false));
+        Assert.assertThat(pool.getActiveRequests(), is(4));
+        Assert.assertThat(pool.take().get().getConnection(), sameInstance(pool.connection(1)));
+    }
+
+    @Test
+    public void testHTTP1MaxConnections() throws Exception {
+        MockPool pool = new MockPool(HttpVersion.HTTP_1_1, 1, 2, 2);
+
+        Promise.Completable<Lease> first = pool.take();
+        Assert.assertThat(pool.connectCount(), is(1));
+        pool.connected(0);
+        Assert.assertThat(first.get().getConnection(), sameInstance(pool.connection(0)));
+
+        // an HTTP/1 connection serves one request at a time
+        Promise.Completable<Lease> second = pool.take();
+        Promise.Completable<Lease> third = pool.take();
+        Assert.assertThat(pool.connectCount(), is(2));
+        Assert.assertThat(pool.getPendingRequests(), is(2));
+        pool.connected(1);
+        Assert.assertThat(second.get().getConnection(), sameInstance(pool.connection(1)));
+
+        // the pending request takes the released connection
+        Assert.assertThat(third.isDone(), is(false));
+        first.get().release();
+        Assert.assertThat(third.get().getConnection(), sameInstance(pool.connection(0)));
+        Assert.assertThat(pool.connectCount(), is(2));
+    }
+
+    @Test
+    public void testRejectPendingRequest() throws Exception {
+        MockPool pool = new MockPool(HttpVersion.HTTP_1_1, 1, 1, 2);
+        Promise.Completable<Lease> first = pool.take();
+        Promise.Completable<Lease> second = pool.take();
+        Assert.assertThat(pool.getPendingRequests(), is(2));
+        try {
+            pool.take().get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+
+        pool.connected(0);
+        first.get().release();
+        Assert.assertThat(second.get().getConnection(), sameInstance(pool.connection(0)));
+
+        // the pending requests fail when the pool is stopped
+        Promise.Completable<Lease> third = pool.take();
+        pool.stop();
+        Assert.assertThat(third.isCompletedExceptionally(), is(true));
+        Assert.assertThat(pool.connection(0).isOpen(), is(true));
+        second.get().release();
+        Assert.assertThat(pool.connection(0).isOpen(), is(false));
+    }
+
+    @Test
+    public void testClosedConnection() throws Exception {
+        MockPool pool = new MockPool(HttpVersion.HTTP_1_1, 1, 2, 2);
+        Promise.Completable<Lease> first = pool.take();
+        pool.connected(0);
+        first.get().release();
+        Assert.assertThat(pool.size(), is(1));
+
+        pool.connection(0).close();
+        Assert.assertThat(pool.size(), is(0));
+        Promise.Completable<Lease> second = pool.take();
+        Assert.assertThat(pool.connectCount(), is(2));
+        pool.connected(1);
+        Assert.assertThat(second.get().getConnection(), sameInstance(pool.connection(1)));
+    }
+
+    @Test
+    public void testConnectFailure() throws Exception {
+        MockPool pool = new MockPool(HttpVersion.HTTP_1_1, 1, 2, 2);
+        Promise.Completable<Lease> first = pool.take();
+        pool.promises.get(0).failed(new IllegalStateException("connection refused"));
+        Assert.assertThat(first.isCompletedExceptionally(), is(true));
+
+        Promise.Completable<Lease> second = pool.take();
+        pool.connected(1);
+        Assert.assertThat(second.get().getConnection(), sameInstance(pool.connection(1)));
+    }
+
+    private static class MockPool extends HTTPClientConnectionPool {
+
+        private final int maxConcurrentStreams;
+        private final List<Promise.Completable<HTTPClientConnection>> promises;
+        private final List<MockConnection> connections;
+
+        private MockPool(HttpVersion version, int maxConcurrentStreams, int maxConnections, int maxPendingRequests) {
+            this(version, maxConcurrentStreams, maxConnections, maxPendingRequests, new ArrayList<>(), new ArrayList<>());
+        }
+
+        private MockPool(HttpVersion version, int maxConcurrentStreams, int maxConnections, int maxPendingRequests,
+                         List<Promise.Completable<HTTPClientConnection>> promises, List<MockConnection> connections) {
+            super(() -> {
+                Promise.Completable<HTTPClientConnection> promise = new Promise.Completable<>();
+                promises.add(promise);
+                connections.add(new MockConnection(version, connections.size()));
+                return promise;
+            }, maxConnections, maxPendingRequests);
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            this.promises = promises;
+            this.connections = connections;
+        }
+
+        @Override
+        protected int getMaxConcurrentRequests(HTTPClientConnection connection) {
+            return connection.getHttpVersion() == HttpVersion.HTTP_2 ? maxConcurrentStreams : 1;
+        }
+
+        private int connectCount() {
+            return promises.size();
+        }
+
+        private void connected(int i) {
+            promises.get(i).succeeded(connections.get(i));
+        }
+
+        private MockConnection connection(int i) {
+            return connections.get(i);
+        }
+    }
+
+    private static class MockConnection implements HTTPClientConnection {
+
+        private final HttpVersion version;
+        private final int sessionId;
+        private boolean open = true;
+        private Object attachment;
+
+        private MockConnection(HttpVersion version, int sessionId) {
+            this.version = version;
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void send(MetaData.Request request, Promise<HTTPOutputStream> promise, ClientHTTPHandler handler) {
+        }
+
+        @Override
+        public void send(MetaData.Request request, ClientHTTPHandler handler) {
+        }
+
+        @Override
+        public void send(MetaData.Request request, ByteBuffer buffer, ClientHTTPHandler handler) {
+        }
+
+        @Override
+        public void send(MetaData.Request request, ByteBuffer[] buffers, ClientHTTPHandler handler) {
+        }
+
+        @Override
+        public HTTPOutputStream sendRequestWithContinuation(MetaData.Request request, ClientHTTPHandler handler) {
+            return null;
+        }
+
+        @Override
+        public HTTPOutputStream getHTTPOutputStream(MetaData.Request request, ClientHTTPHandler handler) {
+            return null;
+        }
+
+        @Override
+        public void upgradeHTTP2(MetaData.Request request, SettingsFrame settings,
+                                 Promise<HTTPClientConnection> promise, ClientHTTPHandler handler) {
+        }
+
+        @Override
+        public HttpVersion getHttpVersion() {
+            return version;
+        }
+
+        @Override
+        public Object getAttachment() {
+            return attachment;
+        }
+
+        @Override
+        public void setAttachment(Object attachment) {
+            this.attachment = attachment;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isEncrypted() {
+            return false;
+        }
+
+        @Override
+        public int getSessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public long getReadBytes() {
+            return 0;
+        }
+
+        @Override
+        public long getWrittenBytes() {
+            return 0;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
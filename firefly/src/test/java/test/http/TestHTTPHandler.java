@@ -0,0 +1,104 @@
+package test.http;
+
+import com.firefly.client.http2.HTTP2ClientContext;
+import com.firefly.client.http2.HTTP2ClientHandler;
+import com.firefly.codec.http2.stream.HTTP2Configuration;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.ssl.SSLHandshakeExecutor;
+import com.firefly.net.tcp.ssl.SSLSession;
+import com.firefly.net.tcp.ssl.SelfSignedCertificateOpenSSLContextFactory;
+import com.firefly.utils.concurrent.Callback;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestHTTPHandler {
+
+    private ExecutorService pool;
+    private SSLHandshakeExecutor handshakeExecutor;
+    private final Map<Integer, HTTP2ClientContext> contexts = new ConcurrentHashMap<>();
+    private HTTP2ClientHandler handler;
+
+    @Before
+    public void before() {
+        pool = Executors.newSingleThreadExecutor();
+        handshakeExecutor = new SSLHandshakeExecutor(pool, 1, 1);
+        SelfSignedCertificateOpenSSLContextFactory factory = new SelfSignedCertificateOpenSSLContextFactory();
+        factory.setHandshakeExecutor(handshakeExecutor);
+        HTTP2Configuration config = new HTTP2Configuration();
+        config.setSecureConnectionEnabled(true);
+        config.setSslContextFactory(factory);
+        handler = new HTTP2ClientHandler(config, contexts);
+    }
+
+    @After
+    public void after() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSessionClosedDuringHandshake() throws Throwable {
+        Session session = createSession(1);
+        handler.sessionOpened(session);
+        Assert.assertThat(session.getAttachment(), instanceOf(SSLSession.class));
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(1));
+
+        // the peer disconnects before the handshake finishes
+        handler.sessionClosed(session);
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(0));
+    }
+
+    @Test
+    public void testExceptionCaughtDuringHandshake() throws Throwable {
+        Session session = createSession(2);
+        handler.sessionOpened(session);
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(1));
+
+        handler.exceptionCaught(session, new IllegalStateException("the handshake fails"));
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(0));
+
+        // the permit is released once
+        handler.sessionClosed(session);
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(0));
+        handler.sessionOpened(createSession(3));
+        Assert.assertThat(handshakeExecutor.getConcurrentHandshakes(), is(1));
+    }
+
+    private Session createSession(int sessionId) {
+        contexts.put(sessionId, new HTTP2ClientContext());
+        Object[] attachment = new Object[1];
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getSessionId":
+                            return sessionId;
+                        case "isOpen":
+                            return true;
+                        case "attachObject":
+                            attachment[0] = args[0];
+                            return null;
+                        case "getAttachment":
+                            return attachment[0];
+                        case "getRemoteAddress":
+                            return null;
+                        case "write":
+                            // the client hello is sent
+                            ((Callback) args[1]).succeeded();
+                            return null;
+                        case "toString":
+                            return "session " + sessionId;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
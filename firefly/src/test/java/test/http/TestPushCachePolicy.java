@@ -0,0 +1,236 @@
+package test.http;
+
+import com.firefly.codec.http2.frame.PushPromiseFrame;
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.SessionSPI;
+import com.firefly.codec.http2.stream.Stream;
+import com.firefly.server.http2.HTTP2ServerOutputStream;
+import com.firefly.server.http2.HTTP2ServerRequestHandler;
+import com.firefly.server.http2.HTTPServerResponse;
+import com.firefly.server.http2.PushCachePolicy;
+import com.firefly.server.http2.ServerHTTPHandler;
+import com.firefly.server.http2.SimpleRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestPushCachePolicy {
+
+    private final HTTP2ServerRequestHandler requestHandler = new HTTP2ServerRequestHandler(new ServerHTTPHandler.Adapter());
+    private final List<PushPromiseFrame> pushPromises = new ArrayList<>();
+
+    @Test
+    public void testPush() {
+        PushCachePolicy policy = new PushCachePolicy();
+
+        // learn the resources that follow the page on two connections
+        for (int i = 0; i < 2; i++) {
+            SessionSPI session = mockSession(true);
+            policy.onRequest(request(session, "/index.html", null, null));
+            policy.onRequest(request(session, "/style.css", "http://localhost:8080/index.html", null));
+            policy.onRequest(request(session, "/app.js", "http://localhost:8080/index.html", null));
+            policy.onRequest(request(session, "/other.css", "http://example.com/index.html", null));
+        }
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), containsInAnyOrder("/style.css", "/app.js"));
+        Assert.assertThat(pushPromises.isEmpty(), is(true));
+
+        SessionSPI session2 = mockSession(true);
+        SimpleRequest page = request(session2, "/index.html", null, null);
+        page.getRequest().getFields().put(HttpHeader.IF_NONE_MATCH, "\"v1\"");
+        policy.onRequest(page);
+        Assert.assertThat(pushedPaths(), containsInAnyOrder("/style.css", "/app.js"));
+
+        // the pushed requests inherit the headers except the conditional headers
+        MetaData.Request pushed = (MetaData.Request) pushPromises.get(0).getMetaData();
+        Assert.assertThat(pushed.getMethod(), is("GET"));
+        Assert.assertThat(pushed.getFields().get(HttpHeader.REFERER), is("http://localhost:8080/index.html"));
+        Assert.assertThat(pushed.getFields().get(HttpHeader.USER_AGENT), is("test"));
+        Assert.assertThat(pushed.getFields().containsKey(HttpHeader.IF_NONE_MATCH.asString()), is(false));
+        String setCookie = page.getResponse().getResponse().getFields().get(HttpHeader.SET_COOKIE);
+        Assert.assertThat(setCookie, startsWith("firefly-push-digest="));
+
+        // the resources were pushed on the same connection
+        pushPromises.clear();
+        policy.onRequest(request(session2, "/index.html", null, null));
+        Assert.assertThat(pushPromises.isEmpty(), is(true));
+
+        // the client has the resources according to the digest cookie
+        String digest = setCookie.substring(0, setCookie.indexOf(';'));
+        policy.onRequest(request(mockSession(true), "/index.html", null, digest));
+        Assert.assertThat(pushPromises.isEmpty(), is(true));
+
+        // the client disables the push
+        SimpleRequest request = request(mockSession(false), "/index.html", null, null);
+        Assert.assertThat(request.getResponse().isPushSupported(), is(false));
+        policy.onRequest(request);
+        Assert.assertThat(pushPromises.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAssociateOnSeveralConnections() {
+        PushCachePolicy policy = new PushCachePolicy();
+        SessionSPI session = mockSession(true);
+
+        // the resources requested on one connection are not associated
+        for (int i = 0; i < 3; i++) {
+            policy.onRequest(request(session, "/index.html", null, null));
+            policy.onRequest(request(session, "/style.css", "http://localhost:8080/index.html", null));
+        }
+        Assert.assertThat(policy.getAssociatedResources("/index.html").isEmpty(), is(true));
+
+        SessionSPI session2 = mockSession(true);
+        policy.onRequest(request(session2, "/index.html", null, null));
+        policy.onRequest(request(session2, "/style.css", "http://localhost:8080/index.html", null));
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), contains("/style.css"));
+    }
+
+    @Test
+    public void testPathWithoutQuery() {
+        PushCachePolicy policy = new PushCachePolicy();
+        for (int i = 0; i < 2; i++) {
+            SessionSPI session = mockSession(true);
+            policy.onRequest(request(session, "/index.html?q=" + i, null, null));
+            policy.onRequest(request(session, "/app.js?v=1", "http://localhost:8080/index.html?q=" + i, null));
+        }
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), contains("/app.js?v=1"));
+
+        policy.onRequest(request(mockSession(true), "/index.html?q=other", null, null));
+        Assert.assertThat(pushedPathQueries(), contains("/app.js?v=1"));
+    }
+
+    @Test
+    public void testEvictPrimaryResources() {
+        PushCachePolicy policy = new PushCachePolicy();
+        policy.setMaxPrimaryResources(16);
+        learn(policy, "/page0.html", "/page0.css");
+        Assert.assertThat(policy.getAssociatedResources("/page0.html"), contains("/page0.css"));
+
+        // the least recently requested pages are removed, the policy keeps learning the new pages
+        for (int i = 1; i < 2048; i++) {
+            policy.onRequest(request(mockSession(false), "/page" + i + ".html", null, null));
+        }
+        Assert.assertThat(policy.getAssociatedResources("/page0.html").isEmpty(), is(true));
+        learn(policy, "/index.html", "/style.css");
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), contains("/style.css"));
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        PushCachePolicy policy = new PushCachePolicy();
+        policy.setAssociationTimeout(200L);
+        learn(policy, "/index.html", "/style.css");
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), contains("/style.css"));
+        Thread.sleep(500L);
+        Assert.assertThat(policy.getAssociatedResources("/index.html").isEmpty(), is(true));
+
+        policy.setPrimaryResourceTimeout(200L);
+        learn(policy, "/index.html", "/style.css");
+        Thread.sleep(500L);
+        Assert.assertThat(policy.getAssociatedResources("/index.html").isEmpty(), is(true));
+    }
+
+    @Test
+    public void testOriginFormRequest() {
+        PushCachePolicy policy = new PushCachePolicy();
+        for (int i = 0; i < 2; i++) {
+            SessionSPI session = mockSession(true);
+            policy.onRequest(originFormRequest(session, "/index.html", "localhost:8080", null));
+            policy.onRequest(originFormRequest(session, "/style.css", "localhost:8080", "http://localhost:8080/index.html"));
+            policy.onRequest(originFormRequest(session, "/other.css", "localhost:8080", "http://localhost:8081/index.html"));
+        }
+        Assert.assertThat(policy.getAssociatedResources("/index.html"), contains("/style.css"));
+    }
+
+    private void learn(PushCachePolicy policy, String page, String resource) {
+        for (int i = 0; i < 2; i++) {
+            SessionSPI session = mockSession(false);
+            policy.onRequest(request(session, page, null, null));
+            policy.onRequest(request(session, resource, "http://localhost:8080" + page, null));
+        }
+    }
+
+    private List<String> pushedPathQueries() {
+        return pushPromises.stream().map(f -> ((MetaData.Request) f.getMetaData()).getURI().getPathQuery())
+                           .collect(Collectors.toList());
+    }
+
+    private List<String> pushedPaths() {
+        return pushPromises.stream().map(f -> ((MetaData.Request) f.getMetaData()).getURI().getPath())
+                           .collect(Collectors.toList());
+    }
+
+    private SimpleRequest request(SessionSPI session, String path, String referrer, String cookie) {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.USER_AGENT, "test");
+        if (referrer != null) {
+            fields.put(HttpHeader.REFERER, referrer);
+        }
+        if (cookie != null) {
+            fields.put(HttpHeader.COOKIE, cookie);
+        }
+        MetaData.Request request = new MetaData.Request("GET", new HttpURI("http://localhost:8080" + path),
+                HttpVersion.HTTP_2, fields);
+        MetaData.Response response = new HTTPServerResponse();
+        return new SimpleRequest(request, response, new HTTP2ServerOutputStream(response, mockStream(session), requestHandler));
+    }
+
+    private SimpleRequest originFormRequest(SessionSPI session, String path, String host, String referrer) {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.HOST, host);
+        if (referrer != null) {
+            fields.put(HttpHeader.REFERER, referrer);
+        }
+        HttpURI uri = new HttpURI();
+        uri.parseRequestTarget("GET", path);
+        MetaData.Request request = new MetaData.Request("GET", uri, HttpVersion.HTTP_1_1, fields);
+        MetaData.Response response = new HTTPServerResponse();
+        return new SimpleRequest(request, response, new HTTP2ServerOutputStream(response, mockStream(session), requestHandler));
+    }
+
+    private Stream mockStream(SessionSPI session) {
+        return (Stream) Proxy.newProxyInstance(Stream.class.getClassLoader(), new Class<?>[]{Stream.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return 1;
+                        case "isClosed":
+                            return false;
+                        case "getSession":
+                            return session;
+                        case "push":
+                            pushPromises.add((PushPromiseFrame) args[0]);
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static SessionSPI mockSession(boolean pushEnabled) {
+        return (SessionSPI) Proxy.newProxyInstance(SessionSPI.class.getClassLoader(), new Class<?>[]{SessionSPI.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isPushEnabled":
+                            return pushEnabled;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "mock session";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
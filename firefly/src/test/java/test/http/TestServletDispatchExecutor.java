@@ -0,0 +1,66 @@
+package test.http;
+
+import static org.hamcrest.Matchers.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.firefly.server.http2.servlet.ServletDispatchExecutor;
+
+public class TestServletDispatchExecutor {
+
+	@Test
+	public void testConcurrentDispatches() throws InterruptedException {
+		ServletDispatchExecutor executor = new ServletDispatchExecutor(null, 4, 1000, 1024);
+		CountDownLatch second = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+
+		// the pipelined requests of a connection are processed concurrently
+		executor.execute(() -> {
+			try {
+				Assert.assertThat(second.await(5, TimeUnit.SECONDS), is(true));
+			} catch (InterruptedException ignored) {
+			}
+			finished.countDown();
+		}, () -> Assert.fail("the dispatch is rejected"));
+		executor.execute(() -> {
+			second.countDown();
+			finished.countDown();
+		}, () -> Assert.fail("the dispatch is rejected"));
+
+		Assert.assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+		Assert.assertThat(executor.getRejectedDispatches(), is(0));
+		executor.shutdown();
+	}
+
+	@Test
+	public void testRejection() throws InterruptedException {
+		ServletDispatchExecutor executor = new ServletDispatchExecutor(null, 2, 1000, 2);
+		CountDownLatch blocking = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+		Runnable slowDispatch = () -> {
+			try {
+				blocking.await();
+			} catch (InterruptedException ignored) {
+			}
+			finished.countDown();
+		};
+
+		executor.execute(slowDispatch, () -> Assert.fail("the dispatch is rejected"));
+		executor.execute(slowDispatch, () -> Assert.fail("the dispatch is rejected"));
+
+		CountDownLatch rejected = new CountDownLatch(2);
+		executor.execute(() -> Assert.fail("the dispatch runs"), rejected::countDown);
+		executor.execute(() -> Assert.fail("the dispatch runs"), rejected::countDown);
+		Assert.assertThat(rejected.await(5, TimeUnit.SECONDS), is(true));
+		Assert.assertThat(executor.getPendingDispatches(), is(2));
+		Assert.assertThat(executor.getRejectedDispatches(), is(2));
+
+		blocking.countDown();
+		Assert.assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+		executor.shutdown();
+	}
+}
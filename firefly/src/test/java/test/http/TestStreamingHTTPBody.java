@@ -0,0 +1,167 @@
+package test.http;
+
+import com.firefly.net.buffer.PooledBuffer;
+import com.firefly.server.http2.ServerHTTPHandler;
+import com.firefly.server.http2.servlet.StreamingHTTPBody;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.IO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+public class TestStreamingHTTPBody {
+
+    private final String temporaryDirectory = System.getProperty("java.io.tmpdir");
+    private final AtomicInteger consumed = new AtomicInteger();
+    private final Callback callback = new Callback() {
+        @Override
+        public void succeeded() {
+            consumed.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void testBackPressure() throws Exception {
+        StreamingHTTPBody body = new StreamingHTTPBody(1024, temporaryDirectory);
+        InputStream in = body.getInputStream();
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return IO.toString(in, "UTF-8");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        body.offer(buffer("hello "), PooledBuffer.UNPOOLED, callback);
+        body.offer(buffer("streaming "), PooledBuffer.UNPOOLED, callback);
+        body.offer(buffer("body"), PooledBuffer.UNPOOLED, callback);
+        body.complete();
+        Assert.assertThat(result.get(2, TimeUnit.SECONDS), is("hello streaming body"));
+        Assert.assertThat(consumed.get(), is(3));
+        Assert.assertThat(body.isSpilled(), is(false));
+
+        // the callbacks complete when the content is read
+        StreamingHTTPBody body2 = new StreamingHTTPBody(1024, temporaryDirectory);
+        consumed.set(0);
+        body2.offer(buffer("abcd"), PooledBuffer.UNPOOLED, callback);
+        body2.offer(buffer("efgh"), PooledBuffer.UNPOOLED, callback);
+        byte[] b = new byte[6];
+        Assert.assertThat(body2.getInputStream().read(b), is(4));
+        Assert.assertThat(consumed.get(), is(1));
+        Assert.assertThat(body2.available(), is(4L));
+
+        // the unread content is released when the body is closed
+        body2.close();
+        Assert.assertThat(consumed.get(), is(2));
+        body2.offer(buffer("ijkl"), PooledBuffer.UNPOOLED, callback);
+        Assert.assertThat(consumed.get(), is(3));
+    }
+
+    @Test
+    public void testSpill() throws IOException {
+        StreamingHTTPBody body = new StreamingHTTPBody(10, temporaryDirectory);
+        body.offer(buffer("12345678"), PooledBuffer.UNPOOLED, callback);
+        Assert.assertThat(consumed.get(), is(0));
+        Assert.assertThat(body.isSpilled(), is(false));
+
+        // the content beyond the high-water mark is written to the temporary file and released at once
+        body.offer(buffer("abcdefgh"), PooledBuffer.UNPOOLED, callback);
+        body.offer(buffer("XY"), PooledBuffer.UNPOOLED, callback);
+        Assert.assertThat(body.isSpilled(), is(true));
+        Assert.assertThat(consumed.get(), is(2));
+        Assert.assertThat(body.available(), is(18L));
+
+        body.complete();
+        Assert.assertThat(IO.toString(body.getInputStream(), "UTF-8"), is("12345678abcdefghXY"));
+        Assert.assertThat(consumed.get(), is(3));
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        StreamingHTTPBody body = new StreamingHTTPBody(1024, temporaryDirectory);
+        ByteBuffer content = buffer("abc");
+        body.offer(content, PooledBuffer.UNPOOLED, callback);
+        body.fail(new EOFException());
+
+        // the content that is received before the failure is read, then the failure is thrown
+        byte[] b = new byte[8];
+        Assert.assertThat(body.getInputStream().read(b), is(3));
+        Assert.assertThat(content.remaining(), is(3));
+        try {
+            body.getInputStream().read(b);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertThat(e.getCause(), instanceOf(EOFException.class));
+        }
+    }
+
+    @Test
+    public void testReadyTask() throws IOException {
+        StreamingHTTPBody body = new StreamingHTTPBody(1024, temporaryDirectory);
+        AtomicInteger ready = new AtomicInteger();
+        Assert.assertThat(body.onReady(ready::incrementAndGet), is(false));
+
+        // the task runs once when the content arrives
+        body.offer(buffer("abc"), PooledBuffer.UNPOOLED, callback);
+        body.offer(buffer("def"), PooledBuffer.UNPOOLED, callback);
+        Assert.assertThat(ready.get(), is(1));
+        Assert.assertThat(body.onReady(ready::incrementAndGet), is(true));
+
+        byte[] b = new byte[8];
+        Assert.assertThat(body.getInputStream().read(b), is(3));
+        Assert.assertThat(body.getInputStream().read(b), is(3));
+        Assert.assertThat(body.isReady(), is(false));
+        Assert.assertThat(body.onReady(ready::incrementAndGet), is(false));
+        Assert.assertThat(body.isFinished(), is(false));
+
+        body.complete();
+        Assert.assertThat(ready.get(), is(2));
+        Assert.assertThat(body.isFinished(), is(true));
+    }
+
+    @Test
+    public void testContentCallback() {
+        AtomicInteger failed = new AtomicInteger();
+        Callback contentCallback = new Callback() {
+            @Override
+            public void succeeded() {
+                consumed.incrementAndGet();
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                failed.incrementAndGet();
+            }
+        };
+
+        ServerHTTPHandler handler = new ServerHTTPHandler.Adapter().content((buf, req, resp, out, conn) -> false);
+        Assert.assertThat(handler.content(buffer("abc"), null, null, null, null, contentCallback), is(false));
+        Assert.assertThat(consumed.get(), is(1));
+
+        // the callback fails when the content handler throws
+        ServerHTTPHandler failedHandler = new ServerHTTPHandler.Adapter().content((buf, req, resp, out, conn) -> {
+            throw new IllegalStateException("content error");
+        });
+        try {
+            failedHandler.content(buffer("abc"), null, null, null, null, contentCallback);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertThat(consumed.get(), is(1));
+            Assert.assertThat(failed.get(), is(1));
+        }
+    }
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+}